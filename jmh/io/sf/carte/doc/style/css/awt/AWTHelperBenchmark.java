@@ -0,0 +1,93 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.sf.carte.doc.dom.HTMLDocument;
+import io.sf.carte.doc.dom.TestDOMImplementation;
+import io.sf.carte.doc.style.css.CSSComputedProperties;
+import io.sf.carte.doc.style.css.CSSElement;
+import io.sf.carte.doc.style.css.CSSStyleDeclaration;
+import io.sf.carte.doc.style.css.CSSTypedValue;
+import io.sf.carte.doc.style.css.om.BaseCSSStyleDeclaration;
+import io.sf.carte.doc.style.css.property.CSSPropertyValueException;
+
+/**
+ * Benchmarks for {@link AWTHelper}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class AWTHelperBenchmark {
+
+	private CSSComputedProperties computedStyle;
+
+	@State(Scope.Benchmark)
+	public static class ColorValue {
+
+		@Param({ "#3a505f", "rgb(8 63 255/0.5)", "hsl(120 60% 40%)", "sandybrown",
+				"lch(32.67 12.93 244.59)", "color(display-p3 0.253 0.1087 0.7796/0.8)" })
+		public String color;
+
+		private CSSTypedValue cssColor;
+
+		@Setup
+		public void setup() {
+			CSSStyleDeclaration style = new BaseCSSStyleDeclaration();
+			style.setCssText("color: " + color);
+			cssColor = (CSSTypedValue) style.getPropertyCSSValue("color");
+		}
+
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		HTMLDocument xhtmlDoc = TestDOMImplementation.sampleHTMLDocument();
+		CSSElement elm = xhtmlDoc.getElementById("span1");
+		computedStyle = xhtmlDoc.getStyleSheet().getComputedStyle(elm, null);
+	}
+
+	@Benchmark
+	public Font createFont() {
+		return AWTHelper.createFont(computedStyle);
+	}
+
+	@Benchmark
+	public Color getAWTColor(ColorValue value) throws CSSPropertyValueException {
+		return AWTHelper.getAWTColor(value.cssColor);
+	}
+
+	@Benchmark
+	public int getARGB(ColorValue value) throws CSSPropertyValueException {
+		return AWTHelper.getARGB(value.cssColor);
+	}
+
+}
@@ -0,0 +1,130 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.Font;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import io.sf.carte.doc.agent.HeadlessDeviceFactory;
+import io.sf.carte.doc.style.css.CSSDocument;
+import io.sf.carte.doc.style.css.CSSElement;
+import io.sf.carte.doc.style.css.CSSMediaException;
+import io.sf.carte.doc.style.css.CSSStyleSheet;
+import io.sf.carte.doc.style.css.LinkStyle;
+import io.sf.carte.doc.style.css.om.FontFaceRule;
+import io.sf.carte.doc.style.css.om.TestCSSStyleSheetFactory;
+
+/**
+ * Benchmarks for {@link AWTStyleDatabase}.
+ * <p>
+ * The font-face benchmark loads the OpenSans TrueType font that is bundled with
+ * the css4j test resources.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class AWTStyleDatabaseBenchmark {
+
+	private static final String[] FONT_SIZE_IDENTIFIERS = { "xx-small", "x-small", "small",
+			"medium", "large", "x-large", "xx-large" };
+
+	private final AWTStyleDatabase styleDb = new AWTStyleDatabase();
+
+	private FontFaceRule fontFaceRule;
+
+	@State(Scope.Benchmark)
+	public static class FontFamily {
+
+		@Param({ "SansSerif", "monospaced", "No Such Font Family" })
+		public String name;
+
+	}
+
+	@State(Scope.Thread)
+	public static class FreshDatabase {
+
+		private AWTStyleDatabase styleDb;
+
+		@Setup(Level.Invocation)
+		public void setup() {
+			// Otherwise, font faces that were already loaded are not loaded again
+			styleDb = new AWTStyleDatabase();
+		}
+
+	}
+
+	@Setup
+	public void setup() throws ParserConfigurationException, CSSMediaException {
+		TestCSSStyleSheetFactory factory = new TestCSSStyleSheetFactory();
+		HeadlessDeviceFactory deviceFactory = new HeadlessDeviceFactory();
+		deviceFactory.setStyleDatabase("screen", new AWTStyleDatabase());
+		factory.setDeviceFactory(deviceFactory);
+		DocumentBuilderFactory dbFac = DocumentBuilderFactory.newInstance();
+		Document doc = dbFac.newDocumentBuilder().getDOMImplementation().createDocument(null,
+				"html", null);
+		Element head = doc.createElement("head");
+		Element style = doc.createElement("style");
+		style.setAttribute("id", "styleId");
+		style.setIdAttribute("id", true);
+		style.setAttribute("type", "text/css");
+		style.setTextContent(
+				"@font-face{font-family:'OpenSans Regular';src:url('http://www.example.com/fonts/OpenSans-Regular.ttf') format('truetype')}");
+		doc.getDocumentElement().appendChild(head);
+		head.appendChild(style);
+		CSSDocument cssdoc = factory.createCSSDocument(doc);
+		CSSElement cssStyle = cssdoc.getElementById("styleId");
+		CSSStyleSheet<?> sheet = ((LinkStyle<?>) cssStyle).getSheet();
+		fontFaceRule = (FontFaceRule) sheet.getCssRules().item(0);
+	}
+
+	@Benchmark
+	public boolean isFontFamilyAvailable(FontFamily family) {
+		return styleDb.isFontFamilyAvailable(family.name);
+	}
+
+	@Benchmark
+	public void getFontSizeFromIdentifier(Blackhole blackhole) {
+		for (String identifier : FONT_SIZE_IDENTIFIERS) {
+			blackhole.consume(styleDb.getFontSizeFromIdentifier("SansSerif", identifier));
+		}
+	}
+
+	@Benchmark
+	public Font loadFontFace(FreshDatabase fresh) {
+		fresh.styleDb.loadFontFaceRule(fontFaceRule);
+		return fresh.styleDb.getFont("opensans regular");
+	}
+
+}
@@ -13,9 +13,19 @@ package io.sf.carte.doc.style.css.awt;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.awt.Color;
 import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.LinearGradientPaint;
+import java.awt.Paint;
+import java.awt.RadialGradientPaint;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.Locale;
 
@@ -108,6 +118,43 @@ public class AWTHelperTest {
 		assertEquals(0, color.getAlpha());
 	}
 
+	@Test
+	public void testGetARGB() throws CSSPropertyValueException {
+		CSSStyleDeclaration style = new BaseCSSStyleDeclaration();
+		style.setCssText("color: rgba(8,63,255,0.5); ");
+		CSSTypedValue cssColor = (CSSTypedValue) style.getPropertyCSSValue("color");
+		assertEquals(0x80083fff, AWTHelper.getARGB(cssColor));
+		//
+		style.setCssText("color: #f00; ");
+		cssColor = (CSSTypedValue) style.getPropertyCSSValue("color");
+		assertEquals(0xffff0000, AWTHelper.getARGB(cssColor));
+		//
+		style.setCssText("color: rgb(100% 50% 0%); ");
+		cssColor = (CSSTypedValue) style.getPropertyCSSValue("color");
+		assertEquals(0xffff8000, AWTHelper.getARGB(cssColor));
+		//
+		style.setCssText("color: sandybrown");
+		cssColor = (CSSTypedValue) style.getPropertyCSSValue("color");
+		assertEquals(0xfff4a460, AWTHelper.getARGB(cssColor));
+		//
+		style.setCssText("color: transparent; ");
+		cssColor = (CSSTypedValue) style.getPropertyCSSValue("color");
+		assertEquals(0, AWTHelper.getARGB(cssColor) >>> 24);
+	}
+
+	@Test
+	public void testGetAWTColorInterned() throws CSSPropertyValueException {
+		CSSStyleDeclaration style = new BaseCSSStyleDeclaration();
+		style.setCssText("color: #3a505f; background-color: rgb(58 80 95)");
+		Color color = AWTHelper.getAWTColor((CSSTypedValue) style.getPropertyCSSValue("color"));
+		Color bgcolor = AWTHelper
+				.getAWTColor((CSSTypedValue) style.getPropertyCSSValue("background-color"));
+		assertEquals(0xff3a505f, color.getRGB());
+		assertSame(color, bgcolor);
+		assertSame(color, AWTHelper.getAWTColor(0xff3a505f));
+		assertEquals(new Color(0x803a505f, true), AWTHelper.getAWTColor(0x803a505f));
+	}
+
 	@Test
 	public void testCreateFont() throws CSSMediaException, IOException {
 		HTMLDocument xhtmlDoc = TestDOMImplementation.sampleHTMLDocument();
@@ -129,4 +176,132 @@ public class AWTHelperTest {
 		assertEquals("Helvetica", font.getName());
 		assertEquals(20, font.getSize());
 	}
+
+	@Test
+	public void testCreateFontCache() throws CSSMediaException, IOException {
+		HTMLDocument xhtmlDoc = TestDOMImplementation.sampleHTMLDocument();
+		CSSElement elm = xhtmlDoc.getElementById("span1");
+		CSSComputedProperties styledecl = xhtmlDoc.getStyleSheet().getComputedStyle(elm, null);
+		FontCache cache = new FontCache();
+		Font font = AWTHelper.createFont(styledecl, cache);
+		assertNotNull(font);
+		assertEquals(0, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertSame(font, AWTHelper.createFont(styledecl, cache));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testGetPaintNull() throws CSSPropertyValueException {
+		assertNull(AWTHelper.getPaint(null, 100f, 50f));
+	}
+
+	@Test
+	public void testGetPaintLinearGradient() throws CSSPropertyValueException {
+		CSSStyleDeclaration style = new BaseCSSStyleDeclaration();
+		style.setCssText("background-image: linear-gradient(to right, #f00 50%, #00f 50%)");
+		CSSTypedValue gradient = (CSSTypedValue) style.getPropertyCSSValue("background-image");
+		Paint paint = AWTHelper.getPaint(gradient, 100f, 50f);
+		assertTrue(paint instanceof LinearGradientPaint);
+		BufferedImage img = fill(paint, 100, 50);
+		assertEquals(0xffff0000, img.getRGB(0, 0));
+		assertEquals(0xffff0000, img.getRGB(48, 49));
+		assertEquals(0xff0000ff, img.getRGB(52, 0));
+		assertEquals(0xff0000ff, img.getRGB(99, 49));
+
+		// Shared by boxes of the same size
+		assertSame(paint, AWTHelper.getPaint(gradient, 100f, 50f));
+		assertNotSame(paint, AWTHelper.getPaint(gradient, 100f, 60f));
+
+		style.setCssText("background-image: linear-gradient(to bottom right, #f00, #00f)");
+		gradient = (CSSTypedValue) style.getPropertyCSSValue("background-image");
+		img = fill(AWTHelper.getPaint(gradient, 100f, 50f), 100, 50);
+		assertEquals(0xffff0000, img.getRGB(0, 0));
+		assertSimilarColor(0xff0000ff, img.getRGB(99, 49));
+		// The other corners are on the 50% line
+		assertSimilarColor(0xff800080, img.getRGB(99, 0));
+		assertSimilarColor(0xff800080, img.getRGB(0, 49));
+	}
+
+	@Test
+	public void testGetPaintRepeatingLinearGradient() throws CSSPropertyValueException {
+		CSSStyleDeclaration style = new BaseCSSStyleDeclaration();
+		style.setCssText(
+				"background-image: repeating-linear-gradient(90deg, #f00 0pt, #f00 10pt, #00f 10pt, #00f 20pt)");
+		CSSTypedValue gradient = (CSSTypedValue) style.getPropertyCSSValue("background-image");
+		BufferedImage img = fill(AWTHelper.getPaint(gradient, 100f, 10f), 100, 10);
+		assertEquals(0xffff0000, img.getRGB(5, 5));
+		assertEquals(0xff0000ff, img.getRGB(15, 5));
+		assertEquals(0xffff0000, img.getRGB(85, 5));
+		assertEquals(0xff0000ff, img.getRGB(95, 5));
+	}
+
+	@Test
+	public void testGetPaintRadialGradient() throws CSSPropertyValueException {
+		CSSStyleDeclaration style = new BaseCSSStyleDeclaration();
+		style.setCssText("background-image: radial-gradient(circle closest-side at 25% 50%, #f00, #00f)");
+		CSSTypedValue gradient = (CSSTypedValue) style.getPropertyCSSValue("background-image");
+		Paint paint = AWTHelper.getPaint(gradient, 100f, 50f);
+		assertTrue(paint instanceof RadialGradientPaint);
+		BufferedImage img = fill(paint, 100, 50);
+		assertEquals(0xffff0000, img.getRGB(25, 25));
+		assertEquals(0xff0000ff, img.getRGB(60, 25));
+		assertSimilarColor(0xff0000ff, img.getRGB(25, 0));
+	}
+
+	@Test
+	public void testGetPaintRadialGradientNegativeStop() throws CSSPropertyValueException {
+		CSSStyleDeclaration style = new BaseCSSStyleDeclaration();
+		style.setCssText(
+				"background-image: radial-gradient(circle closest-side, #f00 -50%, #00f 50%)");
+		CSSTypedValue gradient = (CSSTypedValue) style.getPropertyCSSValue("background-image");
+		BufferedImage img = fill(AWTHelper.getPaint(gradient, 100f, 100f), 100, 100);
+		// The color at the center is halfway between the stops
+		assertSimilarColor(0xff800080, img.getRGB(50, 50));
+		assertEquals(0xff0000ff, img.getRGB(50, 20));
+		assertEquals(0xff0000ff, img.getRGB(0, 0));
+
+		// All the stops are negative
+		style.setCssText(
+				"background-image: radial-gradient(circle closest-side, #f00 -50%, #00f -10%)");
+		gradient = (CSSTypedValue) style.getPropertyCSSValue("background-image");
+		img = fill(AWTHelper.getPaint(gradient, 100f, 100f), 100, 100);
+		assertEquals(0xff0000ff, img.getRGB(50, 50));
+	}
+
+	@Test
+	public void testGetPaintColor() throws CSSPropertyValueException {
+		CSSStyleDeclaration style = new BaseCSSStyleDeclaration();
+		style.setCssText("background-color: #3a505f");
+		Paint paint = AWTHelper.getPaint(
+				(CSSTypedValue) style.getPropertyCSSValue("background-color"), 10f, 10f);
+		assertSame(AWTHelper.getAWTColor(0xff3a505f), paint);
+	}
+
+	@Test
+	public void testGetPaintUnsupported() {
+		CSSStyleDeclaration style = new BaseCSSStyleDeclaration();
+		style.setCssText("background-image: conic-gradient(#f00, #00f)");
+		CSSTypedValue gradient = (CSSTypedValue) style.getPropertyCSSValue("background-image");
+		assertThrows(CSSPropertyValueException.class, () -> AWTHelper.getPaint(gradient, 10f, 10f));
+	}
+
+	private static void assertSimilarColor(int expected, int actual) {
+		for (int shift = 0; shift < 32; shift += 8) {
+			assertEquals(expected >> shift & 0xff, actual >> shift & 0xff, 8,
+					() -> "Expected " + Integer.toHexString(expected) + ", found "
+							+ Integer.toHexString(actual));
+		}
+	}
+
+	private static BufferedImage fill(Paint paint, int width, int height) {
+		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = img.createGraphics();
+		g.setPaint(paint);
+		g.fillRect(0, 0, width, height);
+		g.dispose();
+		return img;
+	}
+
 }
@@ -0,0 +1,127 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class AWTStyleDatabasePoolTest {
+
+	@Test
+	public void testAcquireRelease() {
+		AtomicInteger created = new AtomicInteger();
+		AWTStyleDatabasePool pool = new AWTStyleDatabasePool(2,
+				db -> created.incrementAndGet());
+		AWTStyleDatabase a4 = pool.acquire(595f, 842f, 8);
+		assertEquals(595f, a4.getDeviceWidth());
+		assertEquals(842f, a4.getDeviceHeight());
+		assertEquals(8, a4.getColorDepth());
+		AWTStyleDatabase other = pool.acquire(595f, 842f, 8);
+		assertNotSame(a4, other);
+		AWTStyleDatabase thumb = pool.acquire(120f, 170f, 8);
+		assertEquals(120f, thumb.getDeviceWidth());
+		assertEquals(3, created.get());
+		assertEquals(0, pool.getIdleCount());
+
+		pool.release(a4);
+		assertEquals(1, pool.getIdleCount());
+		// Released twice
+		assertThrows(IllegalArgumentException.class, () -> pool.release(a4));
+		// Not from this pool
+		assertThrows(IllegalArgumentException.class,
+				() -> pool.release(new AWTStyleDatabase()));
+		assertThrows(IllegalArgumentException.class,
+				() -> new AWTStyleDatabasePool().release(other));
+
+		// Reused for the same device only
+		assertSame(a4, pool.acquire(595f, 842f, 8));
+		assertNotSame(thumb, pool.acquire(120f, 170f, 24));
+		assertEquals(4, created.get());
+
+		assertThrows(IllegalArgumentException.class, () -> pool.acquire(0f, 842f, 8));
+	}
+
+	@Test
+	public void testReleaseRestoresSettings() {
+		AWTStyleDatabasePool pool = new AWTStyleDatabasePool(2, db -> db.setFontCacheSize(16));
+		AWTStyleDatabase db = pool.acquire(595f, 842f, 8);
+		db.setVirtualDevice(new VirtualDevice(1190f, 1684f, 144f, 24));
+		db.setDefaultWidth(300f);
+		db.setFontCacheSize(64);
+		pool.release(db);
+		AWTStyleDatabase again = pool.acquire(595f, 842f, 8);
+		assertSame(db, again);
+		assertNull(again.getVirtualDevice());
+		assertEquals(595f, again.getDeviceWidth());
+		assertEquals(842f, again.getDeviceHeight());
+		assertEquals(8, again.getColorDepth());
+		assertEquals(16, again.getFontCache().getMaximumSize());
+		pool.release(again);
+	}
+
+	@Test
+	public void testMaximumIdle() {
+		AWTStyleDatabasePool pool = new AWTStyleDatabasePool(2, null);
+		List<AWTStyleDatabase> dbs = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			dbs.add(pool.acquire(595f, 842f, 8));
+		}
+		for (AWTStyleDatabase db : dbs) {
+			pool.release(db);
+		}
+		assertEquals(2, pool.getIdleCount());
+		pool.clear();
+		assertEquals(0, pool.getIdleCount());
+	}
+
+	@Test
+	public void testConcurrent() throws Exception {
+		AtomicInteger created = new AtomicInteger();
+		AWTStyleDatabasePool pool = new AWTStyleDatabasePool(8,
+				db -> created.incrementAndGet());
+		ExecutorService exec = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				futures.add(exec.submit(() -> {
+					for (int j = 0; j < 200; j++) {
+						AWTStyleDatabase db = pool.acquire(595f, 842f, 8);
+						assertEquals(595f, db.getDeviceWidth());
+						pool.release(db);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(20, TimeUnit.SECONDS);
+			}
+		} finally {
+			exec.shutdown();
+		}
+		assertEquals(created.get(), pool.getIdleCount());
+		assertTrue(created.get() <= 4);
+	}
+
+}
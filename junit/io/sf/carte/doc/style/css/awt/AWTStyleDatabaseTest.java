@@ -12,25 +12,54 @@
 package io.sf.carte.doc.style.css.awt;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.awt.BasicStroke;
 import java.awt.Font;
+import java.awt.Stroke;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextAttribute;
+import java.awt.font.TextLayout;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.w3c.dom.DOMException;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
 import io.sf.carte.doc.agent.HeadlessDeviceFactory;
+import io.sf.carte.doc.style.css.CSSComputedProperties;
 import io.sf.carte.doc.style.css.CSSDocument;
 import io.sf.carte.doc.style.css.CSSElement;
+import io.sf.carte.doc.style.css.CSSFontFaceRule;
 import io.sf.carte.doc.style.css.CSSMediaException;
 import io.sf.carte.doc.style.css.CSSStyleSheet;
 import io.sf.carte.doc.style.css.LinkStyle;
@@ -94,6 +123,299 @@ public class AWTStyleDatabaseTest {
 		assertEquals("Open Sans Regular", font.getFontName(Locale.ROOT));
 	}
 
+	@Test
+	public void testFontFaceRuleConcurrentLoad() throws InterruptedException {
+		styleText.setNodeValue(
+				"@font-face{font-family:'OpenSans Regular';src:url('http://www.example.com/fonts/OpenSans-Regular.ttf') format('truetype')}");
+		FontFaceRule ffrule = (FontFaceRule) sheet.getCssRules().item(0);
+		LoadCountingStyleDatabase db = new LoadCountingStyleDatabase();
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> db.loadFontFaceRule(ffrule));
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(1, db.loadCount.get());
+		assertTrue(db.isFontFaceName("opensans regular"));
+		assertNotNull(db.getFont("opensans regular"));
+		db.loadFontFaceRule(ffrule);
+		assertEquals(1, db.loadCount.get());
+	}
+
+	@Test
+	public void testFontFaceRuleAsyncSwap() {
+		styleText.setNodeValue(
+				"@font-face{font-family:'OpenSans Regular';font-display:swap;src:url('http://www.example.com/fonts/OpenSans-Regular.ttf') format('truetype')}");
+		FontFaceRule ffrule = (FontFaceRule) sheet.getCssRules().item(0);
+		List<Runnable> tasks = new ArrayList<>();
+		styleDb.setFontLoadingExecutor(tasks::add);
+		styleDb.loadFontFaceRule(ffrule);
+		assertEquals(1, tasks.size());
+		CompletableFuture<Font> future = styleDb.getFontFaceFuture("opensans regular");
+		assertNotNull(future);
+		assertFalse(future.isDone());
+		// Swap: no block period, use the fallback
+		assertFalse(styleDb.isFontFaceName("opensans regular"));
+		assertFalse(styleDb.getFontFacesLoaded().isDone());
+
+		tasks.get(0).run();
+		Font font = future.join();
+		assertNotNull(font);
+		assertSame(font, styleDb.getFont("opensans regular"));
+		assertTrue(styleDb.isFontFaceName("opensans regular"));
+		assertTrue(styleDb.getFontFacesLoaded().isDone());
+	}
+
+	@Test
+	public void testFontFaceRuleAsyncBlock() {
+		styleText.setNodeValue(
+				"@font-face{font-family:'OpenSans Regular';font-display:block;src:url('http://www.example.com/fonts/OpenSans-Regular.ttf') format('truetype')}");
+		FontFaceRule ffrule = (FontFaceRule) sheet.getCssRules().item(0);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			styleDb.setFontLoadingExecutor(executor);
+			styleDb.loadFontFaceRule(ffrule);
+			// Waits for the font
+			assertTrue(styleDb.isFontFaceName("opensans regular"));
+			assertNotNull(styleDb.getFontFaceFuture("opensans regular").join());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testFontFaceRuleAsyncOptional() throws InterruptedException {
+		styleText.setNodeValue(
+				"@font-face{font-family:'OpenSans Regular';font-display:optional;src:url('http://www.example.com/fonts/OpenSans-Regular.ttf') format('truetype')}");
+		FontFaceRule ffrule = (FontFaceRule) sheet.getCssRules().item(0);
+		List<Runnable> tasks = new ArrayList<>();
+		styleDb.setFontLoadingExecutor(tasks::add);
+		styleDb.loadFontFaceRule(ffrule);
+		// Too late for optional
+		Thread.sleep(150);
+		tasks.get(0).run();
+		assertNull(styleDb.getFontFaceFuture("opensans regular").join());
+		assertFalse(styleDb.isFontFaceName("opensans regular"));
+		assertNull(styleDb.getFont("opensans regular"));
+
+		// A new synchronous load is allowed
+		styleDb.setFontLoadingExecutor(null);
+		styleDb.loadFontFaceRule(ffrule);
+		assertTrue(styleDb.isFontFaceName("opensans regular"));
+	}
+
+	@Test
+	public void testFontFaceStoreEviction() {
+		styleText.setNodeValue(
+				"@font-face{font-family:'Face A';src:url('http://www.example.com/fonts/OpenSans-Regular.ttf') format('truetype')}"
+						+ "@font-face{font-family:'Face B';src:url('http://www.example.com/fonts/OpenSans-Regular.ttf') format('truetype')}");
+		FontFaceRule ruleA = (FontFaceRule) sheet.getCssRules().item(0);
+		FontFaceRule ruleB = (FontFaceRule) sheet.getCssRules().item(1);
+		LoadCountingStyleDatabase db = new LoadCountingStyleDatabase();
+		db.setFontFaceStoreBudget(1, Long.MAX_VALUE);
+		FontFaceStore store = db.getFontFaceStore();
+		List<String> evicted = new ArrayList<>();
+		store.addEvictionListener((family, bytes) -> evicted.add(family));
+
+		db.loadFontFaceRule(ruleA);
+		assertTrue(store.getEstimatedBytes() > 10000L);
+		db.loadFontFaceRule(ruleB);
+		assertEquals(2, db.loadCount.get());
+		assertEquals(1, evicted.size());
+		assertEquals("face a", evicted.get(0));
+		assertEquals(1, store.size());
+
+		// Still usable, reloaded transparently
+		assertTrue(db.isFontFaceName("face a"));
+		assertNotNull(db.getFont("face a"));
+		assertEquals(3, db.loadCount.get());
+		assertEquals("face b", evicted.get(1));
+		assertEquals(2L, store.getEvictionCount());
+
+		// A font in use is not evicted
+		assertNotNull(store.acquire("face a"));
+		assertNotNull(db.getFont("face b"));
+		assertEquals(4, db.loadCount.get());
+		assertTrue(store.isLoaded("face a"));
+		assertTrue(store.isLoaded("face b"));
+		store.release("face a");
+		assertFalse(store.isLoaded("face a"));
+
+		// Removing a family forgets its source
+		assertNotNull(db.getFontFaceSource("face b"));
+		store.remove("face b");
+		assertNull(db.getFontFaceSource("face b"));
+		assertNull(db.getFont("face b"));
+	}
+
+	@Test
+	public void testFontFaceDiskCache(@TempDir Path cacheDir) throws IOException {
+		styleText.setNodeValue(
+				"@font-face{font-family:'OpenSans Regular';src:url('http://www.example.com/fonts/OpenSans-Regular.ttf') format('truetype')}");
+		FontFaceRule ffrule = (FontFaceRule) sheet.getCssRules().item(0);
+		styleDb.setFontFaceDiskCache(new FontFaceDiskCache(cacheDir, 1048576L));
+		styleDb.loadFontFaceRule(ffrule);
+		assertNotNull(styleDb.getFont("opensans regular"));
+		long count;
+		try (Stream<Path> files = Files.list(cacheDir)) {
+			count = files.filter(p -> p.toString().endsWith(".font")).count();
+		}
+		assertEquals(1, count);
+
+		// Another database, as if in another process
+		LoadCountingStyleDatabase db = new LoadCountingStyleDatabase();
+		db.setFontFaceDiskCache(new FontFaceDiskCache(cacheDir, 1048576L));
+		db.loadFontFaceRule(ffrule);
+		assertEquals(0, db.loadCount.get());
+		Font font = db.getFont("opensans regular");
+		assertNotNull(font);
+		assertEquals("Open Sans", font.getFamily(Locale.ROOT));
+	}
+
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException {
+		styleText.setNodeValue(
+				"@font-face{font-family:'OpenSans Regular';src:url('http://www.example.com/fonts/OpenSans-Regular.ttf') format('truetype')}"
+						+ "@font-face{font-family:'OpenSans Copy';src:url('http://www.example.com/fonts/OpenSans-Regular.ttf') format('truetype')}");
+		styleDb.setFontFaceDataRetained(true);
+		assertTrue(styleDb.isFontFaceDataRetained());
+		styleDb.setDefaultWidth(1190f);
+		styleDb.loadFontFaceRule((FontFaceRule) sheet.getCssRules().item(0));
+		styleDb.loadFontFaceRule((FontFaceRule) sheet.getCssRules().item(1));
+		assertNotNull(styleDb.getFont("opensans regular"));
+		assertNotNull(styleDb.getFont("opensans copy"));
+
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(buf)) {
+			out.writeObject(styleDb);
+		}
+		AWTStyleDatabase db;
+		try (ObjectInputStream in = new ObjectInputStream(
+				new ByteArrayInputStream(buf.toByteArray()))) {
+			db = (AWTStyleDatabase) in.readObject();
+		}
+		assertEquals(1190f, db.getDeviceWidth());
+		assertEquals(842f, db.getDeviceHeight());
+
+		// Fonts are rebuilt when requested
+		assertEquals(0, db.getFontFaceStore().size());
+		assertTrue(db.isFontFaceName("opensans copy"));
+		Font font = db.getFont("opensans copy");
+		assertNotNull(font);
+		assertEquals("Open Sans", font.getFamily(Locale.ROOT));
+		assertEquals(1, db.getFontFaceStore().size());
+		assertFalse(db.isFontFaceName("opensans bold"));
+
+		// Loading a rule with the same source does not fetch it
+		db.loadFontFaceRule((FontFaceRule) sheet.getCssRules().item(0));
+		assertTrue(db.getFontFaceStore().isLoaded("opensans regular"));
+	}
+
+	@Test
+	public void testSerializationEvicted() throws IOException, ClassNotFoundException {
+		styleText.setNodeValue(
+				"@font-face{font-family:'Face A';src:url('http://www.example.com/fonts/OpenSans-Regular.ttf') format('truetype')}"
+						+ "@font-face{font-family:'Face B';src:url('http://www.example.com/fonts/OpenSans-Regular.ttf') format('truetype')}");
+		styleDb.setFontFaceDataRetained(true);
+		styleDb.setFontFaceStoreBudget(1, Long.MAX_VALUE);
+		styleDb.loadFontFaceRule((FontFaceRule) sheet.getCssRules().item(0));
+		styleDb.loadFontFaceRule((FontFaceRule) sheet.getCssRules().item(1));
+		assertFalse(styleDb.getFontFaceStore().isLoaded("face a"));
+
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(buf)) {
+			out.writeObject(styleDb);
+		}
+		AWTStyleDatabase db;
+		try (ObjectInputStream in = new ObjectInputStream(
+				new ByteArrayInputStream(buf.toByteArray()))) {
+			db = (AWTStyleDatabase) in.readObject();
+		}
+		// The data of the evicted font was dropped
+		assertFalse(db.isFontFaceName("face a"));
+		assertTrue(db.isFontFaceName("face b"));
+		assertNotNull(db.getFont("face b"));
+	}
+
+	@Test
+	public void testSharedFontFaceRegistry() {
+		styleText.setNodeValue(
+				"@font-face{font-family:'OpenSans Regular';src:url('http://www.example.com/fonts/OpenSans-Regular.ttf') format('truetype')}");
+		FontFaceRule rule = (FontFaceRule) sheet.getCssRules().item(0);
+		SharedFontFaceRegistry registry = new SharedFontFaceRegistry();
+		styleDb.setSharedFontFaceRegistry(registry);
+		assertSame(registry, styleDb.getSharedFontFaceRegistry());
+		styleDb.loadFontFaceRule(rule);
+		Font font = styleDb.getFont("opensans regular");
+		assertNotNull(font);
+		assertEquals(1, registry.size());
+
+		LoadCountingStyleDatabase db = new LoadCountingStyleDatabase();
+		db.setSharedFontFaceRegistry(registry);
+		// The source is not fetched again
+		db.loadFontFaceRule(rule);
+		assertEquals(0, db.loadCount.get());
+		assertSame(font, db.getFont("opensans regular"));
+
+		// Stop sharing
+		db.setSharedFontFaceRegistry(null);
+		assertNull(db.getSharedFontFaceRegistry());
+		assertEquals(1, registry.size());
+		styleDb.setSharedFontFaceRegistry(null);
+		assertEquals(0, registry.size());
+	}
+
+	@Test
+	public void testResetFontFaces() {
+		styleText.setNodeValue(
+				"@font-face{font-family:'OpenSans Regular';src:url('http://www.example.com/fonts/OpenSans-Regular.ttf') format('truetype')}");
+		FontFaceRule rule = (FontFaceRule) sheet.getCssRules().item(0);
+		SharedFontFaceRegistry registry = new SharedFontFaceRegistry();
+		styleDb.setSharedFontFaceRegistry(registry);
+		styleDb.setFontFaceDataRetained(true);
+		styleDb.loadFontFaceRule(rule);
+		assertTrue(styleDb.isFontFaceName("opensans regular"));
+		assertEquals(1, registry.size());
+
+		styleDb.resetFontFaces();
+		assertFalse(styleDb.isFontFaceName("opensans regular"));
+		assertNull(styleDb.getFont("opensans regular"));
+		assertEquals(0, styleDb.getFontFaceStore().size());
+		assertEquals(0, registry.size());
+
+		// Can be loaded again
+		styleDb.loadFontFaceRule(rule);
+		assertNotNull(styleDb.getFont("opensans regular"));
+		assertEquals(1, registry.size());
+	}
+
+	@Test
+	public void testTelemetry() {
+		styleText.setNodeValue(
+				"@font-face{font-family:'OpenSans Regular';src:url('http://www.example.com/fonts/OpenSans-Regular.ttf') format('truetype')}");
+		AWTTelemetry telemetry = AWTTelemetry.getInstance();
+		telemetry.reset();
+		telemetry.setEnabled(true);
+		try {
+			styleDb.loadFontFaceRule((FontFaceRule) sheet.getCssRules().item(0));
+			assertEquals(1L, telemetry.getFontFaceLoadCount());
+			assertEquals(0L, telemetry.getFontFaceLoadFailureCount());
+			assertTrue(telemetry.getFontFaceLoadBytes() > 10000L);
+			assertTrue(telemetry.getFontFaceLoadTotalNanos() > 0L);
+
+			telemetry.reset();
+			assertTrue(styleDb.isFontFamilyAvailable("Serif"));
+			assertFalse(styleDb.isFontFamilyAvailable("No Such Font Family"));
+			assertEquals(2L, telemetry.getFontFamilyProbeCount());
+			assertEquals(1L, telemetry.getFontFamilyProbeMissCount());
+		} finally {
+			telemetry.setEnabled(false);
+			telemetry.reset();
+		}
+	}
+
 	@Test
 	public void testGetDefaultGenericFontFamily() {
 		assertEquals("Serif", styleDb.getDefaultGenericFontFamily());
@@ -106,4 +428,234 @@ public class AWTStyleDatabaseTest {
 		assertEquals("Monospaced", styleDb.getDefaultGenericFontFamily("monospace"));
 	}
 
+	@Test
+	public void testIsFontFamilyAvailable() {
+		assertTrue(styleDb.isFontFamilyAvailable("SansSerif"));
+		assertTrue(styleDb.isFontFamilyAvailable("sansserif"));
+		assertTrue(styleDb.isFontFamilyAvailable("MONOSPACED"));
+		assertFalse(styleDb.isFontFamilyAvailable("No Such Font Family"));
+		styleDb.refreshFontFamilies();
+		assertTrue(styleDb.isFontFamilyAvailable("Serif"));
+	}
+
+	@Test
+	public void testDeviceMetrics() {
+		assertEquals(595f, styleDb.getDeviceWidth());
+		assertEquals(842f, styleDb.getDeviceHeight());
+		assertEquals(255, styleDb.getColorDepth());
+		styleDb.setDefaultWidth(1190f);
+		styleDb.setDefaultHeight(1684f);
+		assertEquals(1190f, styleDb.getDeviceWidth());
+		assertEquals(1684f, styleDb.getDeviceHeight());
+		assertEquals(2f, styleDb.deviceResolutionFactor());
+		styleDb.refreshDeviceMetrics();
+		assertEquals(1190f, styleDb.getDeviceWidth());
+	}
+
+	@Test
+	public void testGetFontSizeFromIdentifier() {
+		assertEquals(8f, styleDb.getFontSizeFromIdentifier("Serif", "xx-small"));
+		assertEquals(12f, styleDb.getFontSizeFromIdentifier("Serif", "medium"));
+		assertEquals(24f, styleDb.getFontSizeFromIdentifier("Serif", "xx-large"));
+		assertThrows(DOMException.class, () -> styleDb.getFontSizeFromIdentifier("Serif", "foo"));
+
+		styleDb.setDefaultWidth(1190f);
+		assertEquals(24f, styleDb.getFontSizeFromIdentifier("Serif", "medium"));
+
+		styleDb.setFontSizeScale(new float[] { 6f, 7f, 8f, 10f, 12f, 16f, 20f });
+		assertEquals(20f, styleDb.getFontSizeFromIdentifier("Serif", "medium"));
+		assertEquals(10f, styleDb.getFontSizeScale()[3]);
+
+		styleDb.setFontSizeScale(null);
+		assertEquals(24f, styleDb.getFontSizeFromIdentifier("Serif", "medium"));
+		assertThrows(IllegalArgumentException.class,
+				() -> styleDb.setFontSizeScale(new float[] { 6f, 7f }));
+	}
+
+	@Test
+	public void testGetWidthSize() {
+		assertEquals(0.75f, styleDb.getWidthSize("thin", 12f));
+		assertEquals(2.25f, styleDb.getWidthSize("medium", 12f));
+		assertEquals(3.75f, styleDb.getWidthSize("THICK", 12f));
+		assertThrows(DOMException.class, () -> styleDb.getWidthSize("foo", 12f));
+	}
+
+	@Test
+	public void testVirtualDevice() {
+		VirtualDevice device = new VirtualDevice(1190f, 1684f, 144f, 8);
+		Font serif = new Font("Dialog", Font.PLAIN, 1);
+		device.addFont("Serif", Font.PLAIN, serif);
+		device.addFont("My Font", Font.PLAIN, new Font("DialogInput", Font.PLAIN, 1));
+		styleDb.setVirtualDevice(device);
+		assertSame(device, styleDb.getVirtualDevice());
+
+		assertEquals(1190f, styleDb.getDeviceWidth());
+		assertEquals(1684f, styleDb.getDeviceHeight());
+		assertEquals(8, styleDb.getColorDepth());
+		assertEquals(2f, styleDb.getFontRenderContext().getTransform().getScaleX(), 1e-6f);
+
+		assertTrue(styleDb.isFontFamilyAvailable("my font"));
+		assertFalse(styleDb.isFontFamilyAvailable("Foo Bar Sans"));
+
+		styleText.setNodeValue("body{font-family:'My Font';font-size:14pt;font-weight:bold}");
+		CSSElement body = cssdoc.getElementById("bodyId");
+		Font font = styleDb.createFont(body.getComputedStyle(null));
+		assertEquals("DialogInput", font.getFamily(Locale.ROOT));
+		assertEquals(14f, font.getSize2D());
+		assertTrue(font.isBold());
+
+		// Unknown families use the default font
+		styleText.setNodeValue("body{font-family:'Foo Bar Sans';font-size:12pt}");
+		font = styleDb.createFont(body.getComputedStyle(null));
+		assertEquals("Dialog", font.getFamily(Locale.ROOT));
+
+		// Also if the system fonts are enabled but do not have the family
+		device.setDefaultFont(device.getFace("my font", Font.PLAIN));
+		device.setSystemFontsEnabled(true);
+		styleDb.setVirtualDevice(device);
+		font = styleDb.createFont(body.getComputedStyle(null));
+		assertEquals("DialogInput", font.getFamily(Locale.ROOT));
+
+		styleDb.setVirtualDevice(null);
+		assertNull(styleDb.getVirtualDevice());
+		assertEquals(595f, styleDb.getDeviceWidth());
+	}
+
+	@Test
+	public void testFontCatalog(@TempDir Path tmpDir)
+			throws IOException, ParserConfigurationException, CSSMediaException {
+		Path fontDir = Files.createDirectory(tmpDir.resolve("fonts"));
+		TestFonts.writeOpenSansRegular(fontDir);
+		SystemFontCatalog catalog = SystemFontCatalog.load(tmpDir.resolve("fonts.catalog"),
+				Collections.singletonList(fontDir));
+		styleDb.setFontCatalog(catalog);
+		assertSame(catalog, styleDb.getFontCatalog());
+		assertTrue(styleDb.isFontFamilyAvailable("Open Sans"));
+		assertFalse(styleDb.isFontFamilyAvailable("Foo Bar Sans"));
+
+		styleText.setNodeValue("body{font-family:'Open Sans';font-size:14pt;font-weight:bold}");
+		CSSElement body = cssdoc.getElementById("bodyId");
+		Font font = styleDb.createFont(body.getComputedStyle(null));
+		assertEquals("Open Sans", font.getFamily(Locale.ROOT));
+		assertTrue(font.isBold());
+		assertEquals(14f, font.getSize2D());
+
+		styleDb.setFontCatalog(null);
+		assertNull(styleDb.getFontCatalog());
+	}
+
+	@Test
+	public void testCreateFontKerning() {
+		CSSElement body = cssdoc.getElementById("bodyId");
+		Font font = styleDb.createFont(body.getComputedStyle(null));
+		assertEquals(TextAttribute.KERNING_ON, font.getAttributes().get(TextAttribute.KERNING));
+
+		styleText.setNodeValue("body{font-kerning:normal}");
+		font = styleDb.createFont(body.getComputedStyle(null));
+		assertEquals(TextAttribute.KERNING_ON, font.getAttributes().get(TextAttribute.KERNING));
+
+		styleText.setNodeValue("body{font-kerning:none}");
+		font = styleDb.createFont(body.getComputedStyle(null));
+		assertNotEquals(TextAttribute.KERNING_ON, font.getAttributes().get(TextAttribute.KERNING));
+	}
+
+	@Test
+	public void testCreateFontLigatures() {
+		CSSElement body = cssdoc.getElementById("bodyId");
+		Font font = styleDb.createFont(body.getComputedStyle(null));
+		assertEquals(TextAttribute.LIGATURES_ON, font.getAttributes().get(TextAttribute.LIGATURES));
+
+		styleText.setNodeValue("body{font-variant-ligatures:normal}");
+		font = styleDb.createFont(body.getComputedStyle(null));
+		assertEquals(TextAttribute.LIGATURES_ON, font.getAttributes().get(TextAttribute.LIGATURES));
+
+		styleText.setNodeValue("body{font-variant-ligatures:common-ligatures discretionary-ligatures}");
+		font = styleDb.createFont(body.getComputedStyle(null));
+		assertEquals(TextAttribute.LIGATURES_ON, font.getAttributes().get(TextAttribute.LIGATURES));
+
+		styleText.setNodeValue("body{font-variant-ligatures:no-common-ligatures}");
+		font = styleDb.createFont(body.getComputedStyle(null));
+		assertNotEquals(TextAttribute.LIGATURES_ON,
+				font.getAttributes().get(TextAttribute.LIGATURES));
+
+		styleText.setNodeValue("body{font-variant-ligatures:none}");
+		font = styleDb.createFont(body.getComputedStyle(null));
+		assertNotEquals(TextAttribute.LIGATURES_ON,
+				font.getAttributes().get(TextAttribute.LIGATURES));
+	}
+
+	@Test
+	public void testGetBorderStroke() {
+		styleText.setNodeValue("body{border-top:2pt dashed;border-right:2pt dashed;"
+				+ "border-bottom:3pt double;border-left:4pt none}");
+		CSSElement body = cssdoc.getElementById("bodyId");
+		CSSComputedProperties style = body.getComputedStyle(null);
+		Stroke top = styleDb.getBorderStroke(style, AWTStyle.TOP);
+		assertTrue(top instanceof BasicStroke);
+		assertEquals(2f, ((BasicStroke) top).getLineWidth(), 1e-5f);
+		assertSame(top, styleDb.getBorderStroke(style, AWTStyle.RIGHT));
+		assertSame(top, styleDb.getBorderStroke(2f, "dashed"));
+		Stroke bottom = styleDb.getBorderStroke(style, AWTStyle.BOTTOM);
+		assertNotNull(bottom);
+		assertFalse(bottom instanceof BasicStroke);
+		assertNull(styleDb.getBorderStroke(style, AWTStyle.LEFT));
+		assertThrows(IllegalArgumentException.class, () -> styleDb.getBorderStroke(style, 4));
+
+		assertNull(styleDb.getBorderStroke(0f, "solid"));
+		assertNull(styleDb.getBorderStroke(2f, "hidden"));
+
+		// Scaled to the device
+		styleDb.setDefaultWidth(1190f);
+		Stroke scaled = styleDb.getBorderStroke(2f, "dashed");
+		assertEquals(4f, ((BasicStroke) scaled).getLineWidth(), 1e-5f);
+	}
+
+	@Test
+	public void testGetTextLayout() {
+		FontRenderContext frc = styleDb.getFontRenderContext();
+		assertNotNull(frc);
+		assertTrue(frc.isAntiAliased());
+		Font font = new Font("SansSerif", Font.PLAIN, 12);
+		TextLayout layout = styleDb.getTextLayout("Hello", font);
+		assertSame(layout, styleDb.getTextLayout("Hello", font));
+		assertEquals(1, styleDb.getTextLayoutCache().getHitCount());
+	}
+
+	@Test
+	public void testGetFontMetrics() {
+		CSSFontMetrics metrics = styleDb.getFontMetrics("SansSerif", 12f);
+		assertEquals(12f, metrics.getSize());
+		assertTrue(metrics.getXHeight() > 3f && metrics.getXHeight() < 9f);
+		assertTrue(metrics.getZeroAdvance() > 3f && metrics.getZeroAdvance() < 12f);
+		assertTrue(metrics.getAscent() > metrics.getXHeight());
+		assertTrue(metrics.getDescent() > 0f);
+		assertTrue(metrics.getNormalLineHeight() >= 12f);
+
+		CSSFontMetrics scaled = styleDb.getFontMetrics("SansSerif", 12.2f);
+		assertEquals(metrics.getXHeight() * 12.2f / 12f, scaled.getXHeight(), 1e-4f);
+
+		assertEquals(metrics.getXHeight(), styleDb.getExSizeInPt("SansSerif", 12f), 1e-5f);
+		assertEquals(metrics.getZeroAdvance(), styleDb.getChSizeInPt("SansSerif", 12f), 1e-5f);
+		assertEquals(metrics.getNormalLineHeight(),
+				styleDb.getNormalLineHeightInPt("SansSerif", 12f), 1e-5f);
+	}
+
+	/*
+	 * Counts the font-face loads that actually read font data.
+	 */
+	private static class LoadCountingStyleDatabase extends AWTStyleDatabase {
+
+		private static final long serialVersionUID = 1L;
+
+		final AtomicInteger loadCount = new AtomicInteger();
+
+		@Override
+		protected boolean loadFontFace(String familyName, FontFormat format, InputStream is,
+				CSSFontFaceRule rule) throws IOException {
+			loadCount.incrementAndGet();
+			return super.loadFontFace(familyName, format, is, rule);
+		}
+
+	}
+
 }
@@ -0,0 +1,148 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Font;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import io.sf.carte.doc.agent.HeadlessDeviceFactory;
+import io.sf.carte.doc.style.css.CSSComputedProperties;
+import io.sf.carte.doc.style.css.CSSDocument;
+import io.sf.carte.doc.style.css.CSSElement;
+import io.sf.carte.doc.style.css.CSSMediaException;
+import io.sf.carte.doc.style.css.LinkStyle;
+import io.sf.carte.doc.style.css.om.TestCSSStyleSheetFactory;
+
+public class AWTStyleTest {
+
+	private CSSDocument cssdoc;
+	private Node styleText;
+	private AWTStyleDatabase styleDb;
+
+	@BeforeEach
+	public void setUp() throws DOMException, ParserConfigurationException, CSSMediaException {
+		TestCSSStyleSheetFactory factory = new TestCSSStyleSheetFactory();
+		HeadlessDeviceFactory deviceFactory = new HeadlessDeviceFactory();
+		styleDb = new AWTStyleDatabase();
+		deviceFactory.setStyleDatabase("screen", styleDb);
+		factory.setDeviceFactory(deviceFactory);
+		DocumentBuilderFactory dbFac = DocumentBuilderFactory.newInstance();
+		Document doc = dbFac.newDocumentBuilder().getDOMImplementation().createDocument(null, "html", null);
+		Element head = doc.createElement("head");
+		Element style = doc.createElement("style");
+		style.setAttribute("id", "styleId");
+		style.setIdAttribute("id", true);
+		style.setAttribute("type", "text/css");
+		style.setAttribute("media", "screen");
+		style.setTextContent(" ");
+		doc.getDocumentElement().appendChild(head);
+		head.appendChild(style);
+		Element body = doc.createElement("body");
+		body.setAttribute("id", "bodyId");
+		body.setIdAttribute("id", true);
+		doc.getDocumentElement().appendChild(body);
+		cssdoc = factory.createCSSDocument(doc);
+		cssdoc.setTargetMedium("screen");
+		CSSElement cssStyle = cssdoc.getElementById("styleId");
+		((LinkStyle<?>) cssStyle).getSheet();
+		styleText = cssStyle.getChildNodes().item(0);
+	}
+
+	@Test
+	public void testGetAWTStyle() {
+		styleText.setNodeValue(
+				"body{font-family:serif;font-size:12pt;color:#123456;background-color:rgb(0 0 255/0.5);"
+						+ "border-top:2pt solid;border-left:3pt none;text-decoration:underline;letter-spacing:1pt}");
+		CSSElement body = cssdoc.getElementById("bodyId");
+		CSSComputedProperties style = body.getComputedStyle(null);
+		AWTStyle awtStyle = styleDb.getAWTStyle(style, null);
+		assertNotNull(awtStyle);
+		assertTrue(awtStyle.isFor(style));
+
+		Font font = awtStyle.getFont();
+		assertNotNull(font);
+		assertSame(font, styleDb.createFont(style));
+		assertEquals(12f, awtStyle.getFontSize(), 1e-5f);
+		assertTrue(awtStyle.getLineHeight() > 0f);
+		assertEquals(1f, awtStyle.getLetterSpacing(), 1e-5f);
+		assertEquals(FontCache.DECORATION_UNDERLINE, awtStyle.getTextDecoration());
+
+		assertEquals(0xff123456, awtStyle.getColorARGB());
+		assertEquals(0xff123456, awtStyle.getColor().getRGB());
+		assertEquals(0x800000ff, awtStyle.getBackgroundColorARGB());
+		assertFalse(awtStyle.isBackgroundTransparent());
+
+		assertEquals(2f, awtStyle.getBorderWidth(AWTStyle.TOP), 1e-5f);
+		assertEquals(0f, awtStyle.getBorderWidth(AWTStyle.RIGHT), 1e-5f);
+		assertEquals(0f, awtStyle.getBorderWidth(AWTStyle.BOTTOM), 1e-5f);
+		assertEquals(0f, awtStyle.getBorderWidth(AWTStyle.LEFT), 1e-5f);
+		assertTrue(awtStyle.hasBorder());
+		assertThrows(IllegalArgumentException.class, () -> awtStyle.getBorderWidth(4));
+
+		// The record is reused while the style is the same
+		assertSame(awtStyle, styleDb.getAWTStyle(style, awtStyle));
+	}
+
+	@Test
+	public void testGetAWTStyleFontsChanged() {
+		styleText.setNodeValue("body{font-family:serif;font-size:12pt}");
+		CSSElement body = cssdoc.getElementById("bodyId");
+		CSSComputedProperties style = body.getComputedStyle(null);
+		AWTStyle awtStyle = styleDb.getAWTStyle(style, null);
+		assertSame(awtStyle, styleDb.getAWTStyle(style, awtStyle));
+
+		// The fonts may have changed
+		styleDb.refreshDeviceMetrics();
+		AWTStyle newAwtStyle = styleDb.getAWTStyle(style, awtStyle);
+		assertNotSame(awtStyle, newAwtStyle);
+		assertTrue(newAwtStyle.isFor(style));
+		assertEquals(awtStyle.getFont(), newAwtStyle.getFont());
+		assertSame(newAwtStyle, styleDb.getAWTStyle(style, newAwtStyle));
+	}
+
+	@Test
+	public void testGetAWTStyleChanged() {
+		styleText.setNodeValue("body{color:#123456}");
+		CSSElement body = cssdoc.getElementById("bodyId");
+		CSSComputedProperties style = body.getComputedStyle(null);
+		AWTStyle awtStyle = styleDb.getAWTStyle(style, null);
+		assertEquals(0xff123456, awtStyle.getColorARGB());
+		assertTrue(awtStyle.isBackgroundTransparent());
+		assertFalse(awtStyle.hasBorder());
+
+		styleText.setNodeValue("body{color:#654321}");
+		CSSComputedProperties newStyle = body.getComputedStyle(null);
+		assertFalse(awtStyle.isFor(newStyle));
+		AWTStyle newAwtStyle = styleDb.getAWTStyle(newStyle, awtStyle);
+		assertNotSame(awtStyle, newAwtStyle);
+		assertEquals(0xff654321, newAwtStyle.getColorARGB());
+		assertFalse(awtStyle.isFor(null));
+	}
+
+}
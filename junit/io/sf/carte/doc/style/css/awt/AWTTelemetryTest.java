@@ -0,0 +1,192 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class AWTTelemetryTest {
+
+	private AWTTelemetry telemetry;
+
+	@BeforeEach
+	public void setUp() {
+		telemetry = AWTTelemetry.getInstance();
+		telemetry.setEnabled(false);
+		telemetry.reset();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		telemetry.setEnabled(false);
+		telemetry.reset();
+	}
+
+	@Test
+	public void testDisabled() {
+		assertFalse(telemetry.isEnabled());
+		long start = AWTTelemetry.start();
+		assertEquals(0L, start);
+		AWTTelemetry.fontFamilyProbed(AWTTelemetry.startFontFamilyProbe(), "serif", true);
+		AWTTelemetry.fontCreated(start);
+		assertEquals(0L, telemetry.getFontFamilyProbeCount());
+		assertEquals(0L, telemetry.getCreateFontCount());
+	}
+
+	@Test
+	public void testCounters() {
+		telemetry.setEnabled(true);
+		assertTrue(telemetry.isEnabled());
+		AWTTelemetry.fontFaceLoaded(AWTTelemetry.startFontFaceLoad(), "face a", "TRUETYPE",
+				1000L, AWTTelemetry.Outcome.LOADED);
+		AWTTelemetry.fontFaceLoaded(AWTTelemetry.startFontFaceLoad(), "face b", "WOFF2", 10L,
+				AWTTelemetry.Outcome.INVALID);
+		AWTTelemetry.fontFamilyProbed(AWTTelemetry.startFontFamilyProbe(), "serif", true);
+		AWTTelemetry.fontFamilyProbed(AWTTelemetry.startFontFamilyProbe(), "no such font",
+				false);
+		AWTTelemetry.fontFamilyProbed(AWTTelemetry.startFontFamilyProbe(), "sans-serif", true);
+		AWTTelemetry.fontCreated(AWTTelemetry.start());
+		AWTTelemetry.colorConverted(AWTTelemetry.start());
+
+		assertEquals(2L, telemetry.getFontFaceLoadCount());
+		assertEquals(1L, telemetry.getFontFaceLoadFailureCount());
+		assertEquals(1010L, telemetry.getFontFaceLoadBytes());
+		assertEquals(3L, telemetry.getFontFamilyProbeCount());
+		assertEquals(1L, telemetry.getFontFamilyProbeMissCount());
+		assertEquals(1L, telemetry.getCreateFontCount());
+		assertEquals(1L, telemetry.getColorConversionCount());
+		assertEquals(3L, sum(telemetry.getFontFamilyProbeLatencyHistogram()));
+		assertTrue(telemetry.getFontFamilyProbeTotalNanos() >= 0L);
+		assertEquals(telemetry.getLatencyHistogramBounds().length + 1,
+				telemetry.getColorConversionLatencyHistogram().length);
+
+		telemetry.reset();
+		assertEquals(0L, telemetry.getFontFaceLoadCount());
+		assertEquals(0L, telemetry.getFontFaceLoadBytes());
+		assertEquals(0L, sum(telemetry.getFontFamilyProbeLatencyHistogram()));
+	}
+
+	@Test
+	public void testHistogramBuckets() {
+		assertEquals(0, LatencyHistogram.bucket(999L));
+		assertEquals(1, LatencyHistogram.bucket(1000L));
+		assertEquals(2, LatencyHistogram.bucket(2000L));
+		assertEquals(2, LatencyHistogram.bucket(3999L));
+		assertEquals(11, LatencyHistogram.bucket(1024000L));
+		assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+
+		long[] bounds = LatencyHistogram.bounds();
+		assertEquals(1L, bounds[0]);
+		assertEquals(1024L, bounds[10]);
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(500L);
+		histogram.record(1500000L);
+		long[] expected = new long[LatencyHistogram.BUCKETS];
+		expected[0] = 1L;
+		expected[11] = 1L;
+		assertArrayEquals(expected, histogram.histogram());
+		assertEquals(2L, histogram.count());
+		assertEquals(1500500L, histogram.totalNanos());
+	}
+
+	@Test
+	public void testMBean() throws Exception {
+		telemetry.registerMBean();
+		// Registering twice does nothing
+		telemetry.registerMBean();
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(AWTTelemetry.OBJECT_NAME);
+		try {
+			assertEquals(Boolean.FALSE, server.getAttribute(name, "Enabled"));
+			server.setAttribute(name, new Attribute("Enabled", Boolean.TRUE));
+			assertTrue(telemetry.isEnabled());
+			AWTTelemetry.fontCreated(AWTTelemetry.start());
+			assertEquals(1L, server.getAttribute(name, "CreateFontCount"));
+			server.invoke(name, "reset", null, null);
+			assertEquals(0L, server.getAttribute(name, "CreateFontCount"));
+		} finally {
+			telemetry.unregisterMBean();
+		}
+		assertFalse(server.isRegistered(name));
+	}
+
+	@Test
+	public void testFlightRecorder(@TempDir Path tmpDir) throws Exception {
+		assertTrue(telemetry.isFlightRecorderAvailable());
+		// Not needed by the events
+		assertFalse(telemetry.isEnabled());
+		// Without a recording, nothing is timed
+		assertNull(AWTTelemetry.startFontFamilyProbe());
+		Path file = tmpDir.resolve("telemetry.jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("io.sf.carte.css4j.awt.FontFaceLoad");
+			recording.enable("io.sf.carte.css4j.awt.FontFamilyProbe");
+			recording.start();
+			AWTTelemetry.Span span = AWTTelemetry.startFontFaceLoad();
+			assertNotNull(span);
+			Thread.sleep(2);
+			AWTTelemetry.fontFaceLoaded(span, "face a", "WOFF2", 1234L,
+					AWTTelemetry.Outcome.LOADED);
+			AWTTelemetry.fontFamilyProbed(AWTTelemetry.startFontFamilyProbe(), "serif", true);
+			recording.stop();
+			recording.dump(file);
+		}
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+		assertEquals(2, events.size());
+		// The counters were not updated
+		assertEquals(0L, telemetry.getFontFaceLoadCount());
+		for (RecordedEvent event : events) {
+			String type = event.getEventType().getName();
+			if ("io.sf.carte.css4j.awt.FontFaceLoad".equals(type)) {
+				assertEquals("face a", event.getString("family"));
+				assertEquals("WOFF2", event.getString("format"));
+				assertEquals(1234L, event.getLong("bytes"));
+				assertEquals("loaded", event.getString("outcome"));
+				assertTrue(event.getDuration().toNanos() >= 2000000L);
+			} else {
+				assertEquals("io.sf.carte.css4j.awt.FontFamilyProbe", type);
+				assertEquals("serif", event.getString("family"));
+				assertTrue(event.getBoolean("available"));
+			}
+		}
+	}
+
+	private static long sum(long[] histogram) {
+		long sum = 0L;
+		for (long count : histogram) {
+			sum += count;
+		}
+		return sum;
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.BasicStroke;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.Line2D;
+
+import org.junit.jupiter.api.Test;
+
+public class BorderStrokesTest {
+
+	@Test
+	public void testStrokeType() {
+		assertEquals(-1, BorderStrokes.strokeType(""));
+		assertEquals(-1, BorderStrokes.strokeType("none"));
+		assertEquals(-1, BorderStrokes.strokeType("Hidden"));
+		assertEquals(BorderStrokes.SOLID, BorderStrokes.strokeType("solid"));
+		assertEquals(BorderStrokes.SOLID, BorderStrokes.strokeType("groove"));
+		assertEquals(BorderStrokes.DASHED, BorderStrokes.strokeType("DASHED"));
+		assertEquals(BorderStrokes.DOTTED, BorderStrokes.strokeType("dotted"));
+		assertEquals(BorderStrokes.DOUBLE, BorderStrokes.strokeType("double"));
+	}
+
+	@Test
+	public void testGetStroke() {
+		BasicStroke solid = (BasicStroke) BorderStrokes.getStroke(2f, BorderStrokes.SOLID);
+		assertEquals(2f, solid.getLineWidth());
+		assertEquals(BasicStroke.CAP_BUTT, solid.getEndCap());
+		assertNull(solid.getDashArray());
+		// Interned, also for widths that only differ below the quantum
+		assertSame(solid, BorderStrokes.getStroke(2f, BorderStrokes.SOLID));
+		assertSame(solid, BorderStrokes.getStroke(2.001f, BorderStrokes.SOLID));
+		assertNotSame(solid, BorderStrokes.getStroke(2.5f, BorderStrokes.SOLID));
+
+		BasicStroke dashed = (BasicStroke) BorderStrokes.getStroke(2f, BorderStrokes.DASHED);
+		assertArrayEquals(new float[] { 6f, 6f }, dashed.getDashArray());
+
+		BasicStroke dotted = (BasicStroke) BorderStrokes.getStroke(2f, BorderStrokes.DOTTED);
+		assertEquals(BasicStroke.CAP_ROUND, dotted.getEndCap());
+		assertArrayEquals(new float[] { 0f, 4f }, dotted.getDashArray());
+
+		// Never zero
+		BasicStroke hairline = (BasicStroke) BorderStrokes.getStroke(0.001f, BorderStrokes.SOLID);
+		assertEquals(1f / 64f, hairline.getLineWidth());
+	}
+
+	@Test
+	public void testDoubleStroke() {
+		Stroke stroke = BorderStrokes.getStroke(3f, BorderStrokes.DOUBLE);
+		assertFalse(stroke instanceof BasicStroke);
+		assertSame(stroke, BorderStrokes.getStroke(3f, BorderStrokes.DOUBLE));
+		assertEquals(3f, ((BorderStrokes.DoubleStroke) stroke).getLineWidth());
+
+		Shape shape = stroke.createStrokedShape(new Line2D.Float(0f, 10f, 30f, 10f));
+		// The two lines
+		assertTrue(shape.contains(15d, 8.75d));
+		assertTrue(shape.contains(15d, 11.25d));
+		// The gap
+		assertFalse(shape.contains(15d, 10d));
+		assertFalse(shape.contains(15d, 7d));
+		assertFalse(shape.contains(15d, 13d));
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class BoundedCacheTest {
+
+	@Test
+	public void testComputeIfAbsent() {
+		BoundedCache<String, String> cache = new BoundedCache<>(10L,
+				(k, v) -> v.length());
+		String value = cache.computeIfAbsent("a", k -> "12345");
+		assertSame(value, cache.computeIfAbsent("a", k -> "other"));
+		cache.computeIfAbsent("b", k -> "1234");
+		assertEquals(9L, cache.getWeight());
+		// Evicts the eldest
+		cache.computeIfAbsent("c", k -> "123");
+		assertNull(cache.get("a"));
+		assertEquals(7L, cache.getWeight());
+		cache.clear();
+		assertEquals(0L, cache.getWeight());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testConcurrentClear() throws Exception {
+		BoundedCache<Integer, Integer> cache = new BoundedCache<>(100);
+		ExecutorService exec = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 3; t++) {
+				final int offset = t * 1000000;
+				futures.add(exec.submit(() -> {
+					for (int i = 0; i < 100000; i++) {
+						cache.computeIfAbsent(offset + i, k -> k);
+					}
+				}));
+			}
+			futures.add(exec.submit(() -> {
+				for (int i = 0; i < 5000; i++) {
+					cache.clear();
+				}
+			}));
+			for (Future<?> future : futures) {
+				future.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			exec.shutdown();
+		}
+		// The weight matches the entries, and the cache still works
+		assertEquals(cache.size(), cache.getWeight());
+		cache.clear();
+		assertEquals(0L, cache.getWeight());
+		for (int i = 0; i < 100; i++) {
+			cache.computeIfAbsent(i, k -> k);
+		}
+		assertEquals(100, cache.size());
+	}
+
+}
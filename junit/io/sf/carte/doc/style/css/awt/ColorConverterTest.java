@@ -0,0 +1,135 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.color.ColorSpace;
+
+import org.junit.jupiter.api.Test;
+
+import io.sf.carte.doc.style.css.CSSStyleDeclaration;
+import io.sf.carte.doc.style.css.CSSTypedValue;
+import io.sf.carte.doc.style.css.om.BaseCSSStyleDeclaration;
+import io.sf.carte.doc.style.css.property.CSSPropertyValueException;
+
+public class ColorConverterTest {
+
+	@Test
+	public void testGetAWTColorSRGB() throws CSSPropertyValueException {
+		ColorConverter converter = new ColorConverter(ColorSpace.getInstance(ColorSpace.CS_sRGB));
+		assertNull(converter.getAWTColor((CSSTypedValue) null));
+
+		CSSStyleDeclaration style = new BaseCSSStyleDeclaration();
+		style.setCssText("color: lch(32.67 12.93 244.59)");
+		Color color = converter.getAWTColor((CSSTypedValue) style.getPropertyCSSValue("color"));
+		assertNotNull(color);
+		assertEquals(58, color.getRed());
+		assertEquals(80, color.getGreen());
+		assertEquals(95, color.getBlue());
+		assertEquals(255, color.getAlpha());
+		assertSame(color, converter.getAWTColor((CSSTypedValue) style.getPropertyCSSValue("color")));
+		//
+		style.setCssText("color: color(display-p3 0.253 0.1087 0.7796/0.8)");
+		color = converter.getAWTColor((CSSTypedValue) style.getPropertyCSSValue("color"));
+		assertEquals(70, color.getRed());
+		assertEquals(25, color.getGreen());
+		assertEquals(207, color.getBlue());
+		assertEquals(204, color.getAlpha());
+		//
+		style.setCssText("color: sandybrown");
+		color = converter.getAWTColor((CSSTypedValue) style.getPropertyCSSValue("color"));
+		assertEquals(0xfff4a460, color.getRGB());
+	}
+
+	@Test
+	public void testGetAWTColorComponents() {
+		ColorConverter converter = new ColorConverter(ColorSpace.getInstance(ColorSpace.CS_sRGB));
+		Color color = converter.getAWTColor("lch", new double[] { 32.67, 12.93, 244.59 }, 1f);
+		assertEquals(58, color.getRed());
+		assertEquals(80, color.getGreen());
+		assertEquals(95, color.getBlue());
+		assertSame(color, converter.getAWTColor("lch", new double[] { 32.67, 12.93, 244.59 }, 1f));
+
+		color = converter.getAWTColor("oklch", new double[] { 0.4, 0.03, 230 }, 0.5f);
+		assertEquals(0x80374b55, color.getRGB());
+
+		color = converter.getAWTColor("srgb-linear", new double[] { 0.5, 0.5, 0.5 }, 1f);
+		assertEquals(0xffbcbcbc, color.getRGB());
+
+		color = converter.getAWTColor("oklab", new double[] { 1, 0, 0 }, 1f);
+		assertEquals(0xffffffff, color.getRGB());
+
+		color = converter.getAWTColor("xyz-d65", new double[] { 0.9505, 1, 1.089 }, 1f);
+		assertEquals(0xffffffff, color.getRGB());
+
+		// Missing components
+		color = converter.getAWTColor("lab", new double[] { 0, Double.NaN, 0 }, 1f);
+		assertEquals(0xff000000, color.getRGB());
+
+		// Out of the sRGB gamut
+		color = converter.getAWTColor("display-p3", new double[] { 1, 0, 0 }, 1f);
+		assertEquals(0xffff0000, color.getRGB());
+
+		assertThrows(IllegalArgumentException.class,
+				() -> converter.getAWTColor("foo", new double[] { 1, 0, 0 }, 1f));
+	}
+
+	@Test
+	public void testGetAWTColorLinearRGB() {
+		ColorSpace linear = ColorSpace.getInstance(ColorSpace.CS_LINEAR_RGB);
+		ColorConverter converter = new ColorConverter(linear);
+		assertSame(linear, converter.getColorSpace());
+		Color color = converter.getAWTColor("srgb", new double[] { 1, 0.5, 0 }, 1f);
+		assertSame(linear, color.getColorSpace());
+		float[] comp = color.getColorComponents(null);
+		assertEquals(1f, comp[0], 1e-4f);
+		assertEquals(0.214f, comp[1], 1e-3f);
+		assertEquals(0f, comp[2], 1e-4f);
+	}
+
+	@Test
+	public void testGetAWTColorRec2020Transfer() {
+		ColorConverter converter = new ColorConverter(
+				ColorSpace.getInstance(ColorSpace.CS_LINEAR_RGB));
+		// Above the linear segment, which ends at 4.5 times 0.018054
+		Color color = converter.getAWTColor("rec2020", new double[] { 0.089, 0.089, 0.089 }, 1f);
+		double expected = Math.pow((0.089 + 0.09929682680944) / 1.09929682680944, 1d / 0.45);
+		float[] comp = color.getColorComponents(null);
+		assertEquals(expected, comp[0], 2e-5);
+		assertEquals(expected, comp[1], 2e-5);
+		assertEquals(expected, comp[2], 2e-5);
+		// Within the linear segment
+		color = converter.getAWTColor("rec2020", new double[] { 0.045, 0.045, 0.045 }, 1f);
+		assertEquals(0.01, color.getColorComponents(null)[1], 2e-5);
+	}
+
+	@Test
+	public void testGetAWTColorWideGamut() {
+		ColorSpace xyz = ColorSpace.getInstance(ColorSpace.CS_CIEXYZ);
+		ColorConverter converter = new ColorConverter(xyz);
+		Color p3red = converter.getAWTColor("display-p3", new double[] { 1, 0, 0 }, 1f);
+		Color srgbRed = converter.getAWTColor("srgb", new double[] { 1, 0, 0 }, 1f);
+		assertSame(xyz, p3red.getColorSpace());
+		float[] p3comp = p3red.getColorComponents(null);
+		float[] srgbComp = srgbRed.getColorComponents(null);
+		// Not clamped to the sRGB gamut
+		assertTrue(p3comp[0] > srgbComp[0] + 0.05f);
+	}
+
+}
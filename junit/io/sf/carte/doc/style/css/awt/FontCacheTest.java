@@ -0,0 +1,110 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Font;
+import java.awt.font.TextAttribute;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class FontCacheTest {
+
+	@Test
+	public void testGetFont() {
+		FontCache cache = new FontCache();
+		Font font = cache.getFont("SansSerif", Font.BOLD, 11.6f, 0);
+		assertEquals("SansSerif", font.getName());
+		assertEquals(Font.BOLD, font.getStyle());
+		assertEquals(12, font.getSize());
+		assertEquals(0, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertSame(font, cache.getFont("SansSerif", Font.BOLD, 12.2f, 0));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.size());
+
+		Font underlined = cache.getFont("SansSerif", Font.BOLD, 12f,
+				FontCache.DECORATION_UNDERLINE);
+		assertNotSame(font, underlined);
+		assertEquals(TextAttribute.UNDERLINE_ON, underlined.getAttributes().get(TextAttribute.UNDERLINE));
+		assertEquals(2, cache.size());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		// The statistics are kept
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+
+		cache.resetStatistics();
+		assertEquals(0, cache.getHitCount());
+		assertEquals(0, cache.getMissCount());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testGetFontAttributes() {
+		FontCache cache = new FontCache();
+		int attrs = FontCache.DECORATION_UNDERLINE | FontCache.DECORATION_LINE_THROUGH
+				| FontCache.KERNING | FontCache.LIGATURES | FontCache.weightAttribute(300f)
+				| FontCache.stretchAttribute(75f);
+		Font font = cache.getFont("SansSerif", Font.PLAIN, 12f, attrs, 0.05f);
+		Map<TextAttribute, ?> map = font.getAttributes();
+		assertEquals(TextAttribute.UNDERLINE_ON, map.get(TextAttribute.UNDERLINE));
+		assertEquals(TextAttribute.STRIKETHROUGH_ON, map.get(TextAttribute.STRIKETHROUGH));
+		assertEquals(TextAttribute.KERNING_ON, map.get(TextAttribute.KERNING));
+		assertEquals(TextAttribute.LIGATURES_ON, map.get(TextAttribute.LIGATURES));
+		assertEquals(TextAttribute.WEIGHT_DEMILIGHT, map.get(TextAttribute.WEIGHT));
+		assertEquals(TextAttribute.WIDTH_CONDENSED, map.get(TextAttribute.WIDTH));
+		assertEquals(0.05f, (Float) map.get(TextAttribute.TRACKING), 1e-6f);
+		assertSame(font, cache.getFont("SansSerif", Font.PLAIN, 12f, attrs, 0.0501f));
+
+		assertEquals(0, FontCache.weightAttribute(400f));
+		assertEquals(0, FontCache.weightAttribute(700f));
+		assertEquals(0, FontCache.stretchAttribute(100f));
+
+		// Plain fonts are not derived
+		font = cache.getFont("SansSerif", Font.PLAIN, 12f, 0, 0f);
+		assertTrue(font.getAttributes().get(TextAttribute.UNDERLINE) == null);
+	}
+
+	@Test
+	public void testTextAttributesShared() {
+		int attrs = FontCache.DECORATION_UNDERLINE | FontCache.weightAttribute(900f);
+		Map<TextAttribute, Object> map = FontCache.textAttributes(attrs, 0f);
+		assertEquals(2, map.size());
+		assertSame(map, FontCache.textAttributes(attrs, 0f));
+		assertTrue(FontCache.textAttributes(0, 0f).isEmpty());
+	}
+
+	@Test
+	public void testMaximumSize() {
+		FontCache cache = new FontCache(4);
+		for (int i = 1; i <= 10; i++) {
+			cache.getFont("Serif", Font.PLAIN, i, 0);
+		}
+		assertTrue(cache.size() <= 4);
+		cache.setMaximumSize(2);
+		assertTrue(cache.size() <= 2);
+
+		cache.setMaximumSize(0);
+		Font font = cache.getFont("Serif", Font.PLAIN, 12f, 0);
+		assertNotSame(font, cache.getFont("Serif", Font.PLAIN, 12f, 0));
+		assertEquals(0, cache.size());
+	}
+
+}
@@ -0,0 +1,136 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class FontFaceArchiveTest {
+
+	@Test
+	public void testWriteRead() throws IOException {
+		byte[] data = new byte[50000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i % 61);
+		}
+		byte[] other = Arrays.copyOf(data, 1000);
+
+		FontFaceArchive archive = new FontFaceArchive();
+		archive.put("face a", "source a", data);
+		archive.put("face b", "source b", data.clone());
+		archive.put("face c", "source c", other);
+		assertTrue(archive.containsFamily("face a"));
+		assertFalse(archive.containsFamily("face d"));
+		assertSame(archive.getByFamily("face b"), archive.getBySource("source b"));
+		assertNull(archive.getBySource("source d"));
+
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(buf)) {
+			FontFaceArchive.write(out, archive.entries());
+		}
+		// Deduplicated and compressed
+		assertTrue(buf.size() < data.length);
+
+		FontFaceArchive read;
+		try (DataInputStream in = new DataInputStream(
+				new ByteArrayInputStream(buf.toByteArray()))) {
+			read = FontFaceArchive.read(in);
+		}
+		assertEquals(3, read.entries().size());
+		FontFaceArchive.Entry a = read.getBySource("source a");
+		assertNotNull(a);
+		assertEquals("face a", a.lcFamily);
+		assertArrayEquals(data, a.data);
+		// The same data is shared
+		assertSame(a.data, read.getByFamily("face b").data);
+		assertArrayEquals(other, read.getByFamily("face c").data);
+	}
+
+	@Test
+	public void testReadCorrupt() throws IOException {
+		FontFaceArchive archive = new FontFaceArchive();
+		archive.put("face a", "source a", new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(buf)) {
+			FontFaceArchive.write(out, archive.entries());
+		}
+		byte[] bytes = buf.toByteArray();
+		// Change the uncompressed length
+		bytes[7] = 9;
+		assertThrows(InvalidObjectException.class, () -> FontFaceArchive
+				.read(new DataInputStream(new ByteArrayInputStream(bytes))));
+	}
+
+	@Test
+	public void testRemove() {
+		FontFaceArchive archive = new FontFaceArchive();
+		byte[] data = { 1, 2, 3, 4 };
+		archive.put("face a", "source", data);
+		archive.put("face b", "source", data);
+		archive.remove("face a");
+		assertFalse(archive.containsFamily("face a"));
+		// The source now belongs to another family
+		assertSame(archive.getByFamily("face b"), archive.getBySource("source"));
+		archive.remove("face b");
+		assertNull(archive.getBySource("source"));
+		assertTrue(archive.entries().isEmpty());
+		archive.remove("face c");
+	}
+
+	@Test
+	public void testReadInvalidLength() throws IOException {
+		// Too many fonts
+		assertThrows(InvalidObjectException.class, () -> readArchive(Integer.MAX_VALUE));
+		// Too large
+		assertThrows(InvalidObjectException.class,
+				() -> readArchive(1, Integer.MAX_VALUE, Integer.MAX_VALUE));
+		// More than the compressed data can hold
+		assertThrows(InvalidObjectException.class, () -> readArchive(1, 60000000, 16));
+		// Compressed data much larger than the font
+		assertThrows(InvalidObjectException.class, () -> readArchive(1, 16, 60000000));
+	}
+
+	private static FontFaceArchive readArchive(int... ints) throws IOException {
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(buf)) {
+			for (int i : ints) {
+				out.writeInt(i);
+			}
+		}
+		return FontFaceArchive
+				.read(new DataInputStream(new ByteArrayInputStream(buf.toByteArray())));
+	}
+
+	@Test
+	public void testReadAllBytes() throws IOException {
+		byte[] data = new byte[20000];
+		Arrays.fill(data, (byte) 7);
+		assertArrayEquals(data, FontFaceArchive.readAllBytes(new ByteArrayInputStream(data)));
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.sf.carte.doc.style.css.CSSMediaException;
+
+public class FontFaceDiskCacheTest {
+
+	private static byte[] ttf;
+
+	@BeforeAll
+	public static void setUpBeforeAll() throws ParserConfigurationException, CSSMediaException {
+		ttf = TestFonts.openSansRegular();
+	}
+
+	@Test
+	public void testStoreGetFont(@TempDir Path cacheDir) throws IOException, FontFormatException {
+		FontFaceDiskCache cache = new FontFaceDiskCache(cacheDir, 1048576L);
+		assertNull(cache.getFont("source a"));
+		Font font = cache.store("source a", new ByteArrayInputStream(ttf));
+		assertEquals("Open Sans", font.getFamily(Locale.ROOT));
+		assertEquals(1L, countFiles(cacheDir, ".font"));
+		assertEquals(1L, countFiles(cacheDir, ".src"));
+
+		// Another cache object, as if in another process
+		FontFaceDiskCache other = new FontFaceDiskCache(cacheDir, 1048576L);
+		font = other.getFont("source a");
+		assertNotNull(font);
+		assertEquals("Open Sans", font.getFamily(Locale.ROOT));
+		assertNull(other.getFont("source b"));
+	}
+
+	@Test
+	public void testFontAfterClear(@TempDir Path cacheDir) throws IOException, FontFormatException {
+		FontFaceDiskCache cache = new FontFaceDiskCache(cacheDir, 1048576L);
+		cache.store("source a", new ByteArrayInputStream(ttf));
+		Font font = new FontFaceDiskCache(cacheDir, 1048576L).getFont("source a")
+				.deriveFont(12f);
+
+		// Another process clears the cache while the font is in use
+		cache.clear();
+		assertEquals(0L, countFiles(cacheDir, ".font"));
+		assertNull(cache.getFont("source a"));
+
+		assertTrue(font.canDisplay('A'));
+		GlyphVector gv = font.createGlyphVector(new FontRenderContext(null, true, true),
+				"Hello");
+		assertTrue(gv.getOutline().getBounds2D().getWidth() > 0d);
+	}
+
+	@Test
+	public void testEvictIndexFiles(@TempDir Path cacheDir)
+			throws IOException, FontFormatException {
+		// Smaller than the font, which is evicted as soon as it is stored
+		FontFaceDiskCache cache = new FontFaceDiskCache(cacheDir, 1000L);
+		Font font = cache.store("source a", new ByteArrayInputStream(ttf));
+		assertEquals("Open Sans", font.getFamily(Locale.ROOT));
+		assertEquals(0L, countFiles(cacheDir, ".font"));
+		// The index file of the evicted font is gone too
+		assertEquals(0L, countFiles(cacheDir, ".src"));
+		assertNull(cache.getFont("source a"));
+
+		// Still usable
+		assertTrue(font.deriveFont(12f).canDisplay('A'));
+	}
+
+	private static long countFiles(Path dir, String suffix) throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.filter(p -> p.toString().endsWith(suffix)).count();
+		}
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Font;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class FontFaceStoreTest {
+
+	@Test
+	public void testPutGet() {
+		FontFaceStore store = new FontFaceStore();
+		Font font = new Font(Font.SERIF, Font.PLAIN, 12);
+		store.put("foo", font, 1000L);
+		assertSame(font, store.get("foo"));
+		assertTrue(store.contains("foo"));
+		assertTrue(store.isLoaded("foo"));
+		assertNull(store.get("bar"));
+		assertFalse(store.contains("bar"));
+		assertEquals(1, store.size());
+		assertEquals(1000L, store.getEstimatedBytes());
+
+		// Replace
+		Font font2 = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+		store.put("foo", font2, 500L);
+		assertSame(font2, store.get("foo"));
+		assertEquals(1, store.size());
+		assertEquals(500L, store.getEstimatedBytes());
+
+		store.remove("foo");
+		assertFalse(store.contains("foo"));
+		assertEquals(0, store.size());
+		assertEquals(0L, store.getEstimatedBytes());
+	}
+
+	@Test
+	public void testEvictionByCount() {
+		FontFaceStore store = new FontFaceStore(2, Long.MAX_VALUE);
+		List<String> evicted = new ArrayList<>();
+		store.addEvictionListener((family, bytes) -> evicted.add(family));
+		store.put("a", new Font(Font.SERIF, Font.PLAIN, 12), 100L);
+		store.put("b", new Font(Font.SERIF, Font.PLAIN, 12), 100L);
+		// Access 'a' so 'b' is the least recently used
+		store.get("a");
+		store.put("c", new Font(Font.SERIF, Font.PLAIN, 12), 100L);
+		assertEquals(1, evicted.size());
+		assertEquals("b", evicted.get(0));
+		assertEquals(1L, store.getEvictionCount());
+		assertEquals(2, store.size());
+		assertEquals(200L, store.getEstimatedBytes());
+		// Evicted families are still known
+		assertTrue(store.contains("b"));
+		assertFalse(store.isLoaded("b"));
+		assertNull(store.get("b"));
+	}
+
+	@Test
+	public void testEvictionByBytes() {
+		FontFaceStore store = new FontFaceStore(100, 1000L);
+		store.put("a", new Font(Font.SERIF, Font.PLAIN, 12), 600L);
+		store.put("b", new Font(Font.SERIF, Font.PLAIN, 12), 600L);
+		assertFalse(store.isLoaded("a"));
+		assertTrue(store.isLoaded("b"));
+
+		// A font larger than the budget is kept
+		store.put("c", new Font(Font.SERIF, Font.PLAIN, 12), 2000L);
+		assertTrue(store.isLoaded("c"));
+		assertFalse(store.isLoaded("b"));
+		assertEquals(2000L, store.getEstimatedBytes());
+	}
+
+	@Test
+	public void testAcquire() {
+		FontFaceStore store = new FontFaceStore(1, Long.MAX_VALUE);
+		Font font = new Font(Font.SERIF, Font.PLAIN, 12);
+		store.put("a", font, 100L);
+		assertSame(font, store.acquire("a"));
+		store.put("b", new Font(Font.SERIF, Font.PLAIN, 12), 100L);
+		// 'a' is in use
+		assertTrue(store.isLoaded("a"));
+		assertTrue(store.isLoaded("b"));
+		assertEquals(0L, store.getEvictionCount());
+
+		store.release("a");
+		assertFalse(store.isLoaded("a"));
+		assertEquals(1L, store.getEvictionCount());
+	}
+
+	@Test
+	public void testSetMaximum() {
+		FontFaceStore store = new FontFaceStore();
+		store.put("a", new Font(Font.SERIF, Font.PLAIN, 12), 100L);
+		store.put("b", new Font(Font.SERIF, Font.PLAIN, 12), 100L);
+		store.setMaximumCount(1);
+		assertEquals(1, store.getMaximumCount());
+		assertEquals(1, store.size());
+		assertTrue(store.isLoaded("b"));
+		store.setMaximumBytes(50L);
+		assertEquals(50L, store.getMaximumBytes());
+		assertEquals(0, store.size());
+	}
+
+}
@@ -0,0 +1,185 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Font;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import io.sf.carte.doc.agent.HeadlessDeviceFactory;
+import io.sf.carte.doc.style.css.CSSDocument;
+import io.sf.carte.doc.style.css.CSSElement;
+import io.sf.carte.doc.style.css.CSSMediaException;
+import io.sf.carte.doc.style.css.LinkStyle;
+import io.sf.carte.doc.style.css.om.TestCSSStyleSheetFactory;
+
+public class FontFallbackResolverTest {
+
+	private CSSDocument cssdoc;
+	private Node styleText;
+	private AWTStyleDatabase styleDb;
+
+	@BeforeEach
+	public void setUp() throws DOMException, ParserConfigurationException, CSSMediaException {
+		TestCSSStyleSheetFactory factory = new TestCSSStyleSheetFactory();
+		HeadlessDeviceFactory deviceFactory = new HeadlessDeviceFactory();
+		styleDb = new AWTStyleDatabase();
+		deviceFactory.setStyleDatabase("screen", styleDb);
+		factory.setDeviceFactory(deviceFactory);
+		DocumentBuilderFactory dbFac = DocumentBuilderFactory.newInstance();
+		Document doc = dbFac.newDocumentBuilder().getDOMImplementation().createDocument(null, "html", null);
+		Element head = doc.createElement("head");
+		Element style = doc.createElement("style");
+		style.setAttribute("id", "styleId");
+		style.setIdAttribute("id", true);
+		style.setAttribute("type", "text/css");
+		style.setAttribute("media", "screen");
+		style.setTextContent(" ");
+		doc.getDocumentElement().appendChild(head);
+		head.appendChild(style);
+		Element body = doc.createElement("body");
+		body.setAttribute("id", "bodyId");
+		body.setIdAttribute("id", true);
+		doc.getDocumentElement().appendChild(body);
+		cssdoc = factory.createCSSDocument(doc);
+		cssdoc.setTargetMedium("screen");
+		CSSElement cssStyle = cssdoc.getElementById("styleId");
+		((LinkStyle<?>) cssStyle).getSheet();
+		styleText = cssStyle.getChildNodes().item(0);
+	}
+
+	@Test
+	public void testParseUnicodeRange() {
+		assertArrayEquals(new int[] { 0x25, 0xff }, FontFallbackResolver.parseUnicodeRange("U+0025-00FF"));
+		assertArrayEquals(new int[] { 0x400, 0x4ff }, FontFallbackResolver.parseUnicodeRange("u+4??"));
+		assertArrayEquals(new int[] { 0x26, 0x26 }, FontFallbackResolver.parseUnicodeRange("U+26"));
+		// Sorted and merged
+		assertArrayEquals(new int[] { 0x20, 0x7f, 0x400, 0x4ff },
+				FontFallbackResolver.parseUnicodeRange("U+4??, U+0041-007F, U+20-40"));
+		// Invalid items are ignored
+		assertArrayEquals(new int[] { 0x30, 0x39 },
+				FontFallbackResolver.parseUnicodeRange("U+39-30, U+30-39, foo, U+4?4"));
+		assertArrayEquals(new int[] { 0, Character.MAX_CODE_POINT },
+				FontFallbackResolver.parseUnicodeRange("bar"));
+		assertArrayEquals(new int[] { 0x10ff00, Character.MAX_CODE_POINT },
+				FontFallbackResolver.parseUnicodeRange("U+10FF00-1FFFFF"));
+	}
+
+	@Test
+	public void testParseFamilyList() {
+		assertEquals(Arrays.asList("Open Sans", "Foo, Bar", "serif"),
+				FontFallbackResolver.parseFamilyList("'Open Sans', \"Foo, Bar\" ,serif"));
+		assertTrue(FontFallbackResolver.parseFamilyList(null).isEmpty());
+		assertTrue(FontFallbackResolver.parseFamilyList(" ").isEmpty());
+	}
+
+	@Test
+	public void testFontCoverage() {
+		Font font = new Font(Font.SERIF, Font.PLAIN, 12);
+		FontCoverage coverage = new FontCoverage(font);
+		for (int cp = 0; cp < 0x800; cp++) {
+			assertEquals(font.canDisplay(cp), coverage.canDisplay(cp), "Code point " + cp);
+		}
+		assertFalse(coverage.canDisplay(0xd800));
+		assertFalse(coverage.canDisplay(-1));
+		assertFalse(coverage.canDisplay(Character.MAX_CODE_POINT + 1));
+
+		// Pages that are filtered out are not probed
+		coverage = new FontCoverage(font, cp -> cp < 0x100);
+		assertTrue(coverage.canDisplay('A'));
+		assertFalse(coverage.canDisplay(0x100));
+		assertFalse(coverage.canDisplay(0x3b1));
+	}
+
+	@Test
+	public void testResolveEmpty() {
+		Font primary = new Font(Font.SERIF, Font.PLAIN, 12);
+		assertTrue(styleDb.getFontFallbackResolver()
+				.resolve("", primary, "serif", Collections.emptyList()).isEmpty());
+	}
+
+	@Test
+	public void testResolveSingleRun() {
+		Font primary = new Font(Font.SERIF, Font.PLAIN, 12);
+		FontFallbackResolver resolver = styleDb.getFontFallbackResolver();
+		assertSame(resolver, styleDb.getFontFallbackResolver());
+		String text = "Caf\u00e9 e\u0301";
+		List<FontFallbackResolver.TextRun> runs = resolver.resolve(text, primary, "serif",
+				Arrays.asList("serif", "Not A Font Family", "monospace"));
+		assertEquals(1, runs.size());
+		FontFallbackResolver.TextRun run = runs.get(0);
+		assertEquals(0, run.getStart());
+		assertEquals(text.length(), run.getEnd());
+		assertSame(primary, run.getFont());
+	}
+
+	@Test
+	public void testResolveUnicodeRange() {
+		styleText.setNodeValue(
+				"@font-face{font-family:'OpenSans Upper';unicode-range:U+0041-005A;src:url('http://www.example.com/fonts/OpenSans-Regular.ttf') format('truetype')}");
+		CSSElement body = cssdoc.getElementById("bodyId");
+		body.getComputedStyle(null);
+		Font face = styleDb.getFont("opensans upper");
+		assertNotNull(face);
+
+		Font primary = face.deriveFont(16f);
+		FontFallbackResolver resolver = styleDb.getFontFallbackResolver();
+		List<FontFallbackResolver.TextRun> runs = resolver.resolve("ABcdE", primary,
+				"OpenSans Upper", Arrays.asList("OpenSans Upper", "serif"));
+		assertEquals(3, runs.size());
+
+		FontFallbackResolver.TextRun run = runs.get(0);
+		assertEquals(0, run.getStart());
+		assertEquals(2, run.getEnd());
+		assertSame(primary, run.getFont());
+
+		run = runs.get(1);
+		assertEquals(2, run.getStart());
+		assertEquals(4, run.getEnd());
+		Font fallback = run.getFont();
+		assertNotSame(primary, fallback);
+		assertEquals("Serif", fallback.getFamily(Locale.ROOT));
+		assertEquals(16f, fallback.getSize2D());
+
+		run = runs.get(2);
+		assertEquals(4, run.getStart());
+		assertEquals(5, run.getEnd());
+		assertSame(primary, run.getFont());
+
+		// The derived fallback font is cached
+		runs = resolver.resolve("xyz", primary, "OpenSans Upper",
+				Arrays.asList("OpenSans Upper", "serif"));
+		assertEquals(1, runs.size());
+		assertSame(fallback, runs.get(0).getFont());
+	}
+
+}
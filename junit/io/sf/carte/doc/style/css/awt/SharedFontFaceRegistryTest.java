@@ -0,0 +1,89 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.Font;
+
+import org.junit.jupiter.api.Test;
+
+public class SharedFontFaceRegistryTest {
+
+	@Test
+	public void testRegister() {
+		SharedFontFaceRegistry registry = new SharedFontFaceRegistry();
+		Object ownerA = new Object();
+		Object ownerB = new Object();
+		SharedFontFaceRegistry.Lease leaseA = registry.newLease(ownerA);
+		SharedFontFaceRegistry.Lease leaseB = registry.newLease(ownerB);
+		Font fontA = new Font(Font.SERIF, Font.PLAIN, 12);
+		Font fontB = new Font(Font.SERIF, Font.PLAIN, 12);
+		assertNotSame(fontA, fontB);
+
+		assertNull(registry.get("source a"));
+		SharedFontFaceRegistry.SharedFace face = registry.register(leaseA, "source a", "hash1",
+				fontA, 1000L);
+		assertSame(fontA, face.font);
+		assertSame(face, registry.get("source a"));
+		assertEquals(1, registry.getUserCount("source a"));
+
+		// Same content from another source
+		assertSame(face, registry.register(leaseB, "source b", "hash1", fontB, 1000L));
+		assertEquals(2, registry.getUserCount("source a"));
+		assertEquals(2, registry.getUserCount("source b"));
+		assertEquals(1, registry.size());
+		assertEquals(1000L, registry.getEstimatedBytes());
+
+		// Two families of the same database
+		registry.register(leaseB, null, "hash1", fontB, 1000L);
+		assertEquals(2, registry.getUserCount("source a"));
+		registry.release(leaseB, "hash1");
+		assertEquals(2, registry.getUserCount("source a"));
+
+		registry.release(leaseA, "hash1");
+		assertEquals(1, registry.getUserCount("source a"));
+		// Releasing a face that is not used does nothing
+		registry.release(leaseA, "hash1");
+		assertEquals(1, registry.getUserCount("source a"));
+
+		registry.close(leaseB);
+		assertEquals(0, registry.getUserCount("source a"));
+		assertNull(registry.get("source b"));
+		assertEquals(0, registry.size());
+		assertEquals(0L, registry.getEstimatedBytes());
+	}
+
+	@Test
+	public void testCollectedOwner() throws InterruptedException {
+		SharedFontFaceRegistry registry = new SharedFontFaceRegistry();
+		Object owner = new Object();
+		SharedFontFaceRegistry.Lease lease = registry.newLease(owner);
+		registry.register(lease, "source a", "hash1", new Font(Font.SERIF, Font.PLAIN, 12),
+				1000L);
+		assertEquals(1, registry.size());
+
+		owner = null;
+		lease = null;
+		for (int i = 0; i < 50 && registry.size() != 0; i++) {
+			System.gc();
+			Thread.sleep(20);
+			registry.purge();
+		}
+		assertEquals(0, registry.size());
+		assertNull(registry.get("source a"));
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Font;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.sf.carte.doc.style.css.CSSMediaException;
+
+public class SystemFontCatalogTest {
+
+	/*
+	 * Write the test font to a new font directory, and a copy of it to a
+	 * subdirectory.
+	 */
+	private static Path fontDirectory(Path tmpDir)
+			throws IOException, ParserConfigurationException, CSSMediaException {
+		Path fontDir = tmpDir.resolve("fonts");
+		Files.createDirectories(fontDir.resolve("sub"));
+		Path regular = TestFonts.writeOpenSansRegular(fontDir);
+		Files.copy(regular, fontDir.resolve("sub").resolve("OpenSans-Copy.ttf"));
+		Files.write(fontDir.resolve("readme.txt"), new byte[] { 'x' });
+		return fontDir;
+	}
+
+	@Test
+	public void testScan(@TempDir Path tmpDir)
+			throws IOException, ParserConfigurationException, CSSMediaException {
+		Path fontDir = fontDirectory(tmpDir);
+		SystemFontCatalog catalog = SystemFontCatalog.scan(Collections.singletonList(fontDir));
+		assertEquals(2, catalog.getFontCount());
+		assertEquals(2, catalog.getDirectories().size());
+		assertTrue(catalog.isCurrent());
+
+		assertTrue(catalog.hasFamily("open sans"));
+		assertFalse(catalog.hasFamily("Foo"));
+		// The first file found
+		assertEquals("OpenSans-Regular.ttf", catalog.getFontFile("Open Sans", Font.PLAIN)
+				.getFileName().toString());
+		// The closest face
+		assertEquals("OpenSans-Regular.ttf", catalog.getFontFile("Open Sans", Font.BOLD
+				| Font.ITALIC).getFileName().toString());
+		assertNull(catalog.getFontFile("Foo", Font.PLAIN));
+
+		assertTrue(catalog.mayDisplay("Open Sans", 'A'));
+		assertFalse(catalog.mayDisplay("Open Sans", 0x4e00));
+		assertFalse(catalog.mayDisplay("Foo", 'A'));
+
+		// The families of the graphics environment are recorded
+		assertTrue(catalog.hasSystemFamily(Font.DIALOG));
+		assertFalse(catalog.hasFamily(Font.DIALOG));
+		assertFalse(catalog.hasSystemFamily("Foo"));
+
+		// Synthesized from the regular face
+		Font font = catalog.deriveFont("open sans", Font.ITALIC, 12f);
+		assertNotNull(font);
+		assertEquals("Open Sans", font.getFamily(Locale.ROOT));
+		assertEquals(12f, font.getSize2D());
+		assertTrue(font.isItalic());
+	}
+
+	@Test
+	public void testWriteRead(@TempDir Path tmpDir)
+			throws IOException, ParserConfigurationException, CSSMediaException {
+		Path fontDir = fontDirectory(tmpDir);
+		List<Path> dirs = Collections.singletonList(fontDir);
+		Path file = tmpDir.resolve("fonts.catalog");
+		SystemFontCatalog catalog = SystemFontCatalog.load(file, dirs);
+		assertTrue(Files.isRegularFile(file));
+
+		SystemFontCatalog read = SystemFontCatalog.read(file);
+		assertEquals(catalog.getFontCount(), read.getFontCount());
+		assertEquals(catalog.getDirectories(), read.getDirectories());
+		assertEquals(catalog.getFontFile("Open Sans", Font.BOLD),
+				read.getFontFile("Open Sans", Font.BOLD));
+		assertFalse(read.mayDisplay("Open Sans", 0x4e00));
+		assertTrue(read.hasSystemFamily("dialog"));
+		assertFalse(read.hasSystemFamily("Foo"));
+		assertTrue(read.isCurrent());
+
+		// A current file is not scanned again
+		long modified = Files.getLastModifiedTime(file).toMillis();
+		Files.setLastModifiedTime(file, FileTime.fromMillis(modified - 10000L));
+		SystemFontCatalog loaded = SystemFontCatalog.load(file, dirs);
+		assertEquals(modified - 10000L, Files.getLastModifiedTime(file).toMillis());
+		assertEquals(2, loaded.getFontCount());
+
+		// Remove a font
+		Path sub = fontDir.resolve("sub");
+		FileTime subTime = Files.getLastModifiedTime(sub);
+		Files.delete(sub.resolve("OpenSans-Copy.ttf"));
+		Files.setLastModifiedTime(sub, FileTime.fromMillis(subTime.toMillis() + 10000L));
+		assertFalse(loaded.isCurrent());
+		loaded = SystemFontCatalog.load(file, dirs);
+		assertNotSame(read, loaded);
+		assertEquals(1, loaded.getFontCount());
+		assertEquals(1, SystemFontCatalog.read(file).getFontCount());
+	}
+
+	@Test
+	public void testReadInvalid(@TempDir Path tmpDir) throws IOException {
+		Path file = tmpDir.resolve("fonts.catalog");
+		Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+		assertThrows(IOException.class, () -> SystemFontCatalog.read(file));
+
+		// Replaced by load()
+		SystemFontCatalog catalog = SystemFontCatalog.load(file, Collections.emptyList());
+		assertEquals(0, catalog.getFontCount());
+		assertEquals(0, SystemFontCatalog.read(file).getFontCount());
+	}
+
+	@Test
+	public void testDefaultFontDirectories() {
+		for (Path dir : SystemFontCatalog.defaultFontDirectories()) {
+			assertTrue(Files.isDirectory(dir));
+		}
+	}
+
+}
@@ -0,0 +1,113 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import io.sf.carte.doc.agent.HeadlessDeviceFactory;
+import io.sf.carte.doc.style.css.CSSDocument;
+import io.sf.carte.doc.style.css.CSSElement;
+import io.sf.carte.doc.style.css.CSSFontFaceRule;
+import io.sf.carte.doc.style.css.CSSMediaException;
+import io.sf.carte.doc.style.css.CSSStyleSheet;
+import io.sf.carte.doc.style.css.LinkStyle;
+import io.sf.carte.doc.style.css.om.TestCSSStyleSheetFactory;
+
+/**
+ * The font data that the tests use, from the css4j test resources.
+ */
+class TestFonts {
+
+	private static byte[] openSansRegular;
+
+	private TestFonts() {
+		super();
+	}
+
+	/**
+	 * Get the data of the Open Sans Regular font.
+	 *
+	 * @return the TrueType font data.
+	 */
+	static synchronized byte[] openSansRegular()
+			throws ParserConfigurationException, CSSMediaException {
+		if (openSansRegular == null) {
+			openSansRegular = loadFontData(
+					"@font-face{font-family:'OpenSans Regular';src:url('http://www.example.com/fonts/OpenSans-Regular.ttf') format('truetype')}");
+		}
+		return openSansRegular;
+	}
+
+	/**
+	 * Write the Open Sans Regular font to a directory.
+	 *
+	 * @param dir the directory.
+	 * @return the font file.
+	 */
+	static Path writeOpenSansRegular(Path dir)
+			throws IOException, ParserConfigurationException, CSSMediaException {
+		return Files.write(dir.resolve("OpenSans-Regular.ttf"), openSansRegular());
+	}
+
+	private static byte[] loadFontData(String sheetText)
+			throws ParserConfigurationException, CSSMediaException {
+		TestCSSStyleSheetFactory factory = new TestCSSStyleSheetFactory();
+		HeadlessDeviceFactory deviceFactory = new HeadlessDeviceFactory();
+		deviceFactory.setStyleDatabase("screen", new AWTStyleDatabase());
+		factory.setDeviceFactory(deviceFactory);
+		DocumentBuilderFactory dbFac = DocumentBuilderFactory.newInstance();
+		Document doc = dbFac.newDocumentBuilder().getDOMImplementation().createDocument(null,
+				"html", null);
+		Element head = doc.createElement("head");
+		Element style = doc.createElement("style");
+		style.setAttribute("id", "styleId");
+		style.setIdAttribute("id", true);
+		style.setAttribute("type", "text/css");
+		style.setTextContent(sheetText);
+		doc.getDocumentElement().appendChild(head);
+		head.appendChild(style);
+		CSSDocument cssdoc = factory.createCSSDocument(doc);
+		CSSElement cssStyle = cssdoc.getElementById("styleId");
+		CSSStyleSheet<?> sheet = ((LinkStyle<?>) cssStyle).getSheet();
+		CSSFontFaceRule rule = (CSSFontFaceRule) sheet.getCssRules().item(0);
+
+		// Capture the font data
+		byte[][] data = new byte[1][];
+		AWTStyleDatabase db = new AWTStyleDatabase() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean loadFontFace(String familyName, FontFormat format, InputStream is,
+					CSSFontFaceRule rule) throws IOException {
+				data[0] = FontFaceArchive.readAllBytes(is);
+				return true;
+			}
+
+		};
+		db.loadFontFaceRule(rule);
+		if (data[0] == null) {
+			throw new IllegalStateException("Could not load the test font.");
+		}
+		return data[0];
+	}
+
+}
@@ -0,0 +1,74 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.TextLayout;
+
+import org.junit.jupiter.api.Test;
+
+public class TextLayoutCacheTest {
+
+	private final FontRenderContext frc = new FontRenderContext(null, true, true);
+
+	@Test
+	public void testGetTextLayout() {
+		TextLayoutCache cache = new TextLayoutCache();
+		Font font = new Font("SansSerif", Font.PLAIN, 12);
+		TextLayout layout = cache.getTextLayout("Hello", font, frc);
+		assertNotNull(layout);
+		assertEquals(5, layout.getCharacterCount());
+		assertSame(layout, cache.getTextLayout("Hello", new Font("SansSerif", Font.PLAIN, 12), frc));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		assertNotSame(layout, cache.getTextLayout("Hello", font.deriveFont(14f), frc));
+		assertNotSame(layout,
+				cache.getTextLayout("Hello", font, new FontRenderContext(null, false, false)));
+		assertEquals(3, cache.size());
+		assertTrue(cache.getEstimatedBytes() > 0);
+
+		GlyphVector gv = cache.getGlyphVector("Hello", font, frc);
+		assertEquals(5, gv.getNumGlyphs());
+		assertSame(gv, cache.getGlyphVector("Hello", font, frc));
+		assertEquals(4, cache.size());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getEstimatedBytes());
+		assertEquals(2, cache.getHitCount());
+
+		cache.resetStatistics();
+		assertEquals(0, cache.getHitCount());
+		assertEquals(0, cache.getMissCount());
+	}
+
+	@Test
+	public void testMaximumBytes() {
+		TextLayoutCache cache = new TextLayoutCache(2048);
+		Font font = new Font("Serif", Font.PLAIN, 12);
+		for (int i = 0; i < 50; i++) {
+			cache.getTextLayout("Text run number " + i, font, frc);
+		}
+		assertTrue(cache.getEstimatedBytes() <= 2048);
+		assertTrue(cache.size() < 50);
+	}
+
+}
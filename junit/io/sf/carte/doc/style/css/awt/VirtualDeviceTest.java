@@ -0,0 +1,107 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.sf.carte.doc.style.css.CSSMediaException;
+
+public class VirtualDeviceTest {
+
+	@Test
+	public void testDeviceCharacteristics() {
+		VirtualDevice device = new VirtualDevice(800f, 600f, 144f, 8);
+		assertEquals(800f, device.getWidth());
+		assertEquals(600f, device.getHeight());
+		assertEquals(144f, device.getResolution());
+		assertEquals(8, device.getColorDepth());
+		assertFalse(device.isSystemFontsEnabled());
+		assertNull(device.getDefaultFont());
+
+		assertThrows(IllegalArgumentException.class, () -> new VirtualDevice(0f, 600f, 96f, 8));
+		assertThrows(IllegalArgumentException.class,
+				() -> new VirtualDevice(800f, 600f, Float.NaN, 8));
+		assertThrows(IllegalArgumentException.class, () -> new VirtualDevice(800f, 600f, 96f, 0));
+	}
+
+	@Test
+	public void testCatalog() {
+		VirtualDevice device = new VirtualDevice(595f, 842f, 72f, 8);
+		Font plain = new Font("Dialog", Font.PLAIN, 1);
+		Font bold = new Font("Dialog", Font.BOLD, 1);
+		assertTrue(device.addFont("My Sans", Font.PLAIN, plain));
+		assertFalse(device.addFont("my sans", Font.PLAIN, bold));
+		assertTrue(device.addFont("My Sans", Font.BOLD, bold));
+		assertSame(plain, device.getDefaultFont());
+
+		assertTrue(device.hasFamily("MY SANS"));
+		assertFalse(device.hasFamily("Other"));
+		assertNull(device.deriveFont("other", Font.PLAIN, 12f));
+		assertSame(plain, device.getFace("my sans", Font.PLAIN));
+		assertSame(bold, device.getFace("my sans", Font.BOLD));
+		// No italic face: the closest is the plain one
+		assertSame(plain, device.getFace("my sans", Font.ITALIC));
+		assertSame(bold, device.getFace("my sans", Font.BOLD | Font.ITALIC));
+
+		Font font = device.deriveFont("my sans", Font.BOLD, 14f);
+		assertEquals(14f, font.getSize2D());
+		assertTrue(font.isBold());
+		font = device.deriveFont("my sans", Font.ITALIC, 10f);
+		assertTrue(font.isItalic());
+		assertFalse(font.isBold());
+
+		device.setDefaultFont(bold);
+		assertSame(bold, device.getDefaultFont());
+		// Back to the first font
+		device.setDefaultFont(null);
+		assertSame(plain, device.getDefaultFont());
+	}
+
+	@Test
+	public void testOnlyBoldFace() {
+		VirtualDevice device = new VirtualDevice(595f, 842f, 72f, 8);
+		Font bold = new Font("Dialog", Font.BOLD, 1);
+		assertTrue(device.addFont("Heavy", Font.BOLD, bold));
+		assertSame(bold, device.getFace("heavy", Font.PLAIN));
+		assertNotNull(device.deriveFont("heavy", Font.ITALIC, 12f));
+	}
+
+	@Test
+	public void testAddFontFile(@TempDir Path tmpDir) throws IOException, FontFormatException,
+			ParserConfigurationException, CSSMediaException {
+		Path file = TestFonts.writeOpenSansRegular(tmpDir);
+		VirtualDevice device = new VirtualDevice(595f, 842f, 72f, 8);
+		Font font = device.addFont(file, Font.PLAIN);
+		assertNotNull(font);
+		assertEquals("Open Sans", font.getFamily(Locale.ROOT));
+		assertTrue(device.hasFamily("Open Sans"));
+		assertSame(font, device.getDefaultFont());
+	}
+
+}
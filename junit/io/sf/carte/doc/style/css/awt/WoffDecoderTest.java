@@ -0,0 +1,789 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.PathIterator;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import io.sf.carte.doc.agent.HeadlessDeviceFactory;
+import io.sf.carte.doc.style.css.CSSDocument;
+import io.sf.carte.doc.style.css.CSSElement;
+import io.sf.carte.doc.style.css.CSSFontFaceRule;
+import io.sf.carte.doc.style.css.CSSMediaException;
+import io.sf.carte.doc.style.css.CSSStyleSheet;
+import io.sf.carte.doc.style.css.LinkStyle;
+import io.sf.carte.doc.style.css.om.TestCSSStyleSheetFactory;
+
+public class WoffDecoderTest {
+
+	private static final int TAG_GLYF = 0x676c7966;
+
+	private static final int TAG_LOCA = 0x6c6f6361;
+
+	private static final int TAG_HEAD = 0x68656164;
+
+	private static final int TAG_HHEA = 0x68686561;
+
+	private static final int TAG_HMTX = 0x686d7478;
+
+	private static final int TAG_MAXP = 0x6d617870;
+
+	private static byte[] ttf;
+
+	@BeforeAll
+	public static void setUpBeforeAll() throws ParserConfigurationException, CSSMediaException {
+		TestCSSStyleSheetFactory factory = new TestCSSStyleSheetFactory();
+		HeadlessDeviceFactory deviceFactory = new HeadlessDeviceFactory();
+		deviceFactory.setStyleDatabase("screen", new AWTStyleDatabase());
+		factory.setDeviceFactory(deviceFactory);
+		DocumentBuilderFactory dbFac = DocumentBuilderFactory.newInstance();
+		Document doc = dbFac.newDocumentBuilder().getDOMImplementation().createDocument(null,
+				"html", null);
+		Element head = doc.createElement("head");
+		Element style = doc.createElement("style");
+		style.setAttribute("id", "styleId");
+		style.setIdAttribute("id", true);
+		style.setAttribute("type", "text/css");
+		style.setTextContent(
+				"@font-face{font-family:'OpenSans Regular';src:url('http://www.example.com/fonts/OpenSans-Regular.ttf') format('truetype')}");
+		doc.getDocumentElement().appendChild(head);
+		head.appendChild(style);
+		CSSDocument cssdoc = factory.createCSSDocument(doc);
+		CSSElement cssStyle = cssdoc.getElementById("styleId");
+		CSSStyleSheet<?> sheet = ((LinkStyle<?>) cssStyle).getSheet();
+		CSSFontFaceRule rule = (CSSFontFaceRule) sheet.getCssRules().item(0);
+
+		// Capture the font data
+		AWTStyleDatabase db = new AWTStyleDatabase() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean loadFontFace(String familyName, FontFormat format, InputStream is,
+					CSSFontFaceRule rule) throws IOException {
+				ByteArrayOutputStream buf = new ByteArrayOutputStream(200000);
+				byte[] b = new byte[8192];
+				int len;
+				while ((len = is.read(b)) != -1) {
+					buf.write(b, 0, len);
+				}
+				ttf = buf.toByteArray();
+				return true;
+			}
+
+		};
+		db.loadFontFaceRule(rule);
+		assertNotNull(ttf);
+	}
+
+	@Test
+	public void testDecodeWoff() throws IOException, FontFormatException {
+		WoffDecoder decoder = new WoffDecoder();
+		byte[] sfnt = readAll(decoder.decode(new ByteArrayInputStream(toWoff(ttf))));
+		assertSameOutlines(ttf, sfnt);
+	}
+
+	@Test
+	public void testDecodeWoff2() throws IOException, FontFormatException {
+		WoffDecoder.BrotliDecompressor brotli = WoffDecoder.getBrotliDecompressor();
+		// Store the tables without compression
+		WoffDecoder.setBrotliDecompressor(in -> in);
+		try {
+			WoffDecoder decoder = new WoffDecoder();
+			byte[] sfnt = readAll(decoder.decode(new ByteArrayInputStream(toWoff2(ttf))));
+			assertSameOutlines(ttf, sfnt);
+
+			// The buffers are reused
+			sfnt = readAll(decoder.decode(new ByteArrayInputStream(toWoff(ttf))));
+			assertSameOutlines(ttf, sfnt);
+		} finally {
+			WoffDecoder.setBrotliDecompressor(brotli);
+		}
+	}
+
+	@Test
+	public void testDecodeWoff2TransformedGlyf() throws IOException, FontFormatException {
+		// Bounding boxes only where they cannot be computed, no overlap bitmap
+		assertWoff2RoundTrip(ttf, false, -1);
+	}
+
+	@Test
+	public void testDecodeWoff2TransformedGlyfBboxOverlap()
+			throws IOException, FontFormatException {
+		// Explicit bounding boxes for all the glyphs, and an overlap bitmap
+		assertWoff2RoundTrip(withOverlapFlags(ttf), true, -1);
+	}
+
+	@Test
+	public void testDecodeWoff2TransformedHmtx() throws IOException, FontFormatException {
+		byte[] font = withLsbFromXMin(ttf);
+		// All the left side bearings omitted
+		assertWoff2RoundTrip(font, false, 3);
+		// Only the proportional left side bearings omitted
+		assertWoff2RoundTrip(withOverlapFlags(font), true, 1);
+	}
+
+	@Test
+	public void testDecodeWoff2Unsupported() throws IOException {
+		WoffDecoder.BrotliDecompressor brotli = WoffDecoder.getBrotliDecompressor();
+		WoffDecoder.setBrotliDecompressor(null);
+		try {
+			assertFalse(WoffDecoder.isWoff2Supported());
+			assertThrows(FontFormatException.class,
+					() -> new WoffDecoder().decode(new ByteArrayInputStream(toWoff2(ttf))));
+		} finally {
+			WoffDecoder.setBrotliDecompressor(brotli);
+		}
+	}
+
+	@Test
+	public void testDecodeInvalid() throws IOException {
+		WoffDecoder decoder = new WoffDecoder();
+		assertThrows(FontFormatException.class, () -> decoder.decode(new ByteArrayInputStream(ttf)));
+		byte[] truncated = Arrays.copyOf(toWoff(ttf), 2000);
+		assertThrows(FontFormatException.class,
+				() -> decoder.decode(new ByteArrayInputStream(truncated)));
+	}
+
+	private static byte[] readAll(InputStream is) throws IOException {
+		ByteArrayOutputStream buf = new ByteArrayOutputStream(ttf.length);
+		byte[] b = new byte[8192];
+		int len;
+		while ((len = is.read(b)) != -1) {
+			buf.write(b, 0, len);
+		}
+		return buf.toByteArray();
+	}
+
+	private static void assertSameOutlines(byte[] expected, byte[] actual)
+			throws IOException, FontFormatException {
+		Font expectedFont = Font.createFont(Font.TRUETYPE_FONT, new ByteArrayInputStream(expected))
+				.deriveFont(48f);
+		Font actualFont = Font.createFont(Font.TRUETYPE_FONT, new ByteArrayInputStream(actual))
+				.deriveFont(48f);
+		FontRenderContext frc = new FontRenderContext(null, false, false);
+		String text = "Hamburgefonstiv 0123456789";
+		GlyphVector expectedGlyphs = expectedFont.createGlyphVector(frc, text);
+		GlyphVector actualGlyphs = actualFont.createGlyphVector(frc, text);
+		assertEquals(expectedGlyphs.getNumGlyphs(), actualGlyphs.getNumGlyphs());
+		for (int i = 0; i < expectedGlyphs.getNumGlyphs(); i++) {
+			assertEquals(expectedGlyphs.getGlyphMetrics(i).getAdvance(),
+					actualGlyphs.getGlyphMetrics(i).getAdvance());
+			assertEquals(pathToString(expectedGlyphs.getGlyphOutline(i).getPathIterator(null)),
+					pathToString(actualGlyphs.getGlyphOutline(i).getPathIterator(null)));
+		}
+	}
+
+	private static String pathToString(PathIterator it) {
+		StringBuilder buf = new StringBuilder();
+		double[] coords = new double[6];
+		while (!it.isDone()) {
+			buf.append(it.currentSegment(coords)).append(Arrays.toString(coords));
+			it.next();
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * Encode the font as WOFF2 with transformed glyf and loca tables, decode it
+	 * and compare the result with the original tables.
+	 *
+	 * @param font         the font.
+	 * @param explicitBbox if {@code true}, write the bounding box of every glyph.
+	 * @param hmtxFlags    the flags of the hmtx transform, or {@code -1} to use
+	 *                     the null transform for hmtx.
+	 */
+	private static void assertWoff2RoundTrip(byte[] font, boolean explicitBbox, int hmtxFlags)
+			throws IOException, FontFormatException {
+		WoffDecoder.BrotliDecompressor brotli = WoffDecoder.getBrotliDecompressor();
+		WoffDecoder.setBrotliDecompressor(in -> in);
+		try {
+			byte[] woff2 = toWoff2(font, true, explicitBbox, hmtxFlags);
+			byte[] sfnt = readAll(new WoffDecoder().decode(new ByteArrayInputStream(woff2)));
+			assertSameTables(font, sfnt);
+			assertSameOutlines(font, sfnt);
+		} finally {
+			WoffDecoder.setBrotliDecompressor(brotli);
+		}
+	}
+
+	/*
+	 * The glyf table is compared glyph by glyph, as its encoding may differ.
+	 */
+	private static void assertSameTables(byte[] expected, byte[] actual) {
+		List<int[]> expectedRecords = tableRecords(expected);
+		List<int[]> actualRecords = tableRecords(actual);
+		assertEquals(expectedRecords.size(), actualRecords.size());
+		for (int[] record : expectedRecords) {
+			int[] actualRecord = findRecord(actualRecords, record[0]);
+			assertNotNull(actualRecord);
+			if (record[0] == TAG_GLYF) {
+				continue;
+			}
+			assertEquals(record[3], actualRecord[3]);
+			if (record[0] == TAG_LOCA) {
+				continue;
+			}
+			byte[] expectedTable = Arrays.copyOfRange(expected, record[2], record[2] + record[3]);
+			byte[] actualTable = Arrays.copyOfRange(actual, actualRecord[2],
+					actualRecord[2] + actualRecord[3]);
+			if (record[0] == TAG_HEAD) {
+				// checkSumAdjustment
+				Arrays.fill(expectedTable, 8, 12, (byte) 0);
+				Arrays.fill(actualTable, 8, 12, (byte) 0);
+			}
+			assertArrayEquals(expectedTable, actualTable);
+		}
+		int[] expectedGlyphs = glyphLocations(expected);
+		int[] actualGlyphs = glyphLocations(actual);
+		assertEquals(expectedGlyphs.length, actualGlyphs.length);
+		for (int i = 0; i < expectedGlyphs.length - 1; i++) {
+			Glyph expectedGlyph = new Glyph(expected, expectedGlyphs[i], expectedGlyphs[i + 1]);
+			Glyph actualGlyph = new Glyph(actual, actualGlyphs[i], actualGlyphs[i + 1]);
+			assertEquals(expectedGlyph.toString(), actualGlyph.toString(), "Glyph " + i);
+		}
+	}
+
+	private static int readUShort(byte[] b, int offset) {
+		return ((b[offset] & 0xff) << 8) | (b[offset + 1] & 0xff);
+	}
+
+	private static int readInt(byte[] b, int offset) {
+		return (readUShort(b, offset) << 16) | readUShort(b, offset + 2);
+	}
+
+	private static void writeShort(ByteArrayOutputStream out, int value) {
+		out.write(value >> 8);
+		out.write(value);
+	}
+
+	private static void write255UShort(ByteArrayOutputStream out, int value) {
+		if (value < 253) {
+			out.write(value);
+		} else if (value < 506) {
+			out.write(255);
+			out.write(value - 253);
+		} else if (value < 762) {
+			out.write(254);
+			out.write(value - 506);
+		} else {
+			out.write(253);
+			writeShort(out, value);
+		}
+	}
+
+	/**
+	 * Table records of an sfnt font: tag, checksum, offset, length.
+	 */
+	private static List<int[]> tableRecords(byte[] sfnt) {
+		int numTables = readUShort(sfnt, 4);
+		List<int[]> records = new ArrayList<>(numTables);
+		for (int i = 0; i < numTables; i++) {
+			int rec = 12 + 16 * i;
+			records.add(new int[] { readInt(sfnt, rec), readInt(sfnt, rec + 4),
+					readInt(sfnt, rec + 8), readInt(sfnt, rec + 12) });
+		}
+		return records;
+	}
+
+	private static int[] findRecord(List<int[]> records, int tag) {
+		for (int[] record : records) {
+			if (record[0] == tag) {
+				return record;
+			}
+		}
+		return null;
+	}
+
+	private static int[] findRecord(byte[] sfnt, int tag) {
+		int[] record = findRecord(tableRecords(sfnt), tag);
+		assertNotNull(record);
+		return record;
+	}
+
+	private static int numGlyphs(byte[] sfnt) {
+		return readUShort(sfnt, findRecord(sfnt, TAG_MAXP)[2] + 4);
+	}
+
+	/**
+	 * The absolute offsets of the glyphs in the sfnt data, from loca.
+	 */
+	private static int[] glyphLocations(byte[] sfnt) {
+		int numGlyphs = numGlyphs(sfnt);
+		int indexFormat = readUShort(sfnt, findRecord(sfnt, TAG_HEAD)[2] + 50);
+		int glyfOffset = findRecord(sfnt, TAG_GLYF)[2];
+		int locaOffset = findRecord(sfnt, TAG_LOCA)[2];
+		int[] locations = new int[numGlyphs + 1];
+		for (int i = 0; i <= numGlyphs; i++) {
+			int offset = indexFormat == 0 ? readUShort(sfnt, locaOffset + 2 * i) * 2
+					: readInt(sfnt, locaOffset + 4 * i);
+			locations[i] = glyfOffset + offset;
+		}
+		return locations;
+	}
+
+	/**
+	 * A glyph from a glyf table.
+	 */
+	private static class Glyph {
+
+		int nContours;
+		short[] bbox = new short[4];
+		int[] endPts;
+		byte[] instructions;
+		int flagsOffset;
+		boolean overlap;
+		int[] x;
+		int[] y;
+		boolean[] onCurve;
+		/*
+		 * Component records of a composite glyph.
+		 */
+		byte[] components;
+
+		Glyph(byte[] sfnt, int start, int end) {
+			super();
+			if (start == end) {
+				return;
+			}
+			nContours = (short) readUShort(sfnt, start);
+			for (int i = 0; i < 4; i++) {
+				bbox[i] = (short) readUShort(sfnt, start + 2 + 2 * i);
+			}
+			int pos = start + 10;
+			if (nContours < 0) {
+				boolean haveInstructions = false;
+				int flags;
+				do {
+					flags = readUShort(sfnt, pos);
+					haveInstructions |= (flags & 0x0100) != 0;
+					pos += (flags & 0x0001) != 0 ? 8 : 6;
+					if ((flags & 0x0008) != 0) {
+						pos += 2;
+					} else if ((flags & 0x0040) != 0) {
+						pos += 4;
+					} else if ((flags & 0x0080) != 0) {
+						pos += 8;
+					}
+				} while ((flags & 0x0020) != 0);
+				components = Arrays.copyOfRange(sfnt, start + 10, pos);
+				if (haveInstructions) {
+					int length = readUShort(sfnt, pos);
+					instructions = Arrays.copyOfRange(sfnt, pos + 2, pos + 2 + length);
+				}
+				return;
+			}
+			endPts = new int[nContours];
+			for (int c = 0; c < nContours; c++) {
+				endPts[c] = readUShort(sfnt, pos);
+				pos += 2;
+			}
+			int length = readUShort(sfnt, pos);
+			pos += 2;
+			instructions = Arrays.copyOfRange(sfnt, pos, pos + length);
+			pos += length;
+			int nPoints = nContours == 0 ? 0 : endPts[nContours - 1] + 1;
+			flagsOffset = pos;
+			int[] flags = new int[nPoints];
+			for (int p = 0; p < nPoints;) {
+				int flag = sfnt[pos++] & 0xff;
+				flags[p++] = flag;
+				if ((flag & 0x08) != 0) {
+					for (int repeat = sfnt[pos++] & 0xff; repeat > 0; repeat--) {
+						flags[p++] = flag;
+					}
+				}
+			}
+			overlap = nPoints != 0 && (flags[0] & 0x40) != 0;
+			onCurve = new boolean[nPoints];
+			for (int p = 0; p < nPoints; p++) {
+				onCurve[p] = (flags[p] & 0x01) != 0;
+			}
+			x = new int[nPoints];
+			pos = readCoordinates(sfnt, pos, flags, 0x02, 0x10, x);
+			y = new int[nPoints];
+			readCoordinates(sfnt, pos, flags, 0x04, 0x20, y);
+		}
+
+		private static int readCoordinates(byte[] sfnt, int pos, int[] flags, int shortFlag,
+				int sameFlag, int[] coords) {
+			int value = 0;
+			for (int p = 0; p < flags.length; p++) {
+				if ((flags[p] & shortFlag) != 0) {
+					int delta = sfnt[pos++] & 0xff;
+					value += (flags[p] & sameFlag) != 0 ? delta : -delta;
+				} else if ((flags[p] & sameFlag) == 0) {
+					value += (short) readUShort(sfnt, pos);
+					pos += 2;
+				}
+				coords[p] = value;
+			}
+			return pos;
+		}
+
+		boolean isSimple() {
+			return nContours > 0;
+		}
+
+		/**
+		 * Check whether the bounding box is the one computed from the points.
+		 */
+		boolean isBboxComputed() {
+			if (x.length == 0) {
+				return false;
+			}
+			int xMin = x[0], yMin = y[0], xMax = xMin, yMax = yMin;
+			for (int p = 1; p < x.length; p++) {
+				xMin = Math.min(xMin, x[p]);
+				xMax = Math.max(xMax, x[p]);
+				yMin = Math.min(yMin, y[p]);
+				yMax = Math.max(yMax, y[p]);
+			}
+			return bbox[0] == xMin && bbox[1] == yMin && bbox[2] == xMax && bbox[3] == yMax;
+		}
+
+		@Override
+		public String toString() {
+			return nContours + Arrays.toString(bbox) + Arrays.toString(endPts)
+					+ Arrays.toString(instructions) + overlap + Arrays.toString(x)
+					+ Arrays.toString(y) + Arrays.toString(onCurve)
+					+ Arrays.toString(components);
+		}
+
+	}
+
+	/*
+	 * Set the OVERLAP_SIMPLE flag in every other simple glyph.
+	 */
+	private static byte[] withOverlapFlags(byte[] sfnt) {
+		byte[] font = sfnt.clone();
+		int[] locations = glyphLocations(font);
+		for (int i = 0; i < locations.length - 1; i += 2) {
+			Glyph glyph = new Glyph(font, locations[i], locations[i + 1]);
+			if (glyph.isSimple()) {
+				font[glyph.flagsOffset] |= 0x40;
+			}
+		}
+		return font;
+	}
+
+	/*
+	 * Make the left side bearings equal to the xMin of the glyphs, so the hmtx
+	 * transform can be applied.
+	 */
+	private static byte[] withLsbFromXMin(byte[] sfnt) {
+		byte[] font = sfnt.clone();
+		int[] locations = glyphLocations(font);
+		int numHMetrics = readUShort(font, findRecord(font, TAG_HHEA)[2] + 34);
+		int hmtxOffset = findRecord(font, TAG_HMTX)[2];
+		for (int i = 0; i < locations.length - 1; i++) {
+			Glyph glyph = new Glyph(font, locations[i], locations[i + 1]);
+			int lsbOffset = i < numHMetrics ? hmtxOffset + 4 * i + 2
+					: hmtxOffset + 4 * numHMetrics + 2 * (i - numHMetrics);
+			int xMin = glyph.nContours == 0 ? 0 : glyph.bbox[0];
+			font[lsbOffset] = (byte) (xMin >> 8);
+			font[lsbOffset + 1] = (byte) xMin;
+		}
+		return font;
+	}
+
+	/*
+	 * The WOFF2 transformed glyf table.
+	 */
+	private static byte[] transformGlyf(byte[] sfnt, boolean explicitBbox) {
+		int numGlyphs = numGlyphs(sfnt);
+		int[] locations = glyphLocations(sfnt);
+		ByteArrayOutputStream nContourStream = new ByteArrayOutputStream();
+		ByteArrayOutputStream nPointsStream = new ByteArrayOutputStream();
+		ByteArrayOutputStream flagStream = new ByteArrayOutputStream();
+		ByteArrayOutputStream glyphStream = new ByteArrayOutputStream();
+		ByteArrayOutputStream compositeStream = new ByteArrayOutputStream();
+		ByteArrayOutputStream bboxStream = new ByteArrayOutputStream();
+		ByteArrayOutputStream instructionStream = new ByteArrayOutputStream();
+		byte[] bboxBitmap = new byte[((numGlyphs + 31) >> 5) << 2];
+		byte[] overlapBitmap = new byte[(numGlyphs + 7) >> 3];
+		boolean hasOverlap = false;
+		for (int i = 0; i < numGlyphs; i++) {
+			Glyph glyph = new Glyph(sfnt, locations[i], locations[i + 1]);
+			writeShort(nContourStream, glyph.nContours);
+			boolean hasBbox;
+			if (glyph.nContours == 0) {
+				continue;
+			} else if (glyph.nContours < 0) {
+				compositeStream.write(glyph.components, 0, glyph.components.length);
+				if (glyph.instructions != null) {
+					write255UShort(glyphStream, glyph.instructions.length);
+					instructionStream.write(glyph.instructions, 0, glyph.instructions.length);
+				}
+				hasBbox = true;
+			} else {
+				int prevEnd = -1;
+				for (int c = 0; c < glyph.nContours; c++) {
+					write255UShort(nPointsStream, glyph.endPts[c] - prevEnd);
+					prevEnd = glyph.endPts[c];
+				}
+				int prevX = 0, prevY = 0;
+				for (int p = 0; p < glyph.x.length; p++) {
+					writeTriplet(flagStream, glyphStream, glyph.onCurve[p], glyph.x[p] - prevX,
+							glyph.y[p] - prevY);
+					prevX = glyph.x[p];
+					prevY = glyph.y[p];
+				}
+				write255UShort(glyphStream, glyph.instructions.length);
+				instructionStream.write(glyph.instructions, 0, glyph.instructions.length);
+				if (glyph.overlap) {
+					overlapBitmap[i >> 3] |= 0x80 >> (i & 7);
+					hasOverlap = true;
+				}
+				hasBbox = explicitBbox || !glyph.isBboxComputed();
+			}
+			if (hasBbox) {
+				bboxBitmap[i >> 3] |= 0x80 >> (i & 7);
+				for (short coord : glyph.bbox) {
+					writeShort(bboxStream, coord);
+				}
+			}
+		}
+
+		ByteArrayOutputStream table = new ByteArrayOutputStream();
+		writeShort(table, 0); // reserved
+		writeShort(table, hasOverlap ? 1 : 0);
+		writeShort(table, numGlyphs);
+		writeShort(table, readUShort(sfnt, findRecord(sfnt, TAG_HEAD)[2] + 50));
+		ByteArrayOutputStream[] streams = { nContourStream, nPointsStream, flagStream,
+				glyphStream, compositeStream, bboxStream, instructionStream };
+		for (ByteArrayOutputStream stream : streams) {
+			int size = stream.size();
+			if (stream == bboxStream) {
+				size += bboxBitmap.length;
+			}
+			writeShort(table, size >>> 16);
+			writeShort(table, size);
+		}
+		for (ByteArrayOutputStream stream : streams) {
+			if (stream == bboxStream) {
+				table.write(bboxBitmap, 0, bboxBitmap.length);
+			}
+			byte[] b = stream.toByteArray();
+			table.write(b, 0, b.length);
+		}
+		if (hasOverlap) {
+			table.write(overlapBitmap, 0, overlapBitmap.length);
+		}
+		return table.toByteArray();
+	}
+
+	private static void writeTriplet(ByteArrayOutputStream flagStream,
+			ByteArrayOutputStream glyphStream, boolean onCurve, int dx, int dy) {
+		int absX = Math.abs(dx);
+		int absY = Math.abs(dy);
+		int flag = onCurve ? 0 : 0x80;
+		int xSign = dx < 0 ? 0 : 1;
+		int ySign = dy < 0 ? 0 : 1;
+		int xySigns = xSign + 2 * ySign;
+		if (dx == 0 && absY < 1280) {
+			flagStream.write(flag + ((absY & 0xf00) >> 7) + ySign);
+			glyphStream.write(absY);
+		} else if (dy == 0 && absX < 1280) {
+			flagStream.write(flag + 10 + ((absX & 0xf00) >> 7) + xSign);
+			glyphStream.write(absX);
+		} else if (absX < 65 && absY < 65) {
+			flagStream.write(flag + 20 + ((absX - 1) & 0x30) + (((absY - 1) & 0x30) >> 2) + xySigns);
+			glyphStream.write((((absX - 1) & 0xf) << 4) | ((absY - 1) & 0xf));
+		} else if (absX < 769 && absY < 769) {
+			flagStream.write(flag + 84 + 12 * (((absX - 1) & 0x300) >> 8)
+					+ (((absY - 1) & 0x300) >> 6) + xySigns);
+			glyphStream.write(absX - 1);
+			glyphStream.write(absY - 1);
+		} else if (absX < 4096 && absY < 4096) {
+			flagStream.write(flag + 120 + xySigns);
+			glyphStream.write(absX >> 4);
+			glyphStream.write(((absX & 0xf) << 4) | (absY >> 8));
+			glyphStream.write(absY);
+		} else {
+			flagStream.write(flag + 124 + xySigns);
+			writeShort(glyphStream, absX);
+			writeShort(glyphStream, absY);
+		}
+	}
+
+	/*
+	 * The WOFF2 transformed hmtx table.
+	 */
+	private static byte[] transformHmtx(byte[] sfnt, int flags) {
+		int numGlyphs = numGlyphs(sfnt);
+		int numHMetrics = readUShort(sfnt, findRecord(sfnt, TAG_HHEA)[2] + 34);
+		int hmtxOffset = findRecord(sfnt, TAG_HMTX)[2];
+		ByteArrayOutputStream table = new ByteArrayOutputStream();
+		table.write(flags);
+		for (int i = 0; i < numHMetrics; i++) {
+			table.write(sfnt, hmtxOffset + 4 * i, 2);
+		}
+		if ((flags & 1) == 0) {
+			for (int i = 0; i < numHMetrics; i++) {
+				table.write(sfnt, hmtxOffset + 4 * i + 2, 2);
+			}
+		}
+		if ((flags & 2) == 0) {
+			table.write(sfnt, hmtxOffset + 4 * numHMetrics, 2 * (numGlyphs - numHMetrics));
+		}
+		return table.toByteArray();
+	}
+
+	private static byte[] toWoff(byte[] sfnt) throws IOException {
+		List<int[]> records = tableRecords(sfnt);
+		int numTables = records.size();
+		ByteArrayOutputStream data = new ByteArrayOutputStream(sfnt.length);
+		ByteArrayOutputStream dirBuf = new ByteArrayOutputStream();
+		DataOutputStream dir = new DataOutputStream(dirBuf);
+		int offset = 44 + 20 * numTables;
+		for (int[] record : records) {
+			byte[] table = Arrays.copyOfRange(sfnt, record[2], record[2] + record[3]);
+			Deflater deflater = new Deflater();
+			deflater.setInput(table);
+			deflater.finish();
+			byte[] buf = new byte[table.length + 64];
+			int compLength = deflater.deflate(buf);
+			deflater.end();
+			if (compLength >= table.length) {
+				buf = table;
+				compLength = table.length;
+			}
+			dir.writeInt(record[0]);
+			dir.writeInt(offset + data.size());
+			dir.writeInt(compLength);
+			dir.writeInt(table.length);
+			dir.writeInt(record[1]);
+			data.write(buf, 0, compLength);
+			while (data.size() % 4 != 0) {
+				data.write(0);
+			}
+		}
+		ByteArrayOutputStream woff = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(woff);
+		out.writeInt(0x774f4646);
+		out.writeInt(readInt(sfnt, 0));
+		out.writeInt(offset + data.size());
+		out.writeShort(numTables);
+		out.writeShort(0);
+		out.writeInt(sfnt.length);
+		out.writeShort(1);
+		out.writeShort(0);
+		for (int i = 0; i < 5; i++) {
+			out.writeInt(0);
+		}
+		dirBuf.writeTo(out);
+		data.writeTo(out);
+		return woff.toByteArray();
+	}
+
+	/*
+	 * WOFF2 with the null transform for all the tables, and data that is not
+	 * compressed.
+	 */
+	private static byte[] toWoff2(byte[] sfnt) throws IOException {
+		return toWoff2(sfnt, false, false, -1);
+	}
+
+	/*
+	 * WOFF2 with data that is not compressed.
+	 */
+	private static byte[] toWoff2(byte[] sfnt, boolean transformGlyf, boolean explicitBbox,
+			int hmtxFlags) throws IOException {
+		List<int[]> records = tableRecords(sfnt);
+		ByteArrayOutputStream data = new ByteArrayOutputStream(sfnt.length);
+		ByteArrayOutputStream dirBuf = new ByteArrayOutputStream();
+		DataOutputStream dir = new DataOutputStream(dirBuf);
+		for (int[] record : records) {
+			int tag = record[0];
+			byte[] transformed = null;
+			int version = 0;
+			if (transformGlyf && tag == TAG_GLYF) {
+				transformed = transformGlyf(sfnt, explicitBbox);
+			} else if (transformGlyf && tag == TAG_LOCA) {
+				transformed = new byte[0];
+			} else if (hmtxFlags != -1 && tag == TAG_HMTX) {
+				transformed = transformHmtx(sfnt, hmtxFlags);
+				version = 1;
+			} else if (tag == TAG_GLYF || tag == TAG_LOCA) {
+				// The null transform of glyf and loca
+				version = 3;
+			}
+			// Arbitrary tag
+			dir.writeByte(0x3f | (version << 6));
+			dir.writeInt(tag);
+			writeUIntBase128(dir, record[3]);
+			if (transformed != null) {
+				writeUIntBase128(dir, transformed.length);
+				data.write(transformed);
+			} else {
+				data.write(sfnt, record[2], record[3]);
+			}
+		}
+		ByteArrayOutputStream woff2 = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(woff2);
+		out.writeInt(0x774f4632);
+		out.writeInt(readInt(sfnt, 0));
+		out.writeInt(48 + dirBuf.size() + data.size());
+		out.writeShort(records.size());
+		out.writeShort(0);
+		out.writeInt(sfnt.length);
+		out.writeInt(data.size());
+		out.writeShort(1);
+		out.writeShort(0);
+		for (int i = 0; i < 5; i++) {
+			out.writeInt(0);
+		}
+		dirBuf.writeTo(out);
+		data.writeTo(out);
+		return woff2.toByteArray();
+	}
+
+	private static void writeUIntBase128(DataOutputStream out, int value) throws IOException {
+		int[] groups = new int[5];
+		int n = 0;
+		do {
+			groups[n++] = value & 0x7f;
+			value >>>= 7;
+		} while (value != 0);
+		for (int i = n - 1; i >= 0; i--) {
+			out.writeByte(groups[i] | (i > 0 ? 0x80 : 0));
+		}
+	}
+
+}
@@ -13,9 +13,11 @@ package io.sf.carte.doc.style.css.awt;
 
 import java.awt.Color;
 import java.awt.Font;
-import java.awt.font.TextAttribute;
-import java.util.HashMap;
-import java.util.Map;
+import java.awt.LinearGradientPaint;
+import java.awt.Paint;
+import java.awt.RadialGradientPaint;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.w3c.dom.DOMException;
 
@@ -23,6 +25,7 @@ import io.sf.carte.doc.style.css.CSSComputedProperties;
 import io.sf.carte.doc.style.css.CSSPrimitiveValue;
 import io.sf.carte.doc.style.css.CSSTypedValue;
 import io.sf.carte.doc.style.css.CSSUnit;
+import io.sf.carte.doc.style.css.CSSValue;
 import io.sf.carte.doc.style.css.CSSValue.CssType;
 import io.sf.carte.doc.style.css.CSSValue.Type;
 import io.sf.carte.doc.style.css.RGBAColor;
@@ -36,14 +39,46 @@ import io.sf.carte.doc.style.css.property.CSSPropertyValueException;
  */
 public class AWTHelper {
 
+	private static final FontCache defaultFontCache = new FontCache();
+
+	private static final int COLOR_TABLE_BITS = 10;
+
+	private static final AtomicReferenceArray<Color> colorTable = new AtomicReferenceArray<>(
+			1 << COLOR_TABLE_BITS);
+
+	private static final GradientPaintFactory gradientPaintFactory = new GradientPaintFactory(256,
+			1024);
+
 	/**
 	 * Create an AWT Font object from a computed style.
+	 * <p>
+	 * Fonts are obtained from a shared {@link FontCache}.
+	 * </p>
 	 * 
 	 * @param computedStyle
 	 *            the computed style.
 	 * @return the font.
 	 */
 	public static Font createFont(CSSComputedProperties computedStyle) {
+		return createFont(computedStyle, defaultFontCache);
+	}
+
+	/**
+	 * Create an AWT Font object from a computed style, using the given font
+	 * cache.
+	 * <p>
+	 * Besides the family, size, style and weight, the following properties are
+	 * mapped to text attributes: <code>font-stretch</code>,
+	 * <code>letter-spacing</code>, <code>font-kerning</code>,
+	 * <code>font-variant-ligatures</code> and the <code>underline</code> and
+	 * <code>line-through</code> text decorations.
+	 * </p>
+	 * 
+	 * @param computedStyle the computed style.
+	 * @param fontCache     the font cache.
+	 * @return the font.
+	 */
+	public static Font createFont(CSSComputedProperties computedStyle, FontCache fontCache) {
 		String fontfamily = computedStyle.getUsedFontFamily();
 		float sz = computedStyle.getComputedFontSize();
 		// Font style
@@ -51,38 +86,188 @@ public class AWTHelper {
 		int style = Font.PLAIN;
 		if (stylename.length() > 0) {
 			stylename = stylename.toLowerCase();
-			if (stylename.equals("italic")) {
+			if (stylename.equals("italic") || stylename.startsWith("oblique")) {
 				style = Font.ITALIC;
 			}
 		}
-		String fontweight = computedStyle.getFontWeight();
-		if (fontweight != null) {
-			fontweight = fontweight.toLowerCase();
-			if (fontweight.equals("bold")) {
-				if (style != Font.ITALIC) {
-					style = Font.BOLD;
-				} else {
-					style = Font.ITALIC & Font.BOLD;
+		int attributes = 0;
+		float weight = fontWeight(computedStyle.getFontWeight());
+		if (weight >= 600f) {
+			style |= Font.BOLD;
+		}
+		attributes |= FontCache.weightAttribute(weight);
+		attributes |= FontCache.stretchAttribute(fontStretch(computedStyle));
+		attributes |= decorationAttributes(computedStyle);
+		// Kerning is applied unless disabled, as auto is the initial value
+		String kerning = computedStyle.getPropertyValue("font-kerning");
+		if (!"none".equalsIgnoreCase(kerning)) {
+			attributes |= FontCache.KERNING;
+		}
+		// Common ligatures are also enabled by the initial value, normal
+		String ligatures = computedStyle.getPropertyValue("font-variant-ligatures")
+				.toLowerCase(Locale.ROOT);
+		if (!ligatures.equals("none") && !ligatures.contains("no-common-ligatures")) {
+			attributes |= FontCache.LIGATURES;
+		}
+		float tracking = 0f;
+		if (sz > 0f) {
+			tracking = letterSpacing(computedStyle) / sz;
+		}
+		//
+		return fontCache.getFont(fontfamily, style, sz, attributes, tracking);
+	}
+
+	/**
+	 * Parse a computed font weight.
+	 * 
+	 * @param fontweight the font weight.
+	 * @return the numeric weight.
+	 */
+	private static float fontWeight(String fontweight) {
+		if (fontweight != null && fontweight.length() > 0) {
+			fontweight = fontweight.toLowerCase(Locale.ROOT);
+			switch (fontweight) {
+			case "normal":
+				return 400f;
+			case "bold":
+			case "bolder":
+				return 700f;
+			case "lighter":
+				return 100f;
+			default:
+				try {
+					return Float.parseFloat(fontweight);
+				} catch (NumberFormatException e) {
 				}
 			}
 		}
-		Map<TextAttribute, Object> textAttrs = new HashMap<>();
-		String decoration = computedStyle.getPropertyValue("text-decoration");
-		if (decoration.length() > 0) {
-			decoration = decoration.toLowerCase();
-			if (decoration.equals("underline")) {
-				textAttrs.put(TextAttribute.UNDERLINE, TextAttribute.UNDERLINE_ON);
-			} else if (decoration.equals("line-through")) {
-				textAttrs.put(TextAttribute.STRIKETHROUGH, TextAttribute.STRIKETHROUGH_ON);
+		return 400f;
+	}
+
+	/**
+	 * Obtain the font stretch as a percentage.
+	 * 
+	 * @param computedStyle the computed style.
+	 * @return the font stretch percentage.
+	 */
+	private static float fontStretch(CSSComputedProperties computedStyle) {
+		CSSValue value = computedStyle.getPropertyCSSValue("font-stretch");
+		if (value != null && value.getCssValueType() == CssType.TYPED) {
+			CSSTypedValue typed = (CSSTypedValue) value;
+			if (typed.getPrimitiveType() == Type.IDENT) {
+				switch (typed.getStringValue().toLowerCase(Locale.ROOT)) {
+				case "ultra-condensed":
+					return 50f;
+				case "extra-condensed":
+					return 62.5f;
+				case "condensed":
+					return 75f;
+				case "semi-condensed":
+					return 87.5f;
+				case "semi-expanded":
+					return 112.5f;
+				case "expanded":
+					return 125f;
+				case "extra-expanded":
+					return 150f;
+				case "ultra-expanded":
+					return 200f;
+				}
+			} else if (typed.getUnitType() == CSSUnit.CSS_PERCENTAGE) {
+				return typed.getFloatValue(CSSUnit.CSS_PERCENTAGE);
 			}
 		}
-		//
-		Font font = new Font(fontfamily, style, Math.round(sz));
-		return font.deriveFont(textAttrs);
+		return 100f;
+	}
+
+	/**
+	 * Obtain the decoration flags from <code>text-decoration-line</code>, or from
+	 * <code>text-decoration</code> if the former is not available.
+	 * 
+	 * @param computedStyle the computed style.
+	 * @return the decoration flags.
+	 */
+	static int decorationAttributes(CSSComputedProperties computedStyle) {
+		String decoration = computedStyle.getPropertyValue("text-decoration-line");
+		if (decoration.length() == 0) {
+			decoration = computedStyle.getPropertyValue("text-decoration");
+			if (decoration.length() == 0) {
+				return 0;
+			}
+		}
+		decoration = decoration.toLowerCase(Locale.ROOT);
+		int flags = 0;
+		if (decoration.contains("underline")) {
+			flags = FontCache.DECORATION_UNDERLINE;
+		}
+		if (decoration.contains("line-through")) {
+			flags |= FontCache.DECORATION_LINE_THROUGH;
+		}
+		return flags;
+	}
+
+	/**
+	 * Obtain the letter spacing in typographic points.
+	 * 
+	 * @param computedStyle the computed style.
+	 * @return the letter spacing, or zero if it is <code>normal</code> or cannot
+	 *         be determined.
+	 */
+	static float letterSpacing(CSSComputedProperties computedStyle) {
+		CSSValue value = computedStyle.getPropertyCSSValue("letter-spacing");
+		if (value != null && value.getCssValueType() == CssType.TYPED
+				&& value.getPrimitiveType() == Type.NUMERIC) {
+			try {
+				return ((CSSTypedValue) value).getFloatValue(CSSUnit.CSS_PT);
+			} catch (DOMException e) {
+			}
+		}
+		return 0f;
+	}
+
+	/**
+	 * Choose the face of a family that best matches the given style.
+	 * <p>
+	 * As in CSS font matching, the slope is matched before the weight.
+	 * </p>
+	 * 
+	 * @param faces the faces of the family, indexed by their style (a
+	 *              combination of {@link Font#BOLD} and {@link Font#ITALIC}).
+	 *              Some may be {@code null}, but not all of them.
+	 * @param style the requested style.
+	 * @return the index of the chosen face.
+	 */
+	static int bestFaceIndex(Object[] faces, int style) {
+		int italic = style & Font.ITALIC;
+		if (faces[italic] == null && faces[italic | Font.BOLD] == null) {
+			italic ^= Font.ITALIC;
+		}
+		int index = italic | (style & Font.BOLD);
+		if (faces[index] == null) {
+			index ^= Font.BOLD;
+		}
+		return index;
+	}
+
+	/**
+	 * Get the font cache that is used by {@link #createFont(CSSComputedProperties)}.
+	 * 
+	 * @return the default font cache.
+	 */
+	public static FontCache getDefaultFontCache() {
+		return defaultFontCache;
 	}
 
 	/**
 	 * Gets the AWT color as obtained from the given CSS primitive value.
+	 * <p>
+	 * The returned colors are shared through a bounded interning cache, so the
+	 * same color is generally returned for equal values.
+	 * </p>
+	 * <p>
+	 * The color is always in the sRGB color space. To obtain colors in a wider
+	 * color space, use a {@link ColorConverter}.
+	 * </p>
 	 * 
 	 * @param cssColor the primitive color value, which can contain an RGB color, a
 	 *                 number or an identifier.
@@ -94,60 +279,170 @@ public class AWTHelper {
 	public static Color getAWTColor(CSSTypedValue cssColor) throws CSSPropertyValueException {
 		Color awtcolor = null;
 		if (cssColor != null) {
-			switch (cssColor.getPrimitiveType()) {
-			case COLOR:
-			case IDENT:
-				RGBAColor color;
-				try {
-					color = cssColor.toRGBColor();
-				} catch (RuntimeException e) {
-					CSSPropertyValueException ex = new CSSPropertyValueException(
-							"Cannot obtain a RGB color.", e);
-					ex.setValueText(cssColor.getCssText());
-					throw ex;
-				}
+			awtcolor = getAWTColor(getARGB(cssColor));
+		}
+		return awtcolor;
+	}
 
-				double[] rgb;
-				try {
-					rgb = color.toNumberArray();
-				} catch (RuntimeException e) {
-					CSSPropertyValueException ex = new CSSPropertyValueException(
-							"Cannot obtain the color components.", e);
-					ex.setValueText(cssColor.getCssText());
-					throw ex;
-				}
+	/**
+	 * Gets the AWT paint for the given CSS gradient or color, to fill a box of the
+	 * given size.
+	 * <p>
+	 * <code>linear-gradient()</code> and <code>radial-gradient()</code>, and their
+	 * repeating variants, are converted to {@link LinearGradientPaint} and
+	 * {@link RadialGradientPaint}. Gradients are parsed and their color stops
+	 * converted only once, and the paints are shared by all the boxes of the same
+	 * size that use the same gradient. Color hints are ignored.
+	 * </p>
+	 * <p>
+	 * The paint is in the coordinate space of the box, so the graphics context
+	 * must be translated to the top left corner of the box before filling it.
+	 * </p>
+	 * 
+	 * @param cssValue the gradient or color value.
+	 * @param width    the width of the box, in typographic points.
+	 * @param height   the height of the box, in typographic points.
+	 * @return the paint, which is a {@link Color} if the value was a color or the
+	 *         gradient is equivalent to a solid color, or null if the value was
+	 *         null or an unknown identifier.
+	 * @throws CSSPropertyValueException if a paint cannot be derived from the CSS
+	 *                                   value, for example because it is a
+	 *                                   <code>conic-gradient()</code>.
+	 */
+	public static Paint getPaint(CSSTypedValue cssValue, float width, float height)
+			throws CSSPropertyValueException {
+		if (cssValue == null) {
+			return null;
+		}
+		if (cssValue.getPrimitiveType() == Type.GRADIENT) {
+			return gradientPaintFactory.getPaint(cssValue, width, height);
+		}
+		return getAWTColor(cssValue);
+	}
 
-				CSSPrimitiveValue prialpha = color.getAlpha();
+	/**
+	 * Gets the color obtained from the given CSS primitive value, packed into an
+	 * integer.
+	 * <p>
+	 * The alpha component is in bits 24-31, red in 16-23, green in 8-15 and blue
+	 * in 0-7, like in {@link Color#getRGB()}.
+	 * </p>
+	 * 
+	 * @param cssColor the non-null primitive color value, which can contain an
+	 *                 RGB color, a number or an identifier.
+	 * @return the packed ARGB color.
+	 * @throws CSSPropertyValueException if a color cannot be derived from the CSS
+	 *                                   value.
+	 */
+	public static int getARGB(CSSTypedValue cssColor) throws CSSPropertyValueException {
+		switch (cssColor.getPrimitiveType()) {
+		case COLOR:
+		case IDENT:
+			RGBAColor color;
+			try {
+				color = cssColor.toRGBColor();
+			} catch (RuntimeException e) {
+				CSSPropertyValueException ex = new CSSPropertyValueException(
+						"Cannot obtain a RGB color.", e);
+				ex.setValueText(cssColor.getCssText());
+				throw ex;
+			}
 
-				if (prialpha.getCssValueType() != CssType.TYPED) {
-					CSSPropertyValueException ex = new CSSPropertyValueException(
-							"Unsupported alpha channel.");
-					ex.setValueText(cssColor.getCssText());
-					throw ex;
+			float r, g, b;
+			try {
+				r = normalizedRGBComponent(color.getRed());
+				g = normalizedRGBComponent(color.getGreen());
+				b = normalizedRGBComponent(color.getBlue());
+				if (Float.isNaN(r) || Float.isNaN(g) || Float.isNaN(b)) {
+					double[] rgb = color.toNumberArray();
+					r = (float) rgb[0];
+					g = (float) rgb[1];
+					b = (float) rgb[2];
 				}
+			} catch (RuntimeException e) {
+				CSSPropertyValueException ex = new CSSPropertyValueException(
+						"Cannot obtain the color components.", e);
+				ex.setValueText(cssColor.getCssText());
+				throw ex;
+			}
 
-				float alpha = normalizedAlphaComponent((CSSTypedValue) prialpha);
+			CSSPrimitiveValue prialpha = color.getAlpha();
 
-				try {
-					awtcolor = new Color((float) rgb[0], (float) rgb[1], (float) rgb[2], alpha);
-				} catch (IllegalArgumentException e) {
-					CSSPropertyValueException ex = new CSSPropertyValueException("Unknown color.",
-							e);
-					ex.setValueText(cssColor.getCssText());
-					throw ex;
-				}
-				break;
-			case NUMERIC:
-				if (cssColor.getUnitType() == CSSUnit.CSS_NUMBER) {
-					return new Color((int) cssColor.getFloatValue(CSSUnit.CSS_NUMBER));
-				}
-			default:
-				CSSPropertyValueException ex = new CSSPropertyValueException("Unknown color");
+			if (prialpha.getCssValueType() != CssType.TYPED) {
+				CSSPropertyValueException ex = new CSSPropertyValueException(
+						"Unsupported alpha channel.");
+				ex.setValueText(cssColor.getCssText());
+				throw ex;
+			}
+
+			float alpha = normalizedAlphaComponent((CSSTypedValue) prialpha);
+
+			if (!isUnitInterval(r) || !isUnitInterval(g) || !isUnitInterval(b)) {
+				CSSPropertyValueException ex = new CSSPropertyValueException("Unknown color.");
 				ex.setValueText(cssColor.getCssText());
 				throw ex;
 			}
+
+			return (toByte(alpha) << 24) | (toByte(r) << 16) | (toByte(g) << 8) | toByte(b);
+		case NUMERIC:
+			if (cssColor.getUnitType() == CSSUnit.CSS_NUMBER) {
+				return 0xff000000 | (int) cssColor.getFloatValue(CSSUnit.CSS_NUMBER);
+			}
+		default:
+			CSSPropertyValueException ex = new CSSPropertyValueException("Unknown color");
+			ex.setValueText(cssColor.getCssText());
+			throw ex;
 		}
-		return awtcolor;
+	}
+
+	/**
+	 * Normalize a RGB component to a [0,1] interval, if it is a plain number or
+	 * percentage.
+	 * 
+	 * @param component the component.
+	 * @return the normalized component, or {@code NaN} if the component is not a
+	 *         plain number or percentage.
+	 */
+	private static float normalizedRGBComponent(CSSPrimitiveValue component) {
+		if (component.getCssValueType() == CssType.TYPED
+				&& component.getPrimitiveType() == Type.NUMERIC) {
+			short unit = component.getUnitType();
+			if (unit == CSSUnit.CSS_NUMBER) {
+				return ((CSSTypedValue) component).getFloatValue(CSSUnit.CSS_NUMBER) / 255f;
+			} else if (unit == CSSUnit.CSS_PERCENTAGE) {
+				return ((CSSTypedValue) component).getFloatValue(CSSUnit.CSS_PERCENTAGE) * 0.01f;
+			}
+		}
+		return Float.NaN;
+	}
+
+	private static boolean isUnitInterval(float comp) {
+		return comp >= 0f && comp <= 1f;
+	}
+
+	private static int toByte(float comp) {
+		return (int) (comp * 255f + 0.5f);
+	}
+
+	/**
+	 * Gets the AWT color for the given packed ARGB value.
+	 * <p>
+	 * Colors are obtained from a bounded interning cache, so that frequently used
+	 * colors do not require an allocation.
+	 * </p>
+	 * 
+	 * @param argb the packed color, as returned by
+	 *             {@link #getARGB(CSSTypedValue)}.
+	 * @return the AWT color.
+	 */
+	public static Color getAWTColor(int argb) {
+		int idx = (argb * 0x9e3779b9) >>> (32 - COLOR_TABLE_BITS);
+		Color color = colorTable.get(idx);
+		if (color == null || color.getRGB() != argb) {
+			color = new Color(argb, true);
+			colorTable.set(idx, color);
+		}
+		return color;
 	}
 
 	/**
@@ -156,7 +451,7 @@ public class AWTHelper {
 	 * @param typed the component.
 	 * @return the normalized component.
 	 */
-	private static float normalizedAlphaComponent(CSSTypedValue typed) {
+	static float normalizedAlphaComponent(CSSTypedValue typed) {
 		float comp;
 		short unit = typed.getUnitType();
 		if (unit == CSSUnit.CSS_PERCENTAGE) {
@@ -0,0 +1,289 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.lang.ref.WeakReference;
+import java.util.Locale;
+
+import org.w3c.dom.DOMException;
+
+import io.sf.carte.doc.style.css.CSSComputedProperties;
+import io.sf.carte.doc.style.css.CSSTypedValue;
+import io.sf.carte.doc.style.css.CSSUnit;
+import io.sf.carte.doc.style.css.CSSValue;
+import io.sf.carte.doc.style.css.CSSValue.CssType;
+import io.sf.carte.doc.style.css.CSSValue.Type;
+import io.sf.carte.doc.style.css.property.CSSPropertyValueException;
+
+/**
+ * The values of a computed style that are needed to paint an element with AWT,
+ * resolved once.
+ * <p>
+ * Instances are immutable, and are obtained from
+ * {@link AWTStyleDatabase#getAWTStyle(CSSComputedProperties, AWTStyle)}. A
+ * renderer can keep the record of each element across repaints, and pass it
+ * back to that method so that a new one is only built when the computed style
+ * of the element changes.
+ * </p>
+ * <p>
+ * Lengths are given in typographic points, and colors are packed into ARGB
+ * integers as in {@link Color#getRGB()}.
+ * </p>
+ *
+ * @author Carlos Amengual
+ *
+ */
+public final class AWTStyle {
+
+	/**
+	 * The index of the top side in the border width array.
+	 */
+	public static final int TOP = 0;
+
+	/**
+	 * The index of the right side in the border width array.
+	 */
+	public static final int RIGHT = 1;
+
+	/**
+	 * The index of the bottom side in the border width array.
+	 */
+	public static final int BOTTOM = 2;
+
+	/**
+	 * The index of the left side in the border width array.
+	 */
+	public static final int LEFT = 3;
+
+	static final String[] SIDES = { "top", "right", "bottom", "left" };
+
+	private final WeakReference<CSSComputedProperties> source;
+
+	private final int fontGeneration;
+
+	private final Font font;
+
+	private final float fontSize;
+
+	private final float lineHeight;
+
+	private final float letterSpacing;
+
+	private final int textDecoration;
+
+	private final int color;
+
+	private final int backgroundColor;
+
+	private final float borderTopWidth;
+
+	private final float borderRightWidth;
+
+	private final float borderBottomWidth;
+
+	private final float borderLeftWidth;
+
+	AWTStyle(CSSComputedProperties style, AWTStyleDatabase styleDatabase) {
+		super();
+		source = new WeakReference<>(style);
+		fontGeneration = styleDatabase.getFontGeneration();
+		font = styleDatabase.createFont(style);
+		fontSize = style.getComputedFontSize();
+		lineHeight = style.getComputedLineHeight();
+		letterSpacing = AWTHelper.letterSpacing(style);
+		textDecoration = AWTHelper.decorationAttributes(style);
+		color = argb(style.getPropertyCSSValue("color"), 0xff000000);
+		backgroundColor = argb(style.getPropertyCSSValue("background-color"), 0);
+		borderTopWidth = borderWidth(style, TOP);
+		borderRightWidth = borderWidth(style, RIGHT);
+		borderBottomWidth = borderWidth(style, BOTTOM);
+		borderLeftWidth = borderWidth(style, LEFT);
+	}
+
+	private static int argb(CSSValue value, int defaultColor) {
+		if (value != null && value.getCssValueType() == CssType.TYPED) {
+			try {
+				return AWTHelper.getARGB((CSSTypedValue) value);
+			} catch (CSSPropertyValueException e) {
+				// Not convertible to sRGB: fall through to the default color
+			}
+		}
+		return defaultColor;
+	}
+
+	/*
+	 * The used width of a border, which is zero if its style is none or hidden.
+	 */
+	static float borderWidth(CSSComputedProperties style, int side) {
+		String prefix = "border-" + SIDES[side];
+		String borderStyle = style.getPropertyValue(prefix + "-style").toLowerCase(Locale.ROOT);
+		if (borderStyle.length() == 0 || "none".equals(borderStyle)
+				|| "hidden".equals(borderStyle)) {
+			return 0f;
+		}
+		CSSValue value = style.getPropertyCSSValue(prefix + "-width");
+		if (value != null && value.getCssValueType() == CssType.TYPED
+				&& value.getPrimitiveType() == Type.NUMERIC) {
+			try {
+				return Math.max(0f, ((CSSTypedValue) value).getFloatValue(CSSUnit.CSS_PT));
+			} catch (DOMException e) {
+				// Not convertible to points: fall through to no border
+			}
+		}
+		return 0f;
+	}
+
+	/**
+	 * Check whether this record was built from the given computed style.
+	 *
+	 * @param style the computed style.
+	 * @return {@code true} if this record was built from that same style object.
+	 */
+	public boolean isFor(CSSComputedProperties style) {
+		return style != null && source.get() == style;
+	}
+
+	/*
+	 * The font generation of the style database when this record was built.
+	 */
+	int getFontGeneration() {
+		return fontGeneration;
+	}
+
+	/**
+	 * Get the font.
+	 *
+	 * @return the font.
+	 */
+	public Font getFont() {
+		return font;
+	}
+
+	/**
+	 * Get the computed font size.
+	 *
+	 * @return the font size, in typographic points.
+	 */
+	public float getFontSize() {
+		return fontSize;
+	}
+
+	/**
+	 * Get the computed line height.
+	 *
+	 * @return the line height, in typographic points.
+	 */
+	public float getLineHeight() {
+		return lineHeight;
+	}
+
+	/**
+	 * Get the letter spacing.
+	 *
+	 * @return the letter spacing in typographic points, or zero if it is
+	 *         <code>normal</code>.
+	 */
+	public float getLetterSpacing() {
+		return letterSpacing;
+	}
+
+	/**
+	 * Get the text decoration flags.
+	 *
+	 * @return a combination of {@link FontCache#DECORATION_UNDERLINE} and
+	 *         {@link FontCache#DECORATION_LINE_THROUGH}.
+	 */
+	public int getTextDecoration() {
+		return textDecoration;
+	}
+
+	/**
+	 * Get the foreground color.
+	 *
+	 * @return the packed ARGB color. If it could not be determined, opaque black.
+	 */
+	public int getColorARGB() {
+		return color;
+	}
+
+	/**
+	 * Get the foreground color.
+	 *
+	 * @return the shared AWT color.
+	 */
+	public Color getColor() {
+		return AWTHelper.getAWTColor(color);
+	}
+
+	/**
+	 * Get the background color.
+	 *
+	 * @return the packed ARGB color. If it could not be determined, transparent.
+	 */
+	public int getBackgroundColorARGB() {
+		return backgroundColor;
+	}
+
+	/**
+	 * Get the background color.
+	 *
+	 * @return the shared AWT color.
+	 */
+	public Color getBackgroundColor() {
+		return AWTHelper.getAWTColor(backgroundColor);
+	}
+
+	/**
+	 * Check whether the background is transparent.
+	 *
+	 * @return {@code true} if the alpha of the background color is zero.
+	 */
+	public boolean isBackgroundTransparent() {
+		return (backgroundColor >>> 24) == 0;
+	}
+
+	/**
+	 * Get the used width of the border on the given side.
+	 *
+	 * @param side the side: {@link #TOP}, {@link #RIGHT}, {@link #BOTTOM} or
+	 *             {@link #LEFT}.
+	 * @return the border width in typographic points, which is zero if the border
+	 *         style is <code>none</code> or <code>hidden</code>.
+	 */
+	public float getBorderWidth(int side) {
+		switch (side) {
+		case TOP:
+			return borderTopWidth;
+		case RIGHT:
+			return borderRightWidth;
+		case BOTTOM:
+			return borderBottomWidth;
+		case LEFT:
+			return borderLeftWidth;
+		default:
+			throw new IllegalArgumentException("Unknown side: " + side);
+		}
+	}
+
+	/**
+	 * Check whether any border has a non-zero width.
+	 *
+	 * @return {@code true} if there is a border to paint.
+	 */
+	public boolean hasBorder() {
+		return borderTopWidth > 0f || borderRightWidth > 0f || borderBottomWidth > 0f
+				|| borderLeftWidth > 0f;
+	}
+
+}
@@ -11,42 +11,209 @@
 
 package io.sf.carte.doc.style.css.awt;
 
+import java.awt.BasicStroke;
 import java.awt.Font;
 import java.awt.FontFormatException;
 import java.awt.GraphicsConfiguration;
 import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.Stroke;
+import java.awt.color.ColorSpace;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.TextLayout;
+import java.awt.geom.AffineTransform;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.w3c.dom.DOMException;
 
+import io.sf.carte.doc.style.css.CSSComputedProperties;
 import io.sf.carte.doc.style.css.CSSFontFaceRule;
+import io.sf.carte.doc.style.css.CSSStyleDeclaration;
+import io.sf.carte.doc.style.css.CSSStyleSheet;
+import io.sf.carte.doc.style.css.CSSTypedValue;
 import io.sf.carte.doc.style.css.CSSUnit;
+import io.sf.carte.doc.style.css.CSSValue;
+import io.sf.carte.doc.style.css.CSSValue.CssType;
+import io.sf.carte.doc.style.css.CSSValue.Type;
 import io.sf.carte.doc.style.css.om.AbstractStyleDatabase;
 
 /**
  * CSS style database for use with AWT objects.
  * <p>
+ * Instances of this class can be shared by several threads. Font lookups do not
+ * take locks, and concurrent loads of the same {@literal @}font-face source are
+ * merged so that the font is fetched and parsed only once.
+ * </p>
+ * <p>
+ * If a font loading executor is set, {@literal @}font-face rules are loaded
+ * asynchronously, and the <code>font-display</code> descriptor of each rule
+ * decides whether style computations wait for the font or use a fallback
+ * family while it loads.
+ * </p>
+ * <p>
+ * Headless databases can be given a {@link VirtualDevice} with fixed metrics
+ * and an explicit font catalog, so that the system fonts are not scanned.
+ * </p>
+ * <p>
+ * The serialized form of a database contains its device metrics and, if
+ * {@linkplain #setFontFaceDataRetained(boolean) retained}, the data of its
+ * {@literal @}font-face fonts, so a database that was prepared once can be sent
+ * to other processes that do not fetch those fonts again.
+ * </p>
+ * <p>
+ * Databases in the same process can share their {@literal @}font-face fonts
+ * through a {@link SharedFontFaceRegistry}, and an {@link AWTStyleDatabasePool}
+ * can be used to reuse databases across documents.
+ * </p>
+ * <p>
+ * The time spent loading and probing fonts can be monitored through the
+ * {@link AWTTelemetry}.
+ * </p>
  * 
  * @author Carlos Amengual
  * 
  */
 public class AWTStyleDatabase extends AbstractStyleDatabase {
 
-	private static final long serialVersionUID = 1L;
+	private static final long serialVersionUID = 2L;
+
+	private transient volatile GraphicsConfiguration gConfiguration = null;
+
+	private transient volatile VirtualDevice virtualDevice = null;
+
+	private transient volatile SystemFontCatalog fontCatalog = null;
 
-	private GraphicsConfiguration gConfiguration = null;
+	/*
+	 * Whether fonts were registered in the graphics environment, which are not
+	 * in the font catalog.
+	 */
+	private transient volatile boolean fontsRegistered = false;
 
 	/*
 	 * A4 defaults
 	 */
-	private float defaultWidth = 595f;
-	private float defaultHeight = 842f;
+	private volatile float defaultWidth = 595f;
+	private volatile float defaultHeight = 842f;
+
+	/*
+	 * The default color depth, and the transform of a deserialized device.
+	 */
+	private transient volatile int defaultColorDepth = 255;
+	private transient volatile AffineTransform defaultTransform = null;
+
+	private int fontFaceMaximumCount = FontFaceStore.DEFAULT_MAXIMUM_COUNT;
+
+	private long fontFaceMaximumBytes = FontFaceStore.DEFAULT_MAXIMUM_BYTES;
+
+	private transient volatile RuleFontFaceStore fontFaceStore = null;
+
+	/*
+	 * Font-face loads, keyed by source. Pending loads are waited for, and the
+	 * successful ones are kept so the same source is not loaded again.
+	 */
+	private transient volatile ConcurrentHashMap<String, FontFaceLoad> fontFaceLoads = null;
+
+	/*
+	 * Asynchronous font-face loads, keyed by lowercase family name.
+	 */
+	private transient volatile ConcurrentHashMap<String, AsyncFontFaceLoad> asyncFontFaceLoads = null;
+
+	private transient volatile Executor fontLoadingExecutor = null;
+
+	private transient volatile FontFaceDiskCache fontFaceDiskCache = null;
+
+	private volatile boolean fontFaceDataRetained = false;
+
+	/*
+	 * Decoded font-face data, retained for the serialized form or obtained from
+	 * it.
+	 */
+	private transient volatile FontFaceArchive fontFaceArchive = null;
+
+	private transient volatile SharedFaces sharedFaces = null;
+
+	/*
+	 * The key of the pool that this database was acquired from, while it is in
+	 * use.
+	 */
+	transient volatile Object poolKey = null;
 
-	private final Map<String,Font> fontfaceNames = new HashMap<>();
+	/*
+	 * The settings that a pooled database is given back when it is released.
+	 */
+	transient volatile Settings poolSettings = null;
+
+	private int fontCacheSize = FontCache.DEFAULT_MAXIMUM_SIZE;
+
+	private transient volatile FontCache fontCache = null;
+
+	/*
+	 * Incremented each time that the fonts may have changed, so the AWT style
+	 * records that hold older fonts are built again.
+	 */
+	private transient AtomicInteger fontGeneration = new AtomicInteger();
+
+	/*
+	 * Measured font metrics, by family and rounded size.
+	 */
+	private transient volatile BoundedCache<FontMetricsKey, CSSFontMetrics> fontMetricsCache = null;
+
+	private long textLayoutCacheBytes = TextLayoutCache.DEFAULT_MAXIMUM_BYTES;
+
+	private transient volatile TextLayoutCache textLayoutCache = null;
+
+	private transient volatile FontFallbackResolver fontFallbackResolver = null;
+
+	private transient volatile ColorConverter colorConverter = null;
+
+	/*
+	 * Snapshot of the device metrics, computed lazily.
+	 */
+	private transient volatile DeviceMetrics deviceMetrics = null;
+
+	/*
+	 * Idle WOFF decoders, which reuse their buffers. Only a few are kept, the
+	 * decoders that are released when the queue is full are dropped.
+	 */
+	private static final int MAXIMUM_IDLE_WOFF_DECODERS = 4;
+
+	private static final ArrayBlockingQueue<WoffDecoder> idleWoffDecoders = new ArrayBlockingQueue<>(
+			MAXIMUM_IDLE_WOFF_DECODERS);
+
+	private static final float[] DEFAULT_FONT_SIZE_SCALE = { 8f, 9f, 10f, 12f, 14f, 18f, 24f };
+
+	private volatile float[] fontSizeScale = DEFAULT_FONT_SIZE_SCALE;
+
+	/*
+	 * Font sizes for the absolute-size keywords, normalized to the device.
+	 */
+	private transient volatile float[] fontSizeTable = null;
 
 	/**
 	 * Constructs a default style database with no graphics configuration.
@@ -105,172 +272,1894 @@ public class AWTStyleDatabase extends AbstractStyleDatabase {
 
 	@Override
 	protected boolean isFontFamilyAvailable(String fontFamily) {
-		String[] fontNames = GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames();
-		for (String fontName : fontNames) {
-			if (fontName.equalsIgnoreCase(fontFamily)) {
-				return true;
+		AWTTelemetry.Span span = AWTTelemetry.startFontFamilyProbe();
+		boolean available = familyAvailable(fontFamily);
+		AWTTelemetry.fontFamilyProbed(span, fontFamily, available);
+		return available;
+	}
+
+	private boolean familyAvailable(String fontFamily) {
+		VirtualDevice device = virtualDevice;
+		if (device != null) {
+			return device.hasFamily(fontFamily) || (device.isSystemFontsEnabled()
+					&& FontFamilyIndex.SYSTEM.isAvailable(fontFamily));
+		}
+		SystemFontCatalog catalog = fontCatalog;
+		if (catalog != null) {
+			return catalog.hasFamily(fontFamily) || catalog.hasSystemFamily(fontFamily)
+					|| (fontsRegistered && FontFamilyIndex.SYSTEM.isAvailable(fontFamily));
+		}
+		return FontFamilyIndex.SYSTEM.isAvailable(fontFamily);
+	}
+
+	/**
+	 * Register a font in the local graphics environment, so it becomes available
+	 * to this and other style databases.
+	 * <p>
+	 * If a {@linkplain #setVirtualDevice(VirtualDevice) virtual device} is set,
+	 * the font is added to the catalog of the device instead.
+	 * </p>
+	 * 
+	 * @param font the font to register.
+	 * @return {@code true} if the font was registered, {@code false} if a font
+	 *         with the same name was already registered.
+	 */
+	public boolean registerFont(Font font) {
+		VirtualDevice device = virtualDevice;
+		if (device != null) {
+			boolean added = device.addFont(font);
+			if (added) {
+				clearFontCaches();
 			}
+			return added;
 		}
-		return false;
+		boolean registered = GraphicsEnvironment.getLocalGraphicsEnvironment()
+				.registerFont(font);
+		if (registered) {
+			fontsRegistered = true;
+			refreshFontFamilies();
+		}
+		return registered;
 	}
 
+	/**
+	 * Discard the cached index of available font families, so that it is
+	 * rebuilt from the graphics environment the next time that a family is
+	 * checked.
+	 * <p>
+	 * Call this method if fonts were registered or installed by other means than
+	 * {@link #registerFont(Font)}.
+	 * </p>
+	 */
+	public void refreshFontFamilies() {
+		FontFamilyIndex.SYSTEM.invalidate();
+	}
+
+	/**
+	 * Check whether the given family was loaded by a {@literal @}font-face rule.
+	 * <p>
+	 * If the family is being loaded asynchronously, this method waits for the
+	 * load until the end of the block period that corresponds to the
+	 * <code>font-display</code> of the rule. If the font is not available by then,
+	 * {@code false} is returned so that the next family in the list, or the
+	 * default generic family, is used instead.
+	 * </p>
+	 * 
+	 * @param requestedFamily the family name in lowercase.
+	 * @return {@code true} if the font is available.
+	 */
 	@Override
 	public boolean isFontFaceName(String requestedFamily) {
-		return fontfaceNames.containsKey(requestedFamily);
+		if (requestedFamily == null) {
+			return false;
+		}
+		FontFaceStore store = getFontFaceStore();
+		if (store.contains(requestedFamily)) {
+			return true;
+		}
+		FontFaceArchive archive = fontFaceArchive;
+		if (archive != null && archive.containsFamily(requestedFamily)) {
+			return true;
+		}
+		ConcurrentHashMap<String, AsyncFontFaceLoad> asyncLoads = asyncFontFaceLoads;
+		AsyncFontFaceLoad load;
+		if (asyncLoads != null && (load = asyncLoads.get(requestedFamily)) != null) {
+			load.awaitBlockPeriod();
+			return store.contains(requestedFamily);
+		}
+		return false;
 	}
 
+	/**
+	 * Load the font specified by the given {@literal @}font-face rule.
+	 * <p>
+	 * If another thread is already loading a rule with the same family and
+	 * sources, this method waits for that load to finish instead of fetching the
+	 * font again. Rules whose font was already loaded successfully are not loaded
+	 * again.
+	 * </p>
+	 * <p>
+	 * If a {@link FontFaceDiskCache} was set, it is checked before fetching the
+	 * font.
+	 * </p>
+	 * <p>
+	 * If a font loading executor was set, this method returns immediately and the
+	 * font is loaded by the executor. The result can be obtained from
+	 * {@link #getFontFaceFuture(String)}.
+	 * </p>
+	 * 
+	 * @param rule the {@literal @}font-face rule.
+	 */
 	@Override
-	protected boolean loadFontFace(String familyName, FontFormat format, InputStream is, CSSFontFaceRule rule)
-			throws IOException {
-		int fontFormat;
-		if (format == null || (fontFormat = fontFormatFromEnum(format)) == -1) {
-			return false;
+	public void loadFontFaceRule(CSSFontFaceRule rule) {
+		Executor executor = fontLoadingExecutor;
+		String familyName;
+		if (executor == null || (familyName = fontFaceFamilyName(rule)) == null) {
+			loadFontFaceRuleNow(rule);
+			return;
 		}
-		Font font;
+		AsyncFontFaceLoad load = new AsyncFontFaceLoad(FontDisplay.forRule(rule));
+		getAsyncFontFaceLoads().put(familyName, load);
 		try {
-			font = Font.createFont(fontFormat, is);
-		} catch (FontFormatException e) {
-			rule.getParentStyleSheet().getErrorHandler().fontFormatError(rule, e);
-			return false;
+			executor.execute(() -> {
+				try {
+					loadFontFaceRuleNow(rule);
+					load.future.complete(getFontFaceStore().get(familyName));
+				} catch (RuntimeException | Error e) {
+					load.future.completeExceptionally(e);
+					throw e;
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			loadFontFaceRuleNow(rule);
+			load.future.complete(getFontFaceStore().get(familyName));
 		}
-		fontfaceNames.put(familyName, font);
-		return true;
 	}
 
-	private int fontFormatFromEnum(FontFormat format) {
-		int fontFormat;
-		switch (format) {
-		case TRUETYPE:
-		case OPENTYPE:
-			fontFormat = Font.TRUETYPE_FONT;
-			break;
-		default:
-			fontFormat = -1;
+	private void loadFontFaceRuleNow(CSSFontFaceRule rule) {
+		String key = fontFaceSourceKey(rule);
+		ConcurrentHashMap<String, FontFaceLoad> loads = getFontFaceLoads();
+		FontFaceLoad load = new FontFaceLoad();
+		FontFaceLoad pending = loads.putIfAbsent(key, load);
+		if (pending != null) {
+			pending.join();
+			return;
+		}
+		String familyName = fontFaceFamilyName(rule);
+		try {
+			FontFaceDiskCache diskCache = fontFaceDiskCache;
+			FontFaceArchive archive = fontFaceArchive;
+			SharedFaces shared = sharedFaces;
+			SharedFontFaceRegistry.SharedFace sharedFace;
+			FontFaceArchive.Entry archived;
+			Font font;
+			if (shared != null && familyName != null
+					&& (sharedFace = shared.registry.get(key)) != null) {
+				addFontFace(familyName, sharedFace.font, sharedFace.estimatedBytes, rule,
+						sharedFace.hash);
+			} else if (archive != null && familyName != null
+					&& (archived = archive.getBySource(key)) != null
+					&& (font = createArchivedFont(archived)) != null) {
+				addFontFace(familyName, font, archived.data.length, rule, archived.contentHash());
+			} else if (diskCache != null && familyName != null
+					&& (font = diskCache.getFont(key)) != null) {
+				Path file = diskCache.getFontFile(key);
+				addFontFace(familyName, font, fileSize(file), rule, diskCacheHash(file));
+			} else {
+				super.loadFontFaceRule(rule);
+			}
+		} finally {
+			if (!load.succeeded) {
+				// Failed, allow a later retry
+				loads.remove(key, load);
+			}
+			load.complete(null);
 		}
-		return fontFormat;
 	}
 
 	/**
-	 * Get a font that was loaded by a {@literal @}font-face rule.
+	 * Get a future that completes when the font of the given family is loaded.
 	 * 
 	 * @param lcFamilyName the family name in lowercase.
-	 * @return the font, or <code>null</code> if no font with that family name (in
-	 *         lowercase) has been loaded from a {@literal @}font-face rule.
+	 * @return a future that completes with the font, or with {@code null} if the
+	 *         font could not be loaded or was discarded because it arrived after
+	 *         the swap period of its <code>font-display</code>. If the family is
+	 *         not being loaded nor was loaded, returns {@code null}.
 	 */
-	public Font getFont(String lcFamilyName) {
-		return fontfaceNames.get(lcFamilyName);
+	public CompletableFuture<Font> getFontFaceFuture(String lcFamilyName) {
+		if (lcFamilyName == null) {
+			return null;
+		}
+		ConcurrentHashMap<String, AsyncFontFaceLoad> asyncLoads = asyncFontFaceLoads;
+		AsyncFontFaceLoad load;
+		if (asyncLoads != null && (load = asyncLoads.get(lcFamilyName)) != null) {
+			return load.future;
+		}
+		Font font = getFont(lcFamilyName);
+		return font != null ? CompletableFuture.completedFuture(font) : null;
 	}
 
 	/**
-	 * Gets the GraphicsConfiguration for this style database.
+	 * Get a future that completes when all the asynchronous {@literal @}font-face
+	 * loads that were started so far have finished.
 	 * 
-	 * @return the GraphicsConfiguration object previously set, the default one
-	 *         if none was set, or null if the graphics environment is headless.
+	 * @return the future.
 	 */
-	protected GraphicsConfiguration getGraphicsConfiguration() {
-		return gConfiguration;
+	public CompletableFuture<Void> getFontFacesLoaded() {
+		ConcurrentHashMap<String, AsyncFontFaceLoad> asyncLoads = asyncFontFaceLoads;
+		if (asyncLoads == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		CompletableFuture<?>[] futures = asyncLoads.values().stream().map(load -> load.future)
+				.toArray(CompletableFuture<?>[]::new);
+		return CompletableFuture.allOf(futures);
 	}
 
-	public void setGraphicsConfiguration(GraphicsConfiguration configuration) {
-		gConfiguration = configuration;
+	/**
+	 * Get the executor used to load {@literal @}font-face rules.
+	 * 
+	 * @return the executor, or {@code null} if fonts are loaded synchronously.
+	 */
+	public Executor getFontLoadingExecutor() {
+		return fontLoadingExecutor;
 	}
 
 	/**
-	 * This method is used to normalize sizes to a 595pt width.
+	 * Set the executor used to load {@literal @}font-face rules asynchronously.
+	 * <p>
+	 * When an executor is set, {@link #loadFontFaceRule(CSSFontFaceRule)} returns
+	 * immediately, and the <code>font-display</code> descriptor of each rule
+	 * determines how long {@link #isFontFaceName(String)} waits for the font:
+	 * </p>
+	 * <ul>
+	 * <li><code>auto</code> and <code>block</code>: up to 3 seconds, and the
+	 * font is used whenever it arrives.</li>
+	 * <li><code>swap</code>: no wait, the font is used whenever it arrives.</li>
+	 * <li><code>fallback</code>: up to 100 ms, and the font is discarded if it
+	 * arrives more than 3 seconds later.</li>
+	 * <li><code>optional</code>: up to 100 ms, and the font is discarded if it
+	 * was not available by then.</li>
+	 * </ul>
+	 * <p>
+	 * While a font is not available, the next family in the
+	 * <code>font-family</code> list or the default generic family is used. Fonts
+	 * are loaded once per source, so a discarded font can still be used by later
+	 * documents if it is in the {@link FontFaceDiskCache}.
+	 * </p>
+	 * <p>
+	 * Loading fonts is mostly I/O, so on Java 21 or later a virtual thread
+	 * executor (<code>Executors.newVirtualThreadPerTaskExecutor()</code>) is a
+	 * good choice.
+	 * </p>
 	 * 
-	 * @return the factor by which screensize-dependent quantities can be
-	 *         multiplied to be normalized.
+	 * @param executor the executor, or {@code null} to load fonts synchronously.
 	 */
-	protected float deviceResolutionFactor() {
-		return getDeviceWidth() / 595f;
+	public void setFontLoadingExecutor(Executor executor) {
+		fontLoadingExecutor = executor;
 	}
 
-	@Override
-	public float getFontSizeFromIdentifier(String familyName, String fontSizeIdentifier) throws DOMException {
-		// Normalize to device resolution
-		float factor = Math.max(0.9f, deviceResolutionFactor());
-		float sz;
-		if (fontSizeIdentifier.equals("xx-small")) {
-			sz = 8f * factor;
-		} else if (fontSizeIdentifier.equals("x-small")) {
-			sz = 9f * factor;
-		} else if (fontSizeIdentifier.equals("small")) {
-			sz = 10f * factor;
-		} else if (fontSizeIdentifier.equals("medium")) {
-			sz = 12f * factor;
-		} else if (fontSizeIdentifier.equals("large")) {
-			sz = 14f * factor;
-		} else if (fontSizeIdentifier.equals("x-large")) {
-			sz = 18f * factor;
-		} else if (fontSizeIdentifier.equals("xx-large")) {
-			sz = 24f * factor;
-		} else {
-			throw new DOMException(DOMException.INVALID_ACCESS_ERR, "Unknown size identifier: " + fontSizeIdentifier);
+	private ConcurrentHashMap<String, AsyncFontFaceLoad> getAsyncFontFaceLoads() {
+		ConcurrentHashMap<String, AsyncFontFaceLoad> asyncLoads = asyncFontFaceLoads;
+		if (asyncLoads == null) {
+			synchronized (this) {
+				asyncLoads = asyncFontFaceLoads;
+				if (asyncLoads == null) {
+					asyncLoads = new ConcurrentHashMap<>();
+					asyncFontFaceLoads = asyncLoads;
+				}
+			}
 		}
-		return sz;
+		return asyncLoads;
 	}
 
-	@Override
-	public float getWidthSize(String widthIdentifier, float fontSize) throws DOMException {
-		if ("thin".equalsIgnoreCase(widthIdentifier)) {
-			return 0.75f; // 1px
-		} else if ("thick".equalsIgnoreCase(widthIdentifier)) {
-			return 3.75f; // 5px
-		} else if ("medium".equalsIgnoreCase(widthIdentifier)) {
-			return 2.25f; // 3px
-		} else {
-			throw new DOMException(DOMException.SYNTAX_ERR,
-				"Unknown identifier " + widthIdentifier);
+	private ConcurrentHashMap<String, FontFaceLoad> getFontFaceLoads() {
+		ConcurrentHashMap<String, FontFaceLoad> loads = fontFaceLoads;
+		if (loads == null) {
+			synchronized (this) {
+				loads = fontFaceLoads;
+				if (loads == null) {
+					loads = new ConcurrentHashMap<>();
+					fontFaceLoads = loads;
+				}
+			}
 		}
+		return loads;
 	}
 
-	@Override
-	public short getNaturalUnit() {
-		return CSSUnit.CSS_PT;
+	/**
+	 * Compute a key that identifies the font source of a {@literal @}font-face
+	 * rule.
+	 * 
+	 * @param rule the rule.
+	 * @return the source key.
+	 */
+	static String fontFaceSourceKey(CSSFontFaceRule rule) {
+		CSSStyleDeclaration style = rule.getStyle();
+		StringBuilder buf = new StringBuilder(96);
+		CSSStyleSheet<?> sheet = rule.getParentStyleSheet();
+		if (sheet != null && sheet.getHref() != null) {
+			buf.append(sheet.getHref());
+		}
+		buf.append(' ').append(style.getPropertyValue("font-family")).append(' ')
+				.append(style.getPropertyValue("src"));
+		return buf.toString();
 	}
 
-	@Override
-	public float getDeviceHeight() {
-		float height;
-		if (gConfiguration != null) {
-			height = (float) getGraphicsConfiguration().getBounds().getHeight();
-		} else {
-			height = defaultHeight;
+	/**
+	 * Get the lowercase family name declared by a {@literal @}font-face rule.
+	 * 
+	 * @param rule the rule.
+	 * @return the family name in lowercase, or {@code null} if it could not be
+	 *         determined.
+	 */
+	static String fontFaceFamilyName(CSSFontFaceRule rule) {
+		CSSValue value = rule.getStyle().getPropertyCSSValue("font-family");
+		if (value != null && value.getCssValueType() == CssType.TYPED) {
+			Type type = value.getPrimitiveType();
+			if (type == Type.STRING || type == Type.IDENT) {
+				return ((CSSTypedValue) value).getStringValue().toLowerCase(Locale.ROOT);
+			}
 		}
-		return height;
+		return null;
 	}
 
 	@Override
-	public float getDeviceWidth() {
-		float width;
-		if (gConfiguration != null) {
-			width = (float) getGraphicsConfiguration().getBounds().getWidth();
-		} else {
-			width = defaultWidth;
+	protected boolean loadFontFace(String familyName, FontFormat format, InputStream is, CSSFontFaceRule rule)
+			throws IOException {
+		AWTTelemetry.Span span = AWTTelemetry.startFontFaceLoad();
+		AWTTelemetry.Outcome outcome = AWTTelemetry.Outcome.FAILED;
+		CountingInputStream counting = null;
+		WoffDecoder woffDecoder = null;
+		try {
+			int fontFormat;
+			if (format == null || (fontFormat = fontFormatFromEnum(format)) == -1) {
+				outcome = AWTTelemetry.Outcome.UNSUPPORTED;
+				return false;
+			}
+			FontFaceDiskCache diskCache = fontFaceDiskCache;
+			Font font;
+			byte[] data = null;
+			MessageDigest digest = null;
+			try {
+				if (format == FontFormat.WOFF || format == FontFormat.WOFF2) {
+					woffDecoder = idleWoffDecoders.poll();
+					if (woffDecoder == null) {
+						woffDecoder = new WoffDecoder();
+					}
+					// The decoded data is only valid until the decoder is released
+					is = woffDecoder.decode(is);
+				}
+				if (fontFaceDataRetained) {
+					data = FontFaceArchive.readAllBytes(is);
+					is = new ByteArrayInputStream(data);
+				}
+				if (sharedFaces != null) {
+					digest = FontFaceDiskCache.sha256();
+					is = new DigestInputStream(is, digest);
+				}
+				counting = new CountingInputStream(is);
+				if (diskCache != null) {
+					font = diskCache.store(fontFaceSourceKey(rule), counting);
+				} else {
+					font = Font.createFont(fontFormat, counting);
+				}
+			} catch (FontFormatException e) {
+				outcome = AWTTelemetry.Outcome.INVALID;
+				rule.getParentStyleSheet().getErrorHandler().fontFormatError(rule, e);
+				return false;
+			}
+			String contentHash = digest != null ? FontFaceDiskCache.toHex(digest.digest())
+					: null;
+			if (data == null) {
+				addFontFace(familyName, font, counting.count, rule, contentHash);
+			} else {
+				// The retained data counts towards the budget
+				if (addFontFace(familyName, font, counting.count + data.length, rule,
+						contentHash)) {
+					getFontFaceArchive().put(familyName, fontFaceSourceKey(rule), data);
+				}
+			}
+			outcome = AWTTelemetry.Outcome.LOADED;
+			return true;
+		} finally {
+			if (woffDecoder != null) {
+				idleWoffDecoders.offer(woffDecoder);
+			}
+			if (span != null) {
+				AWTTelemetry.fontFaceLoaded(span, familyName, format != null ? format.name() : null,
+						counting != null ? counting.count : 0L, outcome);
+			}
 		}
-		return width;
 	}
 
-	public void setDefaultWidth(float defaultWidth) {
-		this.defaultWidth = defaultWidth;
+	private static long fileSize(Path file) {
+		if (file != null) {
+			try {
+				return Files.size(file);
+			} catch (IOException e) {
+			}
+		}
+		return 0;
 	}
 
-	public void setDefaultHeight(float defaultHeight) {
-		this.defaultHeight = defaultHeight;
+	/*
+	 * The content hash is that of the decoded font data, or null if unknown. If a
+	 * shared registry is set and the hash is known, the shared font is used.
+	 * 
+	 * Returns true if the font was added, and then marks the load of the rule as
+	 * successful.
+	 */
+	private boolean addFontFace(String familyName, Font font, long estimatedBytes,
+			CSSFontFaceRule rule, String contentHash) {
+		ConcurrentHashMap<String, FontFaceLoad> loads = fontFaceLoads;
+		FontFaceLoad ruleLoad;
+		if (loads == null || (ruleLoad = loads.get(fontFaceSourceKey(rule))) == null) {
+			// Started before the font faces were reset
+			return false;
+		}
+		ConcurrentHashMap<String, AsyncFontFaceLoad> asyncLoads = asyncFontFaceLoads;
+		AsyncFontFaceLoad load;
+		if (asyncLoads != null && (load = asyncLoads.get(familyName)) != null
+				&& load.isSwapPeriodOver()) {
+			// Arrived too late for its font-display
+			return false;
+		}
+		SharedFaces shared = sharedFaces;
+		if (shared != null) {
+			if (contentHash != null) {
+				font = shared.use(familyName, fontFaceSourceKey(rule), contentHash, font,
+						estimatedBytes);
+			} else {
+				// Replaces any shared font of the family
+				shared.release(familyName);
+			}
+		}
+		RuleFontFaceStore store = ruleFontFaceStore();
+		store.sources.put(familyName, new FontFaceSource(rule));
+		store.put(familyName, font, estimatedBytes);
+		ruleLoad.succeeded = true;
+		clearFontCaches();
+		return true;
 	}
 
-	@Override
-	public int getColorDepth() {
-		int bpc = 255;
-		if (gConfiguration != null) {
-			int[] comp = gConfiguration.getColorModel().getComponentSize();
-			for (int i = 0; i < 3; i++) {
-				if (bpc > comp[i]) {
-					bpc = comp[i];
+	private void clearFontCaches() {
+		FontCache cache = fontCache;
+		if (cache != null) {
+			cache.clear();
+		}
+		clearFontMetrics();
+		FontFallbackResolver resolver = fontFallbackResolver;
+		if (resolver != null) {
+			resolver.clear();
+		}
+		fontGeneration.incrementAndGet();
+	}
+
+	/*
+	 * The font generation, to be read before a font is created.
+	 */
+	int getFontGeneration() {
+		return fontGeneration.get();
+	}
+
+	/**
+	 * Get the store of the fonts loaded by {@literal @}font-face rules.
+	 * <p>
+	 * Fonts that are evicted from the store are loaded again, from their
+	 * {@literal @}font-face rules, the next time that they are requested. The
+	 * store can be used to monitor the occupancy and evictions, and callers that
+	 * keep using a font for a while can {@link FontFaceStore#acquire(String)
+	 * acquire} it to prevent its eviction.
+	 * </p>
+	 * 
+	 * @return the font-face store.
+	 */
+	public FontFaceStore getFontFaceStore() {
+		return ruleFontFaceStore();
+	}
+
+	private RuleFontFaceStore ruleFontFaceStore() {
+		RuleFontFaceStore store = fontFaceStore;
+		if (store == null) {
+			synchronized (this) {
+				store = fontFaceStore;
+				if (store == null) {
+					store = new RuleFontFaceStore(fontFaceMaximumCount, fontFaceMaximumBytes);
+					fontFaceStore = store;
 				}
 			}
 		}
-		return bpc;
+		return store;
+	}
+
+	/**
+	 * Set the budget of the font-face store.
+	 * 
+	 * @param maximumCount the maximum number of loaded {@literal @}font-face fonts.
+	 * @param maximumBytes the maximum estimated size of the loaded
+	 *                     {@literal @}font-face fonts, in bytes.
+	 */
+	public void setFontFaceStoreBudget(int maximumCount, long maximumBytes) {
+		fontFaceMaximumCount = maximumCount;
+		fontFaceMaximumBytes = maximumBytes;
+		FontFaceStore store = getFontFaceStore();
+		store.setMaximumCount(maximumCount);
+		store.setMaximumBytes(maximumBytes);
+	}
+
+	/**
+	 * Forget the {@literal @}font-face rules that were loaded, so that this
+	 * database can be reused for another document without its fonts.
+	 * <p>
+	 * The fonts, their sources and any retained font data are dropped, and the
+	 * fonts shared through a {@link SharedFontFaceRegistry} are released. Loads
+	 * that are still in progress are discarded when they finish. The device
+	 * metrics, the font configuration, the disk cache and the executor are kept,
+	 * as well as the font and metrics caches of the families that are not
+	 * {@literal @}font-face fonts.
+	 * </p>
+	 * <p>
+	 * The font-face store is replaced by a new one, so the eviction listeners
+	 * that were added to it have to be added again.
+	 * </p>
+	 */
+	public void resetFontFaces() {
+		synchronized (this) {
+			fontFaceStore = null;
+			fontFaceLoads = null;
+			asyncFontFaceLoads = null;
+			fontFaceArchive = null;
+			SharedFaces shared = sharedFaces;
+			if (shared != null) {
+				shared.releaseAll();
+			}
+		}
+		clearFontCaches();
+	}
+
+	/*
+	 * A font was evicted: forget its source and its retained data, so it can be
+	 * loaded again and the data does not outlive the font.
+	 */
+	private void fontFaceEvicted(String lcFamilyName) {
+		SharedFaces shared = sharedFaces;
+		if (shared != null) {
+			shared.release(lcFamilyName);
+		}
+		FontFaceArchive archive = fontFaceArchive;
+		if (archive != null) {
+			archive.remove(lcFamilyName);
+		}
+		RuleFontFaceStore store = fontFaceStore;
+		FontFaceSource source;
+		ConcurrentHashMap<String, FontFaceLoad> loads = fontFaceLoads;
+		if (store != null && loads != null && (source = store.sources.get(lcFamilyName)) != null) {
+			loads.remove(source.key);
+		}
+		clearFontCaches();
+	}
+
+	/**
+	 * Get the persistent cache for {@literal @}font-face fonts.
+	 * 
+	 * @return the disk cache, or {@code null} if none was set.
+	 */
+	public FontFaceDiskCache getFontFaceDiskCache() {
+		return fontFaceDiskCache;
+	}
+
+	/**
+	 * Set a persistent cache for {@literal @}font-face fonts.
+	 * <p>
+	 * The cache is checked before fetching a font, and fetched fonts are stored in
+	 * it.
+	 * </p>
+	 * 
+	 * @param diskCache the disk cache, or {@code null} to disable disk caching.
+	 */
+	public void setFontFaceDiskCache(FontFaceDiskCache diskCache) {
+		fontFaceDiskCache = diskCache;
+	}
+
+	/**
+	 * Check whether the decoded data of the {@literal @}font-face fonts is
+	 * retained for serialization.
+	 * 
+	 * @return {@code true} if the font data is retained.
+	 */
+	public boolean isFontFaceDataRetained() {
+		return fontFaceDataRetained;
+	}
+
+	/**
+	 * Retain the decoded data of the {@literal @}font-face fonts that are loaded
+	 * from now on, so that they can be included in the serialized form of this
+	 * database.
+	 * <p>
+	 * The serialized form includes the fonts whose data was retained, and those
+	 * that are in the {@link FontFaceDiskCache} if one is set. Without either, the
+	 * fonts are not serialized and have to be loaded again after
+	 * deserialization.
+	 * </p>
+	 * <p>
+	 * The data of a font is dropped when the font is evicted from the
+	 * {@link FontFaceStore}, so the retained data is bounded by the limits of
+	 * the store.
+	 * </p>
+	 * 
+	 * @param retained {@code true} to retain the font data. Default is
+	 *                 {@code false}.
+	 */
+	public void setFontFaceDataRetained(boolean retained) {
+		fontFaceDataRetained = retained;
+	}
+
+	/**
+	 * Get the registry that shares the {@literal @}font-face fonts with other
+	 * databases.
+	 * 
+	 * @return the shared registry, or {@code null} if this database keeps its own
+	 *         fonts.
+	 */
+	public SharedFontFaceRegistry getSharedFontFaceRegistry() {
+		SharedFaces shared = sharedFaces;
+		return shared != null ? shared.registry : null;
+	}
+
+	/**
+	 * Share the {@literal @}font-face fonts with other databases that use the
+	 * same registry.
+	 * <p>
+	 * The fonts that are loaded from now on are shared: if another database
+	 * already loaded a font with the same source or the same data, its font is
+	 * used instead of a new copy, and a source that was loaded by another
+	 * database is not fetched again. The registry keeps track of the fonts used
+	 * by this database, until they are evicted or this database is garbage
+	 * collected.
+	 * </p>
+	 * 
+	 * @param registry the registry, like
+	 *                 {@link SharedFontFaceRegistry#getDefault()}, or
+	 *                 {@code null} to stop sharing fonts.
+	 */
+	public void setSharedFontFaceRegistry(SharedFontFaceRegistry registry) {
+		synchronized (this) {
+			SharedFaces shared = sharedFaces;
+			if (shared != null) {
+				if (shared.registry == registry) {
+					return;
+				}
+				shared.close();
+			}
+			sharedFaces = registry != null ? new SharedFaces(registry, this) : null;
+		}
+	}
+
+	/*
+	 * Get the content hash of a font in the disk cache, whose files are named
+	 * after it.
+	 */
+	private static String diskCacheHash(Path fontFile) {
+		if (fontFile == null) {
+			return null;
+		}
+		String name = fontFile.getFileName().toString();
+		int idx = name.lastIndexOf('.');
+		return idx != -1 ? name.substring(0, idx) : name;
+	}
+
+	private FontFaceArchive getFontFaceArchive() {
+		FontFaceArchive archive = fontFaceArchive;
+		if (archive == null) {
+			synchronized (this) {
+				archive = fontFaceArchive;
+				if (archive == null) {
+					archive = new FontFaceArchive();
+					fontFaceArchive = archive;
+				}
+			}
+		}
+		return archive;
+	}
+
+	private static Font createArchivedFont(FontFaceArchive.Entry entry) {
+		try {
+			return entry.createFont();
+		} catch (FontFormatException | IOException e) {
+			return null;
+		}
+	}
+
+	/*
+	 * Rebuild a font from the data obtained from the serialized form.
+	 */
+	private Font rebuildFontFace(String lcFamilyName) {
+		FontFaceArchive archive = fontFaceArchive;
+		FontFaceArchive.Entry entry;
+		if (archive == null || (entry = archive.getByFamily(lcFamilyName)) == null) {
+			return null;
+		}
+		synchronized (entry) {
+			RuleFontFaceStore store = ruleFontFaceStore();
+			Font font = store.get(lcFamilyName);
+			if (font == null && (font = createArchivedFont(entry)) != null) {
+				SharedFaces shared = sharedFaces;
+				if (shared != null) {
+					font = shared.use(lcFamilyName, null, entry.contentHash(), font,
+							entry.data.length);
+				}
+				store.put(lcFamilyName, font, entry.data.length);
+				clearFontCaches();
+			}
+			return font;
+		}
+	}
+
+	private int fontFormatFromEnum(FontFormat format) {
+		int fontFormat;
+		switch (format) {
+		case TRUETYPE:
+		case OPENTYPE:
+		case WOFF:
+			fontFormat = Font.TRUETYPE_FONT;
+			break;
+		case WOFF2:
+			fontFormat = WoffDecoder.isWoff2Supported() ? Font.TRUETYPE_FONT : -1;
+			break;
+		default:
+			fontFormat = -1;
+		}
+		return fontFormat;
+	}
+
+	/**
+	 * Get a font that was loaded by a {@literal @}font-face rule.
+	 * <p>
+	 * If the font was evicted from the font-face store, it is loaded again.
+	 * </p>
+	 * 
+	 * @param lcFamilyName the family name in lowercase.
+	 * @return the font, or <code>null</code> if no font with that family name (in
+	 *         lowercase) has been loaded from a {@literal @}font-face rule.
+	 */
+	public Font getFont(String lcFamilyName) {
+		if (lcFamilyName == null) {
+			return null;
+		}
+		RuleFontFaceStore store = ruleFontFaceStore();
+		Font font = store.get(lcFamilyName);
+		if (font == null && store.contains(lcFamilyName)) {
+			FontFaceSource source = store.sources.get(lcFamilyName);
+			CSSFontFaceRule rule;
+			if (source != null && (rule = source.rule.get()) != null) {
+				loadFontFaceRuleNow(rule);
+				font = store.get(lcFamilyName);
+			} else {
+				// The style sheet is gone
+				store.remove(lcFamilyName);
+			}
+		}
+		if (font == null) {
+			font = rebuildFontFace(lcFamilyName);
+		}
+		return font;
+	}
+
+	/**
+	 * Get the source of the given family.
+	 * 
+	 * @param lcFamilyName the family name in lowercase.
+	 * @return the source, or {@code null} if the family was not loaded from a
+	 *         {@literal @}font-face rule.
+	 */
+	FontFaceSource getFontFaceSource(String lcFamilyName) {
+		RuleFontFaceStore store = fontFaceStore;
+		return store != null ? store.sources.get(lcFamilyName) : null;
+	}
+
+	/**
+	 * Get the resolver that splits text into runs according to the glyph coverage
+	 * of the fonts in the <code>font-family</code> list, honoring the
+	 * <code>unicode-range</code> of {@literal @}font-face rules.
+	 * 
+	 * @return the font fallback resolver.
+	 */
+	public FontFallbackResolver getFontFallbackResolver() {
+		FontFallbackResolver resolver = fontFallbackResolver;
+		if (resolver == null) {
+			synchronized (this) {
+				resolver = fontFallbackResolver;
+				if (resolver == null) {
+					resolver = new FontFallbackResolver(this);
+					fontFallbackResolver = resolver;
+				}
+			}
+		}
+		return resolver;
+	}
+
+	/**
+	 * Create an AWT Font object from a computed style.
+	 * <p>
+	 * Fonts are obtained from this database's font cache, and the fonts loaded by
+	 * {@literal @}font-face rules are used when the family name matches.
+	 * </p>
+	 * 
+	 * @param computedStyle the computed style.
+	 * @return the font.
+	 */
+	public Font createFont(CSSComputedProperties computedStyle) {
+		long start = AWTTelemetry.start();
+		Font font = AWTHelper.createFont(computedStyle, getFontCache());
+		AWTTelemetry.fontCreated(start);
+		return font;
+	}
+
+	/**
+	 * Get the AWT style record for a computed style.
+	 * <p>
+	 * If the given previous record was built from the same computed style object,
+	 * and the fonts did not change since then (for example, because a
+	 * {@literal @}font-face font was loaded or the device metrics were refreshed),
+	 * it is returned. Otherwise, a new record is built.
+	 * </p>
+	 * 
+	 * @param computedStyle the computed style.
+	 * @param previous      the record previously obtained for the same element, or
+	 *                      {@code null}.
+	 * @return the AWT style record.
+	 */
+	public AWTStyle getAWTStyle(CSSComputedProperties computedStyle, AWTStyle previous) {
+		if (previous != null && previous.isFor(computedStyle)
+				&& previous.getFontGeneration() == fontGeneration.get()) {
+			return previous;
+		}
+		return new AWTStyle(computedStyle, this);
+	}
+
+	/**
+	 * Get the font cache used by {@link #createFont(CSSComputedProperties)}.
+	 * 
+	 * @return the font cache.
+	 */
+	public FontCache getFontCache() {
+		FontCache cache = fontCache;
+		if (cache == null) {
+			synchronized (this) {
+				cache = fontCache;
+				if (cache == null) {
+					cache = new FontFaceCache(fontCacheSize);
+					fontCache = cache;
+				}
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Set the maximum number of fonts kept by the font cache.
+	 * 
+	 * @param maximumSize the maximum number of cached fonts. If zero, fonts are
+	 *                    not cached.
+	 */
+	public void setFontCacheSize(int maximumSize) {
+		fontCacheSize = maximumSize;
+		getFontCache().setMaximumSize(maximumSize);
+	}
+
+	/**
+	 * Gets the GraphicsConfiguration for this style database.
+	 * 
+	 * @return the GraphicsConfiguration object previously set, the default one
+	 *         if none was set, or null if the graphics environment is headless.
+	 */
+	protected GraphicsConfiguration getGraphicsConfiguration() {
+		return gConfiguration;
+	}
+
+	public void setGraphicsConfiguration(GraphicsConfiguration configuration) {
+		gConfiguration = configuration;
+		refreshDeviceMetrics();
+	}
+
+	/**
+	 * Set a virtual device that gives the device metrics and the font catalog.
+	 * <p>
+	 * With a virtual device, the device width, height, color depth and
+	 * resolution are fixed, and font families are resolved against the catalog
+	 * of the device, so the local graphics environment is never initialized
+	 * unless the device {@linkplain VirtualDevice#isSystemFontsEnabled() allows
+	 * system fonts} and a family outside the catalog is requested. This makes the
+	 * startup of a headless database cheaper.
+	 * </p>
+	 * <p>
+	 * The device takes precedence over the graphics configuration, if there is
+	 * one. It is not serialized.
+	 * </p>
+	 * 
+	 * @param device the virtual device, or {@code null} to use the graphics
+	 *               configuration or the default metrics, and the system fonts.
+	 */
+	public void setVirtualDevice(VirtualDevice device) {
+		virtualDevice = device;
+		refreshDeviceMetrics();
+		clearFontCaches();
+	}
+
+	/**
+	 * Get the virtual device.
+	 * 
+	 * @return the virtual device, or {@code null} if none was set.
+	 */
+	public VirtualDevice getVirtualDevice() {
+		return virtualDevice;
+	}
+
+	/**
+	 * Set a precomputed catalog of the system fonts.
+	 * <p>
+	 * With a catalog, the available font families are checked against the
+	 * catalog instead of enumerating the fonts of the graphics environment, and
+	 * the fonts of the catalog families are created directly from their files.
+	 * A {@linkplain #setVirtualDevice(VirtualDevice) virtual device} takes
+	 * precedence over the catalog.
+	 * </p>
+	 * 
+	 * @param catalog the font catalog, or {@code null} to enumerate the fonts of
+	 *                the graphics environment.
+	 * @see SystemFontCatalog#load(Path, java.util.List)
+	 */
+	public void setFontCatalog(SystemFontCatalog catalog) {
+		fontCatalog = catalog;
+		clearFontCaches();
+	}
+
+	/**
+	 * Get the precomputed catalog of the system fonts.
+	 * 
+	 * @return the font catalog, or {@code null} if none was set.
+	 */
+	public SystemFontCatalog getFontCatalog() {
+		return fontCatalog;
+	}
+
+	/**
+	 * Get the base face of a family in the catalog of the virtual device, or in
+	 * the system font catalog.
+	 * 
+	 * @param lcFamily the family name, in lowercase.
+	 * @return the face, or {@code null} if there is no catalog or the family is
+	 *         not in it.
+	 */
+	Font getCatalogFont(String lcFamily) {
+		VirtualDevice device = virtualDevice;
+		if (device != null) {
+			return device.getFace(lcFamily, Font.PLAIN);
+		}
+		SystemFontCatalog catalog = fontCatalog;
+		return catalog != null ? catalog.deriveFont(lcFamily, Font.PLAIN, 1f) : null;
+	}
+
+	/**
+	 * Check whether the fonts of the system can be used.
+	 * 
+	 * @return {@code false} if a virtual device that does not allow system fonts
+	 *         is set.
+	 */
+	boolean isSystemFontsEnabled() {
+		VirtualDevice device = virtualDevice;
+		return device == null || device.isSystemFontsEnabled();
+	}
+
+	/**
+	 * Get a converter that produces colors in the color space of the output
+	 * device.
+	 * <p>
+	 * The color space is obtained from the color model of the graphics
+	 * configuration, or is sRGB if no configuration was set. Wide-gamut CSS
+	 * colors (like <code>display-p3</code> or <code>oklch</code>) that are
+	 * displayable by the device are not clamped to sRGB.
+	 * </p>
+	 * 
+	 * @return the color converter.
+	 */
+	public ColorConverter getColorConverter() {
+		ColorConverter converter = colorConverter;
+		if (converter == null) {
+			ColorSpace space = null;
+			GraphicsConfiguration gConf;
+			if (virtualDevice == null && gConfiguration != null
+					&& (gConf = getGraphicsConfiguration()) != null) {
+				space = gConf.getColorModel().getColorSpace();
+			}
+			if (space == null) {
+				space = ColorSpace.getInstance(ColorSpace.CS_sRGB);
+			}
+			converter = new ColorConverter(space);
+			colorConverter = converter;
+		}
+		return converter;
+	}
+
+	/**
+	 * Take a new snapshot of the device metrics.
+	 * <p>
+	 * The device width, height and color depth are obtained from the graphics
+	 * configuration (or the default values) only when the configuration or
+	 * defaults are set, and when this method is called. Call it if the display
+	 * characteristics of the current graphics configuration may have changed.
+	 * </p>
+	 */
+	public void refreshDeviceMetrics() {
+		deviceMetrics = computeDeviceMetrics();
+		fontSizeTable = null;
+		colorConverter = null;
+		clearFontMetrics();
+		fontGeneration.incrementAndGet();
+	}
+
+	private DeviceMetrics getDeviceMetrics() {
+		DeviceMetrics metrics = deviceMetrics;
+		if (metrics == null) {
+			metrics = computeDeviceMetrics();
+			deviceMetrics = metrics;
+		}
+		return metrics;
+	}
+
+	private DeviceMetrics computeDeviceMetrics() {
+		float width, height;
+		int bpc = 255;
+		AffineTransform transform = null;
+		GraphicsConfiguration gConf;
+		VirtualDevice device = virtualDevice;
+		if (device != null) {
+			width = device.getWidth();
+			height = device.getHeight();
+			bpc = device.getColorDepth();
+			float scale = device.getResolution() / 72f;
+			if (scale != 1f) {
+				transform = AffineTransform.getScaleInstance(scale, scale);
+			}
+		} else if (gConfiguration != null && (gConf = getGraphicsConfiguration()) != null) {
+			transform = gConf.getDefaultTransform();
+			Rectangle bounds = gConf.getBounds();
+			width = (float) bounds.getWidth();
+			height = (float) bounds.getHeight();
+			int[] comp = gConf.getColorModel().getComponentSize();
+			for (int i = 0; i < 3; i++) {
+				if (bpc > comp[i]) {
+					bpc = comp[i];
+				}
+			}
+		} else {
+			width = defaultWidth;
+			height = defaultHeight;
+			bpc = defaultColorDepth;
+			transform = defaultTransform;
+		}
+		FontRenderContext frc = new FontRenderContext(transform, true, true);
+		return new DeviceMetrics(width, height, bpc, frc);
+	}
+
+	/**
+	 * This method is used to normalize sizes to a 595pt width.
+	 * 
+	 * @return the factor by which screensize-dependent quantities can be
+	 *         multiplied to be normalized.
+	 */
+	protected float deviceResolutionFactor() {
+		return getDeviceWidth() / 595f;
+	}
+
+	@Override
+	public float getFontSizeFromIdentifier(String familyName, String fontSizeIdentifier) throws DOMException {
+		int idx = fontSizeIndex(fontSizeIdentifier);
+		if (idx == -1) {
+			throw new DOMException(DOMException.INVALID_ACCESS_ERR, "Unknown size identifier: " + fontSizeIdentifier);
+		}
+		return getFontSizeTable()[idx];
+	}
+
+	private static int fontSizeIndex(String fontSizeIdentifier) {
+		switch (fontSizeIdentifier) {
+		case "xx-small":
+			return 0;
+		case "x-small":
+			return 1;
+		case "small":
+			return 2;
+		case "medium":
+			return 3;
+		case "large":
+			return 4;
+		case "x-large":
+			return 5;
+		case "xx-large":
+			return 6;
+		default:
+			return -1;
+		}
+	}
+
+	private float[] getFontSizeTable() {
+		float[] table = fontSizeTable;
+		if (table == null) {
+			// Normalize to device resolution
+			float factor = Math.max(0.9f, deviceResolutionFactor());
+			float[] scale = fontSizeScale;
+			table = new float[scale.length];
+			for (int i = 0; i < scale.length; i++) {
+				table[i] = scale[i] * factor;
+			}
+			fontSizeTable = table;
+		}
+		return table;
+	}
+
+	/**
+	 * Get the scale of font sizes that correspond to the absolute-size keywords.
+	 * 
+	 * @return an array with the sizes, in typographic points, for
+	 *         <code>xx-small</code>, <code>x-small</code>, <code>small</code>,
+	 *         <code>medium</code>, <code>large</code>, <code>x-large</code> and
+	 *         <code>xx-large</code>, before normalization to the device
+	 *         resolution.
+	 */
+	public float[] getFontSizeScale() {
+		return fontSizeScale.clone();
+	}
+
+	/**
+	 * Set the scale of font sizes that correspond to the absolute-size keywords.
+	 * <p>
+	 * The sizes are multiplied by the device resolution factor (with a minimum of
+	 * 0.9) to obtain the actual font sizes.
+	 * </p>
+	 * 
+	 * @param scale an array with the sizes, in typographic points, for
+	 *              <code>xx-small</code>, <code>x-small</code>,
+	 *              <code>small</code>, <code>medium</code>, <code>large</code>,
+	 *              <code>x-large</code> and <code>xx-large</code>, or
+	 *              <code>null</code> to restore the default scale.
+	 * @throws IllegalArgumentException if the array does not have seven elements.
+	 */
+	public void setFontSizeScale(float[] scale) {
+		if (scale == null) {
+			scale = DEFAULT_FONT_SIZE_SCALE;
+		} else if (scale.length != 7) {
+			throw new IllegalArgumentException("The font size scale must have 7 sizes.");
+		} else {
+			scale = scale.clone();
+		}
+		fontSizeScale = scale;
+		fontSizeTable = null;
+	}
+
+	@Override
+	public float getWidthSize(String widthIdentifier, float fontSize) throws DOMException {
+		switch (widthIdentifier.toLowerCase(Locale.ROOT)) {
+		case "thin":
+			return 0.75f; // 1px
+		case "thick":
+			return 3.75f; // 5px
+		case "medium":
+			return 2.25f; // 3px
+		default:
+			throw new DOMException(DOMException.SYNTAX_ERR,
+				"Unknown identifier " + widthIdentifier);
+		}
+	}
+
+	/**
+	 * Get the stroke to paint a border with the given width and style.
+	 * <p>
+	 * The width is multiplied by the {@link #deviceResolutionFactor() device
+	 * resolution factor}. Strokes are interned, so borders with the same device
+	 * width and style share the same object.
+	 * </p>
+	 * <p>
+	 * <code>solid</code>, <code>dashed</code> and <code>dotted</code> borders
+	 * (and the 3D styles like <code>groove</code>, whose difference is in the
+	 * colors) are painted with a {@link BasicStroke}. <code>double</code>
+	 * borders are painted with a stroke that draws two lines, each one third of
+	 * the width.
+	 * </p>
+	 * 
+	 * @param width       the border width, in typographic points.
+	 * @param borderStyle the border style.
+	 * @return the stroke, or {@code null} if the border is not painted.
+	 */
+	public Stroke getBorderStroke(float width, String borderStyle) {
+		int type = BorderStrokes.strokeType(borderStyle);
+		if (type == -1 || !(width > 0f)) {
+			return null;
+		}
+		return BorderStrokes.getStroke(width * deviceResolutionFactor(), type);
+	}
+
+	/**
+	 * Get the stroke to paint one side of the border of a box.
+	 * 
+	 * @param computedStyle the computed style of the box.
+	 * @param side          the side: {@link AWTStyle#TOP}, {@link AWTStyle#RIGHT},
+	 *                      {@link AWTStyle#BOTTOM} or {@link AWTStyle#LEFT}.
+	 * @return the stroke, or {@code null} if the border is not painted.
+	 * @see #getBorderStroke(float, String)
+	 */
+	public Stroke getBorderStroke(CSSComputedProperties computedStyle, int side) {
+		if (side < 0 || side >= AWTStyle.SIDES.length) {
+			throw new IllegalArgumentException("Unknown side: " + side);
+		}
+		float width = AWTStyle.borderWidth(computedStyle, side);
+		if (width == 0f) {
+			return null;
+		}
+		return getBorderStroke(width,
+				computedStyle.getPropertyValue("border-" + AWTStyle.SIDES[side] + "-style"));
+	}
+
+	@Override
+	public short getNaturalUnit() {
+		return CSSUnit.CSS_PT;
+	}
+
+	@Override
+	public float getDeviceHeight() {
+		return getDeviceMetrics().height;
+	}
+
+	@Override
+	public float getDeviceWidth() {
+		return getDeviceMetrics().width;
+	}
+
+	public void setDefaultWidth(float defaultWidth) {
+		this.defaultWidth = defaultWidth;
+		refreshDeviceMetrics();
+	}
+
+	public void setDefaultHeight(float defaultHeight) {
+		this.defaultHeight = defaultHeight;
+		refreshDeviceMetrics();
+	}
+
+	/**
+	 * Set the color depth that is used when there is neither a graphics
+	 * configuration nor a virtual device.
+	 * 
+	 * @param colorDepth the number of bits per color component. Default is 255.
+	 */
+	public void setDefaultColorDepth(int colorDepth) {
+		defaultColorDepth = colorDepth;
+		refreshDeviceMetrics();
+	}
+
+	@Override
+	public int getColorDepth() {
+		return getDeviceMetrics().colorDepth;
+	}
+
+	/**
+	 * Get the metrics of the given font family at the given size.
+	 * <p>
+	 * The metrics are measured on the actual font (a font loaded by a
+	 * {@literal @}font-face rule, if the family name matches one) once per family
+	 * and integer size, and then cached. Fractional sizes are scaled from the
+	 * metrics of the rounded size.
+	 * </p>
+	 * 
+	 * @param familyName the font family name.
+	 * @param size       the font size, in typographic points.
+	 * @return the font metrics.
+	 */
+	public CSSFontMetrics getFontMetrics(String familyName, float size) {
+		int bucket = Math.max(1, Math.round(size));
+		FontMetricsKey key = new FontMetricsKey(familyName, bucket);
+		CSSFontMetrics metrics = getFontMetricsCache().computeIfAbsent(key, k -> CSSFontMetrics
+				.measure(getFontCache().getFont(k.familyName, Font.PLAIN, k.size, 0),
+						getFontRenderContext()));
+		return metrics.scale(size);
+	}
+
+	private BoundedCache<FontMetricsKey, CSSFontMetrics> getFontMetricsCache() {
+		BoundedCache<FontMetricsKey, CSSFontMetrics> cache = fontMetricsCache;
+		if (cache == null) {
+			synchronized (this) {
+				cache = fontMetricsCache;
+				if (cache == null) {
+					cache = new BoundedCache<>(512);
+					fontMetricsCache = cache;
+				}
+			}
+		}
+		return cache;
+	}
+
+	private void clearFontMetrics() {
+		BoundedCache<FontMetricsKey, CSSFontMetrics> cache = fontMetricsCache;
+		if (cache != null) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Get the size of the <code>ex</code> unit, measured on the actual font.
+	 * 
+	 * @param familyName the font family name.
+	 * @param size       the font size, in typographic points.
+	 * @return the x-height of the font, in typographic points.
+	 */
+	@Override
+	public float getExSizeInPt(String familyName, float size) {
+		return getFontMetrics(familyName, size).getXHeight();
+	}
+
+	/**
+	 * Get the size of the <code>ch</code> unit, measured on the actual font.
+	 * 
+	 * @param familyName the font family name.
+	 * @param size       the font size, in typographic points.
+	 * @return the advance of the <code>0</code> glyph, in typographic points.
+	 */
+	public float getChSizeInPt(String familyName, float size) {
+		return getFontMetrics(familyName, size).getZeroAdvance();
+	}
+
+	/**
+	 * Get the line height that corresponds to <code>line-height: normal</code>,
+	 * measured on the actual font.
+	 * 
+	 * @param familyName the font family name.
+	 * @param size       the font size, in typographic points.
+	 * @return the sum of the font's ascent, descent and line gap, in typographic
+	 *         points.
+	 */
+	public float getNormalLineHeightInPt(String familyName, float size) {
+		return getFontMetrics(familyName, size).getNormalLineHeight();
+	}
+
+	/**
+	 * Get the font render context for this database's device.
+	 * <p>
+	 * The context uses the default transform of the graphics configuration (the
+	 * identity if there is none), with antialiasing and fractional metrics.
+	 * </p>
+	 * 
+	 * @return the font render context.
+	 */
+	public FontRenderContext getFontRenderContext() {
+		return getDeviceMetrics().fontRenderContext;
+	}
+
+	/**
+	 * Get a text layout for the given text and font, using this database's font
+	 * render context.
+	 * <p>
+	 * Layouts are obtained from the text layout cache, so repeated runs of the
+	 * same text and font are shaped only once.
+	 * </p>
+	 * 
+	 * @param text the text, which must not be empty.
+	 * @param font the font.
+	 * @return the shared text layout.
+	 */
+	public TextLayout getTextLayout(String text, Font font) {
+		return getTextLayoutCache().getTextLayout(text, font, getFontRenderContext());
+	}
+
+	/**
+	 * Get a glyph vector for the given text and font, using this database's font
+	 * render context.
+	 * 
+	 * @param text the text.
+	 * @param font the font.
+	 * @return the shared glyph vector, which must not be modified.
+	 */
+	public GlyphVector getGlyphVector(String text, Font font) {
+		return getTextLayoutCache().getGlyphVector(text, font, getFontRenderContext());
+	}
+
+	/**
+	 * Get the cache used by {@link #getTextLayout(String, Font)} and
+	 * {@link #getGlyphVector(String, Font)}.
+	 * 
+	 * @return the text layout cache.
+	 */
+	public TextLayoutCache getTextLayoutCache() {
+		TextLayoutCache cache = textLayoutCache;
+		if (cache == null) {
+			synchronized (this) {
+				cache = textLayoutCache;
+				if (cache == null) {
+					cache = new TextLayoutCache(textLayoutCacheBytes);
+					textLayoutCache = cache;
+				}
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Set the maximum size of the text layout cache.
+	 * 
+	 * @param maximumBytes the estimated maximum memory used by the cached layouts,
+	 *                     in bytes. If zero, layouts are not cached.
+	 */
+	public void setTextLayoutCacheSize(long maximumBytes) {
+		textLayoutCacheBytes = maximumBytes;
+		getTextLayoutCache().setMaximumBytes(maximumBytes);
+	}
+
+	/*
+	 * Take a snapshot of the settings that can be changed through the setters.
+	 */
+	Settings getSettings() {
+		return new Settings(this);
+	}
+
+	/*
+	 * Restore the settings of a snapshot, calling the setters of the settings
+	 * that were changed.
+	 */
+	void restoreSettings(Settings settings) {
+		if (gConfiguration != settings.gConfiguration) {
+			setGraphicsConfiguration(settings.gConfiguration);
+		}
+		if (virtualDevice != settings.virtualDevice) {
+			setVirtualDevice(settings.virtualDevice);
+		}
+		if (fontCatalog != settings.fontCatalog) {
+			setFontCatalog(settings.fontCatalog);
+		}
+		if (Float.floatToIntBits(defaultWidth) != Float.floatToIntBits(settings.defaultWidth)) {
+			setDefaultWidth(settings.defaultWidth);
+		}
+		if (Float.floatToIntBits(defaultHeight) != Float
+				.floatToIntBits(settings.defaultHeight)) {
+			setDefaultHeight(settings.defaultHeight);
+		}
+		if (defaultColorDepth != settings.defaultColorDepth) {
+			setDefaultColorDepth(settings.defaultColorDepth);
+		}
+		fontLoadingExecutor = settings.fontLoadingExecutor;
+		fontFaceDiskCache = settings.fontFaceDiskCache;
+		fontFaceDataRetained = settings.fontFaceDataRetained;
+		if (getSharedFontFaceRegistry() != settings.sharedRegistry) {
+			setSharedFontFaceRegistry(settings.sharedRegistry);
+		}
+		if (fontFaceMaximumCount != settings.fontFaceMaximumCount
+				|| fontFaceMaximumBytes != settings.fontFaceMaximumBytes) {
+			setFontFaceStoreBudget(settings.fontFaceMaximumCount, settings.fontFaceMaximumBytes);
+		}
+		if (fontCacheSize != settings.fontCacheSize) {
+			setFontCacheSize(settings.fontCacheSize);
+		}
+		if (textLayoutCacheBytes != settings.textLayoutCacheBytes) {
+			setTextLayoutCacheSize(settings.textLayoutCacheBytes);
+		}
+		if (fontSizeScale != settings.fontSizeScale) {
+			fontSizeScale = settings.fontSizeScale;
+			fontSizeTable = null;
+		}
+	}
+
+	/*
+	 * The serialized form: after the default fields, the device metrics (which
+	 * replace the defaults of the receiving side, as graphics configurations are
+	 * not serializable) and the archived font-face data.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		DeviceMetrics metrics = getDeviceMetrics();
+		out.writeFloat(metrics.width);
+		out.writeFloat(metrics.height);
+		out.writeInt(metrics.colorDepth);
+		AffineTransform transform = metrics.fontRenderContext.getTransform();
+		if (transform.isIdentity()) {
+			out.writeBoolean(false);
+		} else {
+			out.writeBoolean(true);
+			double[] matrix = new double[6];
+			transform.getMatrix(matrix);
+			for (double d : matrix) {
+				out.writeDouble(d);
+			}
+		}
+		FontFaceArchive.write(out, fontFaceArchiveEntries());
+	}
+
+	private Collection<FontFaceArchive.Entry> fontFaceArchiveEntries() {
+		Map<String, FontFaceArchive.Entry> entries = new LinkedHashMap<>();
+		FontFaceArchive archive = fontFaceArchive;
+		if (archive != null) {
+			for (FontFaceArchive.Entry entry : archive.entries()) {
+				entries.put(entry.lcFamily, entry);
+			}
+		}
+		RuleFontFaceStore store = fontFaceStore;
+		FontFaceDiskCache diskCache = fontFaceDiskCache;
+		if (store != null && diskCache != null) {
+			for (Map.Entry<String, FontFaceSource> source : store.sources.entrySet()) {
+				String lcFamily = source.getKey();
+				if (!entries.containsKey(lcFamily)) {
+					String key = source.getValue().key;
+					Path file = diskCache.getFontFile(key);
+					if (file != null) {
+						try {
+							entries.put(lcFamily,
+									FontFaceArchive.entry(lcFamily, key, Files.readAllBytes(file)));
+						} catch (IOException e) {
+							// Evicted from the disk cache
+						}
+					}
+				}
+			}
+		}
+		return entries.values();
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		fontGeneration = new AtomicInteger();
+		float width = in.readFloat();
+		float height = in.readFloat();
+		int colorDepth = in.readInt();
+		if (!(width > 0f) || !(height > 0f) || colorDepth <= 0) {
+			throw new InvalidObjectException("Invalid device metrics.");
+		}
+		defaultWidth = width;
+		defaultHeight = height;
+		defaultColorDepth = colorDepth;
+		if (in.readBoolean()) {
+			double[] matrix = new double[6];
+			for (int i = 0; i < 6; i++) {
+				matrix[i] = in.readDouble();
+			}
+			defaultTransform = new AffineTransform(matrix);
+		}
+		FontFaceArchive archive = FontFaceArchive.read(in);
+		if (!archive.entries().isEmpty()) {
+			fontFaceArchive = archive;
+		}
+	}
+
+	/*
+	 * A snapshot of the settings of a database.
+	 */
+	static class Settings {
+
+		private final GraphicsConfiguration gConfiguration;
+		private final VirtualDevice virtualDevice;
+		private final SystemFontCatalog fontCatalog;
+		private final float defaultWidth;
+		private final float defaultHeight;
+		private final int defaultColorDepth;
+		private final Executor fontLoadingExecutor;
+		private final FontFaceDiskCache fontFaceDiskCache;
+		private final boolean fontFaceDataRetained;
+		private final SharedFontFaceRegistry sharedRegistry;
+		private final int fontFaceMaximumCount;
+		private final long fontFaceMaximumBytes;
+		private final int fontCacheSize;
+		private final long textLayoutCacheBytes;
+		private final float[] fontSizeScale;
+
+		Settings(AWTStyleDatabase db) {
+			super();
+			gConfiguration = db.gConfiguration;
+			virtualDevice = db.virtualDevice;
+			fontCatalog = db.fontCatalog;
+			defaultWidth = db.defaultWidth;
+			defaultHeight = db.defaultHeight;
+			defaultColorDepth = db.defaultColorDepth;
+			fontLoadingExecutor = db.fontLoadingExecutor;
+			fontFaceDiskCache = db.fontFaceDiskCache;
+			fontFaceDataRetained = db.fontFaceDataRetained;
+			sharedRegistry = db.getSharedFontFaceRegistry();
+			fontFaceMaximumCount = db.fontFaceMaximumCount;
+			fontFaceMaximumBytes = db.fontFaceMaximumBytes;
+			fontCacheSize = db.fontCacheSize;
+			textLayoutCacheBytes = db.textLayoutCacheBytes;
+			fontSizeScale = db.fontSizeScale;
+		}
+
+	}
+
+	/*
+	 * The use of a shared registry: the lease of this database, and the content
+	 * hashes of the shared fonts by family.
+	 */
+	private static class SharedFaces {
+
+		final SharedFontFaceRegistry registry;
+
+		final SharedFontFaceRegistry.Lease lease;
+
+		final ConcurrentHashMap<String, String> hashes = new ConcurrentHashMap<>();
+
+		SharedFaces(SharedFontFaceRegistry registry, AWTStyleDatabase owner) {
+			super();
+			this.registry = registry;
+			lease = registry.newLease(owner);
+		}
+
+		/*
+		 * Register the font of a family, and return the shared one.
+		 */
+		Font use(String lcFamilyName, String sourceKey, String contentHash, Font font,
+				long estimatedBytes) {
+			SharedFontFaceRegistry.SharedFace face = registry.register(lease, sourceKey,
+					contentHash, font, estimatedBytes);
+			String old = hashes.put(lcFamilyName, contentHash);
+			if (old != null) {
+				registry.release(lease, old);
+			}
+			return face.font;
+		}
+
+		void release(String lcFamilyName) {
+			String hash = hashes.remove(lcFamilyName);
+			if (hash != null) {
+				registry.release(lease, hash);
+			}
+		}
+
+		void releaseAll() {
+			for (String lcFamilyName : hashes.keySet()) {
+				release(lcFamilyName);
+			}
+		}
+
+		void close() {
+			hashes.clear();
+			registry.close(lease);
+		}
+
+	}
+
+	private static class DeviceMetrics {
+
+		final float width;
+		final float height;
+		final int colorDepth;
+		final FontRenderContext fontRenderContext;
+
+		DeviceMetrics(float width, float height, int colorDepth,
+				FontRenderContext fontRenderContext) {
+			super();
+			this.width = width;
+			this.height = height;
+			this.colorDepth = colorDepth;
+			this.fontRenderContext = fontRenderContext;
+		}
+
+	}
+
+	/*
+	 * The font-display block and swap periods, in milliseconds. A negative swap
+	 * period is infinite.
+	 */
+	private enum FontDisplay {
+
+		BLOCK(3000, -1), SWAP(0, -1), FALLBACK(100, 3000), OPTIONAL(100, 0);
+
+		final long blockMillis;
+		final long swapMillis;
+
+		FontDisplay(long blockMillis, long swapMillis) {
+			this.blockMillis = blockMillis;
+			this.swapMillis = swapMillis;
+		}
+
+		static FontDisplay forRule(CSSFontFaceRule rule) {
+			switch (rule.getStyle().getPropertyValue("font-display").toLowerCase(Locale.ROOT)) {
+			case "swap":
+				return SWAP;
+			case "fallback":
+				return FALLBACK;
+			case "optional":
+				return OPTIONAL;
+			default:
+				// auto
+				return BLOCK;
+			}
+		}
+
+	}
+
+	/*
+	 * The load of a font-face source, which records whether it added a font.
+	 */
+	private static class FontFaceLoad extends CompletableFuture<Void> {
+
+		volatile boolean succeeded = false;
+
+	}
+
+	private static class AsyncFontFaceLoad {
+
+		final CompletableFuture<Font> future = new CompletableFuture<>();
+		private final long blockDeadline;
+		private final long swapDeadline;
+		private final boolean infiniteSwap;
+
+		AsyncFontFaceLoad(FontDisplay display) {
+			super();
+			long start = System.nanoTime();
+			blockDeadline = start + TimeUnit.MILLISECONDS.toNanos(display.blockMillis);
+			infiniteSwap = display.swapMillis < 0;
+			swapDeadline = blockDeadline + TimeUnit.MILLISECONDS.toNanos(Math.max(0, display.swapMillis));
+		}
+
+		void awaitBlockPeriod() {
+			long remaining = blockDeadline - System.nanoTime();
+			if (remaining > 0 && !future.isDone()) {
+				try {
+					future.get(remaining, TimeUnit.NANOSECONDS);
+				} catch (TimeoutException | ExecutionException e) {
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		boolean isSwapPeriodOver() {
+			return !infiniteSwap && !future.isDone() && System.nanoTime() - swapDeadline > 0;
+		}
+
+	}
+
+	private static class FontMetricsKey {
+
+		private final String familyName;
+		private final int size;
+
+		FontMetricsKey(String familyName, int size) {
+			super();
+			this.familyName = familyName;
+			this.size = size;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (familyName != null ? familyName.hashCode() : 0) + size;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof FontMetricsKey)) {
+				return false;
+			}
+			FontMetricsKey other = (FontMetricsKey) obj;
+			return size == other.size && Objects.equals(familyName, other.familyName);
+		}
+
+	}
+
+	private class RuleFontFaceStore extends FontFaceStore {
+
+		/*
+		 * The sources of each font, to reload evicted fonts.
+		 */
+		final ConcurrentHashMap<String, FontFaceSource> sources = new ConcurrentHashMap<>();
+
+		RuleFontFaceStore(int maximumCount, long maximumBytes) {
+			super(maximumCount, maximumBytes);
+			addEvictionListener((lcFamilyName, estimatedBytes) -> fontFaceEvicted(lcFamilyName));
+		}
+
+		@Override
+		public synchronized void remove(String lcFamilyName) {
+			super.remove(lcFamilyName);
+			sources.remove(lcFamilyName);
+		}
+
+	}
+
+	/**
+	 * The source of a font loaded by a {@literal @}font-face rule.
+	 * <p>
+	 * The rule is only weakly referenced, so the style sheet can be collected
+	 * while its fonts are in use. If the rule is gone when an evicted font is
+	 * requested, the font can only be rebuilt from the retained data, if any.
+	 * </p>
+	 */
+	static class FontFaceSource {
+
+		final String key;
+
+		final String unicodeRange;
+
+		final WeakReference<CSSFontFaceRule> rule;
+
+		FontFaceSource(CSSFontFaceRule rule) {
+			super();
+			key = fontFaceSourceKey(rule);
+			String range = rule.getStyle().getPropertyValue("unicode-range");
+			unicodeRange = range != null && !(range = range.trim()).isEmpty() ? range : null;
+			this.rule = new WeakReference<>(rule);
+		}
+
+	}
+
+	private static class CountingInputStream extends FilterInputStream {
+
+		long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				count += n;
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+
+	}
+
+	private class FontFaceCache extends FontCache {
+
+		FontFaceCache(int maximumSize) {
+			super(maximumSize);
+		}
+
+		@Override
+		protected Font createFont(String family, int style, int size, int attributes,
+				float tracking) {
+			Font face = family != null
+					? AWTStyleDatabase.this.getFont(family.toLowerCase(Locale.ROOT))
+					: null;
+			if (face != null) {
+				return applyAttributes(face.deriveFont(style, size), attributes, tracking);
+			}
+			VirtualDevice device = virtualDevice;
+			if (device != null) {
+				Font font = family != null
+						? device.deriveFont(family.toLowerCase(Locale.ROOT), style, size)
+						: null;
+				if (font == null && (family == null || !device.isSystemFontsEnabled()
+						|| !FontFamilyIndex.SYSTEM.isAvailable(family))
+						&& (face = device.getDefaultFont()) != null) {
+					font = face.deriveFont(style | face.getStyle(), size);
+				}
+				if (font != null) {
+					return applyAttributes(font, attributes, tracking);
+				}
+			} else if (family != null) {
+				SystemFontCatalog catalog = fontCatalog;
+				Font font;
+				if (catalog != null && (font = catalog.deriveFont(family.toLowerCase(Locale.ROOT),
+						style, size)) != null) {
+					return applyAttributes(font, attributes, tracking);
+				}
+			}
+			return super.createFont(family, style, size, attributes, tracking);
+		}
+
 	}
 
 }
@@ -0,0 +1,267 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.GraphicsConfiguration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A pool of reusable style databases, keyed by the output device.
+ * <p>
+ * Applications that render many documents to a few kinds of output (like A4
+ * print, a couple of screen sizes and thumbnails) can {@link #acquire(float,
+ * float, int) acquire} a database for each document and {@link
+ * #release(AWTStyleDatabase) release} it afterwards, instead of creating a new
+ * database each time. The device metrics and the caches of the system fonts
+ * are kept between uses, while the {@literal @}font-face fonts of a document
+ * are {@linkplain AWTStyleDatabase#resetFontFaces() forgotten} when its
+ * database is released, so they do not leak into the next document.
+ * </p>
+ * <p>
+ * New databases are configured by the initializer given to the constructor,
+ * which can set a font loading executor, a disk cache or a shared font-face
+ * registry, and are then warmed up.
+ * </p>
+ * <p>
+ * Instances are thread-safe.
+ * </p>
+ *
+ * @author Carlos Amengual
+ *
+ */
+public final class AWTStyleDatabasePool {
+
+	/**
+	 * The default maximum number of idle databases for each device.
+	 */
+	public static final int DEFAULT_MAXIMUM_IDLE = 8;
+
+	private final ConcurrentHashMap<Key, Idle> pools = new ConcurrentHashMap<>();
+
+	private final int maximumIdle;
+
+	private final Consumer<? super AWTStyleDatabase> initializer;
+
+	/**
+	 * Construct a pool that keeps up to {@link #DEFAULT_MAXIMUM_IDLE} idle
+	 * databases per device.
+	 */
+	public AWTStyleDatabasePool() {
+		this(DEFAULT_MAXIMUM_IDLE, null);
+	}
+
+	/**
+	 * Construct a pool.
+	 *
+	 * @param maximumIdle the maximum number of idle databases that are kept for
+	 *                    each device.
+	 * @param initializer the procedure that configures each new database, or
+	 *                    {@code null} if none.
+	 * @throws IllegalArgumentException if the maximum is negative.
+	 */
+	public AWTStyleDatabasePool(int maximumIdle, Consumer<? super AWTStyleDatabase> initializer) {
+		super();
+		if (maximumIdle < 0) {
+			throw new IllegalArgumentException("Negative maximum.");
+		}
+		this.maximumIdle = maximumIdle;
+		this.initializer = initializer;
+	}
+
+	/**
+	 * Acquire a database for the given graphics configuration.
+	 *
+	 * @param gConf the graphics configuration.
+	 * @return the database, which must be released when it is no longer used.
+	 */
+	public AWTStyleDatabase acquire(GraphicsConfiguration gConf) {
+		if (gConf == null) {
+			throw new NullPointerException("Null graphics configuration.");
+		}
+		return acquire(new Key(this, gConf, 0f, 0f, 0));
+	}
+
+	/**
+	 * Acquire a database for a device without graphics configuration.
+	 *
+	 * @param width      the width of the device, in typographic points.
+	 * @param height     the height of the device, in typographic points.
+	 * @param colorDepth the number of bits per color component.
+	 * @return the database, which must be released when it is no longer used.
+	 * @throws IllegalArgumentException if a value is not positive.
+	 */
+	public AWTStyleDatabase acquire(float width, float height, int colorDepth) {
+		if (!(width > 0f) || !(height > 0f) || colorDepth <= 0) {
+			throw new IllegalArgumentException("Invalid device characteristics.");
+		}
+		return acquire(new Key(this, null, width, height, colorDepth));
+	}
+
+	private AWTStyleDatabase acquire(Key key) {
+		Idle idle = pools.get(key);
+		AWTStyleDatabase db;
+		if (idle == null || (db = idle.poll()) == null) {
+			db = create(key);
+		}
+		db.poolKey = key;
+		return db;
+	}
+
+	private AWTStyleDatabase create(Key key) {
+		AWTStyleDatabase db;
+		if (key.gConf != null) {
+			db = new AWTStyleDatabase(key.gConf);
+		} else {
+			db = new AWTStyleDatabase();
+			db.setDefaultWidth(key.width);
+			db.setDefaultHeight(key.height);
+			db.setDefaultColorDepth(key.colorDepth);
+		}
+		if (initializer != null) {
+			initializer.accept(db);
+		}
+		// Warm up
+		db.getDeviceWidth();
+		db.getColorConverter();
+		db.getFontSizeFromIdentifier(null, "medium");
+		db.poolSettings = db.getSettings();
+		return db;
+	}
+
+	/**
+	 * Release a database that was acquired from this pool.
+	 * <p>
+	 * The settings that were changed since the database was acquired (like the
+	 * virtual device or the default width) are given back the values that the
+	 * pool configured, the {@literal @}font-face fonts of the database are
+	 * reset, and the database is kept for a later acquisition unless there are enough idle
+	 * databases for its device. The database must not be used after it is
+	 * released.
+	 * </p>
+	 *
+	 * @param db the database.
+	 * @throws IllegalArgumentException if the database was not acquired from
+	 *                                  this pool, or was already released.
+	 */
+	public void release(AWTStyleDatabase db) {
+		Key key;
+		synchronized (db) {
+			Object poolKey = db.poolKey;
+			if (!(poolKey instanceof Key) || (key = (Key) poolKey).pool != this) {
+				throw new IllegalArgumentException("Database not acquired from this pool.");
+			}
+			db.poolKey = null;
+		}
+		db.restoreSettings(db.poolSettings);
+		db.resetFontFaces();
+		pools.computeIfAbsent(key, k -> new Idle()).offer(db, maximumIdle);
+	}
+
+	/**
+	 * Get the number of idle databases.
+	 *
+	 * @return the number of databases that are ready to be acquired.
+	 */
+	public int getIdleCount() {
+		int count = 0;
+		for (Idle idle : pools.values()) {
+			count += idle.count.get();
+		}
+		return count;
+	}
+
+	/**
+	 * Drop all the idle databases.
+	 */
+	public void clear() {
+		pools.clear();
+	}
+
+	/*
+	 * The idle databases of a device, most recently used first.
+	 */
+	private static class Idle {
+
+		final ConcurrentLinkedDeque<AWTStyleDatabase> databases = new ConcurrentLinkedDeque<>();
+
+		final AtomicInteger count = new AtomicInteger();
+
+		AWTStyleDatabase poll() {
+			AWTStyleDatabase db = databases.pollFirst();
+			if (db != null) {
+				count.decrementAndGet();
+			}
+			return db;
+		}
+
+		void offer(AWTStyleDatabase db, int maximum) {
+			if (count.incrementAndGet() <= maximum) {
+				databases.offerFirst(db);
+			} else {
+				count.decrementAndGet();
+			}
+		}
+
+	}
+
+	private static class Key {
+
+		final AWTStyleDatabasePool pool;
+
+		final GraphicsConfiguration gConf;
+
+		final float width;
+
+		final float height;
+
+		final int colorDepth;
+
+		Key(AWTStyleDatabasePool pool, GraphicsConfiguration gConf, float width, float height,
+				int colorDepth) {
+			super();
+			this.pool = pool;
+			this.gConf = gConf;
+			this.width = width;
+			this.height = height;
+			this.colorDepth = colorDepth;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = gConf != null ? System.identityHashCode(gConf) : 0;
+			result = 31 * result + Float.floatToIntBits(width);
+			result = 31 * result + Float.floatToIntBits(height);
+			result = 31 * result + colorDepth;
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return gConf == other.gConf && Float.floatToIntBits(width) == Float
+					.floatToIntBits(other.width)
+					&& Float.floatToIntBits(height) == Float.floatToIntBits(other.height)
+					&& colorDepth == other.colorDepth;
+		}
+
+	}
+
+}
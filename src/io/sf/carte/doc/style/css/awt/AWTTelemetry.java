@@ -0,0 +1,419 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Telemetry of the font and color resolution of the AWT bridge.
+ * <p>
+ * When enabled, the following operations are counted and timed:
+ * </p>
+ * <ul>
+ * <li>The loads of {@literal @}font-face fonts, from the moment that their
+ * data starts to be read until the font is created.</li>
+ * <li>Font family availability probes.</li>
+ * <li>The creation of fonts for computed styles, by
+ * {@link AWTStyleDatabase#createFont(io.sf.carte.doc.style.css.CSSComputedProperties)
+ * AWTStyleDatabase.createFont}.</li>
+ * <li>The conversion of colors by a {@link ColorConverter}.</li>
+ * </ul>
+ * <p>
+ * The counters and latency histograms are available from this object, which
+ * can be {@link #registerMBean() registered} as a platform MBean so that it can
+ * be monitored and switched on and off at runtime. The telemetry is disabled
+ * by default, and then the instrumented operations only check a flag. It can be
+ * enabled at startup by setting the <code>io.sf.carte.css4j.awt.telemetry</code>
+ * system property to <code>true</code>.
+ * </p>
+ * <p>
+ * If the JDK Flight Recorder is available, font-face loads and font family
+ * probes are also recorded as <code>io.sf.carte.css4j.awt.FontFaceLoad</code>
+ * and <code>io.sf.carte.css4j.awt.FontFamilyProbe</code> events, whenever a
+ * recording enables them, regardless of whether this telemetry is enabled.
+ * Under the module system, that requires the <code>jdk.jfr</code> module to be
+ * resolved (for example with <code>--add-modules jdk.jfr</code>).
+ * </p>
+ *
+ * @author Carlos Amengual
+ *
+ */
+public final class AWTTelemetry implements AWTTelemetryMXBean {
+
+	/**
+	 * The name under which the MBean is registered.
+	 */
+	public static final String OBJECT_NAME = "io.sf.carte.css4j.awt:type=Telemetry";
+
+	/**
+	 * The outcome of a font-face load.
+	 */
+	enum Outcome {
+
+		/**
+		 * The load produced a font.
+		 */
+		LOADED,
+
+		/**
+		 * The format is not supported.
+		 */
+		UNSUPPORTED,
+
+		/**
+		 * The data is not a valid font.
+		 */
+		INVALID,
+
+		/**
+		 * The load failed with an error.
+		 */
+		FAILED;
+
+		/**
+		 * Get the name under which this outcome is recorded.
+		 *
+		 * @return the name in lowercase.
+		 */
+		String label() {
+			return name().toLowerCase(Locale.ROOT);
+		}
+
+	}
+
+	private static final AWTTelemetry INSTANCE = new AWTTelemetry();
+
+	private static volatile boolean enabled = systemPropertyEnabled();
+
+	private static final EventSink eventSink = loadEventSink();
+
+	private final LatencyHistogram fontFaceLoads = new LatencyHistogram();
+
+	private final LongAdder fontFaceLoadFailures = new LongAdder();
+
+	private final LongAdder fontFaceLoadBytes = new LongAdder();
+
+	private final LatencyHistogram fontFamilyProbes = new LatencyHistogram();
+
+	private final LongAdder fontFamilyProbeMisses = new LongAdder();
+
+	private final LatencyHistogram createFonts = new LatencyHistogram();
+
+	private final LatencyHistogram colorConversions = new LatencyHistogram();
+
+	private AWTTelemetry() {
+		super();
+	}
+
+	private static boolean systemPropertyEnabled() {
+		try {
+			return Boolean.getBoolean("io.sf.carte.css4j.awt.telemetry");
+		} catch (SecurityException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * The JFR classes are only loaded if the jdk.jfr module is present.
+	 */
+	private static EventSink loadEventSink() {
+		try {
+			Class<?> cls = Class.forName("io.sf.carte.doc.style.css.awt.JfrEventSink");
+			return (EventSink) cls.getDeclaredConstructor().newInstance();
+		} catch (Exception | LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Get the telemetry.
+	 *
+	 * @return the telemetry object.
+	 */
+	public static AWTTelemetry getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		AWTTelemetry.enabled = enabled;
+	}
+
+	/**
+	 * Check whether the events are recorded by the JDK Flight Recorder.
+	 *
+	 * @return {@code true} if the Flight Recorder events are available.
+	 */
+	public boolean isFlightRecorderAvailable() {
+		return eventSink != null;
+	}
+
+	/**
+	 * Register this object in the platform MBean server, under the
+	 * {@link #OBJECT_NAME} name.
+	 * <p>
+	 * If it was already registered, nothing is done.
+	 * </p>
+	 *
+	 * @throws JMException if the MBean could not be registered.
+	 */
+	public void registerMBean() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		synchronized (this) {
+			if (!server.isRegistered(name)) {
+				server.registerMBean(this, name);
+			}
+		}
+	}
+
+	/**
+	 * Unregister this object from the platform MBean server.
+	 * <p>
+	 * If it was not registered, nothing is done.
+	 * </p>
+	 *
+	 * @throws JMException if the MBean could not be unregistered.
+	 */
+	public void unregisterMBean() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		synchronized (this) {
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		}
+	}
+
+	/**
+	 * Start timing an operation.
+	 *
+	 * @return the start time, or zero if the telemetry is disabled.
+	 */
+	static long start() {
+		return enabled ? System.nanoTime() : 0L;
+	}
+
+	/**
+	 * Start timing a font-face load.
+	 *
+	 * @return the span of the load, or {@code null} if neither the telemetry nor
+	 *         the Flight Recorder event is enabled.
+	 */
+	static Span startFontFaceLoad() {
+		EventSink sink = eventSink;
+		return span(sink != null ? sink.beginFontFaceLoad() : null);
+	}
+
+	/**
+	 * Start timing a font family probe.
+	 *
+	 * @return the span of the probe, or {@code null} if neither the telemetry nor
+	 *         the Flight Recorder event is enabled.
+	 */
+	static Span startFontFamilyProbe() {
+		EventSink sink = eventSink;
+		return span(sink != null ? sink.beginFontFamilyProbe() : null);
+	}
+
+	private static Span span(Object event) {
+		long start = start();
+		if (start == 0L && event == null) {
+			return null;
+		}
+		return new Span(start, event);
+	}
+
+	static void fontFaceLoaded(Span span, String familyName, String format, long bytes,
+			Outcome outcome) {
+		if (span == null) {
+			return;
+		}
+		if (span.start != 0L) {
+			INSTANCE.fontFaceLoads.record(System.nanoTime() - span.start);
+			INSTANCE.fontFaceLoadBytes.add(bytes);
+			if (outcome != Outcome.LOADED) {
+				INSTANCE.fontFaceLoadFailures.increment();
+			}
+		}
+		if (span.event != null) {
+			eventSink.commitFontFaceLoad(span.event, familyName, format, bytes,
+					outcome.label());
+		}
+	}
+
+	static void fontFamilyProbed(Span span, String familyName, boolean available) {
+		if (span == null) {
+			return;
+		}
+		if (span.start != 0L) {
+			INSTANCE.fontFamilyProbes.record(System.nanoTime() - span.start);
+			if (!available) {
+				INSTANCE.fontFamilyProbeMisses.increment();
+			}
+		}
+		if (span.event != null) {
+			eventSink.commitFontFamilyProbe(span.event, familyName, available);
+		}
+	}
+
+	static void fontCreated(long start) {
+		if (start != 0L) {
+			INSTANCE.createFonts.record(System.nanoTime() - start);
+		}
+	}
+
+	static void colorConverted(long start) {
+		if (start != 0L) {
+			INSTANCE.colorConversions.record(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public long[] getLatencyHistogramBounds() {
+		return LatencyHistogram.bounds();
+	}
+
+	@Override
+	public long getFontFaceLoadCount() {
+		return fontFaceLoads.count();
+	}
+
+	@Override
+	public long getFontFaceLoadFailureCount() {
+		return fontFaceLoadFailures.sum();
+	}
+
+	@Override
+	public long getFontFaceLoadBytes() {
+		return fontFaceLoadBytes.sum();
+	}
+
+	@Override
+	public long getFontFaceLoadTotalNanos() {
+		return fontFaceLoads.totalNanos();
+	}
+
+	@Override
+	public long[] getFontFaceLoadLatencyHistogram() {
+		return fontFaceLoads.histogram();
+	}
+
+	@Override
+	public long getFontFamilyProbeCount() {
+		return fontFamilyProbes.count();
+	}
+
+	@Override
+	public long getFontFamilyProbeMissCount() {
+		return fontFamilyProbeMisses.sum();
+	}
+
+	@Override
+	public long getFontFamilyProbeTotalNanos() {
+		return fontFamilyProbes.totalNanos();
+	}
+
+	@Override
+	public long[] getFontFamilyProbeLatencyHistogram() {
+		return fontFamilyProbes.histogram();
+	}
+
+	@Override
+	public long getCreateFontCount() {
+		return createFonts.count();
+	}
+
+	@Override
+	public long getCreateFontTotalNanos() {
+		return createFonts.totalNanos();
+	}
+
+	@Override
+	public long[] getCreateFontLatencyHistogram() {
+		return createFonts.histogram();
+	}
+
+	@Override
+	public long getColorConversionCount() {
+		return colorConversions.count();
+	}
+
+	@Override
+	public long getColorConversionTotalNanos() {
+		return colorConversions.totalNanos();
+	}
+
+	@Override
+	public long[] getColorConversionLatencyHistogram() {
+		return colorConversions.histogram();
+	}
+
+	@Override
+	public void reset() {
+		fontFaceLoads.reset();
+		fontFaceLoadFailures.reset();
+		fontFaceLoadBytes.reset();
+		fontFamilyProbes.reset();
+		fontFamilyProbeMisses.reset();
+		createFonts.reset();
+		colorConversions.reset();
+	}
+
+	/*
+	 * An operation being timed: its start time if the telemetry is enabled, and
+	 * its Flight Recorder event if that is enabled.
+	 */
+	static final class Span {
+
+		final long start;
+
+		final Object event;
+
+		Span(long start, Object event) {
+			super();
+			this.start = start;
+			this.event = event;
+		}
+
+	}
+
+	/*
+	 * Creates the events of the Flight Recorder. The begin methods return an
+	 * event whose timing has begun, or null if the event is not enabled, and the
+	 * commit methods fill and commit it.
+	 */
+	interface EventSink {
+
+		Object beginFontFaceLoad();
+
+		void commitFontFaceLoad(Object event, String familyName, String format, long bytes,
+				String outcome);
+
+		Object beginFontFamilyProbe();
+
+		void commitFontFamilyProbe(Object event, String familyName, boolean available);
+
+	}
+
+}
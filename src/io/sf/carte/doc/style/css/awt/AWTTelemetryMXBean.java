@@ -0,0 +1,168 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+/**
+ * Management interface of the {@link AWTTelemetry} of the AWT bridge.
+ * <p>
+ * Latency histograms are arrays of operation counts: the first element counts
+ * the operations that took less than the first of the
+ * {@link #getLatencyHistogramBounds() bounds}, each following element those
+ * that took less than the next bound, and the last element those that took
+ * longer than all the bounds.
+ * </p>
+ *
+ * @author Carlos Amengual
+ *
+ */
+public interface AWTTelemetryMXBean {
+
+	/**
+	 * Check whether the telemetry is collected.
+	 *
+	 * @return {@code true} if enabled.
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Enable or disable the collection of telemetry.
+	 * <p>
+	 * The Flight Recorder events do not depend on this setting, they are recorded
+	 * whenever a recording enables them.
+	 * </p>
+	 *
+	 * @param enabled {@code true} to collect telemetry.
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * Get the upper bounds of the latency histogram buckets.
+	 *
+	 * @return the bounds, in microseconds.
+	 */
+	long[] getLatencyHistogramBounds();
+
+	/**
+	 * Get the number of {@literal @}font-face loads.
+	 *
+	 * @return the number of loads.
+	 */
+	long getFontFaceLoadCount();
+
+	/**
+	 * Get the number of {@literal @}font-face loads that did not produce a font.
+	 *
+	 * @return the number of failed loads.
+	 */
+	long getFontFaceLoadFailureCount();
+
+	/**
+	 * Get the number of decoded bytes that were read by {@literal @}font-face
+	 * loads.
+	 *
+	 * @return the number of bytes.
+	 */
+	long getFontFaceLoadBytes();
+
+	/**
+	 * Get the total time spent in {@literal @}font-face loads.
+	 *
+	 * @return the time, in nanoseconds.
+	 */
+	long getFontFaceLoadTotalNanos();
+
+	/**
+	 * Get the latency histogram of {@literal @}font-face loads.
+	 *
+	 * @return the histogram.
+	 */
+	long[] getFontFaceLoadLatencyHistogram();
+
+	/**
+	 * Get the number of font family availability probes.
+	 *
+	 * @return the number of probes.
+	 */
+	long getFontFamilyProbeCount();
+
+	/**
+	 * Get the number of font family probes that found no family.
+	 *
+	 * @return the number of probes of unavailable families.
+	 */
+	long getFontFamilyProbeMissCount();
+
+	/**
+	 * Get the total time spent in font family probes.
+	 *
+	 * @return the time, in nanoseconds.
+	 */
+	long getFontFamilyProbeTotalNanos();
+
+	/**
+	 * Get the latency histogram of font family probes.
+	 *
+	 * @return the histogram.
+	 */
+	long[] getFontFamilyProbeLatencyHistogram();
+
+	/**
+	 * Get the number of fonts created for computed styles.
+	 *
+	 * @return the number of fonts created.
+	 */
+	long getCreateFontCount();
+
+	/**
+	 * Get the total time spent creating fonts for computed styles.
+	 *
+	 * @return the time, in nanoseconds.
+	 */
+	long getCreateFontTotalNanos();
+
+	/**
+	 * Get the latency histogram of font creation for computed styles.
+	 *
+	 * @return the histogram.
+	 */
+	long[] getCreateFontLatencyHistogram();
+
+	/**
+	 * Get the number of color conversions to a device color space.
+	 * <p>
+	 * Colors found in the cache of a color converter are not counted.
+	 * </p>
+	 *
+	 * @return the number of conversions.
+	 */
+	long getColorConversionCount();
+
+	/**
+	 * Get the total time spent converting colors.
+	 *
+	 * @return the time, in nanoseconds.
+	 */
+	long getColorConversionTotalNanos();
+
+	/**
+	 * Get the latency histogram of color conversions.
+	 *
+	 * @return the histogram.
+	 */
+	long[] getColorConversionLatencyHistogram();
+
+	/**
+	 * Reset all the counters and histograms.
+	 */
+	void reset();
+
+}
@@ -0,0 +1,128 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.BasicStroke;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.Area;
+import java.util.Locale;
+
+/**
+ * Interned strokes for the border styles.
+ * <p>
+ * Widths are quantized to 1/64 of a device unit, and strokes with the same
+ * width and style are shared.
+ * </p>
+ */
+class BorderStrokes {
+
+	static final int SOLID = 0;
+
+	static final int DASHED = 1;
+
+	static final int DOTTED = 2;
+
+	static final int DOUBLE = 3;
+
+	private static final BoundedCache<Long, Stroke> strokes = new BoundedCache<>(512);
+
+	private BorderStrokes() {
+		super();
+	}
+
+	/**
+	 * Get the stroke type for a border style.
+	 *
+	 * @param borderStyle the border style.
+	 * @return the stroke type, or -1 if the border is not painted.
+	 */
+	static int strokeType(String borderStyle) {
+		switch (borderStyle.toLowerCase(Locale.ROOT)) {
+		case "":
+		case "none":
+		case "hidden":
+			return -1;
+		case "dashed":
+			return DASHED;
+		case "dotted":
+			return DOTTED;
+		case "double":
+			return DOUBLE;
+		default:
+			// solid, and the 3D styles that only change the colors
+			return SOLID;
+		}
+	}
+
+	/**
+	 * Get the interned stroke.
+	 *
+	 * @param deviceWidth the width, in device units.
+	 * @param type        the stroke type.
+	 * @return the stroke.
+	 */
+	static Stroke getStroke(float deviceWidth, int type) {
+		float width = Math.round(deviceWidth * 64f) / 64f;
+		if (width == 0f) {
+			width = 1f / 64f;
+		}
+		Long key = ((long) Float.floatToIntBits(width) << 8) | type;
+		float w = width;
+		return strokes.computeIfAbsent(key, k -> createStroke(w, type));
+	}
+
+	private static Stroke createStroke(float width, int type) {
+		switch (type) {
+		case DASHED:
+			return new BasicStroke(width, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10f,
+					new float[] { 3f * width, 3f * width }, 0f);
+		case DOTTED:
+			// Zero-length dashes with round caps are dots of the stroke width
+			return new BasicStroke(width, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 10f,
+					new float[] { 0f, 2f * width }, 0f);
+		case DOUBLE:
+			return new DoubleStroke(width);
+		default:
+			return new BasicStroke(width, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER);
+		}
+	}
+
+	/**
+	 * Two parallel lines, each one third of the width, with a gap between them.
+	 */
+	static class DoubleStroke implements Stroke {
+
+		private final BasicStroke outer;
+
+		private final BasicStroke gap;
+
+		DoubleStroke(float width) {
+			super();
+			outer = new BasicStroke(width, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER);
+			gap = new BasicStroke(width / 3f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER);
+		}
+
+		float getLineWidth() {
+			return outer.getLineWidth();
+		}
+
+		@Override
+		public Shape createStrokedShape(Shape p) {
+			Area area = new Area(outer.createStrokedShape(p));
+			area.subtract(new Area(gap.createStrokedShape(p)));
+			return area;
+		}
+
+	}
+
+}
@@ -0,0 +1,194 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * A concurrent cache bounded by entry count, or by the total weight of its
+ * entries.
+ * <p>
+ * Readers never block. When the maximum size is exceeded, the oldest entries
+ * are evicted in insertion order.
+ * </p>
+ *
+ * @param <K> the key type.
+ * @param <V> the value type.
+ */
+class BoundedCache<K, V> {
+
+	private final ConcurrentHashMap<K, V> map = new ConcurrentHashMap<>();
+
+	private final ConcurrentLinkedQueue<K> insertionOrder = new ConcurrentLinkedQueue<>();
+
+	private volatile long maximumSize;
+
+	private final ToLongBiFunction<? super K, ? super V> weigher;
+
+	private final AtomicLong weight = new AtomicLong();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Construct a cache with the given maximum size.
+	 *
+	 * @param maximumSize the maximum number of entries. If zero or negative, no
+	 *                    entries are cached.
+	 */
+	BoundedCache(int maximumSize) {
+		this(maximumSize, (k, v) -> 1L);
+	}
+
+	/**
+	 * Construct a cache with the given maximum weight.
+	 *
+	 * @param maximumWeight the maximum total weight of the entries. If zero or
+	 *                      negative, no entries are cached.
+	 * @param weigher       the function that computes the weight of an entry.
+	 */
+	BoundedCache(long maximumWeight, ToLongBiFunction<? super K, ? super V> weigher) {
+		super();
+		this.maximumSize = maximumWeight;
+		this.weigher = weigher;
+	}
+
+	/**
+	 * Get the value associated to the given key, computing it if absent.
+	 * <p>
+	 * If several threads request the same absent key at the same time, the
+	 * function may be called more than once but all callers obtain the same
+	 * value.
+	 * </p>
+	 *
+	 * @param key      the key.
+	 * @param function the function that computes the value.
+	 * @return the cached or computed value.
+	 */
+	V computeIfAbsent(K key, Function<? super K, ? extends V> function) {
+		V value = map.get(key);
+		if (value != null) {
+			hits.increment();
+			return value;
+		}
+		misses.increment();
+		value = function.apply(key);
+		if (value == null || maximumSize <= 0) {
+			return value;
+		}
+		V previous = map.putIfAbsent(key, value);
+		if (previous != null) {
+			return previous;
+		}
+		insertionOrder.add(key);
+		weight.addAndGet(weigher.applyAsLong(key, value));
+		trim();
+		return value;
+	}
+
+	/**
+	 * Get the value associated to the given key.
+	 *
+	 * @param key the key.
+	 * @return the value, or {@code null} if the key is not in the cache.
+	 */
+	V get(K key) {
+		V value = map.get(key);
+		if (value != null) {
+			hits.increment();
+		} else {
+			misses.increment();
+		}
+		return value;
+	}
+
+	private void trim() {
+		long max = maximumSize;
+		while (weight.get() > max) {
+			K eldest = insertionOrder.poll();
+			if (eldest == null) {
+				break;
+			}
+			V value = map.remove(eldest);
+			if (value != null) {
+				weight.addAndGet(-weigher.applyAsLong(eldest, value));
+			}
+		}
+	}
+
+	int size() {
+		return map.size();
+	}
+
+	/**
+	 * Get the total weight of the entries.
+	 *
+	 * @return the weight, which is the number of entries if no weigher was set.
+	 */
+	long getWeight() {
+		return weight.get();
+	}
+
+	long getMaximumSize() {
+		return maximumSize;
+	}
+
+	void setMaximumSize(long maximumSize) {
+		this.maximumSize = maximumSize;
+		trim();
+	}
+
+	long getHitCount() {
+		return hits.sum();
+	}
+
+	long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * Remove all the entries.
+	 * <p>
+	 * The hit and miss counters are kept.
+	 * </p>
+	 */
+	void clear() {
+		/*
+		 * The order is cleared first, and the entries are removed one by one, so
+		 * that an insertion that races with this stays consistent: either its key
+		 * is still in the order, or its entry is removed here, and its weight is
+		 * subtracted only if it was removed.
+		 */
+		insertionOrder.clear();
+		for (K key : map.keySet()) {
+			V value = map.remove(key);
+			if (value != null) {
+				weight.addAndGet(-weigher.applyAsLong(key, value));
+			}
+		}
+	}
+
+	/**
+	 * Reset the hit and miss counters.
+	 */
+	void resetStatistics() {
+		hits.reset();
+		misses.reset();
+	}
+
+}
@@ -0,0 +1,168 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.LineMetrics;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * The metrics of a font that are relevant to CSS, measured on an AWT font.
+ * <p>
+ * All the values are in the units of the font size (typographic points when
+ * used with {@link AWTStyleDatabase}).
+ * </p>
+ *
+ * @author Carlos Amengual
+ *
+ */
+public class CSSFontMetrics {
+
+	private final float size;
+	private final float xHeight;
+	private final float zeroAdvance;
+	private final float ascent;
+	private final float descent;
+	private final float lineGap;
+
+	CSSFontMetrics(float size, float xHeight, float zeroAdvance, float ascent, float descent,
+			float lineGap) {
+		super();
+		this.size = size;
+		this.xHeight = xHeight;
+		this.zeroAdvance = zeroAdvance;
+		this.ascent = ascent;
+		this.descent = descent;
+		this.lineGap = lineGap;
+	}
+
+	/**
+	 * Measure the given font.
+	 * <p>
+	 * If the font has no glyph for the <code>x</code> or <code>0</code>
+	 * characters, the x-height or the zero advance are estimated as half the font
+	 * size, as CSS specifies.
+	 * </p>
+	 *
+	 * @param font the font.
+	 * @param frc  the font render context.
+	 * @return the metrics.
+	 */
+	public static CSSFontMetrics measure(Font font, FontRenderContext frc) {
+		float sz = font.getSize2D();
+		float xHeight = 0.5f * sz;
+		if (font.canDisplay('x')) {
+			GlyphVector gv = font.createGlyphVector(frc, "x");
+			Rectangle2D bounds = gv.getGlyphVisualBounds(0).getBounds2D();
+			if (bounds.getHeight() > 0d) {
+				xHeight = (float) -bounds.getMinY();
+			}
+		}
+		float zeroAdvance = 0.5f * sz;
+		if (font.canDisplay('0')) {
+			GlyphVector gv = font.createGlyphVector(frc, "0");
+			zeroAdvance = gv.getGlyphMetrics(0).getAdvanceX();
+		}
+		LineMetrics lm = font.getLineMetrics("x0", frc);
+		return new CSSFontMetrics(sz, xHeight, zeroAdvance, lm.getAscent(), lm.getDescent(),
+				lm.getLeading());
+	}
+
+	/**
+	 * Get metrics scaled to another font size.
+	 *
+	 * @param newSize the new font size.
+	 * @return the scaled metrics, or this object if the size is the same.
+	 */
+	public CSSFontMetrics scale(float newSize) {
+		if (newSize == size) {
+			return this;
+		}
+		float f = newSize / size;
+		return new CSSFontMetrics(newSize, xHeight * f, zeroAdvance * f, ascent * f,
+				descent * f, lineGap * f);
+	}
+
+	/**
+	 * Get the font size for which these metrics were computed.
+	 *
+	 * @return the font size.
+	 */
+	public float getSize() {
+		return size;
+	}
+
+	/**
+	 * Get the x-height, which is the size of the <code>ex</code> unit.
+	 *
+	 * @return the x-height.
+	 */
+	public float getXHeight() {
+		return xHeight;
+	}
+
+	/**
+	 * Get the advance of the <code>0</code> glyph, which is the size of the
+	 * <code>ch</code> unit.
+	 *
+	 * @return the advance of the zero glyph.
+	 */
+	public float getZeroAdvance() {
+		return zeroAdvance;
+	}
+
+	/**
+	 * Get the ascent.
+	 *
+	 * @return the ascent.
+	 */
+	public float getAscent() {
+		return ascent;
+	}
+
+	/**
+	 * Get the descent.
+	 *
+	 * @return the descent, as a positive number.
+	 */
+	public float getDescent() {
+		return descent;
+	}
+
+	/**
+	 * Get the line gap (leading).
+	 *
+	 * @return the line gap.
+	 */
+	public float getLineGap() {
+		return lineGap;
+	}
+
+	/**
+	 * Get the height that corresponds to <code>line-height: normal</code>.
+	 *
+	 * @return the sum of ascent, descent and line gap.
+	 */
+	public float getNormalLineHeight() {
+		return ascent + descent + lineGap;
+	}
+
+	@Override
+	public String toString() {
+		return "CSSFontMetrics [size=" + size + ", xHeight=" + xHeight + ", zeroAdvance="
+				+ zeroAdvance + ", ascent=" + ascent + ", descent=" + descent + ", lineGap="
+				+ lineGap + "]";
+	}
+
+}
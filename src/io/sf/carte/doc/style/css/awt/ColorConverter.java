@@ -0,0 +1,475 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.Color;
+import java.awt.color.ColorSpace;
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+
+import io.sf.carte.doc.style.css.CSSColor;
+import io.sf.carte.doc.style.css.CSSColorValue;
+import io.sf.carte.doc.style.css.CSSPrimitiveValue;
+import io.sf.carte.doc.style.css.CSSTypedValue;
+import io.sf.carte.doc.style.css.CSSValue.CssType;
+import io.sf.carte.doc.style.css.CSSValue.Type;
+import io.sf.carte.doc.style.css.property.CSSPropertyValueException;
+
+/**
+ * Converts CSS colors to AWT colors in a given {@link ColorSpace}, which can be
+ * wider than sRGB.
+ * <p>
+ * Colors in the <code>srgb</code> space (including named, <code>hsl()</code>
+ * and <code>hwb()</code> colors) are obtained as in
+ * {@link AWTHelper#getAWTColor(CSSTypedValue)}. Colors in other spaces are
+ * converted to CIE XYZ (D50) with precomputed matrices and transfer-function
+ * lookup tables, and then to the target space. Components that fall outside
+ * the target space are clipped.
+ * </p>
+ * <p>
+ * The converted colors are kept in a bounded cache keyed by color space,
+ * components and alpha, so that repeated values are converted only once. This
+ * matters most for targets other than sRGB and linear RGB, whose conversion
+ * goes through {@link ColorSpace#fromCIEXYZ(float[])}.
+ * </p>
+ * <p>
+ * Instances are thread-safe.
+ * </p>
+ *
+ * @author Carlos Amengual
+ *
+ */
+public class ColorConverter {
+
+	/**
+	 * The default maximum number of cached colors.
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 1024;
+
+	private static final ColorSpace LINEAR_RGB = ColorSpace.getInstance(ColorSpace.CS_LINEAR_RGB);
+
+	private static final int TARGET_SRGB = 0;
+
+	private static final int TARGET_LINEAR_RGB = 1;
+
+	private static final int TARGET_OTHER = 2;
+
+	/*
+	 * Matrices from the CSS Color Module Level 4.
+	 */
+
+	private static final double[] D65_TO_D50 = { 1.0479297925449969, 0.022946870601609652,
+			-0.05019226628920524, 0.02962780877005599, 0.9904344267538799, -0.017073799063418826,
+			-0.009243040646204504, 0.015055191490298152, 0.7518742814281371 };
+
+	private static final double[] SRGB_TO_D50 = multiply(D65_TO_D50,
+			new double[] { 506752d / 1228815, 87881d / 245763, 12673d / 70218, 87098d / 409605,
+					175762d / 245763, 12673d / 175545, 7918d / 409605, 87881d / 737289,
+					1001167d / 1053270 });
+
+	private static final double[] P3_TO_D50 = multiply(D65_TO_D50,
+			new double[] { 608311d / 1250200, 189793d / 714400, 198249d / 1000160,
+					35783d / 156275, 247089d / 357200, 198249d / 2500400, 0d, 32229d / 714400,
+					5220557d / 5000800 });
+
+	private static final double[] A98_TO_D50 = multiply(D65_TO_D50,
+			new double[] { 573536d / 994567, 263643d / 1420810, 187206d / 994567,
+					591459d / 1989134, 6239551d / 9945670, 374412d / 4972835, 53769d / 1989134,
+					351524d / 4972835, 4929758d / 4972835 });
+
+	private static final double[] REC2020_TO_D50 = multiply(D65_TO_D50,
+			new double[] { 63426534d / 99577255, 20160776d / 139408157, 47086771d / 278816314,
+					26158966d / 99577255, 472592308d / 697040785, 8267143d / 139408157, 0d,
+					19567812d / 697040785, 295819943d / 278816314 });
+
+	private static final double[] PROPHOTO_TO_D50 = { 0.7977666449006423, 0.13518129740053308,
+			0.0313477341283922, 0.2880748288194013, 0.711835234241873, 0.00008993693872564, 0d,
+			0d, 0.8251046025104602 };
+
+	private static final double[] D50_TO_SRGB = multiply(
+			new double[] { 12831d / 3959, -329d / 214, -1974d / 3959, -851781d / 878810,
+					1648619d / 878810, 36519d / 878810, 705d / 12673, -2585d / 12673, 705d / 667 },
+			new double[] { 0.955473421488075, -0.02309845494876471, 0.06325924320057072,
+					-0.0283697093338637, 1.0099953980813041, 0.021041441191917323,
+					0.012314014864481998, -0.020507649298898964, 1.330365926242124 });
+
+	private static final double[] OKLAB_TO_LMS = { 1d, 0.3963377773761749, 0.2158037573099136,
+			1d, -0.1055613458156586, -0.0638541728258133, 1d, -0.0894841775298119,
+			-1.2914855480194092 };
+
+	private static final double[] LMS_TO_D50 = multiply(D65_TO_D50,
+			new double[] { 1.2268798758459243, -0.5578149944602171, 0.2813910456659647,
+					-0.0405757452148008, 1.112286803280317, -0.0717110580655164,
+					-0.0763729366746601, -0.4214933324022432, 1.5869240198367816 });
+
+	private static final double[] D50_WHITE = { 0.3457 / 0.3585, 1d,
+			(1d - 0.3457 - 0.3585) / 0.3585 };
+
+	private final ColorSpace colorSpace;
+
+	private final int targetKind;
+
+	private final BoundedCache<ColorKey, Color> cache;
+
+	/**
+	 * Construct a converter to the given color space, with the default cache size.
+	 *
+	 * @param colorSpace the target color space.
+	 */
+	public ColorConverter(ColorSpace colorSpace) {
+		this(colorSpace, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Construct a converter to the given color space.
+	 *
+	 * @param colorSpace the target color space.
+	 * @param cacheSize  the maximum number of cached colors. If zero, colors are
+	 *                   not cached.
+	 */
+	public ColorConverter(ColorSpace colorSpace, int cacheSize) {
+		super();
+		this.colorSpace = colorSpace;
+		if (colorSpace.isCS_sRGB()) {
+			targetKind = TARGET_SRGB;
+		} else if (colorSpace == LINEAR_RGB) {
+			targetKind = TARGET_LINEAR_RGB;
+		} else {
+			targetKind = TARGET_OTHER;
+		}
+		cache = new BoundedCache<>(cacheSize);
+	}
+
+	/**
+	 * Get the target color space.
+	 *
+	 * @return the color space of the colors produced by this converter.
+	 */
+	public ColorSpace getColorSpace() {
+		return colorSpace;
+	}
+
+	/**
+	 * Gets the AWT color, in the target color space, from the given CSS
+	 * primitive value.
+	 *
+	 * @param cssColor the primitive color value, which can contain a color, a
+	 *                 number or an identifier.
+	 * @return the AWT color object, or null if the value was null.
+	 * @throws CSSPropertyValueException if a color cannot be derived from the CSS
+	 *                                   value.
+	 */
+	public Color getAWTColor(CSSTypedValue cssColor) throws CSSPropertyValueException {
+		if (cssColor == null) {
+			return null;
+		}
+
+		if (cssColor.getPrimitiveType() == Type.COLOR && cssColor instanceof CSSColorValue) {
+			CSSColor color = ((CSSColorValue) cssColor).getColor();
+			String space = color.getColorSpace();
+			if (space != null && !"srgb".equals(space)) {
+				double[] components;
+				CSSPrimitiveValue prialpha;
+				try {
+					components = color.toNumberArray();
+					prialpha = color.getAlpha();
+				} catch (RuntimeException e) {
+					CSSPropertyValueException ex = new CSSPropertyValueException(
+							"Cannot obtain the color components.", e);
+					ex.setValueText(cssColor.getCssText());
+					throw ex;
+				}
+				if (prialpha.getCssValueType() != CssType.TYPED) {
+					CSSPropertyValueException ex = new CSSPropertyValueException(
+							"Unsupported alpha channel.");
+					ex.setValueText(cssColor.getCssText());
+					throw ex;
+				}
+				float alpha = AWTHelper.normalizedAlphaComponent((CSSTypedValue) prialpha);
+				ColorKey key = new ColorKey(space, components, alpha);
+				try {
+					return cache.computeIfAbsent(key,
+							k -> convert(color, k.space, k.components, k.alpha));
+				} catch (RuntimeException e) {
+					CSSPropertyValueException ex = new CSSPropertyValueException(
+							"Cannot convert the color.", e);
+					ex.setValueText(cssColor.getCssText());
+					throw ex;
+				}
+			}
+		}
+
+		int argb = AWTHelper.getARGB(cssColor);
+		if (targetKind == TARGET_SRGB) {
+			return AWTHelper.getAWTColor(argb);
+		}
+		double[] rgb = { ((argb >> 16) & 0xff) / 255d, ((argb >> 8) & 0xff) / 255d,
+				(argb & 0xff) / 255d };
+		ColorKey key = new ColorKey("srgb", rgb, (argb >>> 24) / 255f);
+		return cache.computeIfAbsent(key, k -> convert(null, k.space, k.components, k.alpha));
+	}
+
+	/**
+	 * Gets the AWT color, in the target color space, for the given components in
+	 * a CSS color space.
+	 *
+	 * @param cssColorSpace the name of the CSS color space, like
+	 *                      <code>display-p3</code> or <code>oklch</code>.
+	 * @param components    the color components, as given in the color function.
+	 * @param alpha         the alpha channel, in the [0,1] interval.
+	 * @return the AWT color object.
+	 * @throws IllegalArgumentException if the CSS color space is not supported.
+	 */
+	public Color getAWTColor(String cssColorSpace, double[] components, float alpha) {
+		ColorKey key = new ColorKey(cssColorSpace, components.clone(), alpha);
+		return cache.computeIfAbsent(key, k -> convert(null, k.space, k.components, k.alpha));
+	}
+
+	/**
+	 * Discard the cached colors.
+	 */
+	public void clearCache() {
+		cache.clear();
+	}
+
+	private Color convert(CSSColor color, String space, double[] components, float alpha) {
+		long start = AWTTelemetry.start();
+		Color converted = convertToTarget(color, space, components, alpha);
+		AWTTelemetry.colorConverted(start);
+		return converted;
+	}
+
+	private Color convertToTarget(CSSColor color, String space, double[] components,
+			float alpha) {
+		double[] xyz = toXYZD50(color, space, components);
+		switch (targetKind) {
+		case TARGET_SRGB:
+			double[] rgb = transform(D50_TO_SRGB, xyz);
+			return new Color(clip(Transfer.SRGB.encode(rgb[0])), clip(Transfer.SRGB.encode(rgb[1])),
+					clip(Transfer.SRGB.encode(rgb[2])), alpha);
+		case TARGET_LINEAR_RGB:
+			double[] lin = transform(D50_TO_SRGB, xyz);
+			float[] comp = { clip(lin[0]), clip(lin[1]), clip(lin[2]) };
+			return new Color(colorSpace, comp, alpha);
+		default:
+			float[] fxyz = { (float) Math.max(0d, xyz[0]), (float) Math.max(0d, xyz[1]),
+					(float) Math.max(0d, xyz[2]) };
+			float[] target = colorSpace.fromCIEXYZ(fxyz);
+			for (int i = 0; i < target.length; i++) {
+				target[i] = Math.max(colorSpace.getMinValue(i),
+						Math.min(colorSpace.getMaxValue(i), target[i]));
+			}
+			return new Color(colorSpace, target, alpha);
+		}
+	}
+
+	/*
+	 * Missing components (NaN) are taken as zero.
+	 */
+	private static double[] toXYZD50(CSSColor color, String space, double[] components) {
+		double c0 = component(components, 0);
+		double c1 = component(components, 1);
+		double c2 = component(components, 2);
+		switch (space) {
+		case "srgb":
+			return transform(SRGB_TO_D50, Transfer.SRGB.decode(c0), Transfer.SRGB.decode(c1),
+					Transfer.SRGB.decode(c2));
+		case "srgb-linear":
+			return transform(SRGB_TO_D50, c0, c1, c2);
+		case "display-p3":
+			return transform(P3_TO_D50, Transfer.SRGB.decode(c0), Transfer.SRGB.decode(c1),
+					Transfer.SRGB.decode(c2));
+		case "a98-rgb":
+			return transform(A98_TO_D50, Transfer.A98.decode(c0), Transfer.A98.decode(c1),
+					Transfer.A98.decode(c2));
+		case "rec2020":
+			return transform(REC2020_TO_D50, Transfer.REC2020.decode(c0),
+					Transfer.REC2020.decode(c1), Transfer.REC2020.decode(c2));
+		case "prophoto-rgb":
+			return transform(PROPHOTO_TO_D50, Transfer.PROPHOTO.decode(c0),
+					Transfer.PROPHOTO.decode(c1), Transfer.PROPHOTO.decode(c2));
+		case "xyz":
+		case "xyz-d65":
+			return transform(D65_TO_D50, c0, c1, c2);
+		case "xyz-d50":
+			return new double[] { c0, c1, c2 };
+		case "lab":
+			return labToXYZ(c0, c1, c2);
+		case "lch":
+			double hue = Math.toRadians(c2);
+			return labToXYZ(c0, c1 * Math.cos(hue), c1 * Math.sin(hue));
+		case "oklab":
+			return oklabToXYZ(c0, c1, c2);
+		case "oklch":
+			double okhue = Math.toRadians(c2);
+			return oklabToXYZ(c0, c1 * Math.cos(okhue), c1 * Math.sin(okhue));
+		default:
+			if (color == null) {
+				throw new IllegalArgumentException("Unsupported color space: " + space);
+			}
+			double[] xyz = color.toColorSpace("xyz-d50").toNumberArray();
+			return new double[] { component(xyz, 0), component(xyz, 1), component(xyz, 2) };
+		}
+	}
+
+	private static double component(double[] components, int index) {
+		double c = components[index];
+		return Double.isNaN(c) ? 0d : c;
+	}
+
+	private static double[] labToXYZ(double l, double a, double b) {
+		final double kappa = 24389d / 27;
+		final double epsilon = 216d / 24389;
+		double f1 = (l + 16d) / 116d;
+		double f0 = a / 500d + f1;
+		double f2 = f1 - b / 200d;
+		double f03 = f0 * f0 * f0;
+		double f23 = f2 * f2 * f2;
+		double x = f03 > epsilon ? f03 : (116d * f0 - 16d) / kappa;
+		double y = l > kappa * epsilon ? f1 * f1 * f1 : l / kappa;
+		double z = f23 > epsilon ? f23 : (116d * f2 - 16d) / kappa;
+		return new double[] { x * D50_WHITE[0], y * D50_WHITE[1], z * D50_WHITE[2] };
+	}
+
+	private static double[] oklabToXYZ(double l, double a, double b) {
+		double[] lms = transform(OKLAB_TO_LMS, l, a, b);
+		for (int i = 0; i < 3; i++) {
+			double c = lms[i];
+			lms[i] = c * c * c;
+		}
+		return transform(LMS_TO_D50, lms);
+	}
+
+	private static double[] transform(double[] m, double[] v) {
+		return transform(m, v[0], v[1], v[2]);
+	}
+
+	private static double[] transform(double[] m, double v0, double v1, double v2) {
+		return new double[] { m[0] * v0 + m[1] * v1 + m[2] * v2,
+				m[3] * v0 + m[4] * v1 + m[5] * v2, m[6] * v0 + m[7] * v1 + m[8] * v2 };
+	}
+
+	private static double[] multiply(double[] a, double[] b) {
+		double[] m = new double[9];
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				m[i * 3 + j] = a[i * 3] * b[j] + a[i * 3 + 1] * b[3 + j] + a[i * 3 + 2] * b[6 + j];
+			}
+		}
+		return m;
+	}
+
+	private static float clip(double comp) {
+		return (float) Math.max(0d, Math.min(1d, comp));
+	}
+
+	/**
+	 * Transfer functions, with lookup tables for the [0,1] interval. Values
+	 * outside the interval (extended ranges) are computed exactly, mirrored for
+	 * negative values.
+	 */
+	private enum Transfer {
+
+		SRGB(c -> c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4),
+				l -> l <= 0.0031308 ? 12.92 * l : 1.055 * Math.pow(l, 1d / 2.4) - 0.055),
+
+		A98(c -> Math.pow(c, 563d / 256), null),
+
+		PROPHOTO(c -> c <= 16d / 512 ? c / 16d : Math.pow(c, 1.8), null),
+
+		REC2020(c -> c < 0.018053968510807 * 4.5 ? c / 4.5
+				: Math.pow((c + 0.09929682680944) / 1.09929682680944, 1d / 0.45), null);
+
+		private static final int LUT_SIZE = 4096;
+
+		private final DoubleUnaryOperator decodeFunction;
+
+		private final DoubleUnaryOperator encodeFunction;
+
+		private final double[] decodeTable;
+
+		private final double[] encodeTable;
+
+		Transfer(DoubleUnaryOperator decode, DoubleUnaryOperator encode) {
+			this.decodeFunction = decode;
+			this.encodeFunction = encode;
+			decodeTable = table(decode);
+			encodeTable = encode != null ? table(encode) : null;
+		}
+
+		private static double[] table(DoubleUnaryOperator function) {
+			double[] table = new double[LUT_SIZE + 1];
+			for (int i = 0; i <= LUT_SIZE; i++) {
+				table[i] = function.applyAsDouble((double) i / LUT_SIZE);
+			}
+			return table;
+		}
+
+		double decode(double c) {
+			return apply(decodeTable, decodeFunction, c);
+		}
+
+		double encode(double l) {
+			return apply(encodeTable, encodeFunction, l);
+		}
+
+		private static double apply(double[] table, DoubleUnaryOperator function, double v) {
+			if (v >= 0d && v <= 1d) {
+				double pos = v * LUT_SIZE;
+				int idx = (int) pos;
+				if (idx == LUT_SIZE) {
+					return table[LUT_SIZE];
+				}
+				double frac = pos - idx;
+				return table[idx] + frac * (table[idx + 1] - table[idx]);
+			}
+			double abs = Math.abs(v);
+			return Math.copySign(function.applyAsDouble(abs), v);
+		}
+
+	}
+
+	private static class ColorKey {
+
+		final String space;
+		final double[] components;
+		final float alpha;
+
+		ColorKey(String space, double[] components, float alpha) {
+			super();
+			this.space = space;
+			this.components = components;
+			this.alpha = alpha;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = 31 * space.hashCode() + Arrays.hashCode(components);
+			return 31 * result + Float.floatToIntBits(alpha);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof ColorKey)) {
+				return false;
+			}
+			ColorKey other = (ColorKey) obj;
+			return space.equals(other.space) && Float.floatToIntBits(alpha) == Float
+					.floatToIntBits(other.alpha) && Arrays.equals(components, other.components);
+		}
+
+	}
+
+}
@@ -0,0 +1,376 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.Font;
+import java.awt.font.TextAttribute;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, thread-safe cache of AWT {@link Font} instances.
+ * <p>
+ * Fonts are keyed by family name, style, rounded size, text attribute flags and
+ * tracking, so that identical computed styles share the same {@code Font}
+ * object.
+ * </p>
+ *
+ * @author Carlos Amengual
+ *
+ */
+public class FontCache {
+
+	/**
+	 * The default maximum number of cached fonts.
+	 */
+	public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+	/**
+	 * Attribute flag for underlined text.
+	 */
+	public static final int DECORATION_UNDERLINE = 1;
+
+	/**
+	 * Attribute flag for line-through text.
+	 */
+	public static final int DECORATION_LINE_THROUGH = 2;
+
+	/**
+	 * Attribute flag for pair kerning.
+	 */
+	public static final int KERNING = 4;
+
+	/**
+	 * Attribute flag for standard ligatures.
+	 */
+	public static final int LIGATURES = 8;
+
+	private static final int WEIGHT_SHIFT = 4;
+
+	private static final int WIDTH_SHIFT = 8;
+
+	private static final int ATTRIBUTE_MASK = 0xfff;
+
+	/*
+	 * TextAttribute.WEIGHT values for CSS weights 100 to 900.
+	 */
+	private static final Float[] WEIGHTS = { TextAttribute.WEIGHT_EXTRA_LIGHT,
+			TextAttribute.WEIGHT_LIGHT, TextAttribute.WEIGHT_DEMILIGHT, TextAttribute.WEIGHT_REGULAR,
+			TextAttribute.WEIGHT_MEDIUM, TextAttribute.WEIGHT_DEMIBOLD, TextAttribute.WEIGHT_BOLD,
+			TextAttribute.WEIGHT_EXTRABOLD, TextAttribute.WEIGHT_ULTRABOLD };
+
+	/*
+	 * font-stretch percentages of the CSS keywords, from ultra-condensed to
+	 * ultra-expanded.
+	 */
+	private static final float[] STRETCH_PERCENTAGES = { 50f, 62.5f, 75f, 87.5f, 100f, 112.5f,
+			125f, 150f, 200f };
+
+	/*
+	 * Shared, immutable attribute maps for the attribute flags, without tracking.
+	 */
+	private static final AtomicReferenceArray<Map<TextAttribute, Object>> attributeMaps = new AtomicReferenceArray<>(
+			ATTRIBUTE_MASK + 1);
+
+	private final BoundedCache<FontKey, Font> cache;
+
+	/**
+	 * Construct a font cache with the default maximum size.
+	 */
+	public FontCache() {
+		this(DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * Construct a font cache with the given maximum size.
+	 *
+	 * @param maximumSize the maximum number of cached fonts. If zero, fonts are not
+	 *                    cached.
+	 */
+	public FontCache(int maximumSize) {
+		super();
+		cache = new BoundedCache<>(maximumSize);
+	}
+
+	/**
+	 * Get the attribute flags for the given CSS font weight.
+	 * 
+	 * @param cssWeight the numeric font weight, from 1 to 1000.
+	 * @return the weight flags, or zero if the weight is the regular (400) or bold
+	 *         (700) weight, which are represented by the font style.
+	 */
+	public static int weightAttribute(float cssWeight) {
+		int idx = Math.max(1, Math.min(9, Math.round(cssWeight * 0.01f)));
+		if (idx == 4 || idx == 7) {
+			return 0;
+		}
+		return idx << WEIGHT_SHIFT;
+	}
+
+	/**
+	 * Get the attribute flags for the given CSS font stretch.
+	 * 
+	 * @param percentage the font stretch as a percentage.
+	 * @return the width flags, or zero if the stretch is normal.
+	 */
+	public static int stretchAttribute(float percentage) {
+		int idx = 0;
+		float diff = Float.MAX_VALUE;
+		for (int i = 0; i < STRETCH_PERCENTAGES.length; i++) {
+			float d = Math.abs(percentage - STRETCH_PERCENTAGES[i]);
+			if (d < diff) {
+				diff = d;
+				idx = i;
+			}
+		}
+		if (idx == 4) {
+			return 0;
+		}
+		return (idx + 1) << WIDTH_SHIFT;
+	}
+
+	/**
+	 * Get a font with the given characteristics, creating it if it is not in the
+	 * cache.
+	 *
+	 * @param family     the font family name.
+	 * @param style      the style, as in {@link Font#getStyle()}.
+	 * @param size       the font size, which is rounded to the nearest integer.
+	 * @param attributes the attribute flags, as in
+	 *                   {@link #getFont(String, int, float, int, float)}.
+	 * @return the font.
+	 */
+	public Font getFont(String family, int style, float size, int attributes) {
+		return getFont(family, style, size, attributes, 0f);
+	}
+
+	/**
+	 * Get a font with the given characteristics, creating it if it is not in the
+	 * cache.
+	 *
+	 * @param family     the font family name.
+	 * @param style      the style, as in {@link Font#getStyle()}.
+	 * @param size       the font size, which is rounded to the nearest integer.
+	 * @param attributes the attribute flags: a combination of
+	 *                   {@link #DECORATION_UNDERLINE},
+	 *                   {@link #DECORATION_LINE_THROUGH}, {@link #KERNING},
+	 *                   {@link #LIGATURES} and the values returned by
+	 *                   {@link #weightAttribute(float)} and
+	 *                   {@link #stretchAttribute(float)}.
+	 * @param tracking   the tracking, as a fraction of the font size. It is rounded
+	 *                   to thousandths.
+	 * @return the font.
+	 */
+	public Font getFont(String family, int style, float size, int attributes, float tracking) {
+		FontKey key = new FontKey(family, style, Math.round(size), attributes & ATTRIBUTE_MASK,
+				Math.round(tracking * 1000f));
+		return cache.computeIfAbsent(key, k -> createFont(k.family, k.style, k.size,
+				k.attributes, k.tracking * 0.001f));
+	}
+
+	/**
+	 * Create a new font with the given characteristics.
+	 * <p>
+	 * Subclasses may override this to provide fonts from other sources.
+	 * </p>
+	 *
+	 * @param family     the font family name.
+	 * @param style      the style, as in {@link Font#getStyle()}.
+	 * @param size       the font size.
+	 * @param attributes the attribute flags.
+	 * @param tracking   the tracking, as a fraction of the font size.
+	 * @return the new font.
+	 */
+	protected Font createFont(String family, int style, int size, int attributes,
+			float tracking) {
+		return applyAttributes(new Font(family, style, size), attributes, tracking);
+	}
+
+	/**
+	 * Apply the given attribute flags and tracking to a font.
+	 *
+	 * @param font       the font.
+	 * @param attributes the attribute flags.
+	 * @param tracking   the tracking, as a fraction of the font size.
+	 * @return the derived font, or the same font if no attribute was requested.
+	 */
+	protected static Font applyAttributes(Font font, int attributes, float tracking) {
+		Map<TextAttribute, Object> attrMap = textAttributes(attributes, tracking);
+		if (attrMap.isEmpty()) {
+			return font;
+		}
+		return font.deriveFont(attrMap);
+	}
+
+	/**
+	 * Get the text attributes that correspond to the given attribute flags and
+	 * tracking.
+	 * <p>
+	 * If there is no tracking, the returned map is shared and immutable.
+	 * </p>
+	 *
+	 * @param attributes the attribute flags.
+	 * @param tracking   the tracking, as a fraction of the font size.
+	 * @return the text attributes.
+	 */
+	static Map<TextAttribute, Object> textAttributes(int attributes, float tracking) {
+		attributes &= ATTRIBUTE_MASK;
+		if (tracking != 0f) {
+			Map<TextAttribute, Object> attrMap = createAttributeMap(attributes);
+			attrMap.put(TextAttribute.TRACKING, tracking);
+			return attrMap;
+		}
+		Map<TextAttribute, Object> attrMap = attributeMaps.get(attributes);
+		if (attrMap == null) {
+			Map<TextAttribute, Object> map = createAttributeMap(attributes);
+			attrMap = map.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(map);
+			attributeMaps.set(attributes, attrMap);
+		}
+		return attrMap;
+	}
+
+	private static Map<TextAttribute, Object> createAttributeMap(int attributes) {
+		Map<TextAttribute, Object> attrMap = new HashMap<>(8);
+		if ((attributes & DECORATION_UNDERLINE) != 0) {
+			attrMap.put(TextAttribute.UNDERLINE, TextAttribute.UNDERLINE_ON);
+		}
+		if ((attributes & DECORATION_LINE_THROUGH) != 0) {
+			attrMap.put(TextAttribute.STRIKETHROUGH, TextAttribute.STRIKETHROUGH_ON);
+		}
+		if ((attributes & KERNING) != 0) {
+			attrMap.put(TextAttribute.KERNING, TextAttribute.KERNING_ON);
+		}
+		if ((attributes & LIGATURES) != 0) {
+			attrMap.put(TextAttribute.LIGATURES, TextAttribute.LIGATURES_ON);
+		}
+		int weightIdx = (attributes >> WEIGHT_SHIFT) & 0xf;
+		if (weightIdx != 0) {
+			attrMap.put(TextAttribute.WEIGHT, WEIGHTS[weightIdx - 1]);
+		}
+		int widthIdx = (attributes >> WIDTH_SHIFT) & 0xf;
+		if (widthIdx != 0) {
+			attrMap.put(TextAttribute.WIDTH, STRETCH_PERCENTAGES[widthIdx - 1] * 0.01f);
+		}
+		return attrMap;
+	}
+
+	/**
+	 * Get the number of requests that were served from the cache.
+	 *
+	 * @return the hit count.
+	 */
+	public long getHitCount() {
+		return cache.getHitCount();
+	}
+
+	/**
+	 * Get the number of requests that required the creation of a font.
+	 *
+	 * @return the miss count.
+	 */
+	public long getMissCount() {
+		return cache.getMissCount();
+	}
+
+	/**
+	 * Get the number of fonts currently in the cache.
+	 *
+	 * @return the number of cached fonts.
+	 */
+	public int size() {
+		return cache.size();
+	}
+
+	/**
+	 * Get the maximum number of cached fonts.
+	 *
+	 * @return the maximum size.
+	 */
+	public int getMaximumSize() {
+		return (int) cache.getMaximumSize();
+	}
+
+	/**
+	 * Set the maximum number of cached fonts.
+	 *
+	 * @param maximumSize the maximum size. If zero, fonts are not cached.
+	 */
+	public void setMaximumSize(int maximumSize) {
+		cache.setMaximumSize(maximumSize);
+	}
+
+	/**
+	 * Remove all the fonts from the cache.
+	 * <p>
+	 * The hit/miss counters are kept, as the cache is cleared whenever the
+	 * available fonts change. Use {@link #resetStatistics()} to reset them.
+	 * </p>
+	 */
+	public void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * Reset the hit/miss counters.
+	 */
+	public void resetStatistics() {
+		cache.resetStatistics();
+	}
+
+	private static class FontKey {
+
+		private final String family;
+		private final int style;
+		private final int size;
+		private final int attributes;
+		private final int tracking;
+		private final int hash;
+
+		FontKey(String family, int style, int size, int attributes, int tracking) {
+			super();
+			this.family = family;
+			this.style = style;
+			this.size = size;
+			this.attributes = attributes;
+			this.tracking = tracking;
+			int h = family != null ? family.hashCode() : 0;
+			h = 31 * h + style;
+			h = 31 * h + size;
+			h = 31 * h + attributes;
+			h = 31 * h + tracking;
+			hash = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof FontKey)) {
+				return false;
+			}
+			FontKey other = (FontKey) obj;
+			return style == other.style && size == other.size && attributes == other.attributes
+					&& tracking == other.tracking && Objects.equals(family, other.family);
+		}
+
+	}
+
+}
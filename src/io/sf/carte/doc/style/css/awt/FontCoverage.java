@@ -0,0 +1,107 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.Font;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntPredicate;
+
+/**
+ * The set of code points that a font can display, as a bitset.
+ * <p>
+ * The bitset is divided in pages of 256 code points, which are computed the
+ * first time that a code point in them is checked. Pages that are empty or
+ * full are shared.
+ * </p>
+ */
+class FontCoverage {
+
+	private static final int PAGE_SHIFT = 8;
+
+	private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+	private static final int PAGE_COUNT = (Character.MAX_CODE_POINT + 1) >> PAGE_SHIFT;
+
+	private static final long[] EMPTY_PAGE = new long[PAGE_SIZE >> 6];
+
+	private static final long[] FULL_PAGE = { -1L, -1L, -1L, -1L };
+
+	private final Font font;
+
+	/*
+	 * Tells whether the font may have glyphs in the page of a code point, or
+	 * null.
+	 */
+	private final IntPredicate pageFilter;
+
+	private final AtomicReferenceArray<long[]> pages = new AtomicReferenceArray<>(PAGE_COUNT);
+
+	FontCoverage(Font font) {
+		this(font, null);
+	}
+
+	/**
+	 * Construct the coverage of a font whose pages are known in advance.
+	 * 
+	 * @param font       the font.
+	 * @param pageFilter a predicate that is {@code false} for the code points
+	 *                   whose page has no glyphs in the font, so it does not have
+	 *                   to be probed.
+	 */
+	FontCoverage(Font font, IntPredicate pageFilter) {
+		super();
+		this.font = font;
+		this.pageFilter = pageFilter;
+	}
+
+	/**
+	 * Check whether the font can display the given code point.
+	 *
+	 * @param codePoint the code point.
+	 * @return {@code true} if the font has a glyph for the code point.
+	 */
+	boolean canDisplay(int codePoint) {
+		if (codePoint < 0 || codePoint > Character.MAX_CODE_POINT) {
+			return false;
+		}
+		int index = codePoint >> PAGE_SHIFT;
+		long[] page = pages.get(index);
+		if (page == null) {
+			page = computePage(index);
+			pages.set(index, page);
+		}
+		return (page[(codePoint >> 6) & 3] & (1L << codePoint)) != 0;
+	}
+
+	private long[] computePage(int index) {
+		int base = index << PAGE_SHIFT;
+		if ((base >= Character.MIN_SURROGATE && base <= Character.MAX_SURROGATE)
+				|| (pageFilter != null && !pageFilter.test(base))) {
+			return EMPTY_PAGE;
+		}
+		long[] page = new long[PAGE_SIZE >> 6];
+		boolean empty = true, full = true;
+		for (int i = 0; i < PAGE_SIZE; i++) {
+			if (font.canDisplay(base + i)) {
+				page[i >> 6] |= 1L << i;
+				empty = false;
+			} else {
+				full = false;
+			}
+		}
+		if (empty) {
+			return EMPTY_PAGE;
+		}
+		return full ? FULL_PAGE : page;
+	}
+
+}
@@ -0,0 +1,311 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The decoded data of {@literal @}font-face fonts, for the serialized form of
+ * {@link AWTStyleDatabase}.
+ * <p>
+ * Entries are indexed by family name and by a hash of the source key of the
+ * rule that loaded them, so that a deserialized database can rebuild a font
+ * when the family is requested, or when a rule with the same source is loaded,
+ * without fetching it again.
+ * </p>
+ * <p>
+ * In the serialized form, identical font data is written once, compressed.
+ * </p>
+ */
+class FontFaceArchive {
+
+	/*
+	 * Limits to the data that is read, to protect from corrupt streams.
+	 */
+	private static final int MAXIMUM_FONT_COUNT = 4096;
+
+	private static final int MAXIMUM_FONT_SIZE = 64 * 1024 * 1024;
+
+	private static final long MAXIMUM_TOTAL_SIZE = 512L * 1024 * 1024;
+
+	/*
+	 * The maximum ratio of the deflate format, used to reject lengths that the
+	 * compressed data cannot produce.
+	 */
+	private static final int MAXIMUM_DEFLATE_RATIO = 1032;
+
+	private final ConcurrentHashMap<String, Entry> byFamily = new ConcurrentHashMap<>();
+
+	private final ConcurrentHashMap<String, Entry> bySource = new ConcurrentHashMap<>();
+
+	FontFaceArchive() {
+		super();
+	}
+
+	/**
+	 * Add the data of a font.
+	 *
+	 * @param lcFamily  the family name in lowercase.
+	 * @param sourceKey the source key of the rule that loaded the font.
+	 * @param data      the font data, in a format accepted by
+	 *                  {@link Font#createFont(int, InputStream)}.
+	 */
+	void put(String lcFamily, String sourceKey, byte[] data) {
+		add(new Entry(lcFamily, sourceHash(sourceKey), data));
+	}
+
+	private void add(Entry entry) {
+		byFamily.put(entry.lcFamily, entry);
+		bySource.put(entry.sourceHash, entry);
+	}
+
+	/**
+	 * Remove the data of a family, when its font is no longer used.
+	 *
+	 * @param lcFamily the family name in lowercase.
+	 */
+	void remove(String lcFamily) {
+		Entry entry = byFamily.remove(lcFamily);
+		if (entry != null) {
+			bySource.remove(entry.sourceHash, entry);
+		}
+	}
+
+	Entry getByFamily(String lcFamily) {
+		return byFamily.get(lcFamily);
+	}
+
+	Entry getBySource(String sourceKey) {
+		return bySource.get(sourceHash(sourceKey));
+	}
+
+	boolean containsFamily(String lcFamily) {
+		return byFamily.containsKey(lcFamily);
+	}
+
+	Collection<Entry> entries() {
+		return byFamily.values();
+	}
+
+	/**
+	 * Create an entry that is not added to this archive.
+	 */
+	static Entry entry(String lcFamily, String sourceKey, byte[] data) {
+		return new Entry(lcFamily, sourceHash(sourceKey), data);
+	}
+
+	/**
+	 * Write the given entries, with the font data deduplicated by content hash.
+	 *
+	 * @param out     the output.
+	 * @param entries the entries.
+	 * @throws IOException if an I/O error occurred.
+	 */
+	static void write(DataOutput out, Collection<Entry> entries) throws IOException {
+		Map<String, Integer> blobIndex = new HashMap<>(entries.size());
+		List<byte[]> blobs = new ArrayList<>(entries.size());
+		int[] indexes = new int[entries.size()];
+		int i = 0;
+		for (Entry entry : entries) {
+			Integer index = blobIndex.get(entry.contentHash());
+			if (index == null) {
+				index = blobs.size();
+				blobIndex.put(entry.contentHash(), index);
+				blobs.add(entry.data);
+			}
+			indexes[i++] = index;
+		}
+		Deflater deflater = new Deflater();
+		try {
+			out.writeInt(blobs.size());
+			for (byte[] blob : blobs) {
+				byte[] compressed = deflate(deflater, blob);
+				out.writeInt(blob.length);
+				out.writeInt(compressed.length);
+				out.write(compressed);
+			}
+		} finally {
+			deflater.end();
+		}
+		out.writeInt(entries.size());
+		i = 0;
+		for (Entry entry : entries) {
+			out.writeUTF(entry.lcFamily);
+			out.writeUTF(entry.sourceHash);
+			out.writeInt(indexes[i++]);
+		}
+	}
+
+	/**
+	 * Read the entries written by {@link #write(DataOutput, Collection)}.
+	 *
+	 * @param in the input.
+	 * @return the archive.
+	 * @throws IOException if an I/O error occurred or the data is corrupt.
+	 */
+	static FontFaceArchive read(DataInput in) throws IOException {
+		int count = readCount(in);
+		byte[][] blobs = new byte[count][];
+		long total = 0;
+		Inflater inflater = new Inflater();
+		try {
+			for (int i = 0; i < count; i++) {
+				int length = in.readInt();
+				int compressedLength = in.readInt();
+				if (length < 0 || length > MAXIMUM_FONT_SIZE || compressedLength < 0
+						|| compressedLength > length + (length >> 10) + 64
+						|| length > compressedLength * (long) MAXIMUM_DEFLATE_RATIO + 64) {
+					throw new InvalidObjectException("Invalid font data length.");
+				}
+				total += length;
+				if (total > MAXIMUM_TOTAL_SIZE) {
+					throw new InvalidObjectException("Font data too large.");
+				}
+				byte[] compressed = new byte[compressedLength];
+				in.readFully(compressed);
+				blobs[i] = inflate(inflater, compressed, length);
+			}
+		} finally {
+			inflater.end();
+		}
+		FontFaceArchive archive = new FontFaceArchive();
+		count = readCount(in);
+		for (int i = 0; i < count; i++) {
+			String lcFamily = in.readUTF();
+			String sourceHash = in.readUTF();
+			int index = in.readInt();
+			if (index < 0 || index >= blobs.length) {
+				throw new InvalidObjectException("Invalid font data index.");
+			}
+			archive.add(new Entry(lcFamily, sourceHash, blobs[index]));
+		}
+		return archive;
+	}
+
+	private static int readCount(DataInput in) throws IOException {
+		int count = in.readInt();
+		if (count < 0 || count > MAXIMUM_FONT_COUNT) {
+			throw new InvalidObjectException("Invalid font count.");
+		}
+		return count;
+	}
+
+	private static byte[] deflate(Deflater deflater, byte[] data) {
+		deflater.reset();
+		deflater.setInput(data);
+		deflater.finish();
+		ByteArrayOutputStream buf = new ByteArrayOutputStream(data.length / 2 + 64);
+		byte[] chunk = new byte[8192];
+		while (!deflater.finished()) {
+			int n = deflater.deflate(chunk);
+			buf.write(chunk, 0, n);
+		}
+		return buf.toByteArray();
+	}
+
+	private static byte[] inflate(Inflater inflater, byte[] compressed, int length)
+			throws IOException {
+		inflater.reset();
+		inflater.setInput(compressed);
+		byte[] data = new byte[length];
+		int off = 0;
+		try {
+			while (off < length && !inflater.finished()) {
+				int n = inflater.inflate(data, off, length - off);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				off += n;
+			}
+		} catch (DataFormatException e) {
+			throw new InvalidObjectException("Corrupt font data: " + e.getMessage());
+		}
+		if (off != length) {
+			throw new InvalidObjectException("Truncated font data.");
+		}
+		return data;
+	}
+
+	static String sourceHash(String sourceKey) {
+		return hexHash(sourceKey.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String hexHash(byte[] data) {
+		return FontFaceDiskCache.toHex(FontFaceDiskCache.sha256().digest(data));
+	}
+
+	/**
+	 * Read a stream until its end.
+	 *
+	 * @param is the stream.
+	 * @return the bytes.
+	 * @throws IOException if an I/O error occurred.
+	 */
+	static byte[] readAllBytes(InputStream is) throws IOException {
+		ByteArrayOutputStream buf = new ByteArrayOutputStream(65536);
+		byte[] chunk = new byte[8192];
+		int n;
+		while ((n = is.read(chunk)) != -1) {
+			buf.write(chunk, 0, n);
+		}
+		return buf.toByteArray();
+	}
+
+	static class Entry {
+
+		final String lcFamily;
+
+		final String sourceHash;
+
+		final byte[] data;
+
+		private String contentHash = null;
+
+		Entry(String lcFamily, String sourceHash, byte[] data) {
+			super();
+			this.lcFamily = lcFamily;
+			this.sourceHash = sourceHash;
+			this.data = data;
+		}
+
+		String contentHash() {
+			if (contentHash == null) {
+				contentHash = hexHash(data);
+			}
+			return contentHash;
+		}
+
+		Font createFont() throws FontFormatException, IOException {
+			return Font.createFont(Font.TRUETYPE_FONT, new ByteArrayInputStream(data));
+		}
+
+	}
+
+}
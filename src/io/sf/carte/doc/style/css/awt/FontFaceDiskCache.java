@@ -0,0 +1,545 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent, content-addressed cache of {@literal @}font-face font files.
+ * <p>
+ * Font data is stored in files named after the SHA-256 hash of their content,
+ * and small index files map each font source to the hash of its content, so a
+ * cached font is neither fetched nor decoded again.
+ * </p>
+ * <p>
+ * The cache directory can be shared by several processes: files are written to
+ * temporary files and then atomically renamed, and eviction and clearing are
+ * serialized with a file lock. When the total size of the cached fonts exceeds
+ * the maximum size, the least recently used fonts are deleted, together with
+ * the index files that point to them.
+ * </p>
+ * <p>
+ * Fonts are created from the cached files without copying their data, but the
+ * Java runtime may close a font file and open it again while the font is in
+ * use, so the file must not be deleted meanwhile. Each cache object creates the
+ * fonts from hard links to the cached files, in a link directory of its own,
+ * so that any process can delete the cached files. The links are deleted once
+ * their fonts are garbage collected, and the link directory of a process that
+ * ended is deleted by the next eviction in another process. If the file system
+ * does not support hard links, the cached file is copied instead.
+ * </p>
+ *
+ * @author Carlos Amengual
+ *
+ */
+public class FontFaceDiskCache {
+
+	private static final String FONT_SUFFIX = ".font";
+
+	private static final String INDEX_SUFFIX = ".src";
+
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private static final String LOCK_FILENAME = "cache.lock";
+
+	private static final String LINK_DIRECTORY = "links";
+
+	private static final String LINK_SUFFIX = ".link";
+
+	private static final String OWNER_LOCK_FILENAME = "owner.lock";
+
+	/*
+	 * Temporary files older than this are considered abandoned.
+	 */
+	private static final long STALE_TEMP_MILLIS = 3600000L;
+
+	private final Path directory;
+
+	private volatile long maximumSize;
+
+	/*
+	 * The directory of the font links of this object, and the lock that tells
+	 * other processes that it is in use.
+	 */
+	private volatile Path linkDirectory = null;
+
+	private FileChannel linkDirectoryLock = null;
+
+	private final AtomicLong linkCounter = new AtomicLong();
+
+	/*
+	 * The links whose fonts may still be in use, and the queue where the
+	 * collected fonts are notified.
+	 */
+	private final Set<FontLink> fontLinks = ConcurrentHashMap.newKeySet();
+
+	private final ReferenceQueue<Font> collectedFonts = new ReferenceQueue<>();
+
+	/**
+	 * Construct a disk cache in the given directory.
+	 *
+	 * @param directory   the cache directory. It is created if it does not exist.
+	 * @param maximumSize the maximum total size of the cached fonts, in bytes.
+	 * @throws IOException if the directory could not be created.
+	 */
+	public FontFaceDiskCache(Path directory, long maximumSize) throws IOException {
+		super();
+		this.directory = directory;
+		this.maximumSize = maximumSize;
+		Files.createDirectories(directory);
+	}
+
+	/**
+	 * Get the cache directory.
+	 *
+	 * @return the cache directory.
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Get the maximum total size of the cached fonts.
+	 *
+	 * @return the maximum size, in bytes.
+	 */
+	public long getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Set the maximum total size of the cached fonts.
+	 * <p>
+	 * The new size is enforced the next time that a font is stored.
+	 * </p>
+	 *
+	 * @param maximumSize the maximum size, in bytes.
+	 */
+	public void setMaximumSize(long maximumSize) {
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Get the cached font for the given source.
+	 *
+	 * @param sourceKey the key that identifies the font source.
+	 * @return the font, or {@code null} if the source is not in the cache.
+	 */
+	public Font getFont(String sourceKey) {
+		Path fontFile = getFontFile(sourceKey);
+		if (fontFile == null) {
+			return null;
+		}
+		try {
+			Font font = createFont(fontFile);
+			touch(fontFile);
+			return font;
+		} catch (FontFormatException e) {
+			// Corrupt entry
+			deleteQuietly(fontFile);
+		} catch (IOException e) {
+			// Evicted by another process, or unreadable: a cache miss
+		}
+		return null;
+	}
+
+	/**
+	 * Get the cached font file for the given source.
+	 *
+	 * @param sourceKey the key that identifies the font source.
+	 * @return the path to the font file, or {@code null} if the source is not in
+	 *         the cache.
+	 */
+	Path getFontFile(String sourceKey) {
+		String hash;
+		try {
+			hash = new String(Files.readAllBytes(indexFile(sourceKey)), StandardCharsets.US_ASCII);
+		} catch (IOException e) {
+			return null;
+		}
+		Path fontFile = directory.resolve(hash + FONT_SUFFIX);
+		return Files.isRegularFile(fontFile) ? fontFile : null;
+	}
+
+	/**
+	 * Read a font from the given stream, store it in the cache and create the
+	 * font.
+	 *
+	 * @param sourceKey the key that identifies the font source.
+	 * @param is        the stream with the font data.
+	 * @return the font.
+	 * @throws IOException         if an I/O error occurred.
+	 * @throws FontFormatException if the data is not a valid font.
+	 */
+	public Font store(String sourceKey, InputStream is) throws IOException, FontFormatException {
+		Path tmp = Files.createTempFile(directory, "font", TEMP_SUFFIX);
+		Path fontFile;
+		try {
+			MessageDigest digest = sha256();
+			try (OutputStream os = new DigestOutputStream(Files.newOutputStream(tmp), digest)) {
+				byte[] buf = new byte[8192];
+				int len;
+				while ((len = is.read(buf)) != -1) {
+					os.write(buf, 0, len);
+				}
+			}
+			String hash = toHex(digest.digest());
+			// Validate before the data enters the cache
+			Font font = createFont(tmp);
+			fontFile = directory.resolve(hash + FONT_SUFFIX);
+			moveIntoPlace(tmp, fontFile);
+			Path indexTmp = Files.createTempFile(directory, "index", TEMP_SUFFIX);
+			Files.write(indexTmp, hash.getBytes(StandardCharsets.US_ASCII));
+			moveIntoPlace(indexTmp, indexFile(sourceKey));
+			evict();
+			return font;
+		} finally {
+			deleteQuietly(tmp);
+		}
+	}
+
+	/*
+	 * Create a font from a link to the given file, which can then be deleted.
+	 */
+	private Font createFont(Path file) throws IOException, FontFormatException {
+		purgeCollectedLinks();
+		Path link = linkDirectory()
+				.resolve(Long.toString(linkCounter.incrementAndGet()) + LINK_SUFFIX);
+		try {
+			Files.createLink(link, file);
+		} catch (UnsupportedOperationException | FileSystemException e) {
+			if (e instanceof NoSuchFileException) {
+				throw (NoSuchFileException) e;
+			}
+			Files.copy(file, link);
+		}
+		Font font;
+		try {
+			font = Font.createFont(Font.TRUETYPE_FONT, link.toFile());
+		} catch (FontFormatException | IOException | RuntimeException e) {
+			deleteQuietly(link);
+			throw e;
+		}
+		fontLinks.add(new FontLink(font, link, collectedFonts));
+		return font;
+	}
+
+	/*
+	 * Delete the links whose fonts were garbage collected.
+	 */
+	private void purgeCollectedLinks() {
+		Reference<? extends Font> ref;
+		while ((ref = collectedFonts.poll()) != null) {
+			FontLink fontLink = (FontLink) ref;
+			fontLinks.remove(fontLink);
+			deleteQuietly(fontLink.file);
+		}
+	}
+
+	/*
+	 * Get the link directory of this object, creating it and locking it for as
+	 * long as this process runs.
+	 */
+	private synchronized Path linkDirectory() throws IOException {
+		if (linkDirectory == null) {
+			Path parent = directory.resolve(LINK_DIRECTORY);
+			Files.createDirectories(parent);
+			Path dir = Files.createTempDirectory(parent, "p");
+			FileChannel channel = FileChannel.open(dir.resolve(OWNER_LOCK_FILENAME),
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			try {
+				channel.lock();
+			} catch (IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+			// The lock is released by the operating system when the process ends
+			linkDirectoryLock = channel;
+			linkDirectory = dir;
+		}
+		return linkDirectory;
+	}
+
+	/*
+	 * Delete the link directories whose owner process ended. Recently modified
+	 * directories are skipped, as their owner may not have locked them yet.
+	 */
+	private void deleteAbandonedLinks(long staleTime) throws IOException {
+		Path parent = directory.resolve(LINK_DIRECTORY);
+		if (!Files.isDirectory(parent)) {
+			return;
+		}
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(parent)) {
+			for (Path dir : stream) {
+				try {
+					if (!Files.isDirectory(dir) || dir.equals(linkDirectory)
+							|| Files.getLastModifiedTime(dir).toMillis() >= staleTime) {
+						continue;
+					}
+				} catch (NoSuchFileException e) {
+					continue;
+				}
+				Path lockFile = dir.resolve(OWNER_LOCK_FILENAME);
+				try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.WRITE);
+						FileLock lock = channel.tryLock()) {
+					if (lock == null) {
+						continue;
+					}
+					try (DirectoryStream<Path> links = Files.newDirectoryStream(dir)) {
+						for (Path link : links) {
+							if (!link.equals(lockFile)) {
+								deleteQuietly(link);
+							}
+						}
+					}
+				} catch (OverlappingFileLockException e) {
+					// Owned by another cache object in this process
+					continue;
+				} catch (NoSuchFileException e) {
+					// Being created, or already deleted
+					continue;
+				}
+				deleteQuietly(lockFile);
+				deleteQuietly(dir);
+			}
+		}
+	}
+
+	/**
+	 * Atomically move a temporary file to its final location.
+	 * <p>
+	 * As the names are content-addressed, an existing font file is identical and
+	 * is kept.
+	 * </p>
+	 */
+	private static void moveIntoPlace(Path tmp, Path target) throws IOException {
+		try {
+			Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+		} catch (FileAlreadyExistsException e) {
+			if (target.getFileName().toString().endsWith(FONT_SUFFIX)) {
+				deleteQuietly(tmp);
+				touch(target);
+			} else {
+				Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Delete the least recently used fonts until the total size is below the
+	 * maximum.
+	 *
+	 * @throws IOException if an I/O error occurred while listing the directory or
+	 *                     locking the cache.
+	 */
+	public void evict() throws IOException {
+		runLocked(this::evictLocked);
+	}
+
+	/*
+	 * Run an action while holding the lock of the cache directory, which is
+	 * shared with other processes.
+	 */
+	private void runLocked(LockedAction action) throws IOException {
+		Path lockFile = directory.resolve(LOCK_FILENAME);
+		synchronized (FontFaceDiskCache.class) {
+			try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE); FileLock lock = channel.lock()) {
+				action.run();
+			}
+		}
+	}
+
+	private void evictLocked() throws IOException {
+		long staleTime = System.currentTimeMillis() - STALE_TEMP_MILLIS;
+		deleteAbandonedLinks(staleTime);
+		List<CacheEntry> entries = new ArrayList<>();
+		List<Path> indexFiles = new ArrayList<>();
+		long total = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path file : stream) {
+				String name = file.getFileName().toString();
+				BasicFileAttributes attrs;
+				try {
+					attrs = Files.readAttributes(file, BasicFileAttributes.class);
+				} catch (NoSuchFileException e) {
+					continue;
+				}
+				long lastModified = attrs.lastModifiedTime().toMillis();
+				if (name.endsWith(FONT_SUFFIX)) {
+					entries.add(new CacheEntry(file, attrs.size(), lastModified));
+					total += attrs.size();
+				} else if (name.endsWith(INDEX_SUFFIX)) {
+					indexFiles.add(file);
+				} else if (name.endsWith(TEMP_SUFFIX) && lastModified < staleTime) {
+					deleteQuietly(file);
+				}
+			}
+		}
+		if (total > maximumSize) {
+			Collections.sort(entries);
+			for (CacheEntry entry : entries) {
+				deleteQuietly(entry.file);
+				total -= entry.size;
+				if (total <= maximumSize) {
+					break;
+				}
+			}
+		}
+		// Delete the index files of the fonts that are gone
+		for (Path indexFile : indexFiles) {
+			String hash;
+			try {
+				hash = new String(Files.readAllBytes(indexFile), StandardCharsets.US_ASCII);
+			} catch (IOException e) {
+				// Replaced or deleted meanwhile
+				continue;
+			}
+			if (!Files.exists(directory.resolve(hash + FONT_SUFFIX))) {
+				deleteQuietly(indexFile);
+			}
+		}
+	}
+
+	/**
+	 * Remove all the cached fonts and index files.
+	 *
+	 * @throws IOException if an I/O error occurred.
+	 */
+	public void clear() throws IOException {
+		runLocked(() -> {
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+				for (Path file : stream) {
+					String name = file.getFileName().toString();
+					if (name.endsWith(FONT_SUFFIX) || name.endsWith(INDEX_SUFFIX)) {
+						deleteQuietly(file);
+					}
+				}
+			}
+		});
+	}
+
+	private Path indexFile(String sourceKey) {
+		return directory
+				.resolve(toHex(sha256().digest(sourceKey.getBytes(StandardCharsets.UTF_8)))
+						+ INDEX_SUFFIX);
+	}
+
+	private static void touch(Path file) {
+		try {
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// Only affects the eviction order
+		}
+	}
+
+	private static void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			/*
+			 * Locked by another process on some platforms: the file stays, and a
+			 * later eviction retries it.
+			 */
+		}
+	}
+
+	static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static String toHex(byte[] bytes) {
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			int b = bytes[i] & 0xff;
+			hex[i * 2] = Character.forDigit(b >> 4, 16);
+			hex[i * 2 + 1] = Character.forDigit(b & 0xf, 16);
+		}
+		return new String(hex);
+	}
+
+	private interface LockedAction {
+
+		void run() throws IOException;
+
+	}
+
+	private static class FontLink extends PhantomReference<Font> {
+
+		private final Path file;
+
+		FontLink(Font font, Path file, ReferenceQueue<Font> queue) {
+			super(font, queue);
+			this.file = file;
+		}
+
+	}
+
+	private static class CacheEntry implements Comparable<CacheEntry> {
+
+		private final Path file;
+		private final long size;
+		private final long lastModified;
+
+		CacheEntry(Path file, long size, long lastModified) {
+			super();
+			this.file = file;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		@Override
+		public int compareTo(CacheEntry o) {
+			return Long.compare(lastModified, o.lastModified);
+		}
+
+	}
+
+}
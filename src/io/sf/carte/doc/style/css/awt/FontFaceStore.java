@@ -0,0 +1,368 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.Font;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A memory-bounded store of the fonts loaded by {@literal @}font-face rules,
+ * keyed by lowercase family name.
+ * <p>
+ * The store has a budget by number of fonts and by their estimated size. When
+ * it is exceeded, the least recently used fonts that are not in use (see
+ * {@link #acquire(String)}) are evicted. Evicted families are still known to
+ * the store, so that their owner can load them again when they are requested.
+ * </p>
+ * <p>
+ * Lookups do not take locks.
+ * </p>
+ *
+ * @author Carlos Amengual
+ *
+ */
+public class FontFaceStore {
+
+	/**
+	 * The default maximum number of loaded fonts.
+	 */
+	public static final int DEFAULT_MAXIMUM_COUNT = 256;
+
+	/**
+	 * The default maximum estimated size of the loaded fonts, in bytes.
+	 */
+	public static final long DEFAULT_MAXIMUM_BYTES = 64L * 1024 * 1024;
+
+	/**
+	 * Receives notifications of evicted fonts.
+	 */
+	@FunctionalInterface
+	public interface EvictionListener {
+
+		/**
+		 * A font was evicted from the store.
+		 *
+		 * @param lcFamilyName   the family name in lowercase.
+		 * @param estimatedBytes the estimated size of the evicted font.
+		 */
+		void fontEvicted(String lcFamilyName, long estimatedBytes);
+
+	}
+
+	private final ConcurrentHashMap<String, Face> entries = new ConcurrentHashMap<>();
+
+	private final List<EvictionListener> listeners = new CopyOnWriteArrayList<>();
+
+	private volatile int maximumCount;
+
+	private volatile long maximumBytes;
+
+	private final AtomicInteger count = new AtomicInteger();
+
+	private final AtomicLong bytes = new AtomicLong();
+
+	private final AtomicLong clock = new AtomicLong();
+
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Construct a store with the default budget.
+	 */
+	public FontFaceStore() {
+		this(DEFAULT_MAXIMUM_COUNT, DEFAULT_MAXIMUM_BYTES);
+	}
+
+	/**
+	 * Construct a store with the given budget.
+	 *
+	 * @param maximumCount the maximum number of loaded fonts.
+	 * @param maximumBytes the maximum estimated size of the loaded fonts, in bytes.
+	 */
+	public FontFaceStore(int maximumCount, long maximumBytes) {
+		super();
+		this.maximumCount = maximumCount;
+		this.maximumBytes = maximumBytes;
+	}
+
+	/**
+	 * Put a font in the store, replacing any font with the same family name.
+	 *
+	 * @param lcFamilyName   the family name in lowercase.
+	 * @param font           the font.
+	 * @param estimatedBytes the estimated size of the font, in bytes.
+	 */
+	public void put(String lcFamilyName, Font font, long estimatedBytes) {
+		Face face = new Face(font, estimatedBytes, clock.incrementAndGet());
+		synchronized (this) {
+			Face old = entries.put(lcFamilyName, face);
+			if (old != null) {
+				face.users.set(old.users.get());
+				if (old.font != null) {
+					count.decrementAndGet();
+					bytes.addAndGet(-old.bytes);
+				}
+			}
+			count.incrementAndGet();
+			bytes.addAndGet(estimatedBytes);
+		}
+		// The new font is kept even if it exceeds the budget by itself
+		trim(face);
+	}
+
+	/**
+	 * Get the font of the given family.
+	 *
+	 * @param lcFamilyName the family name in lowercase.
+	 * @return the font, or {@code null} if the family is not in the store or was
+	 *         evicted.
+	 */
+	public Font get(String lcFamilyName) {
+		Face face = entries.get(lcFamilyName);
+		if (face == null) {
+			return null;
+		}
+		Font font = face.font;
+		if (font != null) {
+			face.lastAccess = clock.incrementAndGet();
+		}
+		return font;
+	}
+
+	/**
+	 * Check whether a font of the given family was put in the store, even if it
+	 * was evicted later.
+	 *
+	 * @param lcFamilyName the family name in lowercase.
+	 * @return {@code true} if the family is known to the store.
+	 */
+	public boolean contains(String lcFamilyName) {
+		return entries.containsKey(lcFamilyName);
+	}
+
+	/**
+	 * Check whether the font of the given family is loaded.
+	 *
+	 * @param lcFamilyName the family name in lowercase.
+	 * @return {@code true} if the font is in the store and was not evicted.
+	 */
+	public boolean isLoaded(String lcFamilyName) {
+		Face face = entries.get(lcFamilyName);
+		return face != null && face.font != null;
+	}
+
+	/**
+	 * Get the font of the given family, and mark it as in use so that it is not
+	 * evicted until {@link #release(String)} is called.
+	 *
+	 * @param lcFamilyName the family name in lowercase.
+	 * @return the font, or {@code null} if the family is not in the store or was
+	 *         evicted. Only a non-null result must be released.
+	 */
+	public Font acquire(String lcFamilyName) {
+		Face face = entries.get(lcFamilyName);
+		if (face == null) {
+			return null;
+		}
+		face.users.incrementAndGet();
+		Font font = face.font;
+		if (font == null) {
+			face.users.decrementAndGet();
+		} else {
+			face.lastAccess = clock.incrementAndGet();
+		}
+		return font;
+	}
+
+	/**
+	 * Release a font obtained from {@link #acquire(String)}.
+	 *
+	 * @param lcFamilyName the family name in lowercase.
+	 */
+	public void release(String lcFamilyName) {
+		Face face = entries.get(lcFamilyName);
+		if (face != null && face.users.decrementAndGet() < 0) {
+			face.users.incrementAndGet();
+		}
+		trim(null);
+	}
+
+	/**
+	 * Remove a family from the store, as if it had never been loaded.
+	 *
+	 * @param lcFamilyName the family name in lowercase.
+	 */
+	public synchronized void remove(String lcFamilyName) {
+		Face face = entries.remove(lcFamilyName);
+		if (face != null && face.font != null) {
+			count.decrementAndGet();
+			bytes.addAndGet(-face.bytes);
+		}
+	}
+
+	/**
+	 * Evict the least recently used fonts that are not in use, until the store
+	 * is within its budget.
+	 * 
+	 * @param keep a font that must not be evicted, or {@code null}.
+	 */
+	private void trim(Face keep) {
+		if (!isOverBudget()) {
+			return;
+		}
+		String evictedName;
+		long evictedBytes;
+		do {
+			synchronized (this) {
+				evictedName = null;
+				evictedBytes = 0;
+				if (!isOverBudget()) {
+					return;
+				}
+				Face eldest = null;
+				for (Map.Entry<String, Face> entry : entries.entrySet()) {
+					Face face = entry.getValue();
+					if (face.font != null && face.users.get() == 0 && face != keep
+							&& (eldest == null || face.lastAccess < eldest.lastAccess)) {
+						eldest = face;
+						evictedName = entry.getKey();
+					}
+				}
+				if (eldest == null) {
+					// Everything is in use
+					return;
+				}
+				eldest.font = null;
+				evictedBytes = eldest.bytes;
+				count.decrementAndGet();
+				bytes.addAndGet(-evictedBytes);
+				evictions.increment();
+			}
+			for (EvictionListener listener : listeners) {
+				listener.fontEvicted(evictedName, evictedBytes);
+			}
+		} while (true);
+	}
+
+	private boolean isOverBudget() {
+		return count.get() > maximumCount || bytes.get() > maximumBytes;
+	}
+
+	/**
+	 * Add a listener that is notified when fonts are evicted.
+	 * <p>
+	 * Listeners are called from the thread that caused the eviction, and must not
+	 * block.
+	 * </p>
+	 *
+	 * @param listener the listener.
+	 */
+	public void addEvictionListener(EvictionListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Remove an eviction listener.
+	 *
+	 * @param listener the listener.
+	 */
+	public void removeEvictionListener(EvictionListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Get the number of loaded fonts.
+	 *
+	 * @return the number of fonts that are in the store and were not evicted.
+	 */
+	public int size() {
+		return count.get();
+	}
+
+	/**
+	 * Get the estimated size of the loaded fonts.
+	 *
+	 * @return the estimated size, in bytes.
+	 */
+	public long getEstimatedBytes() {
+		return bytes.get();
+	}
+
+	/**
+	 * Get the number of fonts evicted so far.
+	 *
+	 * @return the eviction count.
+	 */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Get the maximum number of loaded fonts.
+	 *
+	 * @return the maximum number of fonts.
+	 */
+	public int getMaximumCount() {
+		return maximumCount;
+	}
+
+	/**
+	 * Set the maximum number of loaded fonts.
+	 *
+	 * @param maximumCount the maximum number of fonts.
+	 */
+	public void setMaximumCount(int maximumCount) {
+		this.maximumCount = maximumCount;
+		trim(null);
+	}
+
+	/**
+	 * Get the maximum estimated size of the loaded fonts.
+	 *
+	 * @return the maximum size, in bytes.
+	 */
+	public long getMaximumBytes() {
+		return maximumBytes;
+	}
+
+	/**
+	 * Set the maximum estimated size of the loaded fonts.
+	 *
+	 * @param maximumBytes the maximum size, in bytes.
+	 */
+	public void setMaximumBytes(long maximumBytes) {
+		this.maximumBytes = maximumBytes;
+		trim(null);
+	}
+
+	private static class Face {
+
+		volatile Font font;
+		final long bytes;
+		volatile long lastAccess;
+		final AtomicInteger users = new AtomicInteger();
+
+		Face(Font font, long bytes, long lastAccess) {
+			super();
+			this.font = font;
+			this.bytes = bytes;
+			this.lastAccess = lastAccess;
+		}
+
+	}
+
+}
@@ -0,0 +1,510 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.Font;
+import java.awt.font.TextAttribute;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+import io.sf.carte.doc.style.css.CSSComputedProperties;
+
+/**
+ * Splits text into runs that can be displayed by a single font, following the
+ * <code>font-family</code> list of a style and the <code>unicode-range</code>
+ * of the {@literal @}font-face rules.
+ * <p>
+ * For each character, the first font in the family list that is allowed to
+ * display it by its <code>unicode-range</code> and has a glyph for it is used.
+ * If none does, the primary font is used. The glyph coverage of each font is
+ * computed once and cached.
+ * </p>
+ * <p>
+ * The fonts loaded by {@literal @}font-face rules are known by their family
+ * name, so only one face per family is considered: if several rules declare
+ * the same family with different <code>unicode-range</code> subsets (as is
+ * common for per-script web fonts), the face that was loaded last and its
+ * range are used for the whole family.
+ * </p>
+ * <p>
+ * Instances are obtained from
+ * {@link AWTStyleDatabase#getFontFallbackResolver()}, and are thread-safe.
+ * </p>
+ *
+ * @author Carlos Amengual
+ *
+ */
+public class FontFallbackResolver {
+
+	private static final int[] ALL_RANGES = { 0, Character.MAX_CODE_POINT };
+
+	private final AWTStyleDatabase styleDatabase;
+
+	private final BoundedCache<String, FontCoverage> coverageCache = new BoundedCache<>(64);
+
+	private final BoundedCache<DerivedFontKey, Font> fontCache = new BoundedCache<>(256);
+
+	private final ConcurrentHashMap<String, int[]> rangeCache = new ConcurrentHashMap<>();
+
+	FontFallbackResolver(AWTStyleDatabase styleDatabase) {
+		super();
+		this.styleDatabase = styleDatabase;
+	}
+
+	/**
+	 * Split the given text into runs, each with the font that covers it.
+	 * <p>
+	 * The primary font is the one given by
+	 * {@link AWTStyleDatabase#createFont(CSSComputedProperties)}, and the fallback
+	 * fonts are the rest of the families in the <code>font-family</code> of the
+	 * style.
+	 * </p>
+	 *
+	 * @param text  the text.
+	 * @param style the computed style.
+	 * @return the list of runs, which is empty if the text is empty.
+	 */
+	public List<TextRun> resolve(String text, CSSComputedProperties style) {
+		Font primary = styleDatabase.createFont(style);
+		String primaryFamily = style.getUsedFontFamily();
+		List<String> families = parseFamilyList(style.getPropertyValue("font-family"));
+		return resolve(text, primary, primaryFamily, families);
+	}
+
+	/**
+	 * Split the given text into runs, each with the font that covers it.
+	 * <p>
+	 * The fallback fonts are derived from the primary font, with the same size and
+	 * attributes. Generic family names are mapped to their logical fonts, and
+	 * families that are not available are ignored. The <code>Dialog</code> logical
+	 * font is tried last.
+	 * </p>
+	 *
+	 * @param text             the text.
+	 * @param primary          the primary font.
+	 * @param primaryFamily    the family name of the primary font, as given in the
+	 *                         style. If it was loaded from a {@literal @}font-face
+	 *                         rule, its <code>unicode-range</code> is honored.
+	 * @param fallbackFamilies the family names to try, in order. May include the
+	 *                         primary family, which is then skipped.
+	 * @return the list of runs, which is empty if the text is empty.
+	 */
+	public List<TextRun> resolve(String text, Font primary, String primaryFamily,
+			List<String> fallbackFamilies) {
+		int len = text.length();
+		List<TextRun> runs = new ArrayList<>();
+		if (len == 0) {
+			return runs;
+		}
+
+		String primaryLc = primaryFamily != null ? primaryFamily.toLowerCase(Locale.ROOT) : null;
+		List<Candidate> candidates = new ArrayList<>(fallbackFamilies.size() + 2);
+		candidates.add(new Candidate(primary, coverage(primary, primaryLc, pageFilter(primaryLc)),
+				ranges(primaryLc)));
+		for (String family : fallbackFamilies) {
+			addCandidate(candidates, primary, family, primaryLc);
+		}
+		addCandidate(candidates, primary, Font.DIALOG, primaryLc);
+
+		Font current = null;
+		int start = 0;
+		int i = 0;
+		while (i < len) {
+			int cp = text.codePointAt(i);
+			Font font;
+			if (current != null && isClusterExtender(cp)) {
+				// Keep marks and joiners with their base character
+				font = current;
+			} else {
+				font = primary;
+				for (Candidate candidate : candidates) {
+					if (candidate.covers(cp)) {
+						font = candidate.font;
+						break;
+					}
+				}
+			}
+			if (font != current) {
+				if (current != null) {
+					runs.add(new TextRun(start, i, current));
+				}
+				current = font;
+				start = i;
+			}
+			i += Character.charCount(cp);
+		}
+		runs.add(new TextRun(start, len, current));
+		return runs;
+	}
+
+	private void addCandidate(List<Candidate> candidates, Font primary, String family,
+			String primaryLc) {
+		String lcFamily = family.toLowerCase(Locale.ROOT);
+		if (lcFamily.equals(primaryLc)) {
+			return;
+		}
+		Font face = styleDatabase.getFont(lcFamily);
+		Font font;
+		IntPredicate pageFilter = null;
+		if (face != null) {
+			font = fontCache.computeIfAbsent(new DerivedFontKey(primary, lcFamily),
+					k -> deriveFromFace(face, primary));
+		} else {
+			String name = styleDatabase.getDefaultGenericFontFamily(lcFamily);
+			if (name == null) {
+				if (!styleDatabase.isFontFamilyAvailable(family)) {
+					return;
+				}
+				name = family;
+			}
+			String lcName = name.toLowerCase(Locale.ROOT);
+			Font catalogFont = styleDatabase.getCatalogFont(lcName);
+			if (catalogFont != null) {
+				font = fontCache.computeIfAbsent(new DerivedFontKey(primary, lcFamily),
+						k -> deriveFromFace(catalogFont, primary));
+				pageFilter = pageFilter(lcName);
+			} else if (styleDatabase.isSystemFontsEnabled()) {
+				String sysname = name;
+				font = fontCache.computeIfAbsent(new DerivedFontKey(primary, lcFamily),
+						k -> deriveFromFamily(primary, sysname));
+			} else {
+				return;
+			}
+			lcFamily = null;
+		}
+		for (Candidate candidate : candidates) {
+			if (candidate.font.equals(font)) {
+				return;
+			}
+		}
+		candidates.add(new Candidate(font, coverage(font, lcFamily, pageFilter), ranges(lcFamily)));
+	}
+
+	private static Font deriveFromFace(Font face, Font primary) {
+		Map<TextAttribute, Object> attrs = attributes(primary);
+		attrs.remove(TextAttribute.FAMILY);
+		return face.deriveFont(attrs);
+	}
+
+	private static Font deriveFromFamily(Font primary, String family) {
+		Map<TextAttribute, Object> attrs = attributes(primary);
+		attrs.put(TextAttribute.FAMILY, family);
+		return new Font(attrs);
+	}
+
+	private static Map<TextAttribute, Object> attributes(Font font) {
+		Map<TextAttribute, ?> fontAttrs = font.getAttributes();
+		Map<TextAttribute, Object> attrs = new HashMap<>(fontAttrs.size());
+		for (Map.Entry<TextAttribute, ?> entry : fontAttrs.entrySet()) {
+			if (entry.getValue() != null) {
+				attrs.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return attrs;
+	}
+
+	/*
+	 * Coverage of fonts loaded by @font-face rules is keyed by family, so a font
+	 * with the same name that is installed in the system does not share it.
+	 */
+	private FontCoverage coverage(Font font, String lcFaceFamily, IntPredicate pageFilter) {
+		String key = lcFaceFamily != null && styleDatabase.getFontFaceSource(lcFaceFamily) != null
+				? '@' + lcFaceFamily
+				: font.getFontName(Locale.ROOT);
+		return coverageCache.computeIfAbsent(key, k -> new FontCoverage(font, pageFilter));
+	}
+
+	/*
+	 * The system font catalog summarizes the pages that each family covers, so
+	 * the pages that a catalog font does not cover are not probed.
+	 */
+	private IntPredicate pageFilter(String lcFamily) {
+		if (lcFamily == null || styleDatabase.getVirtualDevice() != null
+				|| styleDatabase.getFontFaceSource(lcFamily) != null) {
+			return null;
+		}
+		SystemFontCatalog catalog = styleDatabase.getFontCatalog();
+		if (catalog == null || !catalog.hasFamily(lcFamily)) {
+			return null;
+		}
+		return codePoint -> catalog.mayDisplay(lcFamily, codePoint);
+	}
+
+	private int[] ranges(String lcFaceFamily) {
+		if (lcFaceFamily == null) {
+			return ALL_RANGES;
+		}
+		AWTStyleDatabase.FontFaceSource source = styleDatabase.getFontFaceSource(lcFaceFamily);
+		String range;
+		if (source == null || (range = source.unicodeRange) == null) {
+			return ALL_RANGES;
+		}
+		return rangeCache.computeIfAbsent(range, FontFallbackResolver::parseUnicodeRange);
+	}
+
+	/**
+	 * Parse a <code>unicode-range</code> descriptor value.
+	 *
+	 * @param value the value, like <code>U+0025-00FF, U+4??</code>.
+	 * @return the sorted and merged ranges, as pairs of first and last code point.
+	 *         Invalid ranges are ignored, and if all are invalid the whole code
+	 *         point space is returned.
+	 */
+	static int[] parseUnicodeRange(String value) {
+		String[] items = value.split(",");
+		int[][] ranges = new int[items.length][];
+		int count = 0;
+		for (String item : items) {
+			int[] range = parseRangeItem(item.trim());
+			if (range != null) {
+				ranges[count++] = range;
+			}
+		}
+		if (count == 0) {
+			return ALL_RANGES;
+		}
+		Arrays.sort(ranges, 0, count, (a, b) -> Integer.compare(a[0], b[0]));
+		int[] result = new int[count * 2];
+		int n = 0;
+		for (int i = 0; i < count; i++) {
+			int[] range = ranges[i];
+			if (n != 0 && range[0] <= result[n - 1] + 1) {
+				result[n - 1] = Math.max(result[n - 1], range[1]);
+			} else {
+				result[n++] = range[0];
+				result[n++] = range[1];
+			}
+		}
+		return n == result.length ? result : Arrays.copyOf(result, n);
+	}
+
+	private static int[] parseRangeItem(String item) {
+		int len = item.length();
+		if (len < 3 || (item.charAt(0) != 'U' && item.charAt(0) != 'u') || item.charAt(1) != '+') {
+			return null;
+		}
+		int first, last;
+		int dash = item.indexOf('-', 2);
+		try {
+			if (dash != -1) {
+				first = Integer.parseInt(item.substring(2, dash).trim(), 16);
+				last = Integer.parseInt(item.substring(dash + 1).trim(), 16);
+			} else {
+				String digits = item.substring(2);
+				int wild = digits.indexOf('?');
+				if (wild == -1) {
+					first = last = Integer.parseInt(digits, 16);
+				} else {
+					for (int i = wild; i < digits.length(); i++) {
+						if (digits.charAt(i) != '?') {
+							return null;
+						}
+					}
+					String prefix = digits.substring(0, wild);
+					int wildcards = digits.length() - wild;
+					int base = prefix.isEmpty() ? 0 : Integer.parseInt(prefix, 16);
+					first = base << (4 * wildcards);
+					last = first | ((1 << (4 * wildcards)) - 1);
+				}
+			}
+		} catch (NumberFormatException e) {
+			return null;
+		}
+		if (first < 0 || first > last || first > Character.MAX_CODE_POINT) {
+			return null;
+		}
+		return new int[] { first, Math.min(last, Character.MAX_CODE_POINT) };
+	}
+
+	/**
+	 * Split a <code>font-family</code> value into family names, removing quotes.
+	 *
+	 * @param value the value.
+	 * @return the list of family names.
+	 */
+	static List<String> parseFamilyList(String value) {
+		List<String> families = new ArrayList<>();
+		if (value == null) {
+			return families;
+		}
+		StringBuilder buf = new StringBuilder(value.length());
+		char quote = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				} else {
+					buf.append(c);
+				}
+			} else if (c == '"' || c == '\'') {
+				quote = c;
+			} else if (c == ',') {
+				addFamily(families, buf);
+			} else {
+				buf.append(c);
+			}
+		}
+		addFamily(families, buf);
+		return families;
+	}
+
+	private static void addFamily(List<String> families, StringBuilder buf) {
+		String family = buf.toString().trim();
+		if (!family.isEmpty()) {
+			families.add(family);
+		}
+		buf.setLength(0);
+	}
+
+	private static boolean isClusterExtender(int cp) {
+		if (cp == 0x200d || (cp >= 0xfe00 && cp <= 0xfe0f) || (cp >= 0xe0100 && cp <= 0xe01ef)) {
+			return true;
+		}
+		int type = Character.getType(cp);
+		return type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK
+				|| type == Character.COMBINING_SPACING_MARK;
+	}
+
+	/**
+	 * Discard the cached fonts and coverage.
+	 */
+	void clear() {
+		coverageCache.clear();
+		fontCache.clear();
+		rangeCache.clear();
+	}
+
+	/**
+	 * A run of text that is displayed with a single font.
+	 */
+	public static class TextRun {
+
+		private final int start;
+
+		private final int end;
+
+		private final Font font;
+
+		TextRun(int start, int end, Font font) {
+			super();
+			this.start = start;
+			this.end = end;
+			this.font = font;
+		}
+
+		/**
+		 * Get the index of the first character of the run.
+		 *
+		 * @return the start index, inclusive.
+		 */
+		public int getStart() {
+			return start;
+		}
+
+		/**
+		 * Get the index after the last character of the run.
+		 *
+		 * @return the end index, exclusive.
+		 */
+		public int getEnd() {
+			return end;
+		}
+
+		/**
+		 * Get the font that displays the run.
+		 *
+		 * @return the font.
+		 */
+		public Font getFont() {
+			return font;
+		}
+
+		@Override
+		public String toString() {
+			return "TextRun [" + start + ", " + end + "): " + font.getFontName(Locale.ROOT);
+		}
+
+	}
+
+	private static class Candidate {
+
+		final Font font;
+		final FontCoverage coverage;
+		final int[] ranges;
+
+		Candidate(Font font, FontCoverage coverage, int[] ranges) {
+			super();
+			this.font = font;
+			this.coverage = coverage;
+			this.ranges = ranges;
+		}
+
+		boolean covers(int cp) {
+			return inRanges(cp) && coverage.canDisplay(cp);
+		}
+
+		private boolean inRanges(int cp) {
+			int lo = 0;
+			int hi = (ranges.length >> 1) - 1;
+			while (lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				if (cp < ranges[mid << 1]) {
+					hi = mid - 1;
+				} else if (cp > ranges[(mid << 1) + 1]) {
+					lo = mid + 1;
+				} else {
+					return true;
+				}
+			}
+			return false;
+		}
+
+	}
+
+	private static class DerivedFontKey {
+
+		private final Font primary;
+		private final String lcFamily;
+
+		DerivedFontKey(Font primary, String lcFamily) {
+			super();
+			this.primary = primary;
+			this.lcFamily = lcFamily;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * primary.hashCode() + lcFamily.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof DerivedFontKey)) {
+				return false;
+			}
+			DerivedFontKey other = (DerivedFontKey) obj;
+			return lcFamily.equals(other.lcFamily) && primary.equals(other.primary);
+		}
+
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.GraphicsEnvironment;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Case-insensitive index of the font family names available to the graphics
+ * environment.
+ * <p>
+ * The index is built lazily the first time it is queried, and is only rebuilt
+ * after being invalidated.
+ * </p>
+ */
+class FontFamilyIndex {
+
+	/**
+	 * The index of the local graphics environment's font families.
+	 */
+	static final FontFamilyIndex SYSTEM = new FontFamilyIndex();
+
+	private volatile Set<String> lcFamilies = null;
+
+	FontFamilyIndex() {
+		super();
+	}
+
+	/**
+	 * Check whether the given font family is in the index.
+	 * 
+	 * @param fontFamily the font family name, in any case.
+	 * @return {@code true} if the family is available.
+	 */
+	boolean isAvailable(String fontFamily) {
+		return getFamilies().contains(fontFamily.toLowerCase(Locale.ROOT));
+	}
+
+	private Set<String> getFamilies() {
+		Set<String> families = lcFamilies;
+		if (families == null) {
+			synchronized (this) {
+				families = lcFamilies;
+				if (families == null) {
+					families = buildIndex(loadFamilyNames());
+					lcFamilies = families;
+				}
+			}
+		}
+		return families;
+	}
+
+	/**
+	 * Obtain the family names to index.
+	 * 
+	 * @return the family names.
+	 */
+	String[] loadFamilyNames() {
+		return GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames();
+	}
+
+	private static Set<String> buildIndex(String[] familyNames) {
+		Set<String> families = new HashSet<>(familyNames.length * 4 / 3 + 1);
+		for (String name : familyNames) {
+			families.add(name.toLowerCase(Locale.ROOT));
+		}
+		return families;
+	}
+
+	/**
+	 * Discard the current index, so it is rebuilt the next time it is queried.
+	 */
+	void invalidate() {
+		lcFamilies = null;
+	}
+
+}
@@ -0,0 +1,820 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.Color;
+import java.awt.LinearGradientPaint;
+import java.awt.MultipleGradientPaint.ColorSpaceType;
+import java.awt.MultipleGradientPaint.CycleMethod;
+import java.awt.Paint;
+import java.awt.RadialGradientPaint;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.w3c.dom.DOMException;
+
+import io.sf.carte.doc.style.css.CSSFunctionValue;
+import io.sf.carte.doc.style.css.CSSTypedValue;
+import io.sf.carte.doc.style.css.CSSUnit;
+import io.sf.carte.doc.style.css.CSSValue;
+import io.sf.carte.doc.style.css.CSSValue.CssType;
+import io.sf.carte.doc.style.css.CSSValue.Type;
+import io.sf.carte.doc.style.css.CSSValueList;
+import io.sf.carte.doc.style.css.property.CSSPropertyValueException;
+
+/**
+ * Converts CSS gradients to AWT paints.
+ * <p>
+ * Gradient values are parsed once, including their color stops, and kept in a
+ * cache keyed by their serialization. The paints are cached by gradient and box
+ * size, so boxes of the same size that share a gradient share a paint.
+ * </p>
+ */
+class GradientPaintFactory {
+
+	private static final int SIZE_CLOSEST_SIDE = 0;
+
+	private static final int SIZE_FARTHEST_SIDE = 1;
+
+	private static final int SIZE_CLOSEST_CORNER = 2;
+
+	private static final int SIZE_FARTHEST_CORNER = 3;
+
+	private static final int SIZE_EXPLICIT = 4;
+
+	private final BoundedCache<String, Gradient> gradients;
+
+	private final BoundedCache<PaintKey, Paint> paints;
+
+	GradientPaintFactory(int maximumGradients, int maximumPaints) {
+		super();
+		gradients = new BoundedCache<>(maximumGradients);
+		paints = new BoundedCache<>(maximumPaints);
+	}
+
+	/**
+	 * Get the paint for a gradient in a box.
+	 *
+	 * @param value  the gradient value.
+	 * @param width  the width of the box.
+	 * @param height the height of the box.
+	 * @return the paint, in the coordinate space of the box.
+	 * @throws CSSPropertyValueException if the value is not a supported gradient.
+	 */
+	Paint getPaint(CSSTypedValue value, float width, float height)
+			throws CSSPropertyValueException {
+		String text = value.getCssText();
+		Gradient gradient = gradients.get(text);
+		if (gradient == null) {
+			Gradient parsed = parseGradient(value);
+			gradient = gradients.computeIfAbsent(text, k -> parsed);
+		}
+		Gradient g = gradient;
+		return paints.computeIfAbsent(new PaintKey(gradient, width, height),
+				k -> g.createPaint(width, height));
+	}
+
+	void clear() {
+		gradients.clear();
+		paints.clear();
+	}
+
+	private static Gradient parseGradient(CSSTypedValue value) throws CSSPropertyValueException {
+		if (value.getPrimitiveType() != Type.GRADIENT || !(value instanceof CSSFunctionValue)) {
+			throw valueException("Not a gradient.", value, null);
+		}
+		CSSFunctionValue function = (CSSFunctionValue) value;
+		String name = function.getFunctionName().toLowerCase(Locale.ROOT);
+		boolean repeating = name.startsWith("repeating-");
+		if (repeating) {
+			name = name.substring(10);
+		}
+		Gradient gradient;
+		if ("linear-gradient".equals(name)) {
+			gradient = new LinearGradient(repeating);
+		} else if ("radial-gradient".equals(name)) {
+			gradient = new RadialGradient(repeating);
+		} else {
+			throw valueException("Unsupported gradient.", value, null);
+		}
+
+		List<? extends CSSValue> args = function.getArguments();
+		int i = 0;
+		if (!args.isEmpty() && isConfiguration(items(args.get(0)))) {
+			if (!gradient.configure(items(args.get(0)))) {
+				throw valueException("Unsupported gradient configuration.", value, null);
+			}
+			i = 1;
+		}
+		for (; i < args.size(); i++) {
+			List<CSSValue> items = items(args.get(i));
+			Color color = null;
+			int positions = 0;
+			for (CSSValue item : items) {
+				if (color == null && isColor(item)) {
+					try {
+						color = AWTHelper.getAWTColor((CSSTypedValue) item);
+					} catch (CSSPropertyValueException | DOMException e) {
+						throw valueException("Invalid color stop.", value, e);
+					}
+				} else {
+					Dimension pos = Dimension.of(item);
+					if (pos == null) {
+						throw valueException("Invalid color stop.", value, null);
+					}
+					if (color != null) {
+						gradient.addStop(color, pos);
+						positions++;
+					}
+				}
+			}
+			if (color == null) {
+				// A color hint, which is approximated as linear interpolation
+				continue;
+			}
+			if (positions == 0) {
+				gradient.addStop(color, null);
+			}
+		}
+		if (gradient.colors.isEmpty()) {
+			throw valueException("No color stops.", value, null);
+		}
+		return gradient;
+	}
+
+	private static CSSPropertyValueException valueException(String message, CSSValue value,
+			Throwable cause) {
+		CSSPropertyValueException ex = cause != null
+				? new CSSPropertyValueException(message, cause)
+				: new CSSPropertyValueException(message);
+		ex.setValueText(value.getCssText());
+		return ex;
+	}
+
+	private static List<CSSValue> items(CSSValue arg) {
+		if (arg.getCssValueType() == CssType.LIST) {
+			CSSValueList<?> list = (CSSValueList<?>) arg;
+			int len = list.getLength();
+			List<CSSValue> items = new ArrayList<>(len);
+			for (int i = 0; i < len; i++) {
+				items.add(list.item(i));
+			}
+			return items;
+		}
+		return Collections.singletonList(arg);
+	}
+
+	/*
+	 * The first argument configures the gradient if it contains no color.
+	 */
+	private static boolean isConfiguration(List<CSSValue> items) {
+		for (CSSValue item : items) {
+			if (isColor(item)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isColor(CSSValue item) {
+		if (item.getCssValueType() != CssType.TYPED) {
+			return false;
+		}
+		Type type = item.getPrimitiveType();
+		return type == Type.COLOR || (type == Type.IDENT && !isKeyword(item));
+	}
+
+	private static boolean isKeyword(CSSValue item) {
+		switch (identifier(item)) {
+		case "to":
+		case "at":
+		case "circle":
+		case "ellipse":
+		case "closest-side":
+		case "farthest-side":
+		case "closest-corner":
+		case "farthest-corner":
+		case "left":
+		case "right":
+		case "top":
+		case "bottom":
+		case "center":
+			return true;
+		}
+		return false;
+	}
+
+	private static String identifier(CSSValue item) {
+		if (item.getCssValueType() == CssType.TYPED && item.getPrimitiveType() == Type.IDENT) {
+			return ((CSSTypedValue) item).getStringValue().toLowerCase(Locale.ROOT);
+		}
+		return "";
+	}
+
+	/**
+	 * A length or percentage.
+	 */
+	private static class Dimension {
+
+		final float value;
+
+		final boolean percentage;
+
+		Dimension(float value, boolean percentage) {
+			super();
+			this.value = value;
+			this.percentage = percentage;
+		}
+
+		/**
+		 * Obtain a length (in typographic points) or percentage from a value.
+		 *
+		 * @param item the value.
+		 * @return the dimension, or {@code null} if the value is not an absolute
+		 *         length or a percentage.
+		 */
+		static Dimension of(CSSValue item) {
+			if (item.getCssValueType() != CssType.TYPED
+					|| item.getPrimitiveType() != Type.NUMERIC) {
+				return null;
+			}
+			CSSTypedValue typed = (CSSTypedValue) item;
+			short unit = typed.getUnitType();
+			if (unit == CSSUnit.CSS_PERCENTAGE) {
+				return new Dimension(typed.getFloatValue(CSSUnit.CSS_PERCENTAGE) * 0.01f, true);
+			}
+			if (unit == CSSUnit.CSS_NUMBER) {
+				float f = typed.getFloatValue(CSSUnit.CSS_NUMBER);
+				return f == 0f ? new Dimension(0f, false) : null;
+			}
+			try {
+				return new Dimension(typed.getFloatValue(CSSUnit.CSS_PT), false);
+			} catch (DOMException e) {
+				return null;
+			}
+		}
+
+		float resolve(float reference) {
+			return percentage ? value * reference : value;
+		}
+
+	}
+
+	private abstract static class Gradient {
+
+		final boolean repeating;
+
+		final List<Color> colors = new ArrayList<>();
+
+		final List<Dimension> positions = new ArrayList<>();
+
+		Gradient(boolean repeating) {
+			super();
+			this.repeating = repeating;
+		}
+
+		abstract boolean configure(List<CSSValue> items);
+
+		void addStop(Color color, Dimension position) {
+			colors.add(color);
+			positions.add(position);
+		}
+
+		abstract Paint createPaint(float width, float height);
+
+		/**
+		 * Resolve the stop positions as fractions of the gradient length, applying
+		 * the CSS fixup rules.
+		 *
+		 * @param length the gradient length.
+		 * @return the positions, which are non-decreasing but can be outside the
+		 *         [0,1] interval.
+		 */
+		float[] resolveStops(float length) {
+			int n = colors.size();
+			float[] pos = new float[n];
+			boolean[] auto = new boolean[n];
+			for (int i = 0; i < n; i++) {
+				Dimension dim = positions.get(i);
+				if (dim == null) {
+					auto[i] = true;
+				} else {
+					pos[i] = dim.percentage ? dim.value
+							: length > 0f ? dim.value / length : 0f;
+				}
+			}
+			if (auto[0]) {
+				pos[0] = 0f;
+				auto[0] = false;
+			}
+			if (auto[n - 1]) {
+				pos[n - 1] = 1f;
+				auto[n - 1] = false;
+			}
+			float max = pos[0];
+			for (int i = 1; i < n; i++) {
+				if (!auto[i]) {
+					if (pos[i] < max) {
+						pos[i] = max;
+					}
+					max = pos[i];
+				}
+			}
+			for (int i = 1; i < n; i++) {
+				if (auto[i]) {
+					int j = i + 1;
+					while (auto[j]) {
+						j++;
+					}
+					float step = (pos[j] - pos[i - 1]) / (j - i + 1);
+					for (int k = i; k < j; k++) {
+						pos[k] = pos[i - 1] + step * (k - i + 1);
+					}
+					i = j;
+				}
+			}
+			return pos;
+		}
+
+		Color[] colorArray() {
+			return colors.toArray(new Color[0]);
+		}
+
+		/*
+		 * Map the positions from the [lo,hi] interval to [0,1], and make them
+		 * strictly increasing as MultipleGradientPaint requires.
+		 */
+		static float[] fractions(float[] pos, float lo, float hi) {
+			int n = pos.length;
+			float[] fractions = new float[n];
+			float range = hi - lo;
+			for (int i = 0; i < n; i++) {
+				fractions[i] = (pos[i] - lo) / range;
+			}
+			for (int i = 1; i < n; i++) {
+				if (fractions[i] <= fractions[i - 1]) {
+					fractions[i] = fractions[i - 1] + 1e-6f;
+				}
+			}
+			float last = fractions[n - 1];
+			if (last > 1f) {
+				for (int i = 0; i < n; i++) {
+					fractions[i] /= last;
+				}
+			}
+			return fractions;
+		}
+
+		Color lastColor() {
+			return colors.get(colors.size() - 1);
+		}
+
+	}
+
+	private static class LinearGradient extends Gradient {
+
+		/*
+		 * Angle in radians, or NaN if the direction is a corner.
+		 */
+		private double angle = Math.PI;
+
+		private int cornerX;
+
+		private int cornerY;
+
+		LinearGradient(boolean repeating) {
+			super(repeating);
+		}
+
+		@Override
+		boolean configure(List<CSSValue> items) {
+			if ("to".equals(identifier(items.get(0)))) {
+				int x = 0, y = 0;
+				for (int i = 1; i < items.size(); i++) {
+					switch (identifier(items.get(i))) {
+					case "left":
+						x = -1;
+						break;
+					case "right":
+						x = 1;
+						break;
+					case "top":
+						y = -1;
+						break;
+					case "bottom":
+						y = 1;
+						break;
+					default:
+						return false;
+					}
+				}
+				if (x != 0 && y != 0) {
+					angle = Double.NaN;
+					cornerX = x;
+					cornerY = y;
+				} else if (x != 0) {
+					angle = x * Math.PI / 2;
+				} else if (y != 0) {
+					angle = y == 1 ? Math.PI : 0;
+				} else {
+					return false;
+				}
+				return true;
+			}
+			if (items.size() == 1) {
+				CSSValue item = items.get(0);
+				if (item.getCssValueType() == CssType.TYPED
+						&& item.getPrimitiveType() == Type.NUMERIC) {
+					try {
+						angle = Math.toRadians(((CSSTypedValue) item).getFloatValue(CSSUnit.CSS_DEG));
+						return true;
+					} catch (DOMException e) {
+					}
+				}
+			}
+			return false;
+		}
+
+		@Override
+		Paint createPaint(float width, float height) {
+			double dx, dy;
+			if (Double.isNaN(angle)) {
+				// Perpendicular to the diagonal between the two other corners
+				double norm = Math.hypot(width, height);
+				if (norm == 0d) {
+					return lastColor();
+				}
+				dx = cornerX * height / norm;
+				dy = cornerY * width / norm;
+			} else {
+				dx = Math.sin(angle);
+				dy = -Math.cos(angle);
+			}
+			float length = (float) (Math.abs(width * dx) + Math.abs(height * dy));
+			if (length == 0f || colors.size() == 1) {
+				return lastColor();
+			}
+			float[] pos = resolveStops(length);
+			float lo, hi;
+			if (repeating) {
+				lo = pos[0];
+				hi = pos[pos.length - 1];
+				if (hi <= lo) {
+					return lastColor();
+				}
+			} else {
+				lo = Math.min(0f, pos[0]);
+				hi = Math.max(1f, pos[pos.length - 1]);
+			}
+			double cx = width / 2d, cy = height / 2d;
+			double half = length / 2d;
+			Point2D start = new Point2D.Double(cx - dx * half + dx * length * lo,
+					cy - dy * half + dy * length * lo);
+			Point2D end = new Point2D.Double(cx - dx * half + dx * length * hi,
+					cy - dy * half + dy * length * hi);
+			return new LinearGradientPaint(start, end, fractions(pos, lo, hi), colorArray(),
+					repeating ? CycleMethod.REPEAT : CycleMethod.NO_CYCLE);
+		}
+
+	}
+
+	private static class RadialGradient extends Gradient {
+
+		private boolean circle = false;
+
+		private int size = SIZE_FARTHEST_CORNER;
+
+		private Dimension sizeX, sizeY;
+
+		private Dimension positionX = new Dimension(0.5f, true);
+
+		private Dimension positionY = new Dimension(0.5f, true);
+
+		RadialGradient(boolean repeating) {
+			super(repeating);
+		}
+
+		@Override
+		boolean configure(List<CSSValue> items) {
+			int n = items.size();
+			int i = 0;
+			boolean shapeSet = false;
+			List<Dimension> dims = new ArrayList<>(2);
+			for (; i < n; i++) {
+				CSSValue item = items.get(i);
+				String ident = identifier(item);
+				if ("at".equals(ident)) {
+					break;
+				}
+				switch (ident) {
+				case "circle":
+					circle = true;
+					shapeSet = true;
+					break;
+				case "ellipse":
+					shapeSet = true;
+					break;
+				case "closest-side":
+					size = SIZE_CLOSEST_SIDE;
+					break;
+				case "farthest-side":
+					size = SIZE_FARTHEST_SIDE;
+					break;
+				case "closest-corner":
+					size = SIZE_CLOSEST_CORNER;
+					break;
+				case "farthest-corner":
+					size = SIZE_FARTHEST_CORNER;
+					break;
+				default:
+					Dimension dim = Dimension.of(item);
+					if (dim == null) {
+						return false;
+					}
+					dims.add(dim);
+				}
+			}
+			if (dims.size() == 1) {
+				if (dims.get(0).percentage || (shapeSet && !circle)) {
+					return false;
+				}
+				circle = true;
+				size = SIZE_EXPLICIT;
+				sizeX = sizeY = dims.get(0);
+			} else if (dims.size() == 2) {
+				if (circle) {
+					return false;
+				}
+				size = SIZE_EXPLICIT;
+				sizeX = dims.get(0);
+				sizeY = dims.get(1);
+			} else if (!dims.isEmpty()) {
+				return false;
+			}
+			if (i < n) {
+				return configurePosition(items.subList(i + 1, n));
+			}
+			return true;
+		}
+
+		private boolean configurePosition(List<CSSValue> items) {
+			int n = items.size();
+			if (n == 0 || n > 2) {
+				return false;
+			}
+			Dimension x = null, y = null;
+			for (int i = 0; i < n; i++) {
+				CSSValue item = items.get(i);
+				switch (identifier(item)) {
+				case "left":
+					x = new Dimension(0f, true);
+					break;
+				case "right":
+					x = new Dimension(1f, true);
+					break;
+				case "top":
+					y = new Dimension(0f, true);
+					break;
+				case "bottom":
+					y = new Dimension(1f, true);
+					break;
+				case "center":
+					// The default
+					break;
+				default:
+					Dimension dim = Dimension.of(item);
+					if (dim == null) {
+						return false;
+					}
+					if (i == 0) {
+						x = dim;
+					} else {
+						y = dim;
+					}
+				}
+			}
+			if (x != null) {
+				positionX = x;
+			}
+			if (y != null) {
+				positionY = y;
+			}
+			return true;
+		}
+
+		@Override
+		Paint createPaint(float width, float height) {
+			if (colors.size() == 1) {
+				return lastColor();
+			}
+			float cx = positionX.resolve(width);
+			float cy = positionY.resolve(height);
+			float left = Math.abs(cx), right = Math.abs(width - cx);
+			float top = Math.abs(cy), bottom = Math.abs(height - cy);
+			float rx, ry;
+			switch (size) {
+			case SIZE_EXPLICIT:
+				rx = sizeX.resolve(width);
+				ry = sizeY.resolve(height);
+				break;
+			case SIZE_CLOSEST_SIDE:
+				rx = Math.min(left, right);
+				ry = Math.min(top, bottom);
+				if (circle) {
+					rx = ry = Math.min(rx, ry);
+				}
+				break;
+			case SIZE_FARTHEST_SIDE:
+				rx = Math.max(left, right);
+				ry = Math.max(top, bottom);
+				if (circle) {
+					rx = ry = Math.max(rx, ry);
+				}
+				break;
+			default:
+				boolean closest = size == SIZE_CLOSEST_CORNER;
+				float cornerX = closest ? Math.min(left, right) : Math.max(left, right);
+				float cornerY = closest ? Math.min(top, bottom) : Math.max(top, bottom);
+				if (circle) {
+					rx = ry = (float) Math.hypot(cornerX, cornerY);
+				} else {
+					// Same aspect ratio as the side sizes, through the corner
+					rx = cornerX * (float) Math.sqrt(2d);
+					ry = cornerY * (float) Math.sqrt(2d);
+				}
+			}
+			if (!(rx > 0f) || !(ry > 0f)) {
+				return lastColor();
+			}
+
+			float[] pos = resolveStops(rx);
+			Color[] colorArray = colorArray();
+			float radius;
+			float[] fractions;
+			if (repeating) {
+				float period = pos[pos.length - 1] - pos[0];
+				if (period <= 0f) {
+					return lastColor();
+				}
+				radius = rx * period;
+				Stops stops = wrapStops(pos, colorArray, period);
+				fractions = stops.fractions;
+				colorArray = stops.colors;
+			} else {
+				if (pos[pos.length - 1] < 0f) {
+					return lastColor();
+				}
+				if (pos[0] < 0f) {
+					Stops stops = clipNegativeStops(pos, colorArray);
+					pos = stops.fractions;
+					colorArray = stops.colors;
+				}
+				float hi = Math.max(1f, pos[pos.length - 1]);
+				radius = rx * hi;
+				fractions = fractions(pos, 0f, hi);
+			}
+
+			AffineTransform transform = AffineTransform.getTranslateInstance(cx, cy);
+			transform.scale(1d, ry / rx);
+			Point2D center = new Point2D.Float();
+			return new RadialGradientPaint(center, radius, center, fractions, colorArray,
+					repeating ? CycleMethod.REPEAT : CycleMethod.NO_CYCLE, ColorSpaceType.SRGB,
+					transform);
+		}
+
+		/*
+		 * The gradient ray starts at the center, so the stops at negative positions
+		 * are dropped, and the first stop is placed at the center with the color
+		 * that the gradient has there. The last position must not be negative.
+		 */
+		private static Stops clipNegativeStops(float[] pos, Color[] colors) {
+			int first = 0;
+			while (pos[first] < 0f) {
+				first++;
+			}
+			int n = pos.length - first + 1;
+			float[] clipped = new float[n];
+			Color[] clippedColors = new Color[n];
+			clippedColors[0] = interpolate(colors[first - 1], colors[first],
+					-pos[first - 1] / (pos[first] - pos[first - 1]));
+			System.arraycopy(pos, first, clipped, 1, n - 1);
+			System.arraycopy(colors, first, clippedColors, 1, n - 1);
+			return new Stops(clipped, clippedColors);
+		}
+
+		/*
+		 * The repeat period of a radial paint starts at the center. Place each stop
+		 * at its phase within the period, and add stops at both ends with the color
+		 * at the wrap point.
+		 */
+		private static Stops wrapStops(float[] pos, Color[] colors, float period) {
+			int n = pos.length;
+			float start = pos[0] / period;
+			start -= (float) Math.floor(start);
+			float[] phase = new float[n];
+			int k = n - 1;
+			for (int i = 0; i < n; i++) {
+				phase[i] = start + (pos[i] - pos[0]) / period;
+				if (phase[i] > 1f && k == n - 1) {
+					k = i - 1;
+				}
+			}
+			if (k == n - 1) {
+				return new Stops(fractions(phase, 0f, 1f), colors);
+			}
+			Color wrap = interpolate(colors[k], colors[k + 1],
+					(1f - phase[k]) / (phase[k + 1] - phase[k]));
+			float[] wrappedPhase = new float[n + 2];
+			Color[] wrappedColors = new Color[n + 2];
+			wrappedColors[0] = wrap;
+			int j = 1;
+			for (int i = k + 1; i < n; i++, j++) {
+				wrappedPhase[j] = phase[i] - 1f;
+				wrappedColors[j] = colors[i];
+			}
+			for (int i = 0; i <= k; i++, j++) {
+				wrappedPhase[j] = phase[i];
+				wrappedColors[j] = colors[i];
+			}
+			wrappedPhase[j] = 1f;
+			wrappedColors[j] = wrap;
+			return new Stops(fractions(wrappedPhase, 0f, 1f), wrappedColors);
+		}
+
+		private static Color interpolate(Color c0, Color c1, float t) {
+			t = Math.max(0f, Math.min(1f, t));
+			float u = 1f - t;
+			return new Color(Math.round(c0.getRed() * u + c1.getRed() * t),
+					Math.round(c0.getGreen() * u + c1.getGreen() * t),
+					Math.round(c0.getBlue() * u + c1.getBlue() * t),
+					Math.round(c0.getAlpha() * u + c1.getAlpha() * t));
+		}
+
+	}
+
+	private static class Stops {
+
+		final float[] fractions;
+
+		final Color[] colors;
+
+		Stops(float[] fractions, Color[] colors) {
+			super();
+			this.fractions = fractions;
+			this.colors = colors;
+		}
+
+	}
+
+	private static class PaintKey {
+
+		private final Gradient gradient;
+
+		private final float width;
+
+		private final float height;
+
+		PaintKey(Gradient gradient, float width, float height) {
+			super();
+			this.gradient = gradient;
+			this.width = width;
+			this.height = height;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = System.identityHashCode(gradient);
+			result = 31 * result + Float.floatToIntBits(width);
+			return 31 * result + Float.floatToIntBits(height);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof PaintKey)) {
+				return false;
+			}
+			PaintKey other = (PaintKey) obj;
+			return gradient == other.gradient
+					&& Float.floatToIntBits(width) == Float.floatToIntBits(other.width)
+					&& Float.floatToIntBits(height) == Float.floatToIntBits(other.height);
+		}
+
+	}
+
+}
@@ -0,0 +1,117 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emits the telemetry events to the JDK Flight Recorder.
+ * <p>
+ * This is the only class that uses the <code>jdk.jfr</code> module, and it is
+ * loaded reflectively by {@link AWTTelemetry} so that the rest of the package
+ * works without it.
+ * </p>
+ * <p>
+ * The duration of the events is the time between their begin and commit.
+ * </p>
+ */
+class JfrEventSink implements AWTTelemetry.EventSink {
+
+	JfrEventSink() {
+		super();
+		// Fail now if the Flight Recorder classes are missing
+		new FontFaceLoadEvent();
+		new FontFamilyProbeEvent();
+	}
+
+	@Override
+	public Object beginFontFaceLoad() {
+		FontFaceLoadEvent event = new FontFaceLoadEvent();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void commitFontFaceLoad(Object ev, String familyName, String format, long bytes,
+			String outcome) {
+		FontFaceLoadEvent event = (FontFaceLoadEvent) ev;
+		event.family = familyName;
+		event.format = format;
+		event.bytes = bytes;
+		event.outcome = outcome;
+		event.commit();
+	}
+
+	@Override
+	public Object beginFontFamilyProbe() {
+		FontFamilyProbeEvent event = new FontFamilyProbeEvent();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void commitFontFamilyProbe(Object ev, String familyName, boolean available) {
+		FontFamilyProbeEvent event = (FontFamilyProbeEvent) ev;
+		event.family = familyName;
+		event.available = available;
+		event.commit();
+	}
+
+	@Name("io.sf.carte.css4j.awt.FontFaceLoad")
+	@Label("Font Face Load")
+	@Description("A font loaded by a @font-face rule")
+	@Category({ "css4j", "AWT" })
+	static class FontFaceLoadEvent extends Event {
+
+		@Label("Family")
+		String family;
+
+		@Label("Format")
+		String format;
+
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+
+		@Label("Outcome")
+		String outcome;
+
+	}
+
+	@Name("io.sf.carte.css4j.awt.FontFamilyProbe")
+	@Label("Font Family Probe")
+	@Description("A check of whether a font family is available")
+	@Category({ "css4j", "AWT" })
+	@StackTrace(false)
+	static class FontFamilyProbeEvent extends Event {
+
+		@Label("Family")
+		String family;
+
+		@Label("Available")
+		boolean available;
+
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count of timed operations, with their total time and a histogram of their
+ * latencies.
+ * <p>
+ * The first bucket counts the operations that took less than a microsecond,
+ * and each following bucket doubles the upper bound of the previous one. The
+ * last bucket counts everything above the bounds.
+ * </p>
+ */
+class LatencyHistogram {
+
+	/**
+	 * The number of buckets.
+	 */
+	static final int BUCKETS = 24;
+
+	private final LongAdder count = new LongAdder();
+
+	private final LongAdder totalNanos = new LongAdder();
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+	LatencyHistogram() {
+		super();
+	}
+
+	void record(long nanos) {
+		count.increment();
+		totalNanos.add(nanos);
+		buckets.incrementAndGet(bucket(nanos));
+	}
+
+	static int bucket(long nanos) {
+		long micros = nanos / 1000L;
+		if (micros <= 0L) {
+			return 0;
+		}
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+	}
+
+	/**
+	 * Get the upper bounds of the buckets, except the last one.
+	 *
+	 * @return the bounds, in microseconds.
+	 */
+	static long[] bounds() {
+		long[] bounds = new long[BUCKETS - 1];
+		for (int i = 0; i < bounds.length; i++) {
+			bounds[i] = 1L << i;
+		}
+		return bounds;
+	}
+
+	long count() {
+		return count.sum();
+	}
+
+	long totalNanos() {
+		return totalNanos.sum();
+	}
+
+	long[] histogram() {
+		long[] histogram = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			histogram[i] = buckets.get(i);
+		}
+		return histogram;
+	}
+
+	void reset() {
+		count.reset();
+		totalNanos.reset();
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets.set(i, 0L);
+		}
+	}
+
+}
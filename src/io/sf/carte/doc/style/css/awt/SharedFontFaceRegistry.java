@@ -0,0 +1,305 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.Font;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A registry of {@literal @}font-face fonts that are shared by several style
+ * databases.
+ * <p>
+ * Style databases that {@linkplain
+ * AWTStyleDatabase#setSharedFontFaceRegistry(SharedFontFaceRegistry) opt into}
+ * a registry obtain one shared {@link Font} per unique face instead of parsing
+ * their own copy. Faces are identified by the SHA-256 hash of their decoded
+ * data, so the same font served from different sources is also shared, and the
+ * source keys of the {@literal @}font-face rules are mapped to those hashes so
+ * that a source that was already loaded by another database is not fetched
+ * again.
+ * </p>
+ * <p>
+ * The registry tracks which databases use each face. A face is released when no
+ * database uses it anymore: either because the databases evicted it from their
+ * font-face stores, or because they were garbage collected.
+ * </p>
+ * <p>
+ * Instances are thread-safe.
+ * </p>
+ *
+ * @author Carlos Amengual
+ *
+ */
+public final class SharedFontFaceRegistry {
+
+	private static final SharedFontFaceRegistry DEFAULT = new SharedFontFaceRegistry();
+
+	private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+	/*
+	 * The leases of the live databases, which must be reachable until they are
+	 * enqueued.
+	 */
+	private final Set<Lease> leases = new HashSet<>();
+
+	/*
+	 * The faces, by content hash.
+	 */
+	private final Map<String, SharedFace> faces = new HashMap<>();
+
+	/*
+	 * The content hashes, by source key.
+	 */
+	private final Map<String, String> sources = new HashMap<>();
+
+	private long estimatedBytes = 0;
+
+	/**
+	 * Construct a new registry.
+	 * <p>
+	 * Most applications use the {@linkplain #getDefault() process-wide
+	 * registry}.
+	 * </p>
+	 */
+	public SharedFontFaceRegistry() {
+		super();
+	}
+
+	/**
+	 * Get the process-wide registry.
+	 *
+	 * @return the default registry.
+	 */
+	public static SharedFontFaceRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Obtain a new lease, which tracks the faces used by the given owner.
+	 *
+	 * @param owner the owner of the lease.
+	 * @return the lease.
+	 */
+	synchronized Lease newLease(Object owner) {
+		expunge();
+		Lease lease = new Lease(owner, queue);
+		leases.add(lease);
+		return lease;
+	}
+
+	/**
+	 * Get the face that was registered for the given source.
+	 * <p>
+	 * The face is not marked as used: the database has to
+	 * {@link #register(Lease, String, String, Font, long) register} it.
+	 * </p>
+	 *
+	 * @param sourceKey the source key of the {@literal @}font-face rule.
+	 * @return the face, or {@code null} if no face was registered for the source.
+	 */
+	synchronized SharedFace get(String sourceKey) {
+		expunge();
+		String hash = sources.get(sourceKey);
+		return hash != null ? faces.get(hash) : null;
+	}
+
+	/**
+	 * Register a font, or get the one that was registered with the same content.
+	 *
+	 * @param lease          the lease of the database.
+	 * @param sourceKey      the source key of the {@literal @}font-face rule, or
+	 *                       {@code null} if not known.
+	 * @param contentHash    the hash of the decoded font data.
+	 * @param font           the font that was created from the data.
+	 * @param estimatedBytes the estimated size of the font.
+	 * @return the shared face.
+	 */
+	synchronized SharedFace register(Lease lease, String sourceKey, String contentHash,
+			Font font, long estimatedBytes) {
+		expunge();
+		SharedFace face = faces.get(contentHash);
+		if (face == null) {
+			face = new SharedFace(contentHash, font, estimatedBytes);
+			faces.put(contentHash, face);
+			this.estimatedBytes += estimatedBytes;
+		}
+		if (sourceKey != null) {
+			sources.put(sourceKey, contentHash);
+		}
+		use(lease, face);
+		return face;
+	}
+
+	private static void use(Lease lease, SharedFace face) {
+		Integer count = lease.uses.get(face.hash);
+		if (count == null) {
+			lease.uses.put(face.hash, 1);
+			face.users++;
+		} else {
+			lease.uses.put(face.hash, count + 1);
+		}
+	}
+
+	/**
+	 * Release one use of a face.
+	 *
+	 * @param lease       the lease of the database.
+	 * @param contentHash the hash of the face.
+	 */
+	synchronized void release(Lease lease, String contentHash) {
+		Integer count = lease.uses.get(contentHash);
+		if (count != null) {
+			if (count == 1) {
+				lease.uses.remove(contentHash);
+				unuse(contentHash);
+			} else {
+				lease.uses.put(contentHash, count - 1);
+			}
+		}
+		expunge();
+	}
+
+	/**
+	 * Release all the faces of a lease, and forget the lease.
+	 *
+	 * @param lease the lease.
+	 */
+	synchronized void close(Lease lease) {
+		if (leases.remove(lease)) {
+			lease.clear();
+			releaseAll(lease);
+		}
+		expunge();
+	}
+
+	private void releaseAll(Lease lease) {
+		for (String hash : lease.uses.keySet()) {
+			unuse(hash);
+		}
+		lease.uses.clear();
+	}
+
+	private void unuse(String contentHash) {
+		SharedFace face = faces.get(contentHash);
+		if (face != null && --face.users <= 0) {
+			faces.remove(contentHash);
+			estimatedBytes -= face.estimatedBytes;
+			Iterator<String> it = sources.values().iterator();
+			while (it.hasNext()) {
+				if (contentHash.equals(it.next())) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	/*
+	 * Release the faces of the databases that were collected.
+	 */
+	private void expunge() {
+		Reference<?> ref;
+		while ((ref = queue.poll()) != null) {
+			Lease lease = (Lease) ref;
+			if (leases.remove(lease)) {
+				releaseAll(lease);
+			}
+		}
+	}
+
+	/**
+	 * Release the faces of the databases that were garbage collected.
+	 * <p>
+	 * This is also done by every other operation of the registry, so calling it
+	 * is only needed to free the memory of a registry that is no longer used.
+	 * </p>
+	 */
+	public synchronized void purge() {
+		expunge();
+	}
+
+	/**
+	 * Get the number of shared faces.
+	 *
+	 * @return the number of faces in use.
+	 */
+	public synchronized int size() {
+		expunge();
+		return faces.size();
+	}
+
+	/**
+	 * Get the number of databases that use the face with the given source.
+	 *
+	 * @param sourceKey the source key of the {@literal @}font-face rule.
+	 * @return the number of databases using the face, or zero if there is no face
+	 *         for that source.
+	 */
+	synchronized int getUserCount(String sourceKey) {
+		expunge();
+		String hash = sources.get(sourceKey);
+		SharedFace face;
+		return hash != null && (face = faces.get(hash)) != null ? face.users : 0;
+	}
+
+	/**
+	 * Get the total estimated size of the shared faces.
+	 *
+	 * @return the estimated size, in bytes.
+	 */
+	public synchronized long getEstimatedBytes() {
+		expunge();
+		return estimatedBytes;
+	}
+
+	/**
+	 * The faces used by a database, with the number of families that use each.
+	 */
+	static class Lease extends WeakReference<Object> {
+
+		final Map<String, Integer> uses = new HashMap<>();
+
+		Lease(Object owner, ReferenceQueue<Object> queue) {
+			super(owner, queue);
+		}
+
+	}
+
+	static class SharedFace {
+
+		final String hash;
+
+		final Font font;
+
+		final long estimatedBytes;
+
+		/*
+		 * The number of leases that use this face.
+		 */
+		int users = 0;
+
+		SharedFace(String hash, Font font, long estimatedBytes) {
+			super();
+			this.hash = hash;
+			this.font = font;
+			this.estimatedBytes = estimatedBytes;
+		}
+
+	}
+
+}
@@ -0,0 +1,553 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.GraphicsEnvironment;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A precomputed catalog of the font files found in a set of font directories.
+ * <p>
+ * The catalog records the family, style variant and file of each font, and a
+ * summary of the Basic Multilingual Plane pages that each font covers. Only
+ * single-font TrueType and OpenType files are catalogued, so the families that
+ * the graphics environment had when the catalog was built are recorded as well:
+ * those that are not in the catalog files (like the logical fonts, or the fonts
+ * in font collections) remain available, and are created by AWT. It can be
+ * {@link #write(Path) written} to a compact file and {@link #read(Path) read}
+ * back by other processes, which do not need to enumerate and parse the system
+ * fonts again.
+ * </p>
+ * <p>
+ * The catalog is fingerprinted by the modification times of the directories
+ * that were scanned (including their subdirectories), so a catalog that was
+ * read from a file is {@link #isCurrent() current} as long as no font file was
+ * added to or removed from those directories. {@link #load(Path, List)} reads a
+ * current catalog, or scans the directories again and rewrites the file.
+ * </p>
+ * <p>
+ * A catalog is used by a style database once it is
+ * {@linkplain AWTStyleDatabase#setFontCatalog(SystemFontCatalog) set}. Fonts are
+ * created from their files the first time that they are requested.
+ * </p>
+ *
+ * @author Carlos Amengual
+ *
+ */
+public final class SystemFontCatalog {
+
+	private static final int MAGIC = 0x46434154; // FCAT
+
+	private static final short VERSION = 2;
+
+	private static final int STYLE_MASK = Font.BOLD | Font.ITALIC;
+
+	/*
+	 * The number of longs in the BMP page summary: 256 pages of 256 code points.
+	 */
+	private static final int SUMMARY_LENGTH = 4;
+
+	private final Map<Path, Long> fingerprint;
+
+	private final List<Entry> entries;
+
+	/*
+	 * Entries by lowercase family name, indexed by style.
+	 */
+	private final Map<String, Entry[]> families;
+
+	/*
+	 * Lowercase names of the families of the graphics environment.
+	 */
+	private final Set<String> systemFamilies;
+
+	private final ConcurrentHashMap<Path, Font> loadedFonts = new ConcurrentHashMap<>();
+
+	private SystemFontCatalog(Map<Path, Long> fingerprint, List<Entry> entries,
+			Set<String> systemFamilies) {
+		super();
+		this.fingerprint = Collections.unmodifiableMap(fingerprint);
+		this.entries = Collections.unmodifiableList(entries);
+		this.systemFamilies = systemFamilies;
+		families = new HashMap<>(entries.size());
+		for (Entry entry : entries) {
+			Entry[] faces = families.computeIfAbsent(entry.family.toLowerCase(Locale.ROOT),
+					k -> new Entry[STYLE_MASK + 1]);
+			Entry current = faces[entry.style];
+			// Prefer the face with the shortest name, which is the least specific
+			if (current == null || current.fontName.length() > entry.fontName.length()) {
+				faces[entry.style] = entry;
+			}
+		}
+	}
+
+	/**
+	 * Get the directories where the system fonts are usually installed, in the
+	 * current platform.
+	 *
+	 * @return the list of existing font directories.
+	 */
+	public static List<Path> defaultFontDirectories() {
+		String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+		String home = System.getProperty("user.home", "");
+		List<Path> candidates = new ArrayList<>(4);
+		if (os.startsWith("windows")) {
+			String windir = System.getenv("WINDIR");
+			candidates.add(Paths.get(windir != null ? windir : "C:\\Windows", "Fonts"));
+			String local = System.getenv("LOCALAPPDATA");
+			if (local != null) {
+				candidates.add(Paths.get(local, "Microsoft", "Windows", "Fonts"));
+			}
+		} else if (os.startsWith("mac")) {
+			candidates.add(Paths.get("/System/Library/Fonts"));
+			candidates.add(Paths.get("/Library/Fonts"));
+			candidates.add(Paths.get(home, "Library", "Fonts"));
+		} else {
+			candidates.add(Paths.get("/usr/share/fonts"));
+			candidates.add(Paths.get("/usr/local/share/fonts"));
+			candidates.add(Paths.get(home, ".fonts"));
+			candidates.add(Paths.get(home, ".local", "share", "fonts"));
+		}
+		List<Path> dirs = new ArrayList<>(candidates.size());
+		for (Path dir : candidates) {
+			if (Files.isDirectory(dir)) {
+				dirs.add(dir);
+			}
+		}
+		return dirs;
+	}
+
+	/**
+	 * Build a catalog by scanning the given font directories and their
+	 * subdirectories.
+	 * <p>
+	 * TrueType and OpenType files that cannot be parsed by AWT are skipped. The
+	 * font families of the local graphics environment are recorded too, which
+	 * initializes its font subsystem.
+	 * </p>
+	 *
+	 * @param fontDirectories the font directories.
+	 * @return the catalog.
+	 * @throws IOException if a directory could not be listed.
+	 */
+	public static SystemFontCatalog scan(List<Path> fontDirectories) throws IOException {
+		Map<Path, Long> fingerprint = new HashMap<>();
+		List<Entry> entries = new ArrayList<>();
+		for (Path dir : fontDirectories) {
+			scanDirectory(dir.toAbsolutePath(), fingerprint, entries);
+		}
+		String[] names = GraphicsEnvironment.getLocalGraphicsEnvironment()
+				.getAvailableFontFamilyNames();
+		Set<String> systemFamilies = new HashSet<>(names.length * 4 / 3 + 1);
+		for (String name : names) {
+			systemFamilies.add(name.toLowerCase(Locale.ROOT));
+		}
+		return new SystemFontCatalog(fingerprint, entries, systemFamilies);
+	}
+
+	private static void scanDirectory(Path dir, Map<Path, Long> fingerprint, List<Entry> entries)
+			throws IOException {
+		if (fingerprint.containsKey(dir)) {
+			return;
+		}
+		fingerprint.put(dir, Files.getLastModifiedTime(dir).toMillis());
+		List<Path> subdirs = new ArrayList<>();
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path path : stream) {
+				if (Files.isDirectory(path)) {
+					subdirs.add(path);
+				} else if (isFontFile(path)) {
+					files.add(path);
+				}
+			}
+		}
+		// Keep the order of the entries stable across scans
+		Collections.sort(files);
+		Collections.sort(subdirs);
+		for (Path file : files) {
+			Entry entry = probe(file);
+			if (entry != null) {
+				entries.add(entry);
+			}
+		}
+		for (Path subdir : subdirs) {
+			scanDirectory(subdir, fingerprint, entries);
+		}
+	}
+
+	private static boolean isFontFile(Path path) {
+		String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+		return name.endsWith(".ttf") || name.endsWith(".otf");
+	}
+
+	private static Entry probe(Path file) {
+		Font font;
+		try {
+			font = Font.createFont(Font.TRUETYPE_FONT, file.toFile());
+		} catch (FontFormatException | IOException | RuntimeException e) {
+			return null;
+		}
+		String family = font.getFamily(Locale.ROOT);
+		String fontName = font.getFontName(Locale.ROOT);
+		return new Entry(family, styleFromName(family, fontName), fontName, file,
+				coverageSummary(font));
+	}
+
+	/*
+	 * Fonts created from files report a plain style, so the style is guessed from
+	 * the part of the font name that follows the family name.
+	 */
+	private static int styleFromName(String family, String fontName) {
+		String sub = fontName.regionMatches(true, 0, family, 0, family.length())
+				? fontName.substring(family.length())
+				: fontName;
+		sub = sub.toLowerCase(Locale.ROOT);
+		int style = Font.PLAIN;
+		if (sub.contains("bold") || sub.contains("black") || sub.contains("heavy")) {
+			style |= Font.BOLD;
+		}
+		if (sub.contains("italic") || sub.contains("oblique")) {
+			style |= Font.ITALIC;
+		}
+		return style;
+	}
+
+	private static long[] coverageSummary(Font font) {
+		long[] summary = new long[SUMMARY_LENGTH];
+		for (int page = 0; page < 256; page++) {
+			int base = page << 8;
+			for (int i = 0; i < 256; i++) {
+				if (font.canDisplay(base + i)) {
+					summary[page >> 6] |= 1L << (page & 63);
+					break;
+				}
+			}
+		}
+		return summary;
+	}
+
+	/**
+	 * Read a catalog from a file written by {@link #write(Path)}.
+	 *
+	 * @param file the catalog file.
+	 * @return the catalog.
+	 * @throws IOException if the file could not be read, or is not a catalog file.
+	 */
+	public static SystemFontCatalog read(Path file) throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+				throw new IOException("Not a font catalog file: " + file);
+			}
+			int count = in.readInt();
+			Map<Path, Long> fingerprint = new HashMap<>(count * 4 / 3 + 1);
+			for (int i = 0; i < count; i++) {
+				Path dir = Paths.get(in.readUTF());
+				fingerprint.put(dir, in.readLong());
+			}
+			count = in.readInt();
+			List<Entry> entries = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				String family = in.readUTF();
+				int style = in.readByte() & STYLE_MASK;
+				String fontName = in.readUTF();
+				Path fontFile = Paths.get(in.readUTF());
+				long[] summary = new long[SUMMARY_LENGTH];
+				for (int j = 0; j < SUMMARY_LENGTH; j++) {
+					summary[j] = in.readLong();
+				}
+				entries.add(new Entry(family, style, fontName, fontFile, summary));
+			}
+			count = in.readInt();
+			Set<String> systemFamilies = new HashSet<>(count * 4 / 3 + 1);
+			for (int i = 0; i < count; i++) {
+				systemFamilies.add(in.readUTF());
+			}
+			return new SystemFontCatalog(fingerprint, entries, systemFamilies);
+		}
+	}
+
+	/**
+	 * Write this catalog to a file.
+	 * <p>
+	 * The file is written to a temporary file in the same directory, which is then
+	 * renamed, so concurrent readers never see a partial file.
+	 * </p>
+	 *
+	 * @param file the catalog file.
+	 * @throws IOException if the file could not be written.
+	 */
+	public void write(Path file) throws IOException {
+		Path absFile = file.toAbsolutePath();
+		Path tmp = Files.createTempFile(absFile.getParent(), "fontcatalog", ".tmp");
+		try {
+			try (OutputStream os = Files.newOutputStream(tmp);
+					DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+				out.writeInt(MAGIC);
+				out.writeShort(VERSION);
+				out.writeInt(fingerprint.size());
+				for (Map.Entry<Path, Long> dir : fingerprint.entrySet()) {
+					out.writeUTF(dir.getKey().toString());
+					out.writeLong(dir.getValue());
+				}
+				out.writeInt(entries.size());
+				for (Entry entry : entries) {
+					out.writeUTF(entry.family);
+					out.writeByte(entry.style);
+					out.writeUTF(entry.fontName);
+					out.writeUTF(entry.file.toString());
+					for (long l : entry.summary) {
+						out.writeLong(l);
+					}
+				}
+				out.writeInt(systemFamilies.size());
+				for (String family : systemFamilies) {
+					out.writeUTF(family);
+				}
+			}
+			try {
+				Files.move(tmp, absFile, StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp, absFile, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/**
+	 * Load the catalog of the given font directories from a file, if it is
+	 * current; otherwise scan the directories and write a new file.
+	 *
+	 * @param file            the catalog file.
+	 * @param fontDirectories the font directories.
+	 * @return the catalog.
+	 * @throws IOException if the directories could not be scanned, or the new
+	 *                     catalog could not be written.
+	 */
+	public static SystemFontCatalog load(Path file, List<Path> fontDirectories)
+			throws IOException {
+		if (Files.isRegularFile(file)) {
+			try {
+				SystemFontCatalog catalog = read(file);
+				if (catalog.isCurrent() && catalog.covers(fontDirectories)) {
+					return catalog;
+				}
+			} catch (IOException e) {
+				// Unreadable or old file, replace it
+			}
+		}
+		SystemFontCatalog catalog = scan(fontDirectories);
+		catalog.write(file);
+		return catalog;
+	}
+
+	private boolean covers(List<Path> fontDirectories) {
+		for (Path dir : fontDirectories) {
+			if (!fingerprint.containsKey(dir.toAbsolutePath())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Check whether the font directories are unchanged since this catalog was
+	 * built.
+	 *
+	 * @return {@code true} if the modification times of all the scanned
+	 *         directories are the same as when they were scanned.
+	 */
+	public boolean isCurrent() {
+		for (Map.Entry<Path, Long> dir : fingerprint.entrySet()) {
+			try {
+				if (Files.getLastModifiedTime(dir.getKey()).toMillis() != dir.getValue()) {
+					return false;
+				}
+			} catch (IOException e) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the scanned directories.
+	 *
+	 * @return the set of directories, including subdirectories.
+	 */
+	public Set<Path> getDirectories() {
+		return fingerprint.keySet();
+	}
+
+	/**
+	 * Get the number of fonts in the catalog.
+	 *
+	 * @return the number of font files.
+	 */
+	public int getFontCount() {
+		return entries.size();
+	}
+
+	/**
+	 * Check whether the catalog has the given family.
+	 *
+	 * @param family the family name, in any case.
+	 * @return {@code true} if at least one font of the family was found.
+	 */
+	public boolean hasFamily(String family) {
+		return families.containsKey(family.toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Check whether the given family was available in the graphics environment
+	 * when the catalog was built.
+	 * <p>
+	 * This includes the families that are not in the catalog because their fonts
+	 * are not in single-font files, or not in the scanned directories.
+	 * </p>
+	 *
+	 * @param family the family name, in any case.
+	 * @return {@code true} if the graphics environment had the family.
+	 */
+	public boolean hasSystemFamily(String family) {
+		return systemFamilies.contains(family.toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Get the file of the face of a family that best matches the given style.
+	 *
+	 * @param family the family name, in any case.
+	 * @param style  the style, as in {@link Font#getStyle()}.
+	 * @return the font file, or {@code null} if the family is not in the catalog.
+	 */
+	public Path getFontFile(String family, int style) {
+		Entry entry = bestEntry(family.toLowerCase(Locale.ROOT), style);
+		return entry != null ? entry.file : null;
+	}
+
+	/**
+	 * Check whether a font of the given family may be able to display the given
+	 * code point.
+	 * <p>
+	 * The summary is kept per page of 256 code points, so a positive answer does
+	 * not guarantee that the code point is displayable. Code points outside the
+	 * Basic Multilingual Plane are not summarized, and always give {@code true}.
+	 * </p>
+	 *
+	 * @param family    the family name, in any case.
+	 * @param codePoint the code point.
+	 * @return {@code false} if no font of the family covers any code point in the
+	 *         page, or if the family is not in the catalog.
+	 */
+	public boolean mayDisplay(String family, int codePoint) {
+		Entry[] faces = families.get(family.toLowerCase(Locale.ROOT));
+		if (faces == null) {
+			return false;
+		}
+		if (codePoint > 0xffff) {
+			return true;
+		}
+		int page = codePoint >> 8;
+		for (Entry entry : faces) {
+			if (entry != null && (entry.summary[page >> 6] & (1L << (page & 63))) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Derive a font of the given family, style and size.
+	 * <p>
+	 * The font file is parsed the first time that it is needed. If the catalog
+	 * does not have the exact style, it is synthesized from the closest face.
+	 * </p>
+	 *
+	 * @param lcFamily the family name, in lowercase.
+	 * @param style    the font style.
+	 * @param size     the font size.
+	 * @return the font, or {@code null} if the family is not in the catalog or its
+	 *         file could not be read.
+	 */
+	Font deriveFont(String lcFamily, int style, float size) {
+		Entry entry = bestEntry(lcFamily, style);
+		if (entry == null) {
+			return null;
+		}
+		Font face = loadedFonts.computeIfAbsent(entry.file, SystemFontCatalog::createFont);
+		if (face == null) {
+			return null;
+		}
+		return face.deriveFont((style & ~entry.style & STYLE_MASK) | face.getStyle(), size);
+	}
+
+	private static Font createFont(Path file) {
+		try {
+			return Font.createFont(Font.TRUETYPE_FONT, file.toFile());
+		} catch (FontFormatException | IOException e) {
+			return null;
+		}
+	}
+
+	private Entry bestEntry(String lcFamily, int style) {
+		Entry[] faces = families.get(lcFamily);
+		if (faces == null) {
+			return null;
+		}
+		return faces[AWTHelper.bestFaceIndex(faces, style)];
+	}
+
+	private static class Entry {
+
+		final String family;
+		final int style;
+		final String fontName;
+		final Path file;
+		final long[] summary;
+
+		Entry(String family, int style, String fontName, Path file, long[] summary) {
+			super();
+			this.family = family;
+			this.style = style;
+			this.fontName = fontName;
+			this.file = file;
+			this.summary = summary;
+		}
+
+	}
+
+}
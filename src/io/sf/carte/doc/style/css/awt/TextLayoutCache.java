@@ -0,0 +1,216 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.TextLayout;
+
+/**
+ * A memory-bounded, thread-safe cache of shaped text.
+ * <p>
+ * {@link TextLayout} and {@link GlyphVector} objects are keyed by font, font
+ * render context and text, so that repeated runs of the same text with the same
+ * style skip the shaping.
+ * </p>
+ * <p>
+ * The returned objects are shared: {@code TextLayout} is immutable, but callers
+ * must not modify the returned glyph vectors.
+ * </p>
+ *
+ * @author Carlos Amengual
+ *
+ */
+public class TextLayoutCache {
+
+	/**
+	 * The default maximum size of the cache, in bytes.
+	 */
+	public static final long DEFAULT_MAXIMUM_BYTES = 4L * 1024 * 1024;
+
+	/*
+	 * Rough estimates of the memory used by each kind of object.
+	 */
+	private static final int ENTRY_OVERHEAD = 160;
+
+	private static final int LAYOUT_BYTES_PER_CHAR = 48;
+
+	private static final int GLYPHS_BYTES_PER_CHAR = 24;
+
+	private final BoundedCache<TextKey, Object> cache;
+
+	/**
+	 * Construct a cache with the default maximum size.
+	 */
+	public TextLayoutCache() {
+		this(DEFAULT_MAXIMUM_BYTES);
+	}
+
+	/**
+	 * Construct a cache with the given maximum size.
+	 *
+	 * @param maximumBytes the estimated maximum memory used by the cached objects,
+	 *                     in bytes. If zero, nothing is cached.
+	 */
+	public TextLayoutCache(long maximumBytes) {
+		super();
+		cache = new BoundedCache<>(maximumBytes, TextLayoutCache::estimateBytes);
+	}
+
+	private static long estimateBytes(TextKey key, Object value) {
+		int perChar = key.layout ? LAYOUT_BYTES_PER_CHAR : GLYPHS_BYTES_PER_CHAR;
+		// The key holds the text as well
+		return ENTRY_OVERHEAD + (perChar + 2) * (long) key.text.length();
+	}
+
+	/**
+	 * Get the text layout for the given text.
+	 *
+	 * @param text the text, which must not be empty.
+	 * @param font the font.
+	 * @param frc  the font render context.
+	 * @return the shared text layout.
+	 */
+	public TextLayout getTextLayout(String text, Font font, FontRenderContext frc) {
+		TextKey key = new TextKey(text, font, frc, true);
+		return (TextLayout) cache.computeIfAbsent(key, k -> new TextLayout(k.text, k.font, k.frc));
+	}
+
+	/**
+	 * Get the glyph vector for the given text.
+	 *
+	 * @param text the text.
+	 * @param font the font.
+	 * @param frc  the font render context.
+	 * @return the shared glyph vector, which must not be modified.
+	 */
+	public GlyphVector getGlyphVector(String text, Font font, FontRenderContext frc) {
+		TextKey key = new TextKey(text, font, frc, false);
+		return (GlyphVector) cache.computeIfAbsent(key, k -> k.font.createGlyphVector(k.frc, k.text));
+	}
+
+	/**
+	 * Get the number of requests that were served from the cache.
+	 *
+	 * @return the hit count.
+	 */
+	public long getHitCount() {
+		return cache.getHitCount();
+	}
+
+	/**
+	 * Get the number of requests that required shaping the text.
+	 *
+	 * @return the miss count.
+	 */
+	public long getMissCount() {
+		return cache.getMissCount();
+	}
+
+	/**
+	 * Get the number of cached objects.
+	 *
+	 * @return the number of cached layouts and glyph vectors.
+	 */
+	public int size() {
+		return cache.size();
+	}
+
+	/**
+	 * Get the estimated memory used by the cached objects.
+	 *
+	 * @return the estimated size, in bytes.
+	 */
+	public long getEstimatedBytes() {
+		return cache.getWeight();
+	}
+
+	/**
+	 * Get the maximum size of the cache.
+	 *
+	 * @return the estimated maximum memory used by the cached objects, in bytes.
+	 */
+	public long getMaximumBytes() {
+		return cache.getMaximumSize();
+	}
+
+	/**
+	 * Set the maximum size of the cache.
+	 *
+	 * @param maximumBytes the estimated maximum memory used by the cached objects,
+	 *                     in bytes. If zero, nothing is cached.
+	 */
+	public void setMaximumBytes(long maximumBytes) {
+		cache.setMaximumSize(maximumBytes);
+	}
+
+	/**
+	 * Remove all the cached objects.
+	 * <p>
+	 * The hit/miss counters are kept, as the cache is cleared whenever the
+	 * available fonts change. Use {@link #resetStatistics()} to reset them.
+	 * </p>
+	 */
+	public void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * Reset the hit/miss counters.
+	 */
+	public void resetStatistics() {
+		cache.resetStatistics();
+	}
+
+	private static class TextKey {
+
+		private final String text;
+		private final Font font;
+		private final FontRenderContext frc;
+		private final boolean layout;
+		private final int hash;
+
+		TextKey(String text, Font font, FontRenderContext frc, boolean layout) {
+			super();
+			this.text = text;
+			this.font = font;
+			this.frc = frc;
+			this.layout = layout;
+			int h = text.hashCode();
+			h = 31 * h + font.hashCode();
+			h = 31 * h + frc.hashCode();
+			h = 31 * h + (layout ? 1 : 0);
+			hash = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof TextKey)) {
+				return false;
+			}
+			TextKey other = (TextKey) obj;
+			return layout == other.layout && text.equals(other.text) && font.equals(other.font)
+					&& frc.equals(other.frc);
+		}
+
+	}
+
+}
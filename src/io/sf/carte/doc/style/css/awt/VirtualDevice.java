@@ -0,0 +1,303 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A headless output device with fixed characteristics and an explicit catalog of
+ * fonts.
+ * <p>
+ * A style database that is {@linkplain AWTStyleDatabase#setVirtualDevice(VirtualDevice)
+ * configured} with a virtual device takes its metrics from the device, and
+ * resolves font families against the catalog. The local
+ * {@link GraphicsEnvironment}, whose initialization loads the font subsystem
+ * and scans the system font directories, is not used unless
+ * {@link #setSystemFontsEnabled(boolean) system fonts are enabled} and a family
+ * that is not in the catalog is requested.
+ * </p>
+ * <p>
+ * The catalog is keyed by case-insensitive family names, and a font can be added
+ * under any name. To serve the generic families without touching the system
+ * fonts, add fonts under the logical names that
+ * {@link AWTStyleDatabase#getDefaultGenericFontFamily(String)} returns, like
+ * <code>Serif</code>, <code>SansSerif</code> and <code>Monospaced</code>.
+ * Families that are not found are rendered with the default font, which is the
+ * first font added unless {@link #setDefaultFont(Font) set otherwise}. Only a
+ * device that has no fonts at all falls back to the logical fonts of AWT.
+ * </p>
+ * <p>
+ * Fonts should be added before the device is used. Instances are thread-safe.
+ * </p>
+ *
+ * @author Carlos Amengual
+ *
+ */
+public final class VirtualDevice {
+
+	private static final int STYLE_MASK = Font.BOLD | Font.ITALIC;
+
+	private final float width;
+
+	private final float height;
+
+	private final float resolution;
+
+	private final int colorDepth;
+
+	/*
+	 * Faces by lowercase family name, each array indexed by font style.
+	 */
+	private final ConcurrentHashMap<String, Font[]> catalog = new ConcurrentHashMap<>();
+
+	private volatile Font defaultFont = null;
+
+	private volatile Font firstFont = null;
+
+	private volatile boolean systemFontsEnabled = false;
+
+	/**
+	 * Construct a virtual device.
+	 *
+	 * @param width      the width of the device, in typographic points.
+	 * @param height     the height of the device, in typographic points.
+	 * @param resolution the resolution, in dots per inch.
+	 * @param colorDepth the number of bits per color component.
+	 * @throws IllegalArgumentException if a value is not positive.
+	 */
+	public VirtualDevice(float width, float height, float resolution, int colorDepth) {
+		super();
+		if (!(width > 0f) || !(height > 0f) || !(resolution > 0f) || colorDepth <= 0) {
+			throw new IllegalArgumentException("Invalid device characteristics.");
+		}
+		this.width = width;
+		this.height = height;
+		this.resolution = resolution;
+		this.colorDepth = colorDepth;
+	}
+
+	/**
+	 * Get the width.
+	 *
+	 * @return the width of the device, in typographic points.
+	 */
+	public float getWidth() {
+		return width;
+	}
+
+	/**
+	 * Get the height.
+	 *
+	 * @return the height of the device, in typographic points.
+	 */
+	public float getHeight() {
+		return height;
+	}
+
+	/**
+	 * Get the resolution.
+	 *
+	 * @return the resolution, in dots per inch.
+	 */
+	public float getResolution() {
+		return resolution;
+	}
+
+	/**
+	 * Get the color depth.
+	 *
+	 * @return the number of bits per color component.
+	 */
+	public int getColorDepth() {
+		return colorDepth;
+	}
+
+	/**
+	 * Add a font to the catalog, under its own family name and style.
+	 *
+	 * @param font the font.
+	 * @return {@code true} if the font was added, {@code false} if the catalog
+	 *         already had a font with the same family and style.
+	 */
+	public boolean addFont(Font font) {
+		return addFont(font.getFamily(Locale.ROOT), font.getStyle(), font);
+	}
+
+	/**
+	 * Add a font to the catalog.
+	 * <p>
+	 * Fonts created from a file report a plain style, even if they are the bold
+	 * or italic face of their family. Use this method to give the actual style,
+	 * so that the face is chosen instead of a synthesized style.
+	 * </p>
+	 *
+	 * @param family the family name, in any case.
+	 * @param style  the style of the face, as in {@link Font#getStyle()}.
+	 * @param font   the font.
+	 * @return {@code true} if the font was added, {@code false} if the catalog
+	 *         already had a font with the same family and style.
+	 */
+	public boolean addFont(String family, int style, Font font) {
+		if (font == null) {
+			throw new NullPointerException("Null font.");
+		}
+		String lcFamily = family.toLowerCase(Locale.ROOT);
+		int index = style & STYLE_MASK;
+		boolean[] added = new boolean[1];
+		catalog.compute(lcFamily, (k, faces) -> {
+			if (faces == null) {
+				faces = new Font[STYLE_MASK + 1];
+			} else if (faces[index] != null) {
+				return faces;
+			} else {
+				faces = faces.clone();
+			}
+			faces[index] = font;
+			added[0] = true;
+			return faces;
+		});
+		if (added[0] && firstFont == null) {
+			synchronized (this) {
+				if (firstFont == null) {
+					firstFont = font;
+				}
+			}
+		}
+		return added[0];
+	}
+
+	/**
+	 * Load a TrueType or OpenType font file and add it to the catalog under its
+	 * own family name.
+	 *
+	 * @param fontFile the font file.
+	 * @param style    the style of the face, as in {@link Font#getStyle()}.
+	 * @return the loaded font.
+	 * @throws IOException         if the file could not be read.
+	 * @throws FontFormatException if the file does not contain a valid font.
+	 */
+	public Font addFont(Path fontFile, int style) throws IOException, FontFormatException {
+		Font font;
+		try (InputStream is = Files.newInputStream(fontFile)) {
+			font = Font.createFont(Font.TRUETYPE_FONT, is);
+		}
+		addFont(font.getFamily(Locale.ROOT), style, font);
+		return font;
+	}
+
+	/**
+	 * Set the font that is used for the families that are not in the catalog,
+	 * nor in the system fonts if those are enabled.
+	 *
+	 * @param font the default font, or {@code null} to use the first font that
+	 *             was added to the catalog.
+	 */
+	public void setDefaultFont(Font font) {
+		defaultFont = font;
+	}
+
+	/**
+	 * Get the font that is used for the families that are not in the catalog,
+	 * nor in the system fonts if those are enabled.
+	 *
+	 * @return the default font, which is the first font added unless set
+	 *         otherwise, or {@code null} if none was set and the catalog is
+	 *         empty.
+	 */
+	public Font getDefaultFont() {
+		Font font = defaultFont;
+		return font != null ? font : firstFont;
+	}
+
+	/**
+	 * Allow or disallow the use of the system fonts for the families that are not
+	 * in the catalog.
+	 * <p>
+	 * Enabling it means that the local graphics environment is initialized the
+	 * first time that such a family is checked.
+	 * </p>
+	 *
+	 * @param enabled {@code true} to use the system fonts. Default is
+	 *                {@code false}.
+	 */
+	public void setSystemFontsEnabled(boolean enabled) {
+		systemFontsEnabled = enabled;
+	}
+
+	/**
+	 * Check whether the system fonts are used for the families that are not in
+	 * the catalog.
+	 *
+	 * @return {@code true} if the system fonts are used.
+	 */
+	public boolean isSystemFontsEnabled() {
+		return systemFontsEnabled;
+	}
+
+	/**
+	 * Check whether the catalog has the given family.
+	 *
+	 * @param family the family name, in any case.
+	 * @return {@code true} if the catalog has at least one face of the family.
+	 */
+	public boolean hasFamily(String family) {
+		return catalog.containsKey(family.toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Get the catalog face that best matches the given style.
+	 *
+	 * @param lcFamily the family name, in lowercase.
+	 * @param style    the font style.
+	 * @return the face, or {@code null} if the family is not in the catalog.
+	 */
+	Font getFace(String lcFamily, int style) {
+		Font[] faces = catalog.get(lcFamily);
+		if (faces == null) {
+			return null;
+		}
+		return faces[AWTHelper.bestFaceIndex(faces, style)];
+	}
+
+	/**
+	 * Derive a font of the given family, style and size from the catalog.
+	 * <p>
+	 * If the catalog does not have the exact style, it is synthesized from the
+	 * closest face.
+	 * </p>
+	 *
+	 * @param lcFamily the family name, in lowercase.
+	 * @param style    the font style.
+	 * @param size     the font size.
+	 * @return the font, or {@code null} if the family is not in the catalog.
+	 */
+	Font deriveFont(String lcFamily, int style, float size) {
+		Font[] faces = catalog.get(lcFamily);
+		if (faces == null) {
+			return null;
+		}
+		style &= STYLE_MASK;
+		int index = AWTHelper.bestFaceIndex(faces, style);
+		Font face = faces[index];
+		// The style that the face does not already have is synthesized
+		return face.deriveFont((style & ~index) | face.getStyle(), size);
+	}
+
+}
@@ -0,0 +1,972 @@
+/*
+
+ Copyright (c) 2005-2026, Carlos Amengual.
+
+ Licensed under a BSD-style License. You can find the license here:
+ https://css4j.github.io/LICENSE.txt
+
+ */
+
+// SPDX-License-Identifier: BSD-2-Clause OR BSD-3-Clause
+
+package io.sf.carte.doc.style.css.awt;
+
+import java.awt.FontFormatException;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decoder of WOFF and WOFF2 fonts into plain sfnt (TrueType or OpenType) data,
+ * suitable for {@link java.awt.Font#createFont(int, InputStream)}.
+ * <p>
+ * The decoded font is written to a buffer that is reused by the following
+ * decodings, so a decoder instance is not thread-safe and the stream returned
+ * by {@link #decode(InputStream)} is only valid until the next call.
+ * </p>
+ * <p>
+ * WOFF2 fonts require a Brotli decompressor, which the Java platform does not
+ * provide. If the <a href="https://github.com/google/brotli">Brotli</a> Java
+ * decoder ({@code org.brotli.dec}) is found in the class path it is used
+ * automatically, otherwise one can be set with
+ * {@link #setBrotliDecompressor(BrotliDecompressor)}.
+ * </p>
+ *
+ * @author Carlos Amengual
+ *
+ */
+public class WoffDecoder {
+
+	/**
+	 * Decompresses Brotli streams.
+	 */
+	@FunctionalInterface
+	public interface BrotliDecompressor {
+
+		/**
+		 * Wrap a Brotli-compressed stream into a stream of decompressed data.
+		 *
+		 * @param compressed the compressed stream.
+		 * @return the decompressed stream.
+		 * @throws IOException if an I/O error occurred.
+		 */
+		InputStream decompress(InputStream compressed) throws IOException;
+
+	}
+
+	private static final int WOFF_SIGNATURE = 0x774f4646; // wOFF
+
+	private static final int WOFF2_SIGNATURE = 0x774f4632; // wOF2
+
+	private static final int TTC_FLAVOR = 0x74746366; // ttcf
+
+	private static final int TAG_GLYF = 0x676c7966;
+
+	private static final int TAG_LOCA = 0x6c6f6361;
+
+	private static final int TAG_HMTX = 0x686d7478;
+
+	private static final int TAG_HHEA = 0x68686561;
+
+	private static final int TAG_HEAD = 0x68656164;
+
+	/*
+	 * Limit to the size of decoded fonts, to protect from malformed files.
+	 */
+	private static final int MAXIMUM_SFNT_SIZE = 64 * 1024 * 1024;
+
+	/*
+	 * Buffers larger than this are not kept for reuse.
+	 */
+	private static final int MAXIMUM_RETAINED_SIZE = 2 * 1024 * 1024;
+
+	/*
+	 * The WOFF2 known table tags, by index.
+	 */
+	private static final int[] KNOWN_TAGS = { tag("cmap"), tag("head"), tag("hhea"), tag("hmtx"),
+			tag("maxp"), tag("name"), tag("OS/2"), tag("post"), tag("cvt "), tag("fpgm"),
+			tag("glyf"), tag("loca"), tag("prep"), tag("CFF "), tag("VORG"), tag("EBDT"),
+			tag("EBLC"), tag("gasp"), tag("hdmx"), tag("kern"), tag("LTSH"), tag("PCLT"),
+			tag("VDMX"), tag("vhea"), tag("vmtx"), tag("BASE"), tag("GDEF"), tag("GPOS"),
+			tag("GSUB"), tag("EBSC"), tag("JSTF"), tag("MATH"), tag("CBDT"), tag("CBLC"),
+			tag("COLR"), tag("CPAL"), tag("SVG "), tag("sbix"), tag("acnt"), tag("avar"),
+			tag("bdat"), tag("bloc"), tag("bsln"), tag("cvar"), tag("fdsc"), tag("feat"),
+			tag("fmtx"), tag("fvar"), tag("gvar"), tag("hsty"), tag("just"), tag("lcar"),
+			tag("mort"), tag("morx"), tag("opbd"), tag("prop"), tag("trak"), tag("Zapf"),
+			tag("Silf"), tag("Glat"), tag("Gloc"), tag("Feat"), tag("Sill") };
+
+	private static volatile BrotliDecompressor brotliDecompressor = findBrotliDecompressor();
+
+	/*
+	 * The decoded font.
+	 */
+	private final Buffer sfnt = new Buffer();
+
+	/*
+	 * Compressed input.
+	 */
+	private final Buffer compressed = new Buffer();
+
+	/*
+	 * Decompressed WOFF2 table data.
+	 */
+	private final Buffer input = new Buffer();
+
+	/*
+	 * Reconstructed glyf, loca and hmtx tables.
+	 */
+	private final Buffer glyf = new Buffer();
+	private final Buffer loca = new Buffer();
+	private final Buffer hmtx = new Buffer();
+
+	private int[] xCoords = new int[64];
+	private int[] yCoords = new int[64];
+	private boolean[] onCurve = new boolean[64];
+
+	/**
+	 * Construct a decoder.
+	 */
+	public WoffDecoder() {
+		super();
+	}
+
+	/**
+	 * Check whether WOFF2 fonts can be decoded.
+	 *
+	 * @return {@code true} if a Brotli decompressor is available.
+	 */
+	public static boolean isWoff2Supported() {
+		return brotliDecompressor != null;
+	}
+
+	/**
+	 * Set the Brotli decompressor used to decode WOFF2 fonts.
+	 *
+	 * @param decompressor the decompressor, or {@code null} to disable WOFF2
+	 *                     support.
+	 */
+	public static void setBrotliDecompressor(BrotliDecompressor decompressor) {
+		brotliDecompressor = decompressor;
+	}
+
+	static BrotliDecompressor getBrotliDecompressor() {
+		return brotliDecompressor;
+	}
+
+	private static BrotliDecompressor findBrotliDecompressor() {
+		try {
+			Class<?> cl = Class.forName("org.brotli.dec.BrotliInputStream");
+			Constructor<?> ctor = cl.getConstructor(InputStream.class);
+			return in -> {
+				try {
+					return (InputStream) ctor.newInstance(in);
+				} catch (ReflectiveOperationException e) {
+					throw new IOException("Could not create Brotli decoder", e);
+				}
+			};
+		} catch (ClassNotFoundException | NoSuchMethodException | LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Decode a WOFF or WOFF2 font.
+	 *
+	 * @param is the stream with the WOFF or WOFF2 data.
+	 * @return a stream with the sfnt data, which is valid until this decoder is
+	 *         used again.
+	 * @throws IOException         if an I/O error occurred.
+	 * @throws FontFormatException if the data is not a valid WOFF or WOFF2 font,
+	 *                             or is a WOFF2 font and no Brotli decompressor is
+	 *                             available.
+	 */
+	public InputStream decode(InputStream is) throws IOException, FontFormatException {
+		sfnt.trim();
+		DataInputStream in = new DataInputStream(is);
+		int signature;
+		try {
+			signature = in.readInt();
+			if (signature == WOFF_SIGNATURE) {
+				decodeWoff(in);
+			} else if (signature == WOFF2_SIGNATURE) {
+				decodeWoff2(in);
+			} else {
+				throw new FontFormatException("Not a WOFF font.");
+			}
+		} catch (EOFException e) {
+			throw new FontFormatException("Truncated WOFF font.");
+		} catch (IndexOutOfBoundsException e) {
+			throw new FontFormatException("Malformed WOFF font.");
+		}
+		InputStream result = new ByteArrayInputStream(sfnt.data, 0, sfnt.length);
+		trimBuffers();
+		return result;
+	}
+
+	private void trimBuffers() {
+		compressed.trim();
+		input.trim();
+		glyf.trim();
+		loca.trim();
+		hmtx.trim();
+		if (xCoords.length > 4096) {
+			xCoords = new int[64];
+			yCoords = new int[64];
+			onCurve = new boolean[64];
+		}
+	}
+
+	/*
+	 * WOFF 1.0
+	 */
+
+	private void decodeWoff(DataInputStream in)
+			throws IOException, FontFormatException {
+		int flavor = in.readInt();
+		in.readInt(); // length
+		int numTables = in.readUnsignedShort();
+		if (numTables == 0 || in.readUnsignedShort() != 0) {
+			throw new FontFormatException("Invalid WOFF header.");
+		}
+		skipFully(in, 28); // totalSfntSize, version, metadata and private block
+		long pos = 44 + 20L * numTables;
+
+		WoffTable[] tables = new WoffTable[numTables];
+		for (int i = 0; i < numTables; i++) {
+			WoffTable table = new WoffTable();
+			table.tag = in.readInt();
+			table.offset = in.readInt() & 0xffffffffL;
+			table.compLength = checkLength(in.readInt());
+			table.origLength = checkLength(in.readInt());
+			table.checksum = in.readInt();
+			if (table.compLength > table.origLength || table.offset < pos) {
+				throw new FontFormatException("Invalid WOFF table directory.");
+			}
+			tables[i] = table;
+		}
+
+		// Lay out the sfnt tables, sorted by tag
+		Arrays.sort(tables, (t1, t2) -> Integer.compareUnsigned(t1.tag, t2.tag));
+		long sfntSize = 12 + 16L * numTables;
+		for (WoffTable table : tables) {
+			table.sfntOffset = (int) sfntSize;
+			sfntSize += pad4(table.origLength);
+		}
+		sfnt.reset(checkLength(sfntSize));
+		writeOffsetTable(flavor, numTables);
+		for (WoffTable table : tables) {
+			sfnt.writeInt(table.tag);
+			sfnt.writeInt(table.checksum);
+			sfnt.writeInt(table.sfntOffset);
+			sfnt.writeInt(table.origLength);
+		}
+
+		// Read the table data in file order, in a single pass
+		Arrays.sort(tables, (t1, t2) -> Long.compare(t1.offset, t2.offset));
+		Inflater inflater = new Inflater();
+		try {
+			for (WoffTable table : tables) {
+				if (table.offset < pos) {
+					throw new FontFormatException("Overlapping WOFF tables.");
+				}
+				skipFully(in, table.offset - pos);
+				if (table.compLength < table.origLength) {
+					compressed.reset(table.compLength);
+					in.readFully(compressed.data, 0, table.compLength);
+					inflater.reset();
+					inflater.setInput(compressed.data, 0, table.compLength);
+					int len;
+					try {
+						len = inflater.inflate(sfnt.data, table.sfntOffset, table.origLength);
+					} catch (DataFormatException e) {
+						throw new FontFormatException("Invalid compressed WOFF table.");
+					}
+					if (len != table.origLength || !inflater.finished()) {
+						throw new FontFormatException("Invalid compressed WOFF table.");
+					}
+				} else {
+					in.readFully(sfnt.data, table.sfntOffset, table.origLength);
+				}
+				sfnt.zero(table.sfntOffset + table.origLength, pad4(table.origLength) - table.origLength);
+				pos = table.offset + table.compLength;
+			}
+		} finally {
+			inflater.end();
+		}
+		sfnt.length = (int) sfntSize;
+	}
+
+	private static class WoffTable {
+		int tag;
+		long offset;
+		int compLength;
+		int origLength;
+		int checksum;
+		int sfntOffset;
+	}
+
+	/*
+	 * WOFF 2.0
+	 */
+
+	private void decodeWoff2(DataInputStream in)
+			throws IOException, FontFormatException {
+		BrotliDecompressor decompressor = brotliDecompressor;
+		if (decompressor == null) {
+			throw new FontFormatException("WOFF2 requires a Brotli decompressor.");
+		}
+		int flavor = in.readInt();
+		if (flavor == TTC_FLAVOR) {
+			throw new FontFormatException("WOFF2 font collections are not supported.");
+		}
+		in.readInt(); // length
+		int numTables = in.readUnsignedShort();
+		if (numTables == 0 || in.readUnsignedShort() != 0) {
+			throw new FontFormatException("Invalid WOFF2 header.");
+		}
+		in.readInt(); // totalSfntSize
+		int compressedSize = checkLength(in.readInt());
+		skipFully(in, 24); // version, metadata and private block
+
+		Woff2Table[] tables = new Woff2Table[numTables];
+		long dataSize = 0;
+		for (int i = 0; i < numTables; i++) {
+			Woff2Table table = new Woff2Table();
+			int flags = in.readUnsignedByte();
+			int tagIndex = flags & 0x3f;
+			table.tag = tagIndex == 0x3f ? in.readInt() : KNOWN_TAGS[tagIndex];
+			int transform = flags >> 6;
+			table.origLength = checkLength(readUIntBase128(in));
+			boolean glyfOrLoca = table.tag == TAG_GLYF || table.tag == TAG_LOCA;
+			if (glyfOrLoca ? transform == 0 : transform != 0) {
+				table.transformed = true;
+				table.transform = transform;
+				table.length = checkLength(readUIntBase128(in));
+			} else {
+				table.length = table.origLength;
+			}
+			table.offset = (int) dataSize;
+			dataSize += table.length;
+			tables[i] = table;
+		}
+		checkLength(dataSize);
+
+		// Decompress all the table data
+		compressed.reset(compressedSize);
+		in.readFully(compressed.data, 0, compressedSize);
+		input.reset((int) dataSize);
+		try (InputStream data = decompressor
+				.decompress(new ByteArrayInputStream(compressed.data, 0, compressedSize))) {
+			new DataInputStream(data).readFully(input.data, 0, (int) dataSize);
+		}
+		input.length = (int) dataSize;
+
+		// Reconstruct the transformed tables
+		Woff2Table glyfTable = findTable(tables, TAG_GLYF);
+		Woff2Table locaTable = findTable(tables, TAG_LOCA);
+		short[] xMins = null;
+		if (glyfTable != null && glyfTable.transformed) {
+			if (locaTable == null || !locaTable.transformed || locaTable.length != 0) {
+				throw new FontFormatException("Invalid WOFF2 loca table.");
+			}
+			xMins = reconstructGlyf(glyfTable);
+			setData(glyfTable, glyf);
+			setData(locaTable, loca);
+		} else if (locaTable != null && locaTable.transformed) {
+			throw new FontFormatException("Invalid WOFF2 loca table.");
+		}
+		for (Woff2Table table : tables) {
+			if (table.transformed && table.data == null) {
+				if (table.tag == TAG_HMTX && table.transform == 1 && xMins != null) {
+					reconstructHmtx(table, findTable(tables, TAG_HHEA), xMins);
+					setData(table, hmtx);
+				} else {
+					throw new FontFormatException("Unsupported WOFF2 table transform.");
+				}
+			} else if (table.data == null) {
+				table.data = input.data;
+			}
+		}
+
+		// Write the sfnt
+		Arrays.sort(tables, (t1, t2) -> Integer.compareUnsigned(t1.tag, t2.tag));
+		long sfntSize = 12 + 16L * numTables;
+		for (Woff2Table table : tables) {
+			table.sfntOffset = (int) sfntSize;
+			sfntSize += pad4(table.length);
+		}
+		sfnt.reset(checkLength(sfntSize));
+		writeOffsetTable(flavor, numTables);
+		Woff2Table headTable = null;
+		for (Woff2Table table : tables) {
+			System.arraycopy(table.data, table.offset, sfnt.data, table.sfntOffset, table.length);
+			sfnt.zero(table.sfntOffset + table.length, pad4(table.length) - table.length);
+			if (table.tag == TAG_HEAD) {
+				if (table.length < 12) {
+					throw new FontFormatException("Invalid head table.");
+				}
+				// checkSumAdjustment is computed later
+				putInt(sfnt.data, table.sfntOffset + 8, 0);
+				headTable = table;
+			}
+			sfnt.writeInt(table.tag);
+			sfnt.writeInt(checksum(sfnt.data, table.sfntOffset, table.length));
+			sfnt.writeInt(table.sfntOffset);
+			sfnt.writeInt(table.length);
+		}
+		sfnt.length = (int) sfntSize;
+		if (headTable != null) {
+			int adjustment = 0xb1b0afba - checksum(sfnt.data, 0, sfnt.length);
+			putInt(sfnt.data, headTable.sfntOffset + 8, adjustment);
+		}
+	}
+
+	private static class Woff2Table {
+		int tag;
+		boolean transformed;
+		int transform;
+		int origLength;
+		/*
+		 * Offset and length in data.
+		 */
+		byte[] data;
+		int offset;
+		int length;
+		int sfntOffset;
+	}
+
+	private static Woff2Table findTable(Woff2Table[] tables, int tag) {
+		for (Woff2Table table : tables) {
+			if (table.tag == tag) {
+				return table;
+			}
+		}
+		return null;
+	}
+
+	private static void setData(Woff2Table table, Buffer buffer) {
+		table.data = buffer.data;
+		table.offset = 0;
+		table.length = buffer.length;
+	}
+
+	/**
+	 * Reconstruct the glyf and loca tables from the transformed glyf table.
+	 *
+	 * @return the xMin of each glyph.
+	 */
+	private short[] reconstructGlyf(Woff2Table table) throws FontFormatException {
+		Reader header = new Reader(input.data, table.offset, table.offset + table.length);
+		header.u16(); // reserved
+		int optionFlags = header.u16();
+		int numGlyphs = header.u16();
+		int indexFormat = header.u16();
+		int[] streamSizes = new int[7];
+		for (int i = 0; i < 7; i++) {
+			streamSizes[i] = header.u32();
+		}
+		Reader nContourStream = header.next(streamSizes[0]);
+		Reader nPointsStream = header.next(streamSizes[1]);
+		Reader flagStream = header.next(streamSizes[2]);
+		Reader glyphStream = header.next(streamSizes[3]);
+		Reader compositeStream = header.next(streamSizes[4]);
+		Reader bboxStream = header.next(streamSizes[5]);
+		Reader instructionStream = header.next(streamSizes[6]);
+		Reader overlapBitmap = null;
+		if ((optionFlags & 1) != 0) {
+			overlapBitmap = header.next((numGlyphs + 7) >> 3);
+		}
+		int bboxBitmapPos = bboxStream.pos;
+		bboxStream.skip(((numGlyphs + 31) >> 5) << 2);
+
+		short[] xMins = new short[numGlyphs];
+		glyf.reset(table.origLength);
+		loca.reset((numGlyphs + 1) * (indexFormat == 0 ? 2 : 4));
+		for (int i = 0; i < numGlyphs; i++) {
+			writeLoca(indexFormat, glyf.length);
+			boolean hasBbox = (input.data[bboxBitmapPos + (i >> 3)] & (0x80 >> (i & 7))) != 0;
+			int nContours = nContourStream.s16();
+			if (nContours == 0) {
+				if (hasBbox) {
+					throw new FontFormatException("Empty glyph with bounding box.");
+				}
+				continue;
+			}
+			if (nContours == -1) {
+				if (!hasBbox) {
+					throw new FontFormatException("Composite glyph without bounding box.");
+				}
+				glyf.writeShort(-1);
+				xMins[i] = copyBbox(bboxStream);
+				int start = compositeStream.pos;
+				boolean haveInstructions = false;
+				int flags;
+				do {
+					flags = compositeStream.u16();
+					haveInstructions |= (flags & 0x100) != 0;
+					int argSize = (flags & 0x0001) != 0 ? 6 : 4; // glyphIndex and arguments
+					if ((flags & 0x0008) != 0) {
+						argSize += 2;
+					} else if ((flags & 0x0040) != 0) {
+						argSize += 4;
+					} else if ((flags & 0x0080) != 0) {
+						argSize += 8;
+					}
+					compositeStream.skip(argSize);
+				} while ((flags & 0x0020) != 0);
+				glyf.write(input.data, start, compositeStream.pos - start);
+				if (haveInstructions) {
+					copyInstructions(glyphStream, instructionStream);
+				}
+			} else if (nContours > 0) {
+				boolean overlap = overlapBitmap != null
+						&& (overlapBitmap.data[overlapBitmap.pos + (i >> 3)] & (0x80 >> (i & 7))) != 0;
+				xMins[i] = reconstructSimpleGlyph(nContours, hasBbox, overlap, nPointsStream,
+						flagStream, glyphStream, bboxStream, instructionStream);
+			} else {
+				throw new FontFormatException("Invalid number of contours.");
+			}
+			glyf.pad4();
+		}
+		writeLoca(indexFormat, glyf.length);
+		return xMins;
+	}
+
+	private void writeLoca(int indexFormat, int offset) {
+		if (indexFormat == 0) {
+			loca.writeShort(offset >> 1);
+		} else {
+			loca.writeInt(offset);
+		}
+	}
+
+	private short copyBbox(Reader bboxStream) throws FontFormatException {
+		short xMin = (short) bboxStream.s16();
+		glyf.writeShort(xMin);
+		glyf.writeShort(bboxStream.s16());
+		glyf.writeShort(bboxStream.s16());
+		glyf.writeShort(bboxStream.s16());
+		return xMin;
+	}
+
+	private void copyInstructions(Reader glyphStream, Reader instructionStream)
+			throws FontFormatException {
+		int length = glyphStream.read255UShort();
+		glyf.writeShort(length);
+		glyf.write(input.data, instructionStream.pos, length);
+		instructionStream.skip(length);
+	}
+
+	private short reconstructSimpleGlyph(int nContours, boolean hasBbox, boolean overlap,
+			Reader nPointsStream, Reader flagStream, Reader glyphStream, Reader bboxStream,
+			Reader instructionStream) throws FontFormatException {
+		glyf.writeShort(nContours);
+		int bboxOffset = glyf.length;
+		if (hasBbox) {
+			copyBbox(bboxStream);
+		} else {
+			glyf.writeInt(0);
+			glyf.writeInt(0);
+		}
+		int nPoints = 0;
+		for (int c = 0; c < nContours; c++) {
+			nPoints += nPointsStream.read255UShort();
+			glyf.writeShort(nPoints - 1);
+		}
+		ensurePoints(nPoints);
+
+		// Decode the triplets
+		int x = 0, y = 0;
+		for (int p = 0; p < nPoints; p++) {
+			int flag = flagStream.u8();
+			onCurve[p] = (flag & 0x80) == 0;
+			flag &= 0x7f;
+			int dx, dy;
+			if (flag < 10) {
+				dx = 0;
+				dy = withSign(flag, ((flag & 14) << 7) + glyphStream.u8());
+			} else if (flag < 20) {
+				dx = withSign(flag, (((flag - 10) & 14) << 7) + glyphStream.u8());
+				dy = 0;
+			} else if (flag < 84) {
+				int b0 = flag - 20;
+				int b1 = glyphStream.u8();
+				dx = withSign(flag, 1 + (b0 & 0x30) + (b1 >> 4));
+				dy = withSign(flag >> 1, 1 + ((b0 & 0x0c) << 2) + (b1 & 0x0f));
+			} else if (flag < 120) {
+				int b0 = flag - 84;
+				dx = withSign(flag, 1 + ((b0 / 12) << 8) + glyphStream.u8());
+				dy = withSign(flag >> 1, 1 + (((b0 % 12) >> 2) << 8) + glyphStream.u8());
+			} else if (flag < 124) {
+				int b1 = glyphStream.u8();
+				int b2 = glyphStream.u8();
+				dx = withSign(flag, (b1 << 4) + (b2 >> 4));
+				dy = withSign(flag >> 1, ((b2 & 0x0f) << 8) + glyphStream.u8());
+			} else {
+				dx = withSign(flag, glyphStream.u16());
+				dy = withSign(flag >> 1, glyphStream.u16());
+			}
+			x += dx;
+			y += dy;
+			xCoords[p] = x;
+			yCoords[p] = y;
+		}
+
+		copyInstructions(glyphStream, instructionStream);
+
+		// Flags, with repeats
+		int prevX = 0, prevY = 0;
+		int lastFlag = -1, repeat = 0;
+		for (int p = 0; p < nPoints; p++) {
+			int flag = encodeFlag(p, prevX, prevY, overlap && p == 0);
+			prevX = xCoords[p];
+			prevY = yCoords[p];
+			if (flag == lastFlag && repeat < 255) {
+				if (repeat == 0) {
+					glyf.data[glyf.length - 1] |= 0x08;
+					glyf.writeByte(1);
+				} else {
+					glyf.data[glyf.length - 1]++;
+				}
+				repeat++;
+			} else {
+				glyf.writeByte(flag);
+				lastFlag = flag;
+				repeat = 0;
+			}
+		}
+		// Coordinates
+		writeCoordinates(xCoords, nPoints);
+		writeCoordinates(yCoords, nPoints);
+
+		int xMin = 0;
+		if (hasBbox) {
+			xMin = (short) ((glyf.data[bboxOffset] << 8) | (glyf.data[bboxOffset + 1] & 0xff));
+		} else if (nPoints != 0) {
+			xMin = xCoords[0];
+			int yMin = yCoords[0], xMax = xMin, yMax = yMin;
+			for (int p = 1; p < nPoints; p++) {
+				xMin = Math.min(xMin, xCoords[p]);
+				xMax = Math.max(xMax, xCoords[p]);
+				yMin = Math.min(yMin, yCoords[p]);
+				yMax = Math.max(yMax, yCoords[p]);
+			}
+			putShort(glyf.data, bboxOffset, xMin);
+			putShort(glyf.data, bboxOffset + 2, yMin);
+			putShort(glyf.data, bboxOffset + 4, xMax);
+			putShort(glyf.data, bboxOffset + 6, yMax);
+		}
+		return (short) xMin;
+	}
+
+	private static int withSign(int flag, int value) {
+		return (flag & 1) != 0 ? value : -value;
+	}
+
+	private int encodeFlag(int p, int prevX, int prevY, boolean overlap) {
+		int flag = onCurve[p] ? 0x01 : 0;
+		if (overlap) {
+			flag |= 0x40;
+		}
+		int dx = xCoords[p] - prevX;
+		if (dx == 0) {
+			flag |= 0x10;
+		} else if (dx >= -255 && dx <= 255) {
+			flag |= dx > 0 ? 0x12 : 0x02;
+		}
+		int dy = yCoords[p] - prevY;
+		if (dy == 0) {
+			flag |= 0x20;
+		} else if (dy >= -255 && dy <= 255) {
+			flag |= dy > 0 ? 0x24 : 0x04;
+		}
+		return flag;
+	}
+
+	private void writeCoordinates(int[] coords, int nPoints) {
+		int prev = 0;
+		for (int p = 0; p < nPoints; p++) {
+			int delta = coords[p] - prev;
+			prev = coords[p];
+			if (delta == 0) {
+				continue;
+			}
+			if (delta >= -255 && delta <= 255) {
+				glyf.writeByte(Math.abs(delta));
+			} else {
+				glyf.writeShort(delta);
+			}
+		}
+	}
+
+	private void ensurePoints(int nPoints) {
+		if (xCoords.length < nPoints) {
+			int len = Math.max(nPoints, xCoords.length * 2);
+			xCoords = new int[len];
+			yCoords = new int[len];
+			onCurve = new boolean[len];
+		}
+	}
+
+	private void reconstructHmtx(Woff2Table table, Woff2Table hheaTable, short[] xMins)
+			throws FontFormatException {
+		if (hheaTable == null || hheaTable.length < 36) {
+			throw new FontFormatException("Invalid WOFF2 hhea table.");
+		}
+		int numHMetrics = ((input.data[hheaTable.offset + 34] & 0xff) << 8)
+				| (input.data[hheaTable.offset + 35] & 0xff);
+		int numGlyphs = xMins.length;
+		if (numHMetrics < 1 || numHMetrics > numGlyphs) {
+			throw new FontFormatException("Invalid number of horizontal metrics.");
+		}
+		Reader reader = new Reader(input.data, table.offset, table.offset + table.length);
+		int flags = reader.u8();
+		boolean hasLsb = (flags & 1) == 0;
+		boolean hasMonoLsb = (flags & 2) == 0;
+		int advStart = reader.pos;
+		reader.skip(numHMetrics * 2);
+		hmtx.reset(numHMetrics * 2 + numGlyphs * 2);
+		for (int i = 0; i < numGlyphs; i++) {
+			if (i < numHMetrics) {
+				hmtx.write(input.data, advStart + i * 2, 2);
+			}
+			boolean explicit = i < numHMetrics ? hasLsb : hasMonoLsb;
+			hmtx.writeShort(explicit ? reader.s16() : xMins[i]);
+		}
+	}
+
+	/*
+	 * Common utilities
+	 */
+
+	private void writeOffsetTable(int flavor, int numTables) {
+		int entrySelector = 31 - Integer.numberOfLeadingZeros(numTables);
+		int searchRange = (1 << entrySelector) * 16;
+		sfnt.writeInt(flavor);
+		sfnt.writeShort(numTables);
+		sfnt.writeShort(searchRange);
+		sfnt.writeShort(entrySelector);
+		sfnt.writeShort(numTables * 16 - searchRange);
+	}
+
+	private static int readUIntBase128(DataInputStream in) throws IOException, FontFormatException {
+		int value = 0;
+		for (int i = 0; i < 5; i++) {
+			int b = in.readUnsignedByte();
+			if (i == 0 && b == 0x80) {
+				throw new FontFormatException("Invalid UIntBase128 value.");
+			}
+			if ((value & 0xfe000000) != 0) {
+				throw new FontFormatException("UIntBase128 overflow.");
+			}
+			value = (value << 7) | (b & 0x7f);
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new FontFormatException("UIntBase128 value too long.");
+	}
+
+	private static int checkLength(long length) throws FontFormatException {
+		if (length < 0 || length > MAXIMUM_SFNT_SIZE) {
+			throw new FontFormatException("Font data too large.");
+		}
+		return (int) length;
+	}
+
+	private static int pad4(int length) {
+		return (length + 3) & ~3;
+	}
+
+	private static void skipFully(InputStream in, long n) throws IOException {
+		while (n > 0) {
+			long skipped = in.skip(n);
+			if (skipped <= 0) {
+				if (in.read() == -1) {
+					throw new EOFException();
+				}
+				skipped = 1;
+			}
+			n -= skipped;
+		}
+	}
+
+	private static int checksum(byte[] data, int offset, int length) {
+		int sum = 0;
+		int end = offset + pad4(length);
+		for (int i = offset; i < end; i += 4) {
+			sum += ((data[i] & 0xff) << 24) | ((data[i + 1] & 0xff) << 16)
+					| ((data[i + 2] & 0xff) << 8) | (data[i + 3] & 0xff);
+		}
+		return sum;
+	}
+
+	private static void putShort(byte[] data, int offset, int value) {
+		data[offset] = (byte) (value >> 8);
+		data[offset + 1] = (byte) value;
+	}
+
+	private static void putInt(byte[] data, int offset, int value) {
+		data[offset] = (byte) (value >> 24);
+		data[offset + 1] = (byte) (value >> 16);
+		data[offset + 2] = (byte) (value >> 8);
+		data[offset + 3] = (byte) value;
+	}
+
+	private static int tag(String tag) {
+		return (tag.charAt(0) << 24) | (tag.charAt(1) << 16) | (tag.charAt(2) << 8) | tag.charAt(3);
+	}
+
+	/**
+	 * A reusable, growable byte buffer.
+	 */
+	private static class Buffer {
+
+		byte[] data = new byte[0];
+		int length;
+
+		/**
+		 * Empty the buffer, making room for at least the given capacity.
+		 */
+		void reset(int capacity) {
+			if (data.length < capacity) {
+				data = new byte[capacity];
+			}
+			length = 0;
+		}
+
+		/**
+		 * Release a large backing array.
+		 */
+		void trim() {
+			if (data.length > MAXIMUM_RETAINED_SIZE) {
+				data = new byte[0];
+			}
+			length = 0;
+		}
+
+		private void ensure(int more) {
+			int needed = length + more;
+			if (needed > data.length) {
+				data = Arrays.copyOf(data, Math.max(needed, data.length * 2));
+			}
+		}
+
+		void writeByte(int b) {
+			ensure(1);
+			data[length++] = (byte) b;
+		}
+
+		void writeShort(int v) {
+			ensure(2);
+			putShort(data, length, v);
+			length += 2;
+		}
+
+		void writeInt(int v) {
+			ensure(4);
+			putInt(data, length, v);
+			length += 4;
+		}
+
+		void write(byte[] b, int off, int len) {
+			ensure(len);
+			System.arraycopy(b, off, data, length, len);
+			length += len;
+		}
+
+		void zero(int offset, int len) {
+			Arrays.fill(data, offset, offset + len, (byte) 0);
+		}
+
+		void pad4() {
+			int padded = WoffDecoder.pad4(length);
+			ensure(padded - length);
+			zero(length, padded - length);
+			length = padded;
+		}
+
+	}
+
+	/**
+	 * A bounds-checked reader of a region of a byte array.
+	 */
+	private static class Reader {
+
+		final byte[] data;
+		int pos;
+		final int end;
+
+		Reader(byte[] data, int pos, int end) {
+			super();
+			this.data = data;
+			this.pos = pos;
+			this.end = end;
+		}
+
+		/**
+		 * Create a reader for the next region of the given length, and skip it.
+		 */
+		Reader next(int length) throws FontFormatException {
+			skip(length);
+			return new Reader(data, pos - length, pos);
+		}
+
+		private void check(int n) throws FontFormatException {
+			if (n < 0 || n > end - pos) {
+				throw new FontFormatException("Truncated WOFF2 table.");
+			}
+		}
+
+		void skip(int n) throws FontFormatException {
+			check(n);
+			pos += n;
+		}
+
+		int u8() throws FontFormatException {
+			check(1);
+			return data[pos++] & 0xff;
+		}
+
+		int u16() throws FontFormatException {
+			check(2);
+			int v = ((data[pos] & 0xff) << 8) | (data[pos + 1] & 0xff);
+			pos += 2;
+			return v;
+		}
+
+		int s16() throws FontFormatException {
+			return (short) u16();
+		}
+
+		int u32() throws FontFormatException {
+			check(4);
+			int v = ((data[pos] & 0xff) << 24) | ((data[pos + 1] & 0xff) << 16)
+					| ((data[pos + 2] & 0xff) << 8) | (data[pos + 3] & 0xff);
+			pos += 4;
+			return v;
+		}
+
+		int read255UShort() throws FontFormatException {
+			int code = u8();
+			switch (code) {
+			case 253:
+				return u16();
+			case 254:
+				return u8() + 506;
+			case 255:
+				return u8() + 253;
+			default:
+				return code;
+			}
+		}
+
+	}
+
+}
@@ -17,4 +17,6 @@ module io.sf.carte.css4j.awt {
 
 	requires transitive java.desktop;
 	requires transitive io.sf.carte.css4j;
+	requires java.management;
+	requires static jdk.jfr;
 }